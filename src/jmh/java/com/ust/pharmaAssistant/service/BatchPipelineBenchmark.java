@@ -0,0 +1,90 @@
+package com.ust.pharmaAssistant.service;
+
+import com.ust.pharmaAssistant.model.BatchInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the batch pipeline stages that use master data, and of a full addBatch, against the
+ * application running on an embedded H2 database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchPipelineBenchmark {
+
+    /** Number of distinct batch codes in the BTC-1234 format. */
+    private static final int BATCH_CODE_SPACE = 10_000;
+
+    private ConfigurableApplicationContext context;
+
+    private BatchInfoService batchInfoService;
+
+    private JdbcTemplate jdbcTemplate;
+
+    /** A batch with a medicine type and weight that have a shipping charge. */
+    private BatchInfo enrichedBatch;
+
+    /** Sequence used to give every added batch a distinct batch code. */
+    private int sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        batchInfoService = context.getBean(BatchInfoService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        enrichedBatch = new BatchInfo("BTC-1234", "MED001", 600, 25.5, "T2");
+    }
+
+    @Setup(Level.Iteration)
+    public void clearBatches() {
+        jdbcTemplate.execute("truncate table batch_info");
+        sequence = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public double calculateShippingCharge() {
+        batchInfoService.calculateShippingCharge(enrichedBatch);
+        return enrichedBatch.getShippingCharge();
+    }
+
+    @Benchmark
+    public String calculateCareLevel() {
+        batchInfoService.calculateCareLevel(enrichedBatch);
+        return enrichedBatch.getCareLevel();
+    }
+
+    @Benchmark
+    public boolean addBatch() {
+        // The BTC-1234 format only has 10,000 codes; once they are used up the table is emptied so that every
+        // measured call is a successful insert. The truncate is amortized over 10,000 calls.
+        if (sequence == BATCH_CODE_SPACE) {
+            jdbcTemplate.execute("truncate table batch_info");
+            sequence = 0;
+        }
+        String batchCode = String.format("BTC-%04d", sequence++);
+        return batchInfoService.addBatch(new BatchInfo(batchCode, "MED001", 600, 25.5, "T2"));
+    }
+}
@@ -0,0 +1,89 @@
+package com.ust.pharmaAssistant.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ust.pharmaAssistant.exception.PharmaBusinessException;
+import com.ust.pharmaAssistant.model.BatchInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the CPU-only parts of the batch pipeline: batch code format check, batch validation, rejection of
+ * an invalid batch and deserialization of the request payload. None of them touch the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchValidationBenchmark {
+
+    /** Service under test; validation does not use any of its collaborators. */
+    private BatchInfoService batchInfoService;
+
+    /** Object mapper configured the way Spring MVC configures it. */
+    private ObjectMapper objectMapper;
+
+    /** Request payload of /api/batch/add. */
+    private byte[] payload;
+
+    /** A batch that passes validation. */
+    private BatchInfo validBatch;
+
+    /** A batch that fails validation on its batch code. */
+    private BatchInfo invalidBatch;
+
+    @Setup
+    public void setUp() {
+        batchInfoService = new BatchInfoService();
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        payload = ("{\"batchCode\":\"BTC-1234\",\"medicineCode\":\"MED001\",\"weight\":600.0,\"price\":25.5,"
+                + "\"medicineTypeCode\":\"T2\",\"refrigeration\":\"Yes\"}").getBytes(StandardCharsets.UTF_8);
+        validBatch = new BatchInfo("BTC-1234", "MED001", 600, 25.5, "T2");
+        invalidBatch = new BatchInfo("BTC-12A4", "MED001", 600, 25.5, "T2");
+    }
+
+    @Benchmark
+    public boolean isValidBatchCode() {
+        return batchInfoService.isValidBatchCode("BTC-1234");
+    }
+
+    @Benchmark
+    public boolean isValidBatchCodeInvalid() {
+        return batchInfoService.isValidBatchCode("BTC-12A4");
+    }
+
+    @Benchmark
+    public BatchInfo validateBatchInfo() {
+        batchInfoService.validateBatchInfo(validBatch);
+        return validBatch;
+    }
+
+    @Benchmark
+    public int rejectBatchInfo() {
+        try {
+            batchInfoService.validateBatchInfo(invalidBatch);
+            return 0;
+        } catch (PharmaBusinessException e) {
+            return e.getHttpStatus();
+        }
+    }
+
+    @Benchmark
+    public BatchInfo deserializeBatchInfo() throws IOException {
+        return objectMapper.readValue(payload, BatchInfo.class);
+    }
+}
@@ -0,0 +1,69 @@
+package com.ust.pharmaAssistant.service;
+
+import com.ust.pharmaAssistant.PharmaAssistantApplication;
+import com.ust.pharmaAssistant.model.MedicalTypeMaster;
+import com.ust.pharmaAssistant.model.Medicine;
+import com.ust.pharmaAssistant.model.ShippingMaster;
+import com.ust.pharmaAssistant.repository.MedicalTypeMasterRepository;
+import com.ust.pharmaAssistant.repository.MedicineRepository;
+import com.ust.pharmaAssistant.repository.ShippingMasterRepository;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Starts the application on the embedded H2 database for benchmarks, with a small set of master data.
+ */
+final class BenchmarkContext {
+
+    /** Medicine codes that exist in the seeded master data. */
+    static final String[] MEDICINE_CODES = {"MED001", "MED002", "MED003"};
+
+    /** Medicine type codes and names that exist in the seeded master data. */
+    static final String[][] MEDICINE_TYPES = {{"T1", "Capsules"}, {"T2", "Tablets"}, {"T3", "Syrups"}};
+
+    private BenchmarkContext() {
+    }
+
+    /**
+     * Starts the application without a web server and seeds the master tables.
+     *
+     * @return The started application context.
+     */
+    static ConfigurableApplicationContext start() {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(PharmaAssistantApplication.class)
+                .profiles("h2")
+                .web(WebApplicationType.NONE)
+                .properties("logging.level.root=warn", "logging.level.org.hibernate.SQL=warn")
+                .run();
+        seed(context);
+        return context;
+    }
+
+    /**
+     * Inserts the medicines, medicine types and a shipping charge for every medicine type and weight range.
+     */
+    private static void seed(ConfigurableApplicationContext context) {
+        MedicineRepository medicineRepository = context.getBean(MedicineRepository.class);
+        MedicalTypeMasterRepository medicalTypeMasterRepository = context.getBean(MedicalTypeMasterRepository.class);
+        ShippingMasterRepository shippingMasterRepository = context.getBean(ShippingMasterRepository.class);
+
+        for (String medicineCode : MEDICINE_CODES) {
+            Medicine medicine = new Medicine();
+            medicine.setMedicineCode(medicineCode);
+            medicine.setMedicineName("Medicine " + medicineCode);
+            medicineRepository.save(medicine);
+        }
+        double shippingCharge = 10;
+        for (String[] medicineType : MEDICINE_TYPES) {
+            medicalTypeMasterRepository.save(new MedicalTypeMaster(medicineType[0], medicineType[1]));
+            for (String weightRange : new String[]{"W1", "W2", "W3"}) {
+                ShippingMaster shippingMaster = new ShippingMaster();
+                shippingMaster.setMedicineTypeCode(medicineType[0]);
+                shippingMaster.setWeightRange(weightRange);
+                shippingMaster.setShippingCharge(shippingCharge++);
+                shippingMasterRepository.save(shippingMaster);
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.ust.pharmaAssistant.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of quoting 100 batches from the master data snapshot, from parallel arrays and from a JSON request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShippingQuoteBenchmark {
+
+    /** Number of batches per quote request. */
+    private static final int BATCHES = 100;
+
+    private ConfigurableApplicationContext context;
+
+    private ShippingQuoteService shippingQuoteService;
+
+    private final String[] medicineTypeCodes = new String[BATCHES];
+
+    private final double[] weights = new double[BATCHES];
+
+    private final String[] refrigerations = new String[BATCHES];
+
+    /** Request body of /api/shipping/quote with the same batches. */
+    private byte[] request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        shippingQuoteService = context.getBean(ShippingQuoteService.class);
+        // The snapshot was read before the master data was seeded
+        shippingQuoteService.reload();
+
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < BATCHES; i++) {
+            medicineTypeCodes[i] = BenchmarkContext.MEDICINE_TYPES[i % BenchmarkContext.MEDICINE_TYPES.length][0];
+            weights[i] = 100 + i * 10;
+            refrigerations[i] = i % 2 == 0 ? "Yes" : "No";
+            json.append(i == 0 ? "" : ",").append("{\"medicineTypeCode\":\"").append(medicineTypeCodes[i])
+                    .append("\",\"weight\":").append(weights[i])
+                    .append(",\"refrigeration\":\"").append(refrigerations[i]).append("\"}");
+        }
+        request = json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ShippingQuoteService.Quotes quoteArrays() {
+        return shippingQuoteService.quote(medicineTypeCodes, weights, refrigerations, BATCHES);
+    }
+
+    @Benchmark
+    public byte[] quoteJson() {
+        return shippingQuoteService.quote(request);
+    }
+}
@@ -0,0 +1,395 @@
+package com.ust.pharmaAssistant.loadtest;
+
+import com.ust.pharmaAssistant.PharmaAssistantApplication;
+import com.ust.pharmaAssistant.model.BatchInfo;
+import com.ust.pharmaAssistant.model.MedicalTypeMaster;
+import com.ust.pharmaAssistant.model.Medicine;
+import com.ust.pharmaAssistant.model.ShippingMaster;
+import com.ust.pharmaAssistant.repository.BatchInfoRepository;
+import com.ust.pharmaAssistant.repository.MedicalTypeMasterRepository;
+import com.ust.pharmaAssistant.repository.MedicineRepository;
+import com.ust.pharmaAssistant.repository.ShippingMasterRepository;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop HTTP load generator for POST /api/batch/add.
+ * <p>
+ * Unless a target url is given, the application is started in-process on the embedded H2 database with seeded
+ * master data. A configurable number of worker threads then send a weighted mix of valid batches, duplicate batch
+ * codes, unknown medicine codes and badly formatted batch codes for a warm-up period and a measured period.
+ * Latencies are recorded per request type in HdrHistograms and reported with throughput, percentiles up to p99.9
+ * and the distribution of response statuses.
+ * <p>
+ * Options are passed as {@code key=value} arguments:
+ * <ul>
+ *     <li>{@code threads} - number of concurrent workers (default 16)</li>
+ *     <li>{@code warmup} - warm-up seconds, not reported (default 10)</li>
+ *     <li>{@code duration} - measured seconds (default 30)</li>
+ *     <li>{@code mix} - weights per request type (default valid:70,duplicate:10,unknownMedicine:10,badFormat:10)</li>
+ *     <li>{@code url} - base url of an already running application; H2 is not started when set</li>
+ *     <li>{@code app.*} - any other application property for the in-process application,
+ *     e.g. {@code app.server.tomcat.threads.max=50} or {@code app.spring.datasource.hikari.maximum-pool-size=20}</li>
+ * </ul>
+ */
+public final class BatchLoadGenerator {
+
+    /** Batch code that is inserted before the run, so that requests using it are duplicates. */
+    private static final String DUPLICATE_BATCH_CODE = "BTC-9999";
+
+    /** Batch code used for unknown medicine requests; it is never inserted. */
+    private static final String UNKNOWN_MEDICINE_BATCH_CODE = "BTC-9998";
+
+    /** Number of batch codes available to valid requests, BTC-0000 to BTC-9997. */
+    private static final int VALID_CODE_SPACE = 9998;
+
+    /** Highest latency the histograms can record, in microseconds. */
+    private static final long MAX_LATENCY_MICROS = Duration.ofMinutes(1).toNanos() / 1000;
+
+    /**
+     * Request types of the mix, with the response status each one should get.
+     */
+    enum Scenario {
+        VALID("valid", 200),
+        DUPLICATE("duplicate", 409),
+        UNKNOWN_MEDICINE("unknownMedicine", 400),
+        BAD_FORMAT("badFormat", 400);
+
+        private final String key;
+        private final int expectedStatus;
+
+        Scenario(String key, int expectedStatus) {
+            this.key = key;
+            this.expectedStatus = expectedStatus;
+        }
+    }
+
+    private final Options options;
+    private final HttpClient httpClient;
+    private final URI addUri;
+
+    /** Clears the inserted valid batches when the code space runs out; null when testing a remote application. */
+    private final Runnable batchCodeReset;
+
+    /** Next batch code number for valid requests. */
+    private int validSequence;
+
+    /** Whether the load is being measured, as opposed to warming up. */
+    private volatile boolean measuring;
+
+    /** Whether the workers should stop. */
+    private volatile boolean stopped;
+
+    /** Per-scenario latency histograms of the measured period, merged from the workers. */
+    private final Map<Scenario, Histogram> histograms = new EnumMap<>(Scenario.class);
+
+    /** Per-scenario counts of response statuses of the measured period; -1 counts transport errors. */
+    private final Map<Scenario, Map<Integer, LongAdder>> statuses = new ConcurrentHashMap<>();
+
+    private BatchLoadGenerator(Options options, String baseUrl, Runnable batchCodeReset) {
+        this.options = options;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.addUri = URI.create(baseUrl + "/api/batch/add");
+        this.batchCodeReset = batchCodeReset;
+        for (Scenario scenario : Scenario.values()) {
+            histograms.put(scenario, new Histogram(MAX_LATENCY_MICROS, 3));
+            statuses.put(scenario, new ConcurrentHashMap<>());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        ConfigurableApplicationContext context = null;
+        String baseUrl = options.url;
+        Runnable batchCodeReset = null;
+        if (baseUrl == null) {
+            context = startApplication(options);
+            baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            batchCodeReset = () -> jdbcTemplate.update("delete from batch_info where batch_code <> ?", DUPLICATE_BATCH_CODE);
+        }
+        try {
+            new BatchLoadGenerator(options, baseUrl, batchCodeReset).run();
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    /**
+     * Starts the application on H2 with a random port and seeds the master data and the duplicate batch.
+     */
+    private static ConfigurableApplicationContext startApplication(Options options) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("server.port", 0);
+        properties.put("logging.level.root", "warn");
+        properties.put("logging.level.org.hibernate.SQL", "warn");
+        properties.putAll(options.appProperties);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(PharmaAssistantApplication.class)
+                .profiles("h2")
+                .properties(properties)
+                .run();
+
+        Medicine medicine = new Medicine();
+        medicine.setMedicineCode("MED001");
+        medicine.setMedicineName("Paracetamol");
+        context.getBean(MedicineRepository.class).save(medicine);
+        context.getBean(MedicalTypeMasterRepository.class).save(new MedicalTypeMaster("T1", "Tablets"));
+        double shippingCharge = 10;
+        for (String weightRange : new String[]{"W1", "W2", "W3"}) {
+            ShippingMaster shippingMaster = new ShippingMaster();
+            shippingMaster.setMedicineTypeCode("T1");
+            shippingMaster.setWeightRange(weightRange);
+            shippingMaster.setShippingCharge(shippingCharge);
+            shippingCharge *= 2;
+            context.getBean(ShippingMasterRepository.class).save(shippingMaster);
+        }
+        context.getBean(BatchInfoRepository.class).save(new BatchInfo(DUPLICATE_BATCH_CODE, "MED001", 200, 10, "T1"));
+        return context;
+    }
+
+    /**
+     * Runs the warm-up and measured periods and prints the report.
+     */
+    private void run() throws InterruptedException {
+        System.out.printf(Locale.ROOT, "Target %s, %d threads, %ds warm-up, %ds measured, mix %s%n",
+                addUri, options.threads, options.warmupSeconds, options.durationSeconds, options.mix);
+
+        List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < options.threads; i++) {
+            Worker worker = new Worker();
+            worker.setName("load-" + i);
+            worker.start();
+            workers.add(worker);
+        }
+
+        Thread.sleep(options.warmupSeconds * 1000L);
+        workers.forEach(Worker::reset);
+        measuring = true;
+        long start = System.nanoTime();
+        Thread.sleep(options.durationSeconds * 1000L);
+        measuring = false;
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        stopped = true;
+        for (Worker worker : workers) {
+            worker.join();
+            worker.histograms.forEach((scenario, histogram) -> histograms.get(scenario).add(histogram));
+        }
+
+        report(elapsedSeconds);
+    }
+
+    /**
+     * Prints throughput, latency percentiles in milliseconds and response statuses per scenario.
+     */
+    private void report(double elapsedSeconds) {
+        Histogram total = new Histogram(MAX_LATENCY_MICROS, 3);
+        System.out.printf(Locale.ROOT, "%n%-16s %9s %9s %9s %9s %9s %9s %9s %9s  %s%n",
+                "scenario", "requests", "req/s", "p50", "p90", "p99", "p99.9", "max", "unexpect", "statuses");
+        for (Scenario scenario : Scenario.values()) {
+            Histogram histogram = histograms.get(scenario);
+            total.add(histogram);
+            Map<Integer, Long> counts = new TreeMap<>();
+            statuses.get(scenario).forEach((status, count) -> counts.put(status, count.sum()));
+            long unexpected = counts.entrySet().stream()
+                    .filter(e -> e.getKey() != scenario.expectedStatus)
+                    .mapToLong(Map.Entry::getValue)
+                    .sum();
+            printRow(scenario.key, histogram, elapsedSeconds, String.valueOf(unexpected), counts.toString());
+        }
+        printRow("total", total, elapsedSeconds, "", "");
+        System.out.println("Latencies in ms; status -1 counts transport errors.");
+    }
+
+    private static void printRow(String name, Histogram histogram, double elapsedSeconds, String unexpected, String statuses) {
+        System.out.printf(Locale.ROOT, "%-16s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f %9s  %s%n",
+                name,
+                histogram.getTotalCount(),
+                histogram.getTotalCount() / elapsedSeconds,
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(90) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0,
+                unexpected,
+                statuses);
+    }
+
+    /**
+     * Returns the next batch code for a valid request. When the code space is used up, the inserted batches
+     * are deleted so that valid requests keep succeeding.
+     */
+    private synchronized String nextValidBatchCode() {
+        if (validSequence == VALID_CODE_SPACE) {
+            if (batchCodeReset != null) {
+                batchCodeReset.run();
+            } else {
+                System.out.println("Batch code space exhausted; further valid requests will be duplicates.");
+            }
+            validSequence = 0;
+        }
+        return String.format("BTC-%04d", validSequence++);
+    }
+
+    /**
+     * Builds the request body of a scenario.
+     */
+    private String body(Scenario scenario) {
+        switch (scenario) {
+            case DUPLICATE:
+                return batchJson(DUPLICATE_BATCH_CODE, "MED001");
+            case UNKNOWN_MEDICINE:
+                return batchJson(UNKNOWN_MEDICINE_BATCH_CODE, "MED404");
+            case BAD_FORMAT:
+                return batchJson("BTC-12X", "MED001");
+            default:
+                return batchJson(nextValidBatchCode(), "MED001");
+        }
+    }
+
+    private static String batchJson(String batchCode, String medicineCode) {
+        int weight = 100 + ThreadLocalRandom.current().nextInt(1500);
+        return "{\"batchCode\":\"" + batchCode + "\",\"medicineCode\":\"" + medicineCode + "\",\"weight\":" + weight
+                + ",\"price\":25.0,\"medicineTypeCode\":\"T1\",\"refrigeration\":\"" + (weight > 500 ? "Yes" : "No") + "\"}";
+    }
+
+    /**
+     * Worker thread that sends one request at a time and records its latency in its own histograms.
+     */
+    private final class Worker extends Thread {
+
+        private final Map<Scenario, Histogram> histograms = new EnumMap<>(Scenario.class);
+
+        Worker() {
+            for (Scenario scenario : Scenario.values()) {
+                histograms.put(scenario, new Histogram(MAX_LATENCY_MICROS, 3));
+            }
+        }
+
+        /** Discards what was recorded during the warm-up. */
+        void reset() {
+            synchronized (histograms) {
+                histograms.values().forEach(Histogram::reset);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (!stopped) {
+                Scenario scenario = options.pick();
+                HttpRequest request = HttpRequest.newBuilder(addUri)
+                        .timeout(Duration.ofSeconds(30))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body(scenario)))
+                        .build();
+                long start = System.nanoTime();
+                int status;
+                try {
+                    status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                } catch (Exception e) {
+                    status = -1;
+                }
+                long latencyMicros = Math.min((System.nanoTime() - start) / 1000, MAX_LATENCY_MICROS);
+                if (measuring) {
+                    synchronized (histograms) {
+                        histograms.get(scenario).recordValue(latencyMicros);
+                    }
+                    statuses.get(scenario).computeIfAbsent(status, s -> new LongAdder()).increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Command line options of the load generator.
+     */
+    private static final class Options {
+        int threads = 16;
+        int warmupSeconds = 10;
+        int durationSeconds = 30;
+        String mix = "valid:70,duplicate:10,unknownMedicine:10,badFormat:10";
+        String url;
+        final Map<String, Object> appProperties = new LinkedHashMap<>();
+
+        /** Cumulative weights of the scenarios, in Scenario order. */
+        private int[] cumulativeWeights;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                int separator = arg.indexOf('=');
+                if (separator < 0) {
+                    throw new IllegalArgumentException("Options should be key=value: " + arg);
+                }
+                String key = arg.substring(0, separator);
+                String value = arg.substring(separator + 1);
+                if (key.startsWith("app.")) {
+                    options.appProperties.put(key.substring("app.".length()), value);
+                    continue;
+                }
+                switch (key) {
+                    case "threads" -> options.threads = Integer.parseInt(value);
+                    case "warmup" -> options.warmupSeconds = Integer.parseInt(value);
+                    case "duration" -> options.durationSeconds = Integer.parseInt(value);
+                    case "mix" -> options.mix = value;
+                    case "url" -> options.url = value;
+                    default -> throw new IllegalArgumentException("Unknown option: " + key);
+                }
+            }
+            options.parseMix();
+            return options;
+        }
+
+        private void parseMix() {
+            Map<String, Integer> weights = new LinkedHashMap<>();
+            for (String entry : mix.split(",")) {
+                String[] parts = entry.trim().split(":");
+                weights.put(parts[0], Integer.parseInt(parts[1]));
+            }
+            cumulativeWeights = new int[Scenario.values().length];
+            int sum = 0;
+            for (Scenario scenario : Scenario.values()) {
+                sum += weights.getOrDefault(scenario.key, 0);
+                cumulativeWeights[scenario.ordinal()] = sum;
+                weights.remove(scenario.key);
+            }
+            if (!weights.isEmpty() || sum == 0) {
+                throw new IllegalArgumentException("Invalid mix: " + mix);
+            }
+        }
+
+        /** Picks a scenario at random according to the mix weights. */
+        Scenario pick() {
+            int value = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            for (Scenario scenario : Scenario.values()) {
+                if (value < cumulativeWeights[scenario.ordinal()]) {
+                    return scenario;
+                }
+            }
+            throw new IllegalStateException();
+        }
+    }
+}
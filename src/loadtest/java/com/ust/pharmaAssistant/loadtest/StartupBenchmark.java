@@ -0,0 +1,153 @@
+package com.ust.pharmaAssistant.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup benchmark: measures the time from launching the application to its first successful POST /api/batch/add.
+ * <p>
+ * The application is launched as a separate process, so that JVM start, class loading, AOT and CDS are included.
+ * As soon as the process is started, batches are posted until one is added; the elapsed time is recorded and the
+ * process is stopped. The launched application must be able to add a batch, i.e. its database must contain the
+ * medicine and medicine type used, with a shipping charge for weight range W2.
+ * <p>
+ * Options are passed as {@code key=value} arguments:
+ * <ul>
+ *     <li>{@code command} - command line launching the application, split on spaces (default: the fast-startup
+ *     build, {@code java -XX:SharedArchiveFile=target/pharmaAssistant.jsa -Dspring.aot.enabled=true
+ *     -Dspring.profiles.active=prod -jar target/pharmaAssistant-0.0.1-SNAPSHOT.jar})</li>
+ *     <li>{@code runs} - number of launches (default 5)</li>
+ *     <li>{@code url} - base url the launched application listens on (default http://localhost:8080)</li>
+ *     <li>{@code timeout} - seconds to wait for a successful add before giving up (default 120)</li>
+ *     <li>{@code medicineCode} and {@code medicineTypeCode} - master data of the posted batches (default MED001, T1)</li>
+ * </ul>
+ */
+public final class StartupBenchmark {
+
+    /** Command line of the fast-startup build, see the fast-startup Maven profile. */
+    private static final String DEFAULT_COMMAND = "java -XX:SharedArchiveFile=target/pharmaAssistant.jsa "
+            + "-Dspring.aot.enabled=true -Dspring.profiles.active=prod -jar target/pharmaAssistant-0.0.1-SNAPSHOT.jar";
+
+    /** Pause between two attempts while the application is not accepting batches yet. */
+    private static final long POLL_INTERVAL_MILLIS = 20;
+
+    private final Map<String, String> options;
+    private final HttpClient httpClient;
+    private final URI addUri;
+
+    private StartupBenchmark(Map<String, String> options) {
+        this.options = options;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(1))
+                .build();
+        this.addUri = URI.create(options.getOrDefault("url", "http://localhost:8080") + "/api/batch/add");
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Options should be key=value: " + arg);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        new StartupBenchmark(options).run();
+    }
+
+    /**
+     * Launches the application the configured number of times and prints the time to first add of each launch.
+     */
+    private void run() throws IOException, InterruptedException {
+        List<String> command = Arrays.asList(options.getOrDefault("command", DEFAULT_COMMAND).trim().split("\\s+"));
+        int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+        System.out.printf(Locale.ROOT, "Launching %s%n%d runs, first add on %s%n", String.join(" ", command), runs, addUri);
+
+        List<Long> times = new ArrayList<>();
+        for (int run = 1; run <= runs; run++) {
+            long millis = measure(command);
+            times.add(millis);
+            System.out.printf(Locale.ROOT, "run %d: %d ms%n", run, millis);
+        }
+        times.sort(null);
+        System.out.printf(Locale.ROOT, "time to first add: min %d ms, median %d ms, max %d ms%n",
+                times.get(0), times.get(times.size() / 2), times.get(times.size() - 1));
+    }
+
+    /**
+     * Launches the application once and returns the milliseconds until a batch was added.
+     */
+    private long measure(List<String> command) throws IOException, InterruptedException {
+        long timeoutNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("timeout", "120")));
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            while (System.nanoTime() - start < timeoutNanos) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with status " + process.exitValue());
+                }
+                if (tryAdd()) {
+                    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                }
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            }
+            throw new IllegalStateException("No batch added within the timeout");
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    /**
+     * Posts one batch with a random batch code.
+     *
+     * @return true if the batch was added, false if the application is not ready or the code is already taken.
+     */
+    private boolean tryAdd() throws InterruptedException {
+        String body = String.format(Locale.ROOT,
+                "{\"batchCode\":\"BTC-%04d\",\"medicineCode\":\"%s\",\"weight\":600.0,\"price\":25.5,"
+                        + "\"medicineTypeCode\":\"%s\",\"refrigeration\":\"No\"}",
+                ThreadLocalRandom.current().nextInt(10_000),
+                options.getOrDefault("medicineCode", "MED001"),
+                options.getOrDefault("medicineTypeCode", "T1"));
+        HttpRequest request = HttpRequest.newBuilder(addUri)
+                .timeout(Duration.ofSeconds(10))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        HttpResponse<String> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            // Not listening yet
+            return false;
+        }
+        int status = response.statusCode();
+        if (status == 200) {
+            return true;
+        }
+        if (status == 409 || status == 429 || status == 503 || status == 404) {
+            // Code already taken, shed, or the web server is up before the application is
+            return false;
+        }
+        throw new IllegalStateException("Batch rejected with status " + status + ": " + response.body());
+    }
+}
@@ -0,0 +1,42 @@
+package com.ust.pharmaAssistant.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the admission control of batch writes.
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "pharma.admission")
+public class AdmissionProperties {
+
+    /** Whether batch writes are subject to admission control. */
+    private boolean enabled = true;
+
+    /** Number of concurrent batch writes allowed at startup. */
+    private int initialLimit = 20;
+
+    /** Lowest number of concurrent batch writes the limit can shrink to. */
+    private int minLimit = 2;
+
+    /** Highest number of concurrent batch writes the limit can grow to. */
+    private int maxLimit = 200;
+
+    /** Latency of a batch write above which the limit shrinks. */
+    private Duration latencyThreshold = Duration.ofMillis(250);
+
+    /** Factor the limit is multiplied by when a write is slow or fails. */
+    private double backoffRatio = 0.9;
+
+    /** Number of threads waiting for a database connection above which writes are shed; negative to disable. */
+    private int maxPendingConnections = 10;
+
+    /** Time clients are asked to wait before retrying a shed write. */
+    private Duration retryAfter = Duration.ofSeconds(1);
+}
@@ -7,10 +7,13 @@ import org.springdoc.core.GroupedOpenApi;
 import org.springdoc.core.customizers.OpenApiCustomiser;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 
 /**
  * Configuration class for setting up OpenAPI documentation customization for PharmaAssistant API.
+ * The documentation is not on the request path, so its beans are created on first use instead of at startup.
  */
+@Lazy
 @Configuration
 public class OpenApiConfig {
 
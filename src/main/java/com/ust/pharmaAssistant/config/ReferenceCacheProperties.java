@@ -0,0 +1,27 @@
+package com.ust.pharmaAssistant.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the in-memory cache of reference data (medicines, medicine types and shipping charges).
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "pharma.reference-cache")
+public class ReferenceCacheProperties {
+
+    /** Maximum number of entries kept per cache. */
+    private long maximumSize = 10_000;
+
+    /** Time after which an entry is reloaded in the background on its next read. */
+    private Duration refreshAfterWrite = Duration.ofMinutes(5);
+
+    /** Time after which an entry is dropped if it has not been refreshed. */
+    private Duration expireAfterWrite = Duration.ofMinutes(30);
+}
@@ -0,0 +1,86 @@
+package com.ust.pharmaAssistant.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Configuration class routing read-only transactions to a read replica, enabled by setting
+ * pharma.datasource.replica.url.
+ * <p>
+ * The application data source is a proxy that only takes a physical connection when the first statement runs: if
+ * the connection was marked read-only by then, which read-only transactions do, it comes from the replica pool,
+ * otherwise from the primary pool. Reference data loads, batch reads, listings, statistics and exports run in
+ * read-only transactions and go to the replica. Writes, and the duplicate checks of batch codes, which run outside
+ * read-only transactions, go to the primary, so a batch added a moment ago is always seen as a duplicate. So do the
+ * reads whose result must include the latest writes: idempotency records, the batch totals loaded into memory, the
+ * rule seeding counts, and the outbox events and cursors.
+ * <p>
+ * The primary pool is configured by spring.datasource.*, the replica pool by pharma.datasource.replica.* with the
+ * same keys. The pools are named primary and replica in the hikaricp.connections.* metrics.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty("pharma.datasource.replica.url")
+public class ReplicaDataSourceConfig {
+
+    /** Prefix of the replica connection settings. */
+    private static final String REPLICA_PREFIX = "pharma.datasource.replica";
+
+    /**
+     * Creates the pool of the primary database, which takes all writes.
+     *
+     * @param properties The spring.datasource settings.
+     * @return The primary pool.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    /**
+     * Creates the pool of the read replica, whose connections are read-only.
+     *
+     * @param environment The environment holding the pharma.datasource.replica settings.
+     * @return The replica pool.
+     */
+    @Bean
+    @ConfigurationProperties(REPLICA_PREFIX + ".hikari")
+    public HikariDataSource replicaDataSource(Environment environment) {
+        DataSourceProperties properties = Binder.get(environment)
+                .bind(REPLICA_PREFIX, DataSourceProperties.class)
+                .orElseGet(DataSourceProperties::new);
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    /**
+     * Creates the application data source, routing read-only connections to the replica.
+     *
+     * @param primaryDataSource The primary pool.
+     * @param replicaDataSource The replica pool.
+     * @return The routing data source.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") DataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaDataSource);
+        return dataSource;
+    }
+}
@@ -0,0 +1,12 @@
+package com.ust.pharmaAssistant.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Configuration class enabling the scheduled maintenance jobs of the PharmaAssistant application.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
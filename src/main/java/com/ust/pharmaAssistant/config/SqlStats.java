@@ -0,0 +1,115 @@
+package com.ust.pharmaAssistant.config;
+
+/**
+ * Counts the SQL statements run by the current thread, with the rows they returned or changed and the time they took,
+ * between the opening and closing of a {@link Scope}. Scopes nest: a statement counts in every open scope of its
+ * thread, so a test can count the statements of an HTTP request that is counted itself.
+ * Statements are recorded by {@link SqlStatsDataSource}; statements of threads without an open scope are not counted.
+ */
+public final class SqlStats {
+
+    /** Innermost open scope of each thread. */
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    private SqlStats() {
+    }
+
+    /**
+     * Statements, rows and time counted since a scope was opened. Scopes are used by the thread that opened them
+     * and should be closed in the reverse order of opening, e.g. with try-with-resources.
+     */
+    public static final class Scope implements AutoCloseable {
+
+        /** Scope that was innermost when this one was opened. */
+        private final Scope parent;
+
+        /** Number of statements run. */
+        private long statements;
+
+        /** Number of rows returned or changed. */
+        private long rows;
+
+        /** Time spent executing statements, in nanoseconds. */
+        private long nanos;
+
+        private Scope(Scope parent) {
+            this.parent = parent;
+        }
+
+        /**
+         * Returns the number of statements run; a JDBC batch counts as one statement.
+         * @return The number of statements.
+         */
+        public long getStatements() {
+            return statements;
+        }
+
+        /**
+         * Returns the number of rows read from result sets plus the number of rows inserted, updated or deleted.
+         * @return The number of rows.
+         */
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         * Returns the time spent executing statements, not including reading their results.
+         * @return The time in nanoseconds.
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * Stops counting in this scope.
+         */
+        @Override
+        public void close() {
+            if (parent == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(parent);
+            }
+        }
+    }
+
+    /**
+     * Opens a scope in the current thread.
+     * @return The scope, to be closed by the current thread.
+     */
+    public static Scope open() {
+        Scope scope = new Scope(CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    /**
+     * Returns the innermost open scope of the current thread.
+     * @return The scope, or null if none is open.
+     */
+    public static Scope current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Counts a statement in the open scopes of the current thread.
+     * @param nanos The time the statement took to execute.
+     * @param rows  The number of rows it changed.
+     */
+    static void recordStatement(long nanos, long rows) {
+        for (Scope scope = CURRENT.get(); scope != null; scope = scope.parent) {
+            scope.statements++;
+            scope.nanos += nanos;
+            scope.rows += rows;
+        }
+    }
+
+    /**
+     * Counts a row read from a result set in the open scopes of the current thread.
+     */
+    static void recordRowRead() {
+        for (Scope scope = CURRENT.get(); scope != null; scope = scope.parent) {
+            scope.rows++;
+        }
+    }
+}
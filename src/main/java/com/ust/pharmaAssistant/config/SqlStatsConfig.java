@@ -0,0 +1,61 @@
+package com.ust.pharmaAssistant.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+/**
+ * Configuration class counting the SQL statements of each HTTP request, enabled unless pharma.sql-stats.enabled is
+ * false.
+ * <p>
+ * The application data source is wrapped in a {@link SqlStatsDataSource}, after any read replica routing so that
+ * each statement is counted once, and every request is counted by a {@link SqlStatsFilter}. With
+ * pharma.sql-stats.response-header=true, responses also carry the counts of their request in the X-Sql-Stats
+ * header, see {@link com.ust.pharmaAssistant.controller.SqlStatsHeaderAdvice}.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "pharma.sql-stats.enabled", matchIfMissing = true)
+public class SqlStatsConfig {
+
+    /** Name of the application data source bean. */
+    private static final String DATA_SOURCE_BEAN = "dataSource";
+
+    /**
+     * Wraps the application data source in a counting data source.
+     *
+     * @return The bean post processor.
+     */
+    @Bean
+    public static BeanPostProcessor sqlStatsDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (DATA_SOURCE_BEAN.equals(beanName) && bean instanceof DataSource dataSource
+                        && !(bean instanceof SqlStatsDataSource)) {
+                    return new SqlStatsDataSource(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Registers the filter counting the statements of each request, outside the other filters so that the
+     * statements they run are counted too.
+     *
+     * @param registry The meter registry.
+     * @return The filter registration.
+     */
+    @Bean
+    public FilterRegistrationBean<SqlStatsFilter> sqlStatsFilter(MeterRegistry registry) {
+        FilterRegistrationBean<SqlStatsFilter> registration = new FilterRegistrationBean<>(new SqlStatsFilter(registry));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
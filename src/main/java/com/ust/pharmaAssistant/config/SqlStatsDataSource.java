@@ -0,0 +1,196 @@
+package com.ust.pharmaAssistant.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Data source counting the statements run on its connections in the {@link SqlStats} scopes of the calling thread.
+ * Connections, statements and result sets are wrapped in JDK proxies that time each execute call, add the update
+ * counts of writes and count the rows read from result sets; everything else is passed to the pooled objects
+ * unchanged, and the pool can still be unwrapped.
+ */
+public class SqlStatsDataSource extends DelegatingDataSource {
+
+    /**
+     * Creates a data source counting the statements of another one.
+     *
+     * @param targetDataSource The data source to count.
+     */
+    public SqlStatsDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    /**
+     * Returns a counting connection of the target data source.
+     *
+     * @return The connection.
+     * @throws SQLException if the target data source fails.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(Connection.class, super.getConnection());
+    }
+
+    /**
+     * Returns a counting connection of the target data source for a user.
+     *
+     * @param username The user name.
+     * @param password The password.
+     * @return The connection.
+     * @throws SQLException if the target data source fails.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxy(Connection.class, super.getConnection(username, password));
+    }
+
+    /**
+     * Wraps a JDBC object of the given interface in a counting proxy.
+     */
+    private static <T> T proxy(Class<T> type, T target) {
+        InvocationHandler handler = type == Connection.class ? new ConnectionHandler(target)
+                : type == ResultSet.class ? new ResultSetHandler(target)
+                : new StatementHandler(target);
+        return type.cast(Proxy.newProxyInstance(SqlStatsDataSource.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    /**
+     * Base of the invocation handlers, passing calls to the wrapped object and comparing proxies by identity.
+     */
+    private abstract static class Handler implements InvocationHandler {
+
+        /** The wrapped JDBC object. */
+        final Object target;
+
+        Handler(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            return switch (method.getName()) {
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                default -> handle(method, args);
+            };
+        }
+
+        /**
+         * Handles a JDBC call.
+         */
+        abstract Object handle(Method method, Object[] args) throws Throwable;
+
+        /**
+         * Calls the wrapped object, rethrowing what it throws.
+         */
+        Object call(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Wraps the statements created by a connection.
+     */
+    private static final class ConnectionHandler extends Handler {
+
+        ConnectionHandler(Object target) {
+            super(target);
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            Object result = call(method, args);
+            if (result instanceof Statement statement && !method.getName().equals("unwrap")) {
+                return proxy(statementType(method), statement);
+            }
+            return result;
+        }
+
+        /**
+         * Returns the statement interface a connection method returns: Statement, PreparedStatement or
+         * CallableStatement.
+         */
+        @SuppressWarnings("unchecked")
+        private static Class<Statement> statementType(Method method) {
+            return (Class<Statement>) method.getReturnType();
+        }
+    }
+
+    /**
+     * Counts and times the execute calls of a statement and wraps its result sets.
+     */
+    private static final class StatementHandler extends Handler {
+
+        StatementHandler(Object target) {
+            super(target);
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (!name.startsWith("execute")) {
+                Object result = call(method, args);
+                return name.equals("getResultSet") && result != null ? proxy(ResultSet.class, (ResultSet) result) : result;
+            }
+            long start = System.nanoTime();
+            Object result = null;
+            try {
+                result = call(method, args);
+            } finally {
+                SqlStats.recordStatement(System.nanoTime() - start, changedRows(result));
+            }
+            return result instanceof ResultSet resultSet ? proxy(ResultSet.class, resultSet) : result;
+        }
+
+        /**
+         * Returns the number of rows changed according to the result of an execute call.
+         */
+        private static long changedRows(Object result) {
+            long rows = 0;
+            if (result instanceof Number count) {
+                rows = Math.max(0, count.longValue());
+            } else if (result instanceof int[] counts) {
+                for (int count : counts) {
+                    rows += Math.max(0, count);
+                }
+            } else if (result instanceof long[] counts) {
+                for (long count : counts) {
+                    rows += Math.max(0, count);
+                }
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * Counts the rows read from a result set.
+     */
+    private static final class ResultSetHandler extends Handler {
+
+        ResultSetHandler(Object target) {
+            super(target);
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            Object result = call(method, args);
+            if (Boolean.TRUE.equals(result) && method.getName().equals("next")) {
+                SqlStats.recordRowRead();
+            }
+            return result;
+        }
+    }
+}
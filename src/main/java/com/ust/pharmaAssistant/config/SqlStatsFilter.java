@@ -0,0 +1,75 @@
+package com.ust.pharmaAssistant.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filter counting the SQL statements of each HTTP request in a {@link SqlStats} scope, and recording them in the
+ * {@code pharma.sql.statements} and {@code pharma.sql.rows} summaries and the {@code pharma.sql.time} timer, tagged
+ * with the method and URI pattern of the request like {@code http.server.requests}.
+ * Only statements run by the request thread are counted: work handed to other threads, such as the writing of
+ * streamed responses, is not.
+ */
+public class SqlStatsFilter extends OncePerRequestFilter {
+
+    /** Registry the meters are registered with. */
+    private final MeterRegistry registry;
+
+    /**
+     * Creates the filter.
+     *
+     * @param registry The meter registry.
+     */
+    public SqlStatsFilter(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Counts the statements of the request and records them once it is handled.
+     */
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try (SqlStats.Scope scope = SqlStats.open()) {
+            try {
+                filterChain.doFilter(request, response);
+            } finally {
+                record(request, scope);
+            }
+        }
+    }
+
+    /**
+     * Records the statements of a request in its meters.
+     */
+    private void record(HttpServletRequest request, SqlStats.Scope scope) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Tags tags = Tags.of("method", request.getMethod(), "uri", pattern != null ? pattern.toString() : "UNKNOWN");
+        DistributionSummary.builder("pharma.sql.statements")
+                .description("Number of SQL statements run by an HTTP request")
+                .tags(tags)
+                .register(registry)
+                .record(scope.getStatements());
+        DistributionSummary.builder("pharma.sql.rows")
+                .description("Number of rows read or changed by the SQL statements of an HTTP request")
+                .tags(tags)
+                .register(registry)
+                .record(scope.getRows());
+        Timer.builder("pharma.sql.time")
+                .description("Time spent executing the SQL statements of an HTTP request")
+                .tags(tags)
+                .register(registry)
+                .record(scope.getNanos(), TimeUnit.NANOSECONDS);
+    }
+}
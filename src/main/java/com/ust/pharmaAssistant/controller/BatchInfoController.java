@@ -1,18 +1,53 @@
 package com.ust.pharmaAssistant.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ust.pharmaAssistant.exception.AdmissionRejectedException;
 import com.ust.pharmaAssistant.exception.PharmaBusinessException;
+import com.ust.pharmaAssistant.exception.PharmaExceptionHandler;
+import com.ust.pharmaAssistant.model.BatchFilter;
 import com.ust.pharmaAssistant.model.BatchInfo;
+import com.ust.pharmaAssistant.model.BatchPage;
+import com.ust.pharmaAssistant.model.BatchResult;
+import com.ust.pharmaAssistant.model.BatchTotals;
+import com.ust.pharmaAssistant.model.IdempotentResponse;
+import com.ust.pharmaAssistant.model.ImportJobStatus;
+import com.ust.pharmaAssistant.model.IngestStatus;
+import com.ust.pharmaAssistant.service.BatchArchiveService;
+import com.ust.pharmaAssistant.service.BatchExportService;
+import com.ust.pharmaAssistant.service.BatchExportService.ExportFormat;
+import com.ust.pharmaAssistant.service.BatchImportService;
+import com.ust.pharmaAssistant.service.BatchIngestService;
 import com.ust.pharmaAssistant.service.BatchInfoService;
+import com.ust.pharmaAssistant.service.BatchReadCache;
+import com.ust.pharmaAssistant.service.BatchReadCache.CachedBatch;
+import com.ust.pharmaAssistant.service.BatchStatsService;
+import com.ust.pharmaAssistant.service.IdempotencyService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.util.StopWatch;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.Locale;
 
 /**
  * Controller class for handling batch-related operations in the PharmaAssistant API.
@@ -24,46 +59,357 @@ public class BatchInfoController {
     // Logger instance for logging
     private static final Logger logger = LoggerFactory.getLogger(BatchInfoController.class);
 
+    // Request header identifying a request across retries
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    // Response header set when a response is replayed for a retry
+    static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
     // Autowired BatchInfoService for performing batch-related operations
     @Autowired
     private BatchInfoService batchInfoService;
 
+    // Autowired BatchExportService for streaming the batch table
+    @Autowired
+    private BatchExportService batchExportService;
+
+    // Autowired BatchImportService for importing CSV manifests
+    @Autowired
+    private BatchImportService batchImportService;
+
+    // Autowired BatchReadCache serving single batches
+    @Autowired
+    private BatchReadCache batchReadCache;
+
+    // Autowired BatchArchiveService for archiving and scanning old batches
+    @Autowired
+    private BatchArchiveService batchArchiveService;
+
+    // Autowired BatchStatsService holding the running batch totals
+    @Autowired
+    private BatchStatsService batchStatsService;
+
+    // Autowired IdempotencyService for replaying responses to retried requests
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    // Autowired BatchIngestService for asynchronous ingestion; absent unless pharma.ingest.enabled is true
+    @Autowired(required = false)
+    private BatchIngestService batchIngestService;
+
+    // Autowired PharmaExceptionHandler for building the error body of stored rejections
+    @Autowired
+    private PharmaExceptionHandler pharmaExceptionHandler;
+
+    // Autowired ObjectMapper for serializing the error body of stored rejections
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * Endpoint for adding a new batch.
+     * With pharma.batch-code.allocation-enabled, the batch code can be left out; the server then allocates one and
+     * returns it in the response.
+     * With an Idempotency-Key header, the request can be retried safely: a retry with the same key and body gets
+     * the response of the first request, with an Idempotent-Replayed header, instead of adding the batch again.
      *
-     * @param batchInfo BatchInfo object containing information about the batch.
+     * Rejected batches get an error body, see {@link PharmaExceptionHandler}.
+     *
+     * @param batchInfo      BatchInfo object containing information about the batch.
+     * @param idempotencyKey Optional key identifying the request across retries.
+     * @param locale         The locale of the request, for the error body.
      * @return ResponseEntity indicating the success or failure of the operation.
      */
     @PostMapping("/add")
-    public ResponseEntity<String> addBatch(@RequestBody BatchInfo batchInfo) {
-        StopWatch stopWatch = new StopWatch();
-        stopWatch.start("Add Batch in Controller");
+    public ResponseEntity<String> addBatch(@RequestBody BatchInfo batchInfo,
+                                           @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                           Locale locale) {
+        if (idempotencyKey == null) {
+            return ResponseEntity.ok(addBatchAndDescribe(batchInfo));
+        }
+        IdempotentResponse response = idempotencyService.execute(idempotencyKey,
+                IdempotencyService.fingerprint(batchInfo), () -> processBatch(batchInfo, locale));
+        return toResponseEntity(response);
+    }
 
+    /**
+     * Adds a new batch.
+     *
+     * @param batchInfo BatchInfo object containing information about the batch.
+     * @return The success message, with the calculated shipping charge and care level, and the batch code if the
+     * server allocated it.
+     * @throws PharmaBusinessException if the batch is rejected.
+     */
+    private String addBatchAndDescribe(BatchInfo batchInfo) {
+        boolean withoutBatchCode = !StringUtils.hasLength(batchInfo.getBatchCode());
+        batchInfoService.addBatch(batchInfo);
+        String message = String.format("Batch added successfully. Shipping Charge: %.2f, Care Level: %s",
+                batchInfo.getShippingCharge(), batchInfo.getCareLevel());
+        return withoutBatchCode ? message + ", Batch Code: " + batchInfo.getBatchCode() : message;
+    }
+
+    /**
+     * Adds a new batch and builds the response, so that rejections can be stored and replayed like successes.
+     *
+     * @param batchInfo BatchInfo object containing information about the batch.
+     * @param locale    The locale of the request, for the error body.
+     * @return The status and body of the response.
+     */
+    private IdempotentResponse processBatch(BatchInfo batchInfo, Locale locale) {
         try {
-            // Attempt to add the batch using the BatchInfoService
-            boolean isAdded = batchInfoService.addBatch(batchInfo);
-            stopWatch.stop();
-            logger.info("Time taken to add batch in controller: {} ms", stopWatch.getTotalTimeMillis());
-
-            // Get the calculated shipping charges and care level from the BatchInfo object
-            double shippingCharge = batchInfo.getShippingCharge();
-            String careLevel = batchInfo.getCareLevel();
-
-            // Return success response with the calculated shipping charges and care level
-            String responseMessage = String.format("Batch added successfully. Shipping Charge: %.2f, Care Level: %s", shippingCharge, careLevel);
-            return ResponseEntity.ok(responseMessage);
+            return new IdempotentResponse(HttpStatus.OK.value(), addBatchAndDescribe(batchInfo), false);
+        } catch (AdmissionRejectedException e) {
+            // Not stored, so that a retry of a shed request is processed
+            throw e;
         } catch (PharmaBusinessException e) {
-            // Catch PharmaBusinessException and handle it by returning appropriate error response
-            stopWatch.stop();
-            logger.info("Time taken to add batch in controller: {} ms", stopWatch.getTotalTimeMillis());
-            logger.error("Pharma Business Exception: {}", e.getMessage());
-            return ResponseEntity.status(e.getErrorCode()).body(e.getMessage());
+            logger.debug("Pharma Business Exception: {}", e.getMessage());
+            try {
+                String body = objectMapper.writeValueAsString(pharmaExceptionHandler.toErrorResponse(e, locale));
+                return new IdempotentResponse(e.getHttpStatus(), body, false);
+            } catch (JsonProcessingException jsonException) {
+                throw new IllegalStateException(jsonException);
+            }
         } catch (Exception e) {
             // Catch any unexpected exceptions and handle them with a general error response
-            stopWatch.stop();
-            logger.info("Time taken to add batch in controller: {} ms", stopWatch.getTotalTimeMillis());
             logger.error("An unexpected error occurred: {}", e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("General system Error");
+            return new IdempotentResponse(HttpStatus.INTERNAL_SERVER_ERROR.value(), "General system Error", false);
+        }
+    }
+
+    /**
+     * Converts a response of the add endpoint into a ResponseEntity, flagging replayed responses.
+     *
+     * @param response The status and body of the response.
+     * @return The ResponseEntity.
+     */
+    private ResponseEntity<String> toResponseEntity(IdempotentResponse response) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(response.status());
+        if (response.replayed()) {
+            builder.header(IDEMPOTENT_REPLAYED, "true");
+        }
+        if (HttpStatus.valueOf(response.status()).is4xxClientError()) {
+            builder.contentType(MediaType.APPLICATION_JSON);
+        }
+        return builder.body(response.body());
+    }
+
+    /**
+     * Endpoint for adding a list of batches in one request.
+     * Each row is accepted or rejected on its own; the response carries one result per submitted row.
+     *
+     * @param batchInfos List of BatchInfo objects containing information about the batches.
+     * @return ResponseEntity with the result of each row.
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<List<BatchResult>> addBatches(@RequestBody List<BatchInfo> batchInfos) {
+        List<BatchResult> results = batchInfoService.addBatches(batchInfos);
+        return ResponseEntity.ok(results);
+    }
+
+    /**
+     * Endpoint for listing batches one page at a time, ordered by batch code.
+     * To get the next page, pass the nextCursor of the current page as {@code after}.
+     *
+     * @param filter Optional filters: medicineCode, medicineTypeCode, careLevel, refrigeration,
+     *               minWeight, maxWeight, minPrice and maxPrice.
+     * @param after  The nextCursor of the previous page; omitted for the first page.
+     * @param limit  The page size, 50 by default and at most 500.
+     * @return ResponseEntity with the page, or 400 if the page size is invalid.
+     */
+    @GetMapping
+    public ResponseEntity<BatchPage> findBatches(@ModelAttribute BatchFilter filter,
+                                                 @RequestParam(required = false) String after,
+                                                 @RequestParam(defaultValue = "50") int limit) {
+        BatchPage page = batchInfoService.findBatches(filter, after, limit);
+        return ResponseEntity.ok(page);
+    }
+
+    /**
+     * Endpoint for reading one batch, with its shipping charge and care level.
+     * The response carries an ETag; a client sending it back in If-None-Match gets 304 Not Modified without a body
+     * while the batch is unchanged. Cached batches are served without a query or serialization.
+     *
+     * @param batchCode   The batch code.
+     * @param ifNoneMatch The ETags the client already has, if any.
+     * @return ResponseEntity with the batch, 304 if the client has it already, or 404 if the batch does not exist.
+     */
+    @GetMapping("/{batchCode}")
+    public ResponseEntity<byte[]> getBatch(@PathVariable String batchCode,
+                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        CachedBatch batch = batchReadCache.find(batchCode)
+                .orElseThrow(() -> new PharmaBusinessException(404, "Batch not found"));
+        if (ifNoneMatch != null && matchesETag(ifNoneMatch, batch.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(batch.etag())
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(batch.etag())
+                .cacheControl(CacheControl.noCache())
+                .body(batch.body());
+    }
+
+    /**
+     * Checks if an If-None-Match header matches an ETag, using the weak comparison required for If-None-Match.
+     *
+     * @param ifNoneMatch The If-None-Match header: "*" or a comma separated list of ETags.
+     * @param etag        The quoted ETag of the current representation.
+     * @return true if the client already has the current representation.
+     */
+    static boolean matchesETag(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Endpoint for exporting all batches, ordered by batch code.
+     * Rows are streamed from the database as they are read, so the response can be as large as the table.
+     *
+     * @param format The export format, "csv" (default) or "ndjson".
+     * @param gzip   Whether to gzip the response body.
+     * @return ResponseEntity streaming the export, or 400 if the format is invalid.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportBatches(@RequestParam(defaultValue = "csv") String format,
+                                                               @RequestParam(defaultValue = "false") boolean gzip) {
+        ExportFormat exportFormat = ExportFormat.parse(format);
+
+        StreamingResponseBody body = outputStream -> batchExportService.export(outputStream, exportFormat, gzip);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"batches." + exportFormat.getExtension() + "\"");
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Endpoint for importing a CSV manifest of batches.
+     * The file is imported in the background; poll the returned location for progress and rejected lines.
+     *
+     * @param file The CSV file. Its first line names the columns; batchCode, medicineCode, weight, price,
+     *             medicineTypeCode and refrigeration are required, in any order.
+     * @return ResponseEntity with the status of the new import job, or 400 if the file is invalid.
+     * @throws IOException if the upload cannot be read; rendered as error 500 by {@link PharmaExceptionHandler}.
+     */
+    @PostMapping("/import")
+    public ResponseEntity<?> importBatches(@RequestParam("file") MultipartFile file) throws IOException {
+        ImportJobStatus status = batchImportService.startImport(file);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/batch/import/" + status.jobId()))
+                .body(status);
+    }
+
+    /**
+     * Endpoint for following an import job.
+     *
+     * @param jobId The id returned when the import was started.
+     * @return ResponseEntity with the progress and rejected lines of the job, or 404 if the job is unknown.
+     */
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<?> getImport(@PathVariable String jobId) {
+        return batchImportService.findJob(jobId)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body("Import job not found"));
+    }
+
+    /**
+     * Endpoint for reading the batch count, total weight, total price and total shipping charge by group.
+     * The totals are kept up to date as batches are added, so this does not query the batch table; batches added
+     * through other instances are included within pharma.batch-stats.refresh-interval.
+     *
+     * @param groupBy The dimensions to group by: medicineTypeCode, careLevel and/or refrigeration; all three by default.
+     * @return ResponseEntity with the totals of each group, or 400 if a dimension is unknown.
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<List<BatchTotals>> getStats(@RequestParam(defaultValue = "") List<String> groupBy) {
+        List<BatchTotals> totals = batchStatsService.getTotals(groupBy);
+        return ResponseEntity.ok(totals);
+    }
+
+    /**
+     * Endpoint for recomputing the batch totals from the batch table, e.g. after rows were changed outside the API.
+     *
+     * @return ResponseEntity with the recomputed totals.
+     */
+    @PostMapping("/stats/rebuild")
+    public ResponseEntity<List<BatchTotals>> rebuildStats() {
+        batchStatsService.rebuild();
+        return ResponseEntity.ok(batchStatsService.getTotals(List.of()));
+    }
+
+    /**
+     * Endpoint for scanning the archived batches, oldest first.
+     * Only the archive files and columns that can match the filter are read; the result is streamed as NDJSON.
+     *
+     * @param filter Criteria the batches must match, including the creation time range.
+     * @return ResponseEntity streaming the matching archived batches.
+     */
+    @GetMapping("/archive")
+    public ResponseEntity<StreamingResponseBody> scanArchive(@ModelAttribute BatchFilter filter) {
+        StreamingResponseBody body = outputStream -> batchArchiveService.scan(outputStream, filter);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    /**
+     * Endpoint for archiving the batches older than the retention now, instead of waiting for the schedule.
+     *
+     * @return ResponseEntity with the number of archived batches.
+     */
+    @PostMapping("/archive/run")
+    public ResponseEntity<String> archiveBatches() {
+        long archived = batchArchiveService.archive();
+        return ResponseEntity.ok("Archived " + archived + " batches");
+    }
+
+    /**
+     * Endpoint for adding a new batch asynchronously.
+     * The batch is validated and its shipping charge and care level calculated right away; it is written to the
+     * database shortly after, and the duplicate check happens then. Poll the returned location for the outcome.
+     *
+     * @param batchInfo BatchInfo object containing information about the batch.
+     * @return ResponseEntity with the tracking status of the queued batch, or the error body if it is rejected or the
+     * queue is full, or 404 if asynchronous ingestion is disabled.
+     * @throws IOException if the batch cannot be written to the ingestion journal; rendered as error 500 by
+     * {@link PharmaExceptionHandler}.
+     */
+    @PostMapping("/async")
+    public ResponseEntity<?> addBatchAsync(@RequestBody BatchInfo batchInfo) throws IOException {
+        if (batchIngestService == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Asynchronous ingestion is disabled");
+        }
+        IngestStatus status = batchIngestService.submit(batchInfo);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/batch/async/" + status.trackingId()))
+                .body(status);
+    }
+
+    /**
+     * Endpoint for following a batch added asynchronously.
+     *
+     * @param trackingId The tracking id returned when the batch was submitted.
+     * @return ResponseEntity with the status of the batch, or 404 if the tracking id is unknown.
+     */
+    @GetMapping("/async/{trackingId}")
+    public ResponseEntity<?> getAsyncStatus(@PathVariable String trackingId) {
+        if (batchIngestService == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Asynchronous ingestion is disabled");
         }
+        return batchIngestService.findStatus(trackingId)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body("Tracking id not found"));
     }
-}
\ No newline at end of file
+}
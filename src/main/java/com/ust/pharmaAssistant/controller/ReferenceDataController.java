@@ -0,0 +1,115 @@
+package com.ust.pharmaAssistant.controller;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.ust.pharmaAssistant.service.BatchRuleService;
+import com.ust.pharmaAssistant.service.ReferenceDataCache;
+import com.ust.pharmaAssistant.service.ShippingQuoteService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Controller class for inspecting and invalidating the reference data cache in the PharmaAssistant API.
+ */
+@RestController
+@RequestMapping("/api/reference-data")
+public class ReferenceDataController {
+
+    // Autowired ReferenceDataCache holding the cached master data
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    // Autowired ShippingQuoteService holding the master data snapshot of shipping quotes
+    @Autowired
+    private ShippingQuoteService shippingQuoteService;
+
+    // Autowired BatchRuleService holding the compiled care level, weight band and surcharge rules
+    @Autowired
+    private BatchRuleService batchRuleService;
+
+    /**
+     * Endpoint for reading the hit, miss and load statistics of each reference data cache.
+     *
+     * @return ResponseEntity with the statistics by cache name.
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Map<String, Object>>> getStats() {
+        Map<String, Long> sizes = referenceDataCache.sizes();
+        Map<String, Map<String, Object>> response = new LinkedHashMap<>();
+        referenceDataCache.stats().forEach((cacheName, stats) -> response.put(cacheName, toMap(stats, sizes.get(cacheName))));
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Endpoint for invalidating all reference data caches, e.g. after a bulk change of master data.
+     * The master data snapshot of shipping quotes is read again as well.
+     *
+     * @return ResponseEntity with no content.
+     */
+    @DeleteMapping
+    public ResponseEntity<Void> invalidateAll() {
+        referenceDataCache.invalidateAll();
+        shippingQuoteService.reload();
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Endpoint for reloading the care level, weight band and refrigeration surcharge rules after the rule tables
+     * changed, without waiting for the periodic reload.
+     *
+     * @return ResponseEntity with no content, or 400 if the rule tables are invalid and the previous rules are kept.
+     */
+    @PostMapping("/rules/reload")
+    public ResponseEntity<String> reloadRules() {
+        if (!batchRuleService.reload()) {
+            return ResponseEntity.badRequest().body("Invalid rules, the previous rules are still in use");
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Endpoint for invalidating one reference data cache, or a single entry of it.
+     *
+     * @param cacheName Name of the cache: medicines, medicalTypes or shippingMasters.
+     * @param key       Optional key of the entry to invalidate; "medicineTypeCode|weightRange" for shippingMasters.
+     * @return ResponseEntity with no content, or 400 if the cache name or key is invalid.
+     */
+    @DeleteMapping("/{cacheName}")
+    public ResponseEntity<String> invalidate(@PathVariable String cacheName, @RequestParam(required = false) String key) {
+        try {
+            referenceDataCache.invalidate(cacheName, key);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Converts cache statistics to a response map.
+     *
+     * @param stats The cache statistics.
+     * @param size  The estimated number of entries.
+     * @return The statistics as a map.
+     */
+    private Map<String, Object> toMap(CacheStats stats, long size) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("size", size);
+        map.put("hitCount", stats.hitCount());
+        map.put("missCount", stats.missCount());
+        map.put("hitRate", stats.hitRate());
+        map.put("loadCount", stats.loadCount());
+        map.put("loadFailureCount", stats.loadFailureCount());
+        map.put("averageLoadPenaltyMillis", stats.averageLoadPenalty() / 1_000_000.0);
+        map.put("evictionCount", stats.evictionCount());
+        return map;
+    }
+}
@@ -0,0 +1,42 @@
+package com.ust.pharmaAssistant.controller;
+
+import com.ust.pharmaAssistant.exception.PharmaExceptionHandler;
+import com.ust.pharmaAssistant.service.ShippingQuoteService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controller class for quoting shipping charges in the PharmaAssistant API.
+ */
+@RestController
+@RequestMapping("/api/shipping")
+public class ShippingController {
+
+    // Autowired ShippingQuoteService computing quotes from the in-memory master data snapshot
+    @Autowired
+    private ShippingQuoteService shippingQuoteService;
+
+    /**
+     * Endpoint for quoting the shipping charge and care level of hypothetical batches, without adding them.
+     * Each batch is quoted the way /api/batch/add would calculate it; batches that add would reject for their
+     * shipping charge or care level get the error code and message instead.
+     *
+     * Invalid requests get an error body, see {@link PharmaExceptionHandler}.
+     *
+     * @param request JSON array of objects with a medicineTypeCode, a weight and optionally a refrigeration
+     *                requirement, at most pharma.quote.max-items of them.
+     * @return ResponseEntity with a JSON array holding the quote of each batch in request order, 400 if the request
+     * is invalid, or 413 if it has too many batches.
+     */
+    @PostMapping(value = "/quote", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> quote(@RequestBody byte[] request) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(shippingQuoteService.quote(request));
+    }
+}
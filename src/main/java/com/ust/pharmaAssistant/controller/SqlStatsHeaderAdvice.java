@@ -0,0 +1,63 @@
+package com.ust.pharmaAssistant.controller;
+
+import com.ust.pharmaAssistant.config.SqlStats;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.Locale;
+
+/**
+ * Controller advice adding the SQL statements counted for the request so far to each response body, in the
+ * X-Sql-Stats header, e.g. {@code statements=3, rows=3, time-ms=0.412}. The body is written after the handler
+ * returns, so the counts cover the handler and the exception handlers. Streamed responses do not get the header.
+ * Enabled by pharma.sql-stats.response-header=true; the header exposes the query shape of the application, so it is
+ * meant for development and test environments.
+ */
+@ControllerAdvice
+@ConditionalOnProperty("pharma.sql-stats.response-header")
+public class SqlStatsHeaderAdvice implements ResponseBodyAdvice<Object> {
+
+    /** Name of the response header. */
+    public static final String HEADER = "X-Sql-Stats";
+
+    /**
+     * Applies to every response body.
+     *
+     * @param returnType    The return type of the handler.
+     * @param converterType The message converter.
+     * @return true.
+     */
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    /**
+     * Adds the header, if the statements of the request are counted.
+     *
+     * @param body                  The response body.
+     * @param returnType            The return type of the handler.
+     * @param selectedContentType   The content type of the response.
+     * @param selectedConverterType The message converter.
+     * @param request               The request.
+     * @param response              The response.
+     * @return The unchanged body.
+     */
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        SqlStats.Scope scope = SqlStats.current();
+        if (scope != null) {
+            response.getHeaders().set(HEADER, String.format(Locale.ROOT, "statements=%d, rows=%d, time-ms=%.3f",
+                    scope.getStatements(), scope.getRows(), scope.getNanos() / 1e6));
+        }
+        return body;
+    }
+}
@@ -0,0 +1,25 @@
+package com.ust.pharmaAssistant.exception;
+
+import lombok.Getter;
+
+/**
+ * Business exception thrown when a request is shed by admission control, telling the client when to retry.
+ */
+@Getter
+public class AdmissionRejectedException extends PharmaBusinessException {
+
+    /** Number of seconds the client should wait before retrying. */
+    private final long retryAfterSeconds;
+
+    /**
+     * Constructs a new AdmissionRejectedException.
+     *
+     * @param errorCode         The HTTP status of the rejection, 429 or 503.
+     * @param errorMessage      The error message.
+     * @param retryAfterSeconds The number of seconds the client should wait before retrying.
+     */
+    public AdmissionRejectedException(int errorCode, String errorMessage, long retryAfterSeconds) {
+        super(errorCode, errorMessage);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
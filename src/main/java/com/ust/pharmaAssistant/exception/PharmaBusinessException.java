@@ -6,6 +6,7 @@ import lombok.Getter;
  * Custom exception class representing business-related errors in the PharmaAssistant application.
  * This exception is used to handle various business logic exceptions and errors that occur during application execution.
  * It extends the RuntimeException class for unchecked exception handling.
+ * Business errors are expected outcomes of bad input, so the exception does not capture a stack trace.
  */
 @Getter
 public class PharmaBusinessException extends RuntimeException {
@@ -23,8 +24,23 @@ public class PharmaBusinessException extends RuntimeException {
      * @param errorMessage The error message associated with the exception.
      */
     public PharmaBusinessException(int errorCode, String errorMessage) {
-        super(errorMessage);
+        super(errorMessage, null, false, false);
         this.errorCode = errorCode;
         this.errorMessage = errorMessage;
     }
+
+    /**
+     * Returns the HTTP status of a response rejecting a request with this error.
+     * Business errors 510 to 516 are mapped to client error statuses; other codes are already HTTP statuses.
+     *
+     * @return The HTTP status code.
+     */
+    public int getHttpStatus() {
+        return switch (errorCode) {
+            case 510, 512, 513, 516 -> 400;
+            case 511 -> 409;
+            case 514, 515 -> 422;
+            default -> errorCode >= 400 && errorCode < 600 ? errorCode : 500;
+        };
+    }
 }
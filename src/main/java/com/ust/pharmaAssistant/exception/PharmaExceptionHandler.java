@@ -0,0 +1,117 @@
+package com.ust.pharmaAssistant.exception;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ust.pharmaAssistant.model.ErrorResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.MessageSource;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Locale;
+
+/**
+ * Renders business errors thrown by the controllers as an {@link ErrorResponse} with the matching HTTP status.
+ * Any other unexpected exception is rendered as error 500, so that no endpoint needs its own catch-all.
+ */
+@RestControllerAdvice
+public class PharmaExceptionHandler {
+
+    // Logger instance for logging
+    private static final Logger logger = LoggerFactory.getLogger(PharmaExceptionHandler.class);
+
+    // Prefix of the error code descriptions in messages.properties
+    private static final String MESSAGE_PREFIX = "error.code.";
+
+    // Most error code descriptions to keep; one per error code and locale
+    private static final int MAX_CACHED_DESCRIPTIONS = 1000;
+
+    // Error code descriptions by error code and locale; an empty description means there is none
+    private final Cache<DescriptionKey, String> descriptions = Caffeine.newBuilder()
+            .maximumSize(MAX_CACHED_DESCRIPTIONS)
+            .build();
+
+    // Autowired MessageSource holding the error code descriptions
+    @Autowired
+    private MessageSource messageSource;
+
+    /**
+     * Handles a PharmaBusinessException thrown by a controller.
+     *
+     * @param e      The exception.
+     * @param locale The locale of the request.
+     * @return ResponseEntity with the HTTP status and error body of the exception.
+     */
+    @ExceptionHandler(PharmaBusinessException.class)
+    public ResponseEntity<ErrorResponse> handleBusinessException(PharmaBusinessException e, Locale locale) {
+        logger.debug("Pharma Business Exception: {}", e.getMessage());
+        ErrorResponse errorResponse = toErrorResponse(e, locale);
+        return ResponseEntity.status(errorResponse.status()).body(errorResponse);
+    }
+
+    /**
+     * Handles a request shed by admission control, telling the client when to retry.
+     *
+     * @param e      The exception.
+     * @param locale The locale of the request.
+     * @return ResponseEntity with the HTTP status, Retry-After header and error body of the exception.
+     */
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public ResponseEntity<ErrorResponse> handleAdmissionRejected(AdmissionRejectedException e, Locale locale) {
+        ErrorResponse errorResponse = toErrorResponse(e, locale);
+        return ResponseEntity.status(errorResponse.status())
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()))
+                .body(errorResponse);
+    }
+
+    /**
+     * Handles an unexpected exception thrown by a controller as error 500, without exposing its message.
+     * Exceptions Spring MVC maps to a status of its own, such as a malformed request body or a missing parameter,
+     * are rethrown so that they keep that status.
+     *
+     * @param e      The exception.
+     * @param locale The locale of the request.
+     * @return ResponseEntity with HTTP status 500 and the error body of error code 500.
+     * @throws Exception the exception itself if Spring MVC maps it to a status.
+     */
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<ErrorResponse> handleUnexpectedException(Exception e, Locale locale) throws Exception {
+        if (e instanceof org.springframework.web.ErrorResponse || e instanceof TypeMismatchException
+                || e instanceof HttpMessageNotReadableException
+                || AnnotatedElementUtils.hasAnnotation(e.getClass(), ResponseStatus.class)) {
+            throw e;
+        }
+        logger.error("An unexpected error occurred", e);
+        ErrorResponse errorResponse = toErrorResponse(new PharmaBusinessException(500, "General system Error"), locale);
+        return ResponseEntity.status(errorResponse.status()).body(errorResponse);
+    }
+
+    /**
+     * Builds the error body of a PharmaBusinessException.
+     *
+     * @param e      The exception.
+     * @param locale The locale of the request.
+     * @return The error body, described from messages.properties, or by the exception message if the error code
+     * has no description.
+     */
+    public ErrorResponse toErrorResponse(PharmaBusinessException e, Locale locale) {
+        String description = descriptions.get(new DescriptionKey(e.getErrorCode(), locale),
+                key -> messageSource.getMessage(MESSAGE_PREFIX + key.errorCode(), null, "", key.locale()));
+        return new ErrorResponse(e.getHttpStatus(), e.getErrorCode(),
+                description.isEmpty() ? e.getMessage() : description, e.getMessage());
+    }
+
+    /**
+     * Key of the description cache.
+     */
+    private record DescriptionKey(int errorCode, Locale locale) {
+    }
+}
@@ -0,0 +1,32 @@
+package com.ust.pharmaAssistant.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+/**
+ * Model class representing the batch code of an archived batch in the PharmaAssistant application.
+ * Archived batches leave batch_info, so their codes are kept here for the duplicate checks, which would otherwise
+ * let a new batch take the code of an archived one.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "archived_batch_code")
+@AllArgsConstructor
+@NoArgsConstructor
+public class ArchivedBatchCode implements Serializable {
+
+    /** Default serial version UID for serialization. */
+    private static final long serialVersionUID = 1L;
+
+    /** Batch code of the archived batch. */
+    @Id
+    private String batchCode;
+}
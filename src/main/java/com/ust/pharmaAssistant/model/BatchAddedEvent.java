@@ -0,0 +1,14 @@
+package com.ust.pharmaAssistant.model;
+
+import java.time.Instant;
+
+/**
+ * Application event published to in-process listeners for each batch added, once its outbox event is relayed.
+ * Events arrive in outbox order, at least once: listeners should ignore event ids they have already handled.
+ *
+ * @param eventId   The id of the outbox event.
+ * @param createdAt The time the batch was added.
+ * @param batch     The added batch.
+ */
+public record BatchAddedEvent(long eventId, Instant createdAt, BatchSummary batch) {
+}
@@ -0,0 +1,35 @@
+package com.ust.pharmaAssistant.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+/**
+ * Model class representing the counter server-allocated batch codes are reserved from in the PharmaAssistant
+ * application. Each application node reserves a block of codes at a time by advancing the next code by its block size,
+ * so blocks never overlap even if the nodes use different block sizes.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "batch_code_counter")
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchCodeCounter implements Serializable {
+
+    /** Default serial version UID for serialization. */
+    private static final long serialVersionUID = 1L;
+
+    /** Name of the counter. */
+    @Id
+    private String name;
+
+    /** First code that has not been reserved yet. */
+    private long nextValue;
+}
@@ -0,0 +1,44 @@
+package com.ust.pharmaAssistant.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Filter criteria of the batch query API. Criteria that are not set do not restrict the result.
+ */
+@Getter
+@Setter
+public class BatchFilter {
+
+    /** Medicine code the batches must have. */
+    private String medicineCode;
+
+    /** Medicine type code the batches must have. */
+    private String medicineTypeCode;
+
+    /** Care level the batches must have. */
+    private String careLevel;
+
+    /** Refrigeration requirement (Yes/No) the batches must have. */
+    private String refrigeration;
+
+    /** Minimum weight, inclusive. */
+    private Double minWeight;
+
+    /** Maximum weight, inclusive. */
+    private Double maxWeight;
+
+    /** Minimum price, inclusive. */
+    private Double minPrice;
+
+    /** Maximum price, inclusive. */
+    private Double maxPrice;
+
+    /** Earliest creation time, inclusive, e.g. 2024-01-01T00:00:00Z. */
+    private Instant createdFrom;
+
+    /** Latest creation time, exclusive. */
+    private Instant createdTo;
+}
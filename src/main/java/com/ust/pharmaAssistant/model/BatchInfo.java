@@ -1,13 +1,26 @@
 package com.ust.pharmaAssistant.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+import org.springframework.data.domain.Persistable;
 
 import java.io.Serializable;
+import java.time.Instant;
 import java.util.Objects;
 
 /**
@@ -16,13 +29,24 @@ import java.util.Objects;
  * medicine type code, shipping charge, care level, and refrigeration requirement.
  * It is annotated with JPA annotations for mapping to the database and Lombok annotations for generating
  * boilerplate code.
+ * Since the batch code is assigned by the client, the entity implements Persistable so that saving a new batch
+ * issues a plain insert instead of a merge that first selects the row.
  */
 @Getter
 @Setter
 @Entity
+@Table(indexes = {
+        // Equality filter followed by the batch code, so that a filtered page is a seek in key order
+        @Index(name = "idx_batch_info_medicine_code", columnList = "medicine_code, batch_code"),
+        @Index(name = "idx_batch_info_medicine_type_code", columnList = "medicine_type_code, batch_code"),
+        @Index(name = "idx_batch_info_care_level", columnList = "care_level, batch_code"),
+        @Index(name = "idx_batch_info_refrigeration", columnList = "refrigeration, batch_code"),
+        // Archival reads the oldest batches first
+        @Index(name = "idx_batch_info_created_at", columnList = "created_at, batch_code")
+})
 @AllArgsConstructor
 @NoArgsConstructor
-public class BatchInfo implements Serializable {
+public class BatchInfo implements Serializable, Persistable<String> {
 
     /** Default serial version UID for serialization. */
     private static final long serialVersionUID = 1L;
@@ -52,6 +76,21 @@ public class BatchInfo implements Serializable {
     /** Refrigeration requirement for the batch. */
     private String refrigeration;
 
+    /**
+     * Time the batch was inserted; set by the application, never by clients.
+     * The column default matches V3, so that rows existing when ddl-auto adds the column get the time it was added.
+     */
+    @Column(nullable = false)
+    @ColumnDefault("current_timestamp(6)")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Instant createdAt;
+
+    /** Whether the batch has not been persisted or loaded yet. */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean isNew = true;
+
     /**
      * Constructs a BatchInfo object with the specified parameters.
      *
@@ -76,10 +115,51 @@ public class BatchInfo implements Serializable {
      * @param weight The weight of the batch.
      * @return The refrigeration requirement (Yes/No).
      */
-    private String determineRefrigeration(double weight) {
+    public static String determineRefrigeration(double weight) {
         return (weight > 500) ? "Yes" : "No"; // Example logic: Refrigeration required if weight > 500
     }
 
+    /**
+     * Returns the identifier of the batch, which is its batch code.
+     *
+     * @return The batch code.
+     */
+    @Override
+    @JsonIgnore
+    public String getId() {
+        return batchCode;
+    }
+
+    /**
+     * Indicates whether the batch is new, in which case saving it inserts a row without selecting it first.
+     *
+     * @return {@code true} until the batch has been persisted or loaded from the database.
+     */
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return isNew;
+    }
+
+    /**
+     * Sets the creation time of a batch about to be inserted, unless it was set before.
+     */
+    @PrePersist
+    void initCreatedAt() {
+        if (createdAt == null) {
+            createdAt = Instant.now();
+        }
+    }
+
+    /**
+     * Marks the batch as no longer new once it has been persisted or loaded.
+     */
+    @PostPersist
+    @PostLoad
+    void markNotNew() {
+        this.isNew = false;
+    }
+
     /**
      * Indicates whether some other object is "equal to" this one.
      *
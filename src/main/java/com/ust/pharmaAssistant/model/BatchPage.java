@@ -0,0 +1,12 @@
+package com.ust.pharmaAssistant.model;
+
+import java.util.List;
+
+/**
+ * One page of the batch query API.
+ *
+ * @param items      The batches of the page, ordered by batch code.
+ * @param nextCursor The value to pass as {@code after} to get the next page, or null on the last page.
+ */
+public record BatchPage(List<BatchSummary> items, String nextCursor) {
+}
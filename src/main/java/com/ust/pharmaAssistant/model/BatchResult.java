@@ -0,0 +1,66 @@
+package com.ust.pharmaAssistant.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Model class representing the outcome of a single row of a bulk batch request in the PharmaAssistant application.
+ * An accepted row carries the calculated shipping charge and care level; a rejected row carries the
+ * error code and message of the PharmaBusinessException that rejected it.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchResult {
+
+    /** Status of a row that was inserted. */
+    public static final String ACCEPTED = "ACCEPTED";
+
+    /** Status of a row that was not inserted. */
+    public static final String REJECTED = "REJECTED";
+
+    /** Batch code of the row, as submitted. */
+    private String batchCode;
+
+    /** ACCEPTED or REJECTED. */
+    private String status;
+
+    /** Calculated shipping charge, only for accepted rows. */
+    private Double shippingCharge;
+
+    /** Calculated care level, only for accepted rows. */
+    private String careLevel;
+
+    /** Business error code, only for rejected rows. */
+    private Integer errorCode;
+
+    /** Business error message, only for rejected rows. */
+    private String errorMessage;
+
+    /**
+     * Creates the result of an accepted row.
+     *
+     * @param batchInfo The batch information after shipping charge and care level were calculated.
+     * @return The accepted result.
+     */
+    public static BatchResult accepted(BatchInfo batchInfo) {
+        return new BatchResult(batchInfo.getBatchCode(), ACCEPTED, batchInfo.getShippingCharge(), batchInfo.getCareLevel(), null, null);
+    }
+
+    /**
+     * Creates the result of a rejected row.
+     *
+     * @param batchCode    The batch code of the row.
+     * @param errorCode    The business error code.
+     * @param errorMessage The business error message.
+     * @return The rejected result.
+     */
+    public static BatchResult rejected(String batchCode, int errorCode, String errorMessage) {
+        return new BatchResult(batchCode, REJECTED, null, null, errorCode, errorMessage);
+    }
+}
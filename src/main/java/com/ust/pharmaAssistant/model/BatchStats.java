@@ -0,0 +1,54 @@
+package com.ust.pharmaAssistant.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+/**
+ * Model class representing a row of the batch_stats summary table in the PharmaAssistant application.
+ * Each row holds the running totals of the batches of one medicine type, care level and refrigeration group.
+ * Rows are updated in the same transaction as the batches they count, so the table always matches batch_info.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "batch_stats")
+@IdClass(BatchStatsKey.class)
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchStats implements Serializable {
+
+    /** Default serial version UID for serialization. */
+    private static final long serialVersionUID = 1L;
+
+    /** Medicine type code of the group. */
+    @Id
+    private String medicineTypeCode;
+
+    /** Care level of the group. */
+    @Id
+    private String careLevel;
+
+    /** Refrigeration requirement of the group. */
+    @Id
+    private String refrigeration;
+
+    /** Number of batches in the group. */
+    private long batchCount;
+
+    /** Total weight of the batches in the group. */
+    private double totalWeight;
+
+    /** Total price of the batches in the group. */
+    private double totalPrice;
+
+    /** Total shipping charge of the batches in the group. */
+    private double totalShippingCharge;
+}
@@ -0,0 +1,62 @@
+package com.ust.pharmaAssistant.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * Composite key of the batch_stats summary table: the group a batch is counted in.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchStatsKey implements Serializable {
+
+    /** Default serial version UID for serialization. */
+    private static final long serialVersionUID = 1L;
+
+    /** Order of the groups by medicine type code, care level and refrigeration, with missing values first. */
+    public static final Comparator<BatchStatsKey> ORDER = Comparator
+            .comparing(BatchStatsKey::getMedicineTypeCode, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(BatchStatsKey::getCareLevel, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(BatchStatsKey::getRefrigeration, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    /** Medicine type code of the group. */
+    private String medicineTypeCode;
+
+    /** Care level of the group. */
+    private String careLevel;
+
+    /** Refrigeration requirement of the group. */
+    private String refrigeration;
+
+    /**
+     * Returns the group a batch belongs to.
+     * @param batchInfo The batch.
+     * @return The key of its group.
+     */
+    public static BatchStatsKey of(BatchInfo batchInfo) {
+        return new BatchStatsKey(batchInfo.getMedicineTypeCode(), batchInfo.getCareLevel(), batchInfo.getRefrigeration());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BatchStatsKey that = (BatchStatsKey) o;
+        return Objects.equals(medicineTypeCode, that.medicineTypeCode) &&
+                Objects.equals(careLevel, that.careLevel) &&
+                Objects.equals(refrigeration, that.refrigeration);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(medicineTypeCode, careLevel, refrigeration);
+    }
+}
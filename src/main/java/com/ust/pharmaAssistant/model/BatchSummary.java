@@ -0,0 +1,18 @@
+package com.ust.pharmaAssistant.model;
+
+/**
+ * Read-only projection of a batch returned by the batch query API.
+ * It is built directly from the query result, so no managed BatchInfo entity is created.
+ *
+ * @param batchCode        The batch code.
+ * @param medicineCode     The medicine code.
+ * @param weight           The weight of the batch.
+ * @param price            The price of the batch.
+ * @param medicineTypeCode The medicine type code.
+ * @param shippingCharge   The shipping charge.
+ * @param careLevel        The care level.
+ * @param refrigeration    The refrigeration requirement (Yes/No).
+ */
+public record BatchSummary(String batchCode, String medicineCode, double weight, double price, String medicineTypeCode,
+                           double shippingCharge, String careLevel, String refrigeration) {
+}
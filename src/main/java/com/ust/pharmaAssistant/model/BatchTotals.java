@@ -0,0 +1,17 @@
+package com.ust.pharmaAssistant.model;
+
+/**
+ * Totals of a group of batches, as returned by the batch statistics API.
+ * Dimensions the totals are not grouped by are null.
+ *
+ * @param medicineTypeCode    The medicine type code of the group.
+ * @param careLevel           The care level of the group.
+ * @param refrigeration       The refrigeration requirement of the group.
+ * @param batchCount          The number of batches.
+ * @param totalWeight         The total weight.
+ * @param totalPrice          The total price.
+ * @param totalShippingCharge The total shipping charge.
+ */
+public record BatchTotals(String medicineTypeCode, String careLevel, String refrigeration, long batchCount,
+                          double totalWeight, double totalPrice, double totalShippingCharge) {
+}
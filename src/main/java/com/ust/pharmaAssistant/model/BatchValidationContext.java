@@ -0,0 +1,30 @@
+package com.ust.pharmaAssistant.model;
+
+/**
+ * Projection holding everything addBatch needs to know from the database about a batch, fetched in one round trip:
+ * whether the batch code is taken, and the medicine, medicine type and shipping master rows it refers to.
+ * The columns of a row that does not exist are null.
+ */
+public interface BatchValidationContext {
+
+    /** Number of existing batches with the batch code; 0 or 1. */
+    Long getBatchCount();
+
+    /** Medicine code, or null if the medicine does not exist. */
+    String getMedicineCode();
+
+    /** Medicine name. */
+    String getMedicineName();
+
+    /** Medicine type code, or null if the medicine type does not exist. */
+    String getMedicineTypeCode();
+
+    /** Medicine type name. */
+    String getMedicineTypeName();
+
+    /** Shipping master id, or null if there is no shipping charge for the medicine type and weight range. */
+    Long getShippingId();
+
+    /** Shipping charge before the refrigeration surcharge. */
+    Double getShippingCharge();
+}
@@ -0,0 +1,36 @@
+package com.ust.pharmaAssistant.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+/**
+ * Model class representing a care level rule in the PharmaAssistant application.
+ * Batches of the named medicine type get the given care level. The rule named {@value #DEFAULT_MEDICINE_TYPE}
+ * applies to medicine types without a rule of their own.
+ */
+@Getter
+@Setter
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+public class CareLevelRule implements Serializable {
+
+    /** Default serial version UID for serialization. */
+    private static final long serialVersionUID = 1L;
+
+    /** Medicine type name of the rule that applies to all other medicine types. */
+    public static final String DEFAULT_MEDICINE_TYPE = "*";
+
+    /** Name of the medicine type, as in MedicalTypeMaster. */
+    @Id
+    private String medicineTypeName;
+
+    /** Care level of batches of the medicine type. */
+    private String careLevel;
+}
@@ -0,0 +1,12 @@
+package com.ust.pharmaAssistant.model;
+
+/**
+ * Body of a response rejecting a request.
+ *
+ * @param status  The HTTP status.
+ * @param code    The business error code.
+ * @param error   The description of the error code, from messages.properties.
+ * @param message The message of the error.
+ */
+public record ErrorResponse(int status, int code, String error, String message) {
+}
@@ -0,0 +1,102 @@
+package com.ust.pharmaAssistant.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Model class representing the stored response of a request made with an Idempotency-Key header in the
+ * PharmaAssistant application. Retries with the same key are answered from this record until it expires.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "idempotency_record", indexes = @Index(name = "idx_idempotency_record_expires_at", columnList = "expires_at"))
+@NoArgsConstructor
+public class IdempotencyRecord implements Serializable, Persistable<String> {
+
+    /** Default serial version UID for serialization. */
+    private static final long serialVersionUID = 1L;
+
+    /** The Idempotency-Key header sent by the client. */
+    @Id
+    private String idempotencyKey;
+
+    /** Fingerprint of the request the key was first used with. */
+    private String requestHash;
+
+    /** HTTP status of the stored response. */
+    private int statusCode;
+
+    /** Body of the stored response. */
+    @Column(length = 1000)
+    private String responseBody;
+
+    /** When the record may be deleted. */
+    private Instant expiresAt;
+
+    /** Whether the record has not been persisted or loaded yet. */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean isNew = true;
+
+    /**
+     * Constructs a new record.
+     *
+     * @param idempotencyKey The Idempotency-Key header.
+     * @param requestHash    Fingerprint of the request.
+     * @param statusCode     HTTP status of the response.
+     * @param responseBody   Body of the response.
+     * @param expiresAt      When the record may be deleted.
+     */
+    public IdempotencyRecord(String idempotencyKey, String requestHash, int statusCode, String responseBody, Instant expiresAt) {
+        this.idempotencyKey = idempotencyKey;
+        this.requestHash = requestHash;
+        this.statusCode = statusCode;
+        this.responseBody = responseBody;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Returns the identifier of the record, which is its idempotency key.
+     *
+     * @return The idempotency key.
+     */
+    @Override
+    public String getId() {
+        return idempotencyKey;
+    }
+
+    /**
+     * Indicates whether the record is new, in which case saving it inserts a row without selecting it first.
+     *
+     * @return {@code true} until the record has been persisted or loaded from the database.
+     */
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    /**
+     * Marks the record as no longer new once it has been persisted or loaded.
+     */
+    @PostPersist
+    @PostLoad
+    void markNotNew() {
+        this.isNew = false;
+    }
+}
@@ -0,0 +1,20 @@
+package com.ust.pharmaAssistant.model;
+
+/**
+ * Response of a request made with an Idempotency-Key header.
+ *
+ * @param status   The HTTP status.
+ * @param body     The response body.
+ * @param replayed Whether the response was stored by an earlier request with the same key.
+ */
+public record IdempotentResponse(int status, String body, boolean replayed) {
+
+    /**
+     * Returns the same response, marked as replayed.
+     *
+     * @return The replayed response.
+     */
+    public IdempotentResponse replay() {
+        return new IdempotentResponse(status, body, true);
+    }
+}
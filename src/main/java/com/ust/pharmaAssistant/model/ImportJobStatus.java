@@ -0,0 +1,18 @@
+package com.ust.pharmaAssistant.model;
+
+import java.util.List;
+
+/**
+ * Progress and outcome of a CSV import job.
+ *
+ * @param jobId      The job id.
+ * @param state      QUEUED, RUNNING, COMPLETED or FAILED.
+ * @param linesRead  The number of data lines read so far.
+ * @param accepted   The number of batches inserted so far.
+ * @param rejected   The number of lines rejected so far.
+ * @param errors     The first rejected lines, in the order they were processed.
+ * @param failure    Why the job stopped, if it failed.
+ */
+public record ImportJobStatus(String jobId, String state, long linesRead, long accepted, long rejected,
+                              List<ImportLineError> errors, String failure) {
+}
@@ -0,0 +1,12 @@
+package com.ust.pharmaAssistant.model;
+
+/**
+ * A line of a CSV import that was rejected.
+ *
+ * @param line         The line number in the file, starting at 1 for the header.
+ * @param batchCode    The batch code on the line, or null if the line could not be parsed.
+ * @param errorCode    The business error code the line was rejected with.
+ * @param errorMessage The error message.
+ */
+public record ImportLineError(long line, String batchCode, int errorCode, String errorMessage) {
+}
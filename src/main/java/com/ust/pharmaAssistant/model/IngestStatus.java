@@ -0,0 +1,25 @@
+package com.ust.pharmaAssistant.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Status of a batch submitted for asynchronous ingestion.
+ *
+ * @param trackingId   The tracking id returned when the batch was submitted.
+ * @param batchCode    The batch code.
+ * @param state        QUEUED until the batch is written, then STORED or REJECTED.
+ * @param errorCode    The business error code, if the batch was rejected.
+ * @param errorMessage The error message, if the batch was rejected.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record IngestStatus(String trackingId, String batchCode, String state, Integer errorCode, String errorMessage) {
+
+    /** State of a batch waiting to be written. */
+    public static final String QUEUED = "QUEUED";
+
+    /** State of a batch that has been written. */
+    public static final String STORED = "STORED";
+
+    /** State of a batch that was not written. */
+    public static final String REJECTED = "REJECTED";
+}
@@ -0,0 +1,40 @@
+package com.ust.pharmaAssistant.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Model class representing the delivery position of an outbox sink in the PharmaAssistant application.
+ * Every event up to the last delivered event id has been delivered to the sink.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "outbox_cursor")
+@AllArgsConstructor
+@NoArgsConstructor
+public class OutboxCursor implements Serializable {
+
+    /** Default serial version UID for serialization. */
+    private static final long serialVersionUID = 1L;
+
+    /** Name of the sink. */
+    @Id
+    @Column(length = 64)
+    private String sink;
+
+    /** Id of the last event delivered to the sink, or 0 if none has been. */
+    private long lastEventId;
+
+    /** Time the cursor last moved. */
+    private Instant updatedAt;
+}
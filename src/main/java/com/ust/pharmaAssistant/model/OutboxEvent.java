@@ -0,0 +1,56 @@
+package com.ust.pharmaAssistant.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Model class representing an event of the transactional outbox of the PharmaAssistant application.
+ * An event is written in the transaction that makes the change it describes, so it exists if and only if the change
+ * committed, and is relayed to the outbox sinks afterwards in id order.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "outbox_event")
+@AllArgsConstructor
+@NoArgsConstructor
+public class OutboxEvent implements Serializable {
+
+    /** Default serial version UID for serialization. */
+    private static final long serialVersionUID = 1L;
+
+    /** Event type of an added batch. */
+    public static final String BATCH_ADDED = "BATCH_ADDED";
+
+    /** Position of the event in the outbox, increasing in insert order. */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** Type of the event. */
+    @Column(nullable = false, length = 32)
+    private String eventType;
+
+    /** Batch code of the batch the event is about. */
+    @Column(nullable = false)
+    private String batchCode;
+
+    /** The event as compact JSON; a {@link BatchSummary} for {@link #BATCH_ADDED}. */
+    @Column(nullable = false, length = 1000)
+    private String payload;
+
+    /** Time the event was written. */
+    @Column(nullable = false)
+    private Instant createdAt;
+}
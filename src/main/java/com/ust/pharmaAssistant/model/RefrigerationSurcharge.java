@@ -0,0 +1,32 @@
+package com.ust.pharmaAssistant.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+/**
+ * Model class representing the shipping surcharge for a refrigeration requirement in the PharmaAssistant application.
+ * The shipping charge of a batch is increased by the rate, e.g. 0.05 for 5%. Requirements without a row have no surcharge.
+ */
+@Getter
+@Setter
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+public class RefrigerationSurcharge implements Serializable {
+
+    /** Default serial version UID for serialization. */
+    private static final long serialVersionUID = 1L;
+
+    /** Refrigeration requirement of the batch, e.g. Yes. */
+    @Id
+    private String refrigeration;
+
+    /** Surcharge rate added to the shipping charge. */
+    private double surchargeRate;
+}
@@ -0,0 +1,33 @@
+package com.ust.pharmaAssistant.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+/**
+ * Model class representing a weight band in the PharmaAssistant application.
+ * A batch falls in the band with the smallest maximum weight that is not below its weight; the band without a
+ * maximum weight takes all heavier batches. The weight range of the band selects the ShippingMaster row.
+ */
+@Getter
+@Setter
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+public class WeightBand implements Serializable {
+
+    /** Default serial version UID for serialization. */
+    private static final long serialVersionUID = 1L;
+
+    /** Weight range identifier, as in ShippingMaster. */
+    @Id
+    private String weightRange;
+
+    /** Largest weight in the band, inclusive; null for the heaviest band. */
+    private Double maxWeight;
+}
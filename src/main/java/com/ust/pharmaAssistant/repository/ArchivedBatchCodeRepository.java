@@ -0,0 +1,28 @@
+package com.ust.pharmaAssistant.repository;
+
+import com.ust.pharmaAssistant.model.ArchivedBatchCode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+/**
+ * Repository of the batch codes of archived batches.
+ */
+@Repository
+public interface ArchivedBatchCodeRepository extends JpaRepository<ArchivedBatchCode, String> {
+
+    /**
+     * Records the batch codes of batches about to be archived, copied from batch_info in one statement, within the
+     * current transaction.
+     * @param batchCodes The batch codes.
+     * @return The number of recorded batch codes.
+     */
+    @Modifying
+    @Query(value = "insert into archived_batch_code (batch_code)"
+            + " select batch_code from batch_info where batch_code in :batchCodes", nativeQuery = true)
+    int insertFromBatchInfo(@Param("batchCodes") Collection<String> batchCodes);
+}
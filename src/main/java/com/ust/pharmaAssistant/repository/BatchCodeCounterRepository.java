@@ -0,0 +1,48 @@
+package com.ust.pharmaAssistant.repository;
+
+import com.ust.pharmaAssistant.model.BatchCodeCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository of the batch code counters.
+ */
+@Repository
+public interface BatchCodeCounterRepository extends JpaRepository<BatchCodeCounter, String> {
+
+    /**
+     * Advances the next code of a counter past a block, locking its row until the transaction ends.
+     * @param name      The name of the counter.
+     * @param blockSize The number of codes in the block.
+     * @return The number of updated rows, 0 if the counter does not exist.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update BatchCodeCounter c set c.nextValue = c.nextValue + :blockSize where c.name = :name")
+    int advanceNextValue(@Param("name") String name, @Param("blockSize") long blockSize);
+
+    /**
+     * Creates a counter.
+     * Fails with a constraint violation, instead of overwriting it, if another node created the counter first.
+     * @param name      The name of the counter.
+     * @param nextValue The first code that has not been reserved.
+     * @return The number of inserted rows.
+     */
+    @Modifying
+    @Query(value = "insert into batch_code_counter (name, next_value) values (:name, :nextValue)", nativeQuery = true)
+    int create(@Param("name") String name, @Param("nextValue") long nextValue);
+
+    /**
+     * Finds the highest batch code in the allocated format, among the stored and the archived batches.
+     * Used when the counter is created, so that a database that held allocated codes before does not hand them out
+     * again. The codes are zero-padded to a fixed width, so the highest code is also the last in string order.
+     * @return The highest allocated batch code, or null if there is none.
+     */
+    @Query(value = "select max(batch_code) from ("
+            + "select max(batch_code) as batch_code from batch_info where batch_code like 'BTC-____________'"
+            + " union all select max(batch_code) from archived_batch_code where batch_code like 'BTC-____________') c",
+            nativeQuery = true)
+    String findHighestAllocatedBatchCode();
+}
@@ -1,19 +1,81 @@
 package com.ust.pharmaAssistant.repository;
 
 import com.ust.pharmaAssistant.model.BatchInfo;
+import com.ust.pharmaAssistant.model.BatchValidationContext;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
 /**
  * Repository interface for managing BatchInfo entities.
  */
 @Repository
-public interface BatchInfoRepository extends JpaRepository<BatchInfo, String> {
+public interface BatchInfoRepository extends JpaRepository<BatchInfo, String>, BatchInfoRepositoryCustom {
     /**
      * Checks if a batch with the given batch code exists.
      * @param batchCode The batch code to check.
      * @return true if a batch with the given code exists, false otherwise.
+     * Like the other duplicate checks, this must not run in a read-only transaction, so that it reads the primary.
      */
     boolean existsByBatchCode(String batchCode);
 //    boolean existsByMedicineCode(String medicineCode);
+
+    /**
+     * Finds which of the given batch codes already exist, in batch_info or as archived batches, in a single query.
+     * @param batchCodes The batch codes to check.
+     * @return The batch codes that already exist.
+     */
+    @Query("select b.batchCode from BatchInfo b where b.batchCode in :batchCodes"
+            + " union select a.batchCode from ArchivedBatchCode a where a.batchCode in :batchCodes")
+    List<String> findExistingBatchCodes(@Param("batchCodes") Collection<String> batchCodes);
+
+    /**
+     * Fetches the duplicate flag and the medicine, medicine type and shipping master rows of a batch in one query.
+     * The batch code counts as a duplicate if it is in batch_info or is the code of an archived batch.
+     * The probe row makes sure exactly one row is returned, with null columns for the rows that do not exist.
+     * @param batchCode        The batch code.
+     * @param medicineCode     The medicine code.
+     * @param medicineTypeCode The medicine type code.
+     * @param weightRange      The weight range identifier of the batch weight.
+     * @return The validation context of the batch.
+     */
+    @Query(value = "select (select count(*) from batch_info b where b.batch_code = :batchCode)"
+            + " + (select count(*) from archived_batch_code a where a.batch_code = :batchCode) as batchCount,"
+            + " m.medicine_code as medicineCode, m.medicine_name as medicineName,"
+            + " t.medicine_type_code as medicineTypeCode, t.medicine_type_name as medicineTypeName,"
+            + " s.id as shippingId, s.shipping_charge as shippingCharge"
+            + " from (select 1 as probe) p"
+            + " left join medicine m on m.medicine_code = :medicineCode"
+            + " left join medical_type_master t on t.medicine_type_code = :medicineTypeCode"
+            + " left join shipping_master s on s.medicine_type_code = :medicineTypeCode and s.weight_range = :weightRange"
+            + " limit 1", nativeQuery = true)
+    BatchValidationContext findValidationContext(@Param("batchCode") String batchCode,
+                                                 @Param("medicineCode") String medicineCode,
+                                                 @Param("medicineTypeCode") String medicineTypeCode,
+                                                 @Param("weightRange") String weightRange);
+
+    /**
+     * Finds the oldest batches created before a cutoff, in the order they are archived.
+     * @param cutoff The cutoff time, exclusive.
+     * @param limit  The maximum number of batches.
+     * @return The batches, oldest first.
+     */
+    @Query("select b from BatchInfo b where b.createdAt < :cutoff order by b.createdAt, b.batchCode")
+    List<BatchInfo> findCreatedBefore(@Param("cutoff") Instant cutoff, Limit limit);
+
+    /**
+     * Deletes batches by batch code, within the current transaction.
+     * @param batchCodes The batch codes.
+     * @return The number of deleted batches.
+     */
+    @Modifying
+    @Query("delete from BatchInfo b where b.batchCode in :batchCodes")
+    int deleteByBatchCodes(@Param("batchCodes") Collection<String> batchCodes);
 }
@@ -0,0 +1,31 @@
+package com.ust.pharmaAssistant.repository;
+
+import com.ust.pharmaAssistant.model.BatchFilter;
+import com.ust.pharmaAssistant.model.BatchInfo;
+import com.ust.pharmaAssistant.model.BatchSummary;
+
+import java.util.List;
+
+/**
+ * Custom operations for BatchInfo entities that are not covered by Spring Data derived queries.
+ */
+public interface BatchInfoRepositoryCustom {
+
+    /**
+     * Inserts all given batches as new rows, using JDBC statement batching.
+     * Unlike saveAll, no select is issued per row to decide between insert and update.
+     * @param batchInfos The batches to insert.
+     */
+    void insertAll(List<BatchInfo> batchInfos);
+
+    /**
+     * Finds the batches matching a filter that come after a batch code, ordered by batch code.
+     * The position is given by the last batch code of the previous page (keyset pagination), so every page is
+     * an index seek followed by a bounded scan, whatever its depth.
+     * @param filter         The filter criteria.
+     * @param afterBatchCode The last batch code of the previous page, or null for the first page.
+     * @param limit          The maximum number of batches to return.
+     * @return The matching batches as projections.
+     */
+    List<BatchSummary> findPage(BatchFilter filter, String afterBatchCode, int limit);
+}
@@ -0,0 +1,106 @@
+package com.ust.pharmaAssistant.repository;
+
+import com.ust.pharmaAssistant.model.BatchFilter;
+import com.ust.pharmaAssistant.model.BatchInfo;
+import com.ust.pharmaAssistant.model.BatchSummary;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Implementation of the custom BatchInfo repository operations.
+ */
+public class BatchInfoRepositoryImpl implements BatchInfoRepositoryCustom {
+
+    /** Entity manager used to persist batches directly. */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /** Number of rows sent to the database per JDBC batch. */
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:500}")
+    private int batchSize;
+
+    /**
+     * Persists the batches in chunks of the JDBC batch size, flushing and clearing the persistence
+     * context after each chunk so that memory stays bounded for large manifests.
+     * @param batchInfos The batches to insert.
+     */
+    @Override
+    @Transactional
+    public void insertAll(List<BatchInfo> batchInfos) {
+        for (int i = 0; i < batchInfos.size(); i++) {
+            entityManager.persist(batchInfos.get(i));
+            if ((i + 1) % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    /**
+     * Builds the query with only the criteria that are set, so that the database can pick the matching
+     * index, and selects the projection columns directly.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<BatchSummary> findPage(BatchFilter filter, String afterBatchCode, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<BatchSummary> query = cb.createQuery(BatchSummary.class);
+        Root<BatchInfo> batch = query.from(BatchInfo.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (afterBatchCode != null) {
+            predicates.add(cb.greaterThan(batch.get("batchCode"), afterBatchCode));
+        }
+        if (filter.getMedicineCode() != null) {
+            predicates.add(cb.equal(batch.get("medicineCode"), filter.getMedicineCode()));
+        }
+        if (filter.getMedicineTypeCode() != null) {
+            predicates.add(cb.equal(batch.get("medicineTypeCode"), filter.getMedicineTypeCode()));
+        }
+        if (filter.getCareLevel() != null) {
+            predicates.add(cb.equal(batch.get("careLevel"), filter.getCareLevel()));
+        }
+        if (filter.getRefrigeration() != null) {
+            predicates.add(cb.equal(batch.get("refrigeration"), filter.getRefrigeration()));
+        }
+        if (filter.getMinWeight() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(batch.get("weight"), filter.getMinWeight()));
+        }
+        if (filter.getMaxWeight() != null) {
+            predicates.add(cb.lessThanOrEqualTo(batch.get("weight"), filter.getMaxWeight()));
+        }
+        if (filter.getMinPrice() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(batch.get("price"), filter.getMinPrice()));
+        }
+        if (filter.getMaxPrice() != null) {
+            predicates.add(cb.lessThanOrEqualTo(batch.get("price"), filter.getMaxPrice()));
+        }
+        if (filter.getCreatedFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(batch.get("createdAt"), filter.getCreatedFrom()));
+        }
+        if (filter.getCreatedTo() != null) {
+            predicates.add(cb.lessThan(batch.get("createdAt"), filter.getCreatedTo()));
+        }
+
+        query.select(cb.construct(BatchSummary.class,
+                        batch.get("batchCode"), batch.get("medicineCode"), batch.get("weight"), batch.get("price"),
+                        batch.get("medicineTypeCode"), batch.get("shippingCharge"), batch.get("careLevel"),
+                        batch.get("refrigeration")))
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.asc(batch.get("batchCode")));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
@@ -0,0 +1,58 @@
+package com.ust.pharmaAssistant.repository;
+
+import com.ust.pharmaAssistant.model.BatchStats;
+import com.ust.pharmaAssistant.model.BatchStatsKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Repository of the batch_stats summary table.
+ */
+@Repository
+public interface BatchStatsRepository extends JpaRepository<BatchStats, BatchStatsKey> {
+
+    /**
+     * Adds to the totals of a group, creating its row if needed, in a single statement.
+     * @param stats The amounts to add.
+     */
+    @Modifying
+    @Query(value = "insert into batch_stats (medicine_type_code, care_level, refrigeration, batch_count,"
+            + " total_weight, total_price, total_shipping_charge)"
+            + " values (:#{#stats.medicineTypeCode}, :#{#stats.careLevel}, :#{#stats.refrigeration}, :#{#stats.batchCount},"
+            + " :#{#stats.totalWeight}, :#{#stats.totalPrice}, :#{#stats.totalShippingCharge})"
+            + " on duplicate key update batch_count = batch_count + values(batch_count),"
+            + " total_weight = total_weight + values(total_weight),"
+            + " total_price = total_price + values(total_price),"
+            + " total_shipping_charge = total_shipping_charge + values(total_shipping_charge)",
+            nativeQuery = true)
+    void addTotals(@Param("stats") BatchStats stats);
+
+    /**
+     * Recomputes the summary table from batch_info, counting missing group values as empty strings.
+     * The table must be emptied first in the same transaction.
+     * @return The number of groups written.
+     */
+    @Modifying
+    @Query(value = "insert into batch_stats (medicine_type_code, care_level, refrigeration, batch_count,"
+            + " total_weight, total_price, total_shipping_charge)"
+            + " select coalesce(medicine_type_code, ''), coalesce(care_level, ''), coalesce(refrigeration, ''),"
+            + " count(*), sum(weight), sum(price), sum(shipping_charge)"
+            + " from batch_info group by coalesce(medicine_type_code, ''), coalesce(care_level, ''), coalesce(refrigeration, '')",
+            nativeQuery = true)
+    int insertTotalsFromBatches();
+
+    /**
+     * Reads the whole summary table in a read-write transaction, so that it reads the primary even when a read
+     * replica is configured: the in-memory counters loaded from it are only added to afterwards.
+     * @return The totals of all groups.
+     */
+    @Override
+    @Transactional
+    List<BatchStats> findAll();
+}
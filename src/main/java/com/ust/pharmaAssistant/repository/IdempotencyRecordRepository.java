@@ -0,0 +1,40 @@
+package com.ust.pharmaAssistant.repository;
+
+import com.ust.pharmaAssistant.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Repository of the stored responses of idempotent requests.
+ */
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    /**
+     * Finds the record of a key in a read-write transaction, so that it reads the primary even when a read replica
+     * is configured: a retry landing on another node right after the first request would miss a record that has
+     * not reached the replica yet, and run the request again.
+     * @param idempotencyKey The Idempotency-Key header.
+     * @return The record, or empty if the key has not been used.
+     */
+    @Override
+    @Transactional
+    Optional<IdempotencyRecord> findById(String idempotencyKey);
+
+    /**
+     * Deletes the records that expired before the given time.
+     * @param now The current time.
+     * @return The number of deleted records.
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from IdempotencyRecord r where r.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+}
@@ -0,0 +1,25 @@
+package com.ust.pharmaAssistant.repository;
+
+import com.ust.pharmaAssistant.model.OutboxCursor;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * Repository of the delivery positions of the outbox sinks.
+ */
+@Repository
+public interface OutboxCursorRepository extends JpaRepository<OutboxCursor, String> {
+
+    /**
+     * Finds the cursor of a sink in a read-write transaction, so that it reads the primary even when a read
+     * replica is configured: a stale cursor would deliver events again.
+     * @param sink The name of the sink.
+     * @return The cursor, or empty if nothing was delivered to the sink yet.
+     */
+    @Override
+    @Transactional
+    Optional<OutboxCursor> findById(String sink);
+}
@@ -0,0 +1,48 @@
+package com.ust.pharmaAssistant.repository;
+
+import com.ust.pharmaAssistant.model.OutboxEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Repository of the outbox events.
+ * The relay reads in read-write transactions, so that it reads the primary even when a read replica is configured:
+ * a lagging replica could hide committed events for longer than the relay waits for them.
+ */
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long>, OutboxEventRepositoryCustom {
+
+    /**
+     * Finds the events after an event id, in id order.
+     * @param afterId The event id, exclusive.
+     * @param limit   The maximum number of events.
+     * @return The events.
+     */
+    @Transactional
+    @Query("select e from OutboxEvent e where e.id > :afterId order by e.id")
+    List<OutboxEvent> findAfter(@Param("afterId") long afterId, Limit limit);
+
+    /**
+     * Finds the id of the last event.
+     * @return The id, or null if the outbox is empty.
+     */
+    @Transactional
+    @Query("select max(e.id) from OutboxEvent e")
+    Long findLastId();
+
+    /**
+     * Deletes the events up to an event id, within the current transaction.
+     * @param lastId The event id, inclusive.
+     * @return The number of deleted events.
+     */
+    @Modifying
+    @Query("delete from OutboxEvent e where e.id <= :lastId")
+    int deleteUpTo(@Param("lastId") long lastId);
+}
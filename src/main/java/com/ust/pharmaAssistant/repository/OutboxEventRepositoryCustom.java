@@ -0,0 +1,20 @@
+package com.ust.pharmaAssistant.repository;
+
+import com.ust.pharmaAssistant.model.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * Custom operations for OutboxEvent entities that are not covered by Spring Data derived queries.
+ */
+public interface OutboxEventRepositoryCustom {
+
+    /**
+     * Inserts all given events as new rows, within the current transaction.
+     * Event ids are generated by the database, which rules out JDBC statement batching; the events are inserted
+     * with multi-row statements instead, so a bulk insert of batches adds one statement per JDBC batch size.
+     * The ids are not set on the given events.
+     * @param events The events to insert.
+     */
+    void insertAll(List<OutboxEvent> events);
+}
@@ -0,0 +1,51 @@
+package com.ust.pharmaAssistant.repository;
+
+import com.ust.pharmaAssistant.model.OutboxEvent;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Implementation of the custom OutboxEvent repository operations.
+ */
+public class OutboxEventRepositoryImpl implements OutboxEventRepositoryCustom {
+
+    /** Entity manager used to run the inserts. */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /** Number of rows inserted per statement. */
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:500}")
+    private int batchSize;
+
+    /**
+     * Inserts the events in chunks of the JDBC batch size, one native multi-row insert per chunk. The parameters are
+     * bound by Hibernate, so the creation times are stored the way the entity reads them.
+     * @param events The events to insert.
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void insertAll(List<OutboxEvent> events) {
+        for (int from = 0; from < events.size(); from += batchSize) {
+            List<OutboxEvent> chunk = events.subList(from, Math.min(events.size(), from + batchSize));
+            StringBuilder sql = new StringBuilder("insert into outbox_event (event_type, batch_code, payload, created_at) values ");
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "" : ", ").append("(?, ?, ?, ?)");
+            }
+            Query insert = entityManager.createNativeQuery(sql.toString());
+            int position = 1;
+            for (OutboxEvent event : chunk) {
+                insert.setParameter(position++, event.getEventType());
+                insert.setParameter(position++, event.getBatchCode());
+                insert.setParameter(position++, event.getPayload());
+                insert.setParameter(position++, event.getCreatedAt());
+            }
+            insert.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.ust.pharmaAssistant.repository;
+
+import com.ust.pharmaAssistant.model.RefrigerationSurcharge;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RefrigerationSurchargeRepository extends JpaRepository<RefrigerationSurcharge, String> {
+}
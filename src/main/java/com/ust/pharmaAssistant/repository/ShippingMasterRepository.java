@@ -3,10 +3,18 @@ package com.ust.pharmaAssistant.repository;
 import com.ust.pharmaAssistant.model.ShippingMaster;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ShippingMasterRepository extends JpaRepository<ShippingMaster, Long> {
+    @Transactional(readOnly = true)
     Optional<ShippingMaster> findByMedicineTypeCodeAndWeightRange(String medicineTypeCode, String weightRange);
+
+    @Transactional(readOnly = true)
+    List<ShippingMaster> findByMedicineTypeCodeIn(Collection<String> medicineTypeCodes);
     // Add custom query methods if needed
 }
@@ -0,0 +1,9 @@
+package com.ust.pharmaAssistant.repository;
+
+import com.ust.pharmaAssistant.model.WeightBand;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface WeightBandRepository extends JpaRepository<WeightBand, String> {
+}
@@ -0,0 +1,208 @@
+package com.ust.pharmaAssistant.service;
+
+import com.ust.pharmaAssistant.config.AdmissionProperties;
+import com.ust.pharmaAssistant.exception.AdmissionRejectedException;
+import com.ust.pharmaAssistant.exception.PharmaBusinessException;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Admission control of batch writes in the PharmaAssistant application.
+ * The number of concurrent writes is capped by a limit that adapts to the database: it grows by about one per
+ * window of writes while they complete within the latency threshold, and shrinks by the backoff ratio whenever a
+ * write is slower or fails (AIMD). Writes over the limit are rejected at once with 429, and writes arriving while
+ * too many threads already wait for a pooled connection with 503, both with a Retry-After, instead of queueing on
+ * the connection pool until they time out.
+ * The limit, the writes in flight and the shed writes are published as {@code pharma.admission.*} metrics; pool
+ * wait time, active and pending connections are published by the connection pool as {@code hikaricp.connections.*}.
+ */
+@Service
+public class AdmissionService {
+
+    // Logger instance for logging
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionService.class);
+
+    /** Admission control settings. */
+    private final AdmissionProperties properties;
+
+    /** Connection pool of the data source, or null if it is not a Hikari pool. */
+    private final HikariDataSource hikariDataSource;
+
+    /** Number of writes in progress. */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /** Current concurrency limit; fractional so that it can grow by less than one per write. */
+    private double limit;
+
+    /** Counter of writes shed because the concurrency limit was reached. */
+    private final Counter shedByLimit;
+
+    /** Counter of writes shed because too many threads wait for a connection. */
+    private final Counter shedByPool;
+
+    /**
+     * Creates the admission control and registers its metrics.
+     *
+     * @param properties The admission control settings.
+     * @param registry   The meter registry.
+     * @param dataSource The data source the writes use, or null to skip the connection pool check.
+     */
+    @Autowired
+    public AdmissionService(AdmissionProperties properties, MeterRegistry registry, DataSource dataSource) {
+        this.properties = properties;
+        this.hikariDataSource = unwrapHikari(dataSource);
+        this.limit = properties.getInitialLimit();
+        Gauge.builder("pharma.admission.limit", this, AdmissionService::getLimit)
+                .description("Number of concurrent batch writes allowed")
+                .register(registry);
+        Gauge.builder("pharma.admission.in-flight", inFlight, AtomicInteger::get)
+                .description("Number of batch writes in progress")
+                .register(registry);
+        this.shedByLimit = Counter.builder("pharma.admission.shed")
+                .description("Number of batch writes rejected by admission control")
+                .tag("reason", "limit")
+                .register(registry);
+        this.shedByPool = Counter.builder("pharma.admission.shed")
+                .description("Number of batch writes rejected by admission control")
+                .tag("reason", "pool")
+                .register(registry);
+    }
+
+    /**
+     * Runs a batch write if the database can take it.
+     *
+     * @param write The write.
+     * @param <T>   The result type of the write.
+     * @return The result of the write.
+     * @throws AdmissionRejectedException with error 429 if the concurrency limit is reached, or 503 if too many
+     * threads already wait for a database connection.
+     */
+    public <T> T execute(Supplier<T> write) {
+        if (!properties.isEnabled()) {
+            return write.get();
+        }
+        int pendingConnections = getPendingConnections();
+        if (properties.getMaxPendingConnections() >= 0 && pendingConnections > properties.getMaxPendingConnections()) {
+            shedByPool.increment();
+            throw new AdmissionRejectedException(503, "Database is overloaded, retry later", retryAfterSeconds());
+        }
+        int running = inFlight.incrementAndGet();
+        if (running > (int) getLimit()) {
+            inFlight.decrementAndGet();
+            shedByLimit.increment();
+            throw new AdmissionRejectedException(429, "Too many concurrent batch writes, retry later", retryAfterSeconds());
+        }
+
+        long start = System.nanoTime();
+        try {
+            T result = write.get();
+            onSample(System.nanoTime() - start, running);
+            return result;
+        } catch (PharmaBusinessException e) {
+            // Rejected batches still did their database work; failed inserts (500) count as drops
+            if (e.getHttpStatus() >= 500) {
+                onDrop();
+            } else {
+                onSample(System.nanoTime() - start, running);
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            onDrop();
+            throw e;
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the current concurrency limit.
+     *
+     * @return The limit.
+     */
+    public synchronized double getLimit() {
+        return limit;
+    }
+
+    /**
+     * Returns the number of writes in progress.
+     *
+     * @return The number of writes.
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Adjusts the limit after a completed write: shrinks it if the write was slow, grows it if the write was fast
+     * and the limit was in use.
+     */
+    private synchronized void onSample(long latencyNanos, int running) {
+        if (latencyNanos > properties.getLatencyThreshold().toNanos()) {
+            decrease();
+        } else if (running * 2 >= limit) {
+            limit = Math.min(properties.getMaxLimit(), limit + 1 / limit);
+        }
+    }
+
+    /**
+     * Shrinks the limit after a failed write.
+     */
+    private synchronized void onDrop() {
+        decrease();
+    }
+
+    /**
+     * Multiplies the limit by the backoff ratio, down to the minimum limit.
+     */
+    private void decrease() {
+        double decreased = Math.max(properties.getMinLimit(), limit * properties.getBackoffRatio());
+        if ((int) decreased < (int) limit) {
+            logger.debug("Admission limit decreased to {}", (int) decreased);
+        }
+        limit = decreased;
+    }
+
+    /**
+     * Returns the number of seconds clients are asked to wait before retrying, at least one.
+     */
+    private long retryAfterSeconds() {
+        return Math.max(1, properties.getRetryAfter().toSeconds());
+    }
+
+    /**
+     * Returns the number of threads waiting for a connection, or 0 if the pool is unknown or not started yet.
+     */
+    private int getPendingConnections() {
+        if (hikariDataSource == null) {
+            return 0;
+        }
+        HikariPoolMXBean pool = hikariDataSource.getHikariPoolMXBean();
+        return pool == null ? 0 : pool.getThreadsAwaitingConnection();
+    }
+
+    /**
+     * Returns the Hikari pool behind a data source, or null if there is none.
+     */
+    private static HikariDataSource unwrapHikari(DataSource dataSource) {
+        try {
+            if (dataSource != null && dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class);
+            }
+        } catch (SQLException e) {
+            logger.warn("Could not unwrap the connection pool: {}", e.getMessage());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,374 @@
+package com.ust.pharmaAssistant.service;
+
+import com.ust.pharmaAssistant.model.BatchFilter;
+import com.ust.pharmaAssistant.model.BatchInfo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Columnar file format of archived batches, written by {@link BatchArchiveService}.
+ * <p>
+ * A file holds one chunk of batches. Its header has the row count, the range of creation times, weights and prices,
+ * and the compressed size of each column. The columns follow, each deflated on its own: creation times as epoch
+ * microseconds, the medicine type code, care level, refrigeration and medicine code as a dictionary of distinct
+ * values followed by one dictionary index per row, the weight, price and shipping charge as packed doubles, and the
+ * batch codes last.
+ * <p>
+ * A scan pushes the filter down: a file whose header ranges cannot match is not read any further, a dictionary
+ * column whose dictionary does not hold the wanted value ends the scan of the file before its indexes are inflated,
+ * and the filter columns come first so that the scan stops as soon as no row is left.
+ */
+final class BatchArchiveFile {
+
+    /** Extension of complete archive files; files being written have a temporary extension. */
+    static final String EXTENSION = ".pharc";
+
+    /** First bytes of an archive file, "PHA1". */
+    private static final int MAGIC = 0x50484131;
+
+    /** Number of columns, in the order they are stored. */
+    private static final int COLUMNS = 9;
+
+    // Position of each column in the file
+    private static final int CREATED_AT = 0;
+    private static final int MEDICINE_TYPE_CODE = 1;
+    private static final int CARE_LEVEL = 2;
+    private static final int REFRIGERATION = 3;
+    private static final int MEDICINE_CODE = 4;
+    private static final int WEIGHT = 5;
+    private static final int PRICE = 6;
+    private static final int SHIPPING_CHARGE = 7;
+    private static final int BATCH_CODE = 8;
+
+    private BatchArchiveFile() {
+    }
+
+    /**
+     * Writes batches to an archive file and makes it durable. The file is written under a temporary name and moved
+     * into place, so scans never see a partial file, and an existing file of the same name is replaced.
+     *
+     * @param file       The archive file.
+     * @param batchInfos The batches, with their creation time set.
+     * @throws IOException if the file cannot be written.
+     */
+    static void write(Path file, List<BatchInfo> batchInfos) throws IOException {
+        int rows = batchInfos.size();
+        byte[][] columns = new byte[COLUMNS][];
+        columns[CREATED_AT] = deflate(out -> {
+            for (BatchInfo batchInfo : batchInfos) {
+                out.writeLong(toMicros(batchInfo.getCreatedAt()));
+            }
+        });
+        columns[MEDICINE_TYPE_CODE] = deflate(out -> writeDictionary(out, batchInfos, BatchInfo::getMedicineTypeCode));
+        columns[CARE_LEVEL] = deflate(out -> writeDictionary(out, batchInfos, BatchInfo::getCareLevel));
+        columns[REFRIGERATION] = deflate(out -> writeDictionary(out, batchInfos, BatchInfo::getRefrigeration));
+        columns[MEDICINE_CODE] = deflate(out -> writeDictionary(out, batchInfos, BatchInfo::getMedicineCode));
+        columns[WEIGHT] = deflate(out -> {
+            for (BatchInfo batchInfo : batchInfos) {
+                out.writeDouble(batchInfo.getWeight());
+            }
+        });
+        columns[PRICE] = deflate(out -> {
+            for (BatchInfo batchInfo : batchInfos) {
+                out.writeDouble(batchInfo.getPrice());
+            }
+        });
+        columns[SHIPPING_CHARGE] = deflate(out -> {
+            for (BatchInfo batchInfo : batchInfos) {
+                out.writeDouble(batchInfo.getShippingCharge());
+            }
+        });
+        columns[BATCH_CODE] = deflate(out -> {
+            for (BatchInfo batchInfo : batchInfos) {
+                out.writeUTF(batchInfo.getBatchCode());
+            }
+        });
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(rows);
+            out.writeLong(batchInfos.stream().mapToLong(b -> toMicros(b.getCreatedAt())).min().orElse(0));
+            out.writeLong(batchInfos.stream().mapToLong(b -> toMicros(b.getCreatedAt())).max().orElse(0));
+            out.writeDouble(batchInfos.stream().mapToDouble(BatchInfo::getWeight).min().orElse(0));
+            out.writeDouble(batchInfos.stream().mapToDouble(BatchInfo::getWeight).max().orElse(0));
+            out.writeDouble(batchInfos.stream().mapToDouble(BatchInfo::getPrice).min().orElse(0));
+            out.writeDouble(batchInfos.stream().mapToDouble(BatchInfo::getPrice).max().orElse(0));
+            for (byte[] column : columns) {
+                out.writeInt(column.length);
+            }
+            for (byte[] column : columns) {
+                out.write(column);
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the batches of an archive file that match a filter.
+     *
+     * @param file   The archive file.
+     * @param filter The filter; criteria that are not set do not restrict the result.
+     * @param action Called with each matching batch, in the order they were archived.
+     * @return The number of matching batches.
+     * @throws IOException if the file cannot be read or is not an archive file.
+     */
+    static int scan(Path file, BatchFilter filter, Consumer<BatchInfo> action) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a batch archive file: " + file);
+            }
+            int rows = in.readInt();
+            long minCreatedAt = in.readLong();
+            long maxCreatedAt = in.readLong();
+            double minWeight = in.readDouble();
+            double maxWeight = in.readDouble();
+            double minPrice = in.readDouble();
+            double maxPrice = in.readDouble();
+            if (!overlaps(minCreatedAt, maxCreatedAt, filter)
+                    || !overlaps(minWeight, maxWeight, filter.getMinWeight(), filter.getMaxWeight())
+                    || !overlaps(minPrice, maxPrice, filter.getMinPrice(), filter.getMaxPrice())) {
+                return 0;
+            }
+            int[] lengths = new int[COLUMNS];
+            for (int i = 0; i < COLUMNS; i++) {
+                lengths[i] = in.readInt();
+            }
+
+            BitSet selected = new BitSet(rows);
+            selected.set(0, rows);
+            long[] createdAt = new long[rows];
+            try (DataInputStream column = inflate(in, lengths[CREATED_AT])) {
+                long from = filter.getCreatedFrom() == null ? Long.MIN_VALUE : toMicros(filter.getCreatedFrom());
+                long to = filter.getCreatedTo() == null ? Long.MAX_VALUE : toMicros(filter.getCreatedTo());
+                for (int row = 0; row < rows; row++) {
+                    createdAt[row] = column.readLong();
+                    if (createdAt[row] < from || createdAt[row] >= to) {
+                        selected.clear(row);
+                    }
+                }
+            }
+            if (selected.isEmpty()) {
+                return 0;
+            }
+            String[] medicineTypeCodes = readDictionary(in, lengths[MEDICINE_TYPE_CODE], rows, filter.getMedicineTypeCode(), selected);
+            String[] careLevels = medicineTypeCodes == null ? null
+                    : readDictionary(in, lengths[CARE_LEVEL], rows, filter.getCareLevel(), selected);
+            String[] refrigerations = careLevels == null ? null
+                    : readDictionary(in, lengths[REFRIGERATION], rows, filter.getRefrigeration(), selected);
+            String[] medicineCodes = refrigerations == null ? null
+                    : readDictionary(in, lengths[MEDICINE_CODE], rows, filter.getMedicineCode(), selected);
+            if (medicineCodes == null) {
+                return 0;
+            }
+            double[] weights = readDoubles(in, lengths[WEIGHT], rows, filter.getMinWeight(), filter.getMaxWeight(), selected);
+            double[] prices = readDoubles(in, lengths[PRICE], rows, filter.getMinPrice(), filter.getMaxPrice(), selected);
+            if (selected.isEmpty()) {
+                return 0;
+            }
+            double[] shippingCharges = readDoubles(in, lengths[SHIPPING_CHARGE], rows, null, null, selected);
+
+            int matched = 0;
+            try (DataInputStream column = inflate(in, lengths[BATCH_CODE])) {
+                for (int row = 0; row < rows; row++) {
+                    String batchCode = column.readUTF();
+                    if (!selected.get(row)) {
+                        continue;
+                    }
+                    BatchInfo batchInfo = new BatchInfo(batchCode, medicineCodes[row], weights[row], prices[row],
+                            medicineTypeCodes[row]);
+                    batchInfo.setShippingCharge(shippingCharges[row]);
+                    batchInfo.setCareLevel(careLevels[row]);
+                    batchInfo.setRefrigeration(refrigerations[row]);
+                    batchInfo.setCreatedAt(fromMicros(createdAt[row]));
+                    action.accept(batchInfo);
+                    matched++;
+                }
+            }
+            return matched;
+        } catch (EOFException e) {
+            throw new IOException("Truncated batch archive file: " + file, e);
+        }
+    }
+
+    /**
+     * Writes a column of strings as its dictionary of distinct values, then the dictionary index of each row.
+     * Indexes take one byte if the dictionary has at most 256 values, two if at most 65536, four otherwise.
+     */
+    private static void writeDictionary(DataOutputStream out, List<BatchInfo> batchInfos,
+                                        Function<BatchInfo, String> getter) throws IOException {
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> values = new ArrayList<>();
+        int[] indexes = new int[batchInfos.size()];
+        for (int row = 0; row < indexes.length; row++) {
+            String value = getter.apply(batchInfos.get(row));
+            Integer index = dictionary.get(value);
+            if (index == null) {
+                index = values.size();
+                dictionary.put(value, index);
+                values.add(value);
+            }
+            indexes[row] = index;
+        }
+        out.writeInt(values.size());
+        for (String value : values) {
+            out.writeBoolean(value != null);
+            if (value != null) {
+                out.writeUTF(value);
+            }
+        }
+        for (int index : indexes) {
+            if (values.size() <= 1 << 8) {
+                out.writeByte(index);
+            } else if (values.size() <= 1 << 16) {
+                out.writeShort(index);
+            } else {
+                out.writeInt(index);
+            }
+        }
+    }
+
+    /**
+     * Reads a dictionary column, clearing the rows whose value differs from the wanted one.
+     *
+     * @return The value of each row, or null if no row is left, in which case the indexes are not inflated.
+     */
+    private static String[] readDictionary(DataInputStream in, int length, int rows, String wanted, BitSet selected)
+            throws IOException {
+        try (DataInputStream column = inflate(in, length)) {
+            String[] values = new String[column.readInt()];
+            int wantedIndex = -1;
+            for (int i = 0; i < values.length; i++) {
+                values[i] = column.readBoolean() ? column.readUTF() : null;
+                if (wanted != null && wanted.equals(values[i])) {
+                    wantedIndex = i;
+                }
+            }
+            if (wanted != null && wantedIndex < 0) {
+                return null;
+            }
+            String[] result = new String[rows];
+            for (int row = 0; row < rows; row++) {
+                int index = values.length <= 1 << 8 ? column.readUnsignedByte()
+                        : values.length <= 1 << 16 ? column.readUnsignedShort()
+                        : column.readInt();
+                result[row] = values[index];
+                if (wanted != null && index != wantedIndex) {
+                    selected.clear(row);
+                }
+            }
+            return selected.isEmpty() ? null : result;
+        }
+    }
+
+    /**
+     * Reads a column of doubles, clearing the rows outside the range.
+     */
+    private static double[] readDoubles(DataInputStream in, int length, int rows, Double min, Double max,
+                                        BitSet selected) throws IOException {
+        try (DataInputStream column = inflate(in, length)) {
+            double[] values = new double[rows];
+            for (int row = 0; row < rows; row++) {
+                values[row] = column.readDouble();
+                if ((min != null && values[row] < min) || (max != null && values[row] > max)) {
+                    selected.clear(row);
+                }
+            }
+            return values;
+        }
+    }
+
+    /**
+     * Checks whether the creation time range of a file overlaps the one of the filter.
+     */
+    private static boolean overlaps(long min, long max, BatchFilter filter) {
+        return (filter.getCreatedFrom() == null || max >= toMicros(filter.getCreatedFrom()))
+                && (filter.getCreatedTo() == null || min < toMicros(filter.getCreatedTo()));
+    }
+
+    /**
+     * Checks whether a range of values overlaps an inclusive range whose bounds may be unset.
+     */
+    private static boolean overlaps(double min, double max, Double from, Double to) {
+        return (from == null || max >= from) && (to == null || min <= to);
+    }
+
+    /**
+     * Writes a column through a deflater and returns the compressed bytes.
+     */
+    private static byte[] deflate(ColumnWriter writer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater, 64 * 1024))) {
+            writer.write(out);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads the next compressed column of the file and returns a stream of its inflated contents.
+     */
+    private static DataInputStream inflate(InputStream in, int length) throws IOException {
+        byte[] compressed = in.readNBytes(length);
+        if (compressed.length < length) {
+            throw new EOFException();
+        }
+        return new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(compressed)));
+    }
+
+    /**
+     * Converts a creation time to epoch microseconds, the precision of the created_at column.
+     */
+    private static long toMicros(Instant instant) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, Objects.requireNonNull(instant, "createdAt"));
+    }
+
+    /**
+     * Converts epoch microseconds to a creation time.
+     */
+    private static Instant fromMicros(long micros) {
+        return Instant.EPOCH.plus(micros, ChronoUnit.MICROS);
+    }
+
+    /**
+     * Writes the values of one column.
+     */
+    @FunctionalInterface
+    private interface ColumnWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,217 @@
+package com.ust.pharmaAssistant.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.ust.pharmaAssistant.model.BatchFilter;
+import com.ust.pharmaAssistant.model.BatchInfo;
+import com.ust.pharmaAssistant.repository.ArchivedBatchCodeRepository;
+import com.ust.pharmaAssistant.repository.BatchInfoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Service class archiving old batches of the PharmaAssistant application, so that batch_info and its indexes only
+ * hold recent batches.
+ * Batches created longer than {@code pharma.archive.retention} ago are moved, oldest first and in chunks of
+ * {@code pharma.archive.chunk-size}, to columnar archive files in {@code pharma.archive.dir} (see
+ * {@link BatchArchiveFile}). Each chunk is written and synced to disk before its rows are deleted, so a crash never
+ * loses a batch. A file is named after the first batch of its chunk, so a chunk archived again after a crash replaces
+ * its earlier file instead of duplicating it. Archival runs on the schedule of {@code pharma.archive.cron}, which is
+ * disabled by default, and should only be enabled on one node.
+ * Archived batches leave the batch totals and the read cache, and can be scanned with a filter. Their batch codes are
+ * kept in archived_batch_code, in the transaction deleting them, so that the duplicate checks keep rejecting them.
+ */
+@Service
+public class BatchArchiveService {
+
+    /** Logger instance for logging purposes. */
+    private static final Logger logger = LoggerFactory.getLogger(BatchArchiveService.class);
+
+    /** Repository the batches are archived from. */
+    @Autowired
+    private BatchInfoRepository batchInfoRepository;
+
+    /** Repository of the batch codes of archived batches. */
+    @Autowired
+    private ArchivedBatchCodeRepository archivedBatchCodeRepository;
+
+    /** Transaction template deleting an archived chunk and updating the totals atomically. */
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /** Running batch totals, from which archived batches are subtracted. */
+    @Autowired
+    private BatchStatsService batchStatsService;
+
+    /** Cache of single batches, from which archived batches are dropped. */
+    @Autowired
+    private BatchReadCache batchReadCache;
+
+    /** Object mapper writing scanned batches as JSON. */
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /** Directory of the archive files. */
+    @Value("${pharma.archive.dir:data/archive}")
+    private Path directory;
+
+    /** Age after which batches are archived. */
+    @Value("${pharma.archive.retention:90d}")
+    private Duration retention;
+
+    /** Number of batches per archive file. */
+    @Value("${pharma.archive.chunk-size:10000}")
+    private int chunkSize;
+
+    /** Counter of archived batches. */
+    private final Counter archivedCounter;
+
+    /**
+     * Creates the service and registers its metrics.
+     *
+     * @param registry The meter registry.
+     */
+    @Autowired
+    public BatchArchiveService(MeterRegistry registry) {
+        this.archivedCounter = Counter.builder("pharma.archive.batches")
+                .description("Number of batches moved to the archive")
+                .register(registry);
+    }
+
+    /**
+     * Archives the batches older than the retention, chunk by chunk.
+     *
+     * @return The number of archived batches.
+     * @throws UncheckedIOException if an archive file cannot be written; the chunk stays in batch_info.
+     */
+    @Scheduled(cron = "${pharma.archive.cron:-}")
+    public synchronized long archive() {
+        Instant cutoff = Instant.now().minus(retention);
+        long archived = 0;
+        int chunk;
+        do {
+            chunk = archiveChunk(cutoff);
+            archived += chunk;
+        } while (chunk == chunkSize);
+        if (archived > 0) {
+            logger.info("Archived {} batches created before {}", archived, cutoff);
+        }
+        return archived;
+    }
+
+    /**
+     * Scans the archived batches matching a filter, oldest archive file first.
+     *
+     * @param filter The filter; criteria that are not set do not restrict the result.
+     * @param action Called with each matching batch.
+     * @return The number of matching batches.
+     * @throws IOException if an archive file cannot be read.
+     */
+    public long scan(BatchFilter filter, Consumer<BatchInfo> action) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(file -> file.getFileName().toString().endsWith(BatchArchiveFile.EXTENSION))
+                    .sorted()
+                    .toList();
+        }
+        long matched = 0;
+        for (Path file : files) {
+            matched += BatchArchiveFile.scan(file, filter, action);
+        }
+        return matched;
+    }
+
+    /**
+     * Writes the archived batches matching a filter to the output stream as NDJSON. The stream is flushed but not
+     * closed.
+     *
+     * @param outputStream The output stream.
+     * @param filter       The filter.
+     * @return The number of written batches.
+     * @throws IOException if an archive file cannot be read or writing to the output stream fails.
+     */
+    public long scan(OutputStream outputStream, BatchFilter filter) throws IOException {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            long count = scan(filter, batchInfo -> {
+                try {
+                    writer.writeValue(generator, batchInfo);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.flush();
+            return count;
+        } catch (UncheckedIOException e) {
+            // The client went away or the connection broke; stop scanning
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Archives the oldest chunk of batches created before the cutoff.
+     *
+     * @return The number of archived batches.
+     */
+    private int archiveChunk(Instant cutoff) {
+        List<BatchInfo> chunk = batchInfoRepository.findCreatedBefore(cutoff, Limit.of(chunkSize));
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        List<String> batchCodes = chunk.stream().map(BatchInfo::getBatchCode).toList();
+        try {
+            Files.createDirectories(directory);
+            BatchArchiveFile.write(directory.resolve(fileName(chunk.get(0))), chunk);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write archive file", e);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            archivedBatchCodeRepository.insertFromBatchInfo(batchCodes);
+            int deleted = batchInfoRepository.deleteByBatchCodes(batchCodes);
+            if (deleted != chunk.size()) {
+                // Rolled back; the rows are archived again, into the same file, on the next run
+                throw new IllegalStateException("Batches were deleted while being archived");
+            }
+            batchStatsService.recordDeleted(chunk);
+        });
+        batchReadCache.invalidate(batchCodes);
+        archivedCounter.increment(chunk.size());
+        return chunk.size();
+    }
+
+    /**
+     * Returns the file name of a chunk starting with the given batch, which sorts in archival order.
+     */
+    private static String fileName(BatchInfo first) {
+        return String.format(Locale.ROOT, "batches-%019d-%08x%s", ChronoUnit.MICROS.between(Instant.EPOCH, first.getCreatedAt()),
+                first.getBatchCode().hashCode(), BatchArchiveFile.EXTENSION);
+    }
+}
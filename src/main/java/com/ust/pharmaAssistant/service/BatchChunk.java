@@ -0,0 +1,74 @@
+package com.ust.pharmaAssistant.service;
+
+import com.ust.pharmaAssistant.model.BatchInfo;
+import com.ust.pharmaAssistant.model.BatchResult;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * A list of batches going through the bulk pipeline of {@link BatchInfoService} together with the result of each row.
+ * A null result means the row has not been rejected or accepted yet.
+ */
+@Getter
+class BatchChunk {
+
+    /** The submitted rows. */
+    private final List<BatchInfo> batchInfos;
+
+    /** The result of each row, in the submitted order. */
+    private final BatchResult[] results;
+
+    /** Whether each row passed validation and was not repeated earlier in the chunk. */
+    private final boolean[] valid;
+
+    /**
+     * Creates a chunk with no results yet.
+     * @param batchInfos The submitted rows.
+     */
+    BatchChunk(List<BatchInfo> batchInfos) {
+        this.batchInfos = batchInfos;
+        this.results = new BatchResult[batchInfos.size()];
+        this.valid = new boolean[batchInfos.size()];
+    }
+
+    /**
+     * Creates a chunk of rows that have already been validated and enriched one by one, all accepted.
+     * @param batchInfos The enriched rows.
+     * @return The chunk.
+     */
+    static BatchChunk ofEnriched(List<BatchInfo> batchInfos) {
+        BatchChunk chunk = new BatchChunk(batchInfos);
+        for (int i = 0; i < chunk.size(); i++) {
+            chunk.valid[i] = true;
+            chunk.results[i] = BatchResult.accepted(batchInfos.get(i));
+        }
+        return chunk;
+    }
+
+    /**
+     * Returns the number of rows in the chunk.
+     * @return The number of rows.
+     */
+    int size() {
+        return batchInfos.size();
+    }
+
+    /**
+     * Checks whether a row has not been rejected or accepted yet.
+     * @param index The row index.
+     * @return true if the row has no result yet.
+     */
+    boolean isPending(int index) {
+        return results[index] == null;
+    }
+
+    /**
+     * Checks whether a row has been accepted.
+     * @param index The row index.
+     * @return true if the row has been accepted.
+     */
+    boolean isAccepted(int index) {
+        return results[index] != null && BatchResult.ACCEPTED.equals(results[index].getStatus());
+    }
+}
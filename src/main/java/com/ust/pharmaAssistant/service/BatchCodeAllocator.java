@@ -0,0 +1,154 @@
+package com.ust.pharmaAssistant.service;
+
+import com.ust.pharmaAssistant.repository.BatchCodeCounterRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Allocates batch codes on the server, in the long format {@code BTC-} followed by twelve digits.
+ * Codes are reserved from the batch_code_counter table in blocks: a node advances the next code by its block size in
+ * its own short transaction, then hands out the codes of the block from memory with an atomic counter. Blocks never
+ * overlap, even between nodes configured with different block sizes, so allocated codes are unique across nodes
+ * without checking batch_info. Codes of a block that are not handed out before the node stops are skipped.
+ */
+@Service
+public class BatchCodeAllocator {
+
+    /** Logger instance for logging purposes. */
+    private static final Logger logger = LoggerFactory.getLogger(BatchCodeAllocator.class);
+
+    /** Name of the counter of batch codes in the batch_code_counter table. */
+    static final String COUNTER_NAME = "batch_code";
+
+    /** Number of digits of an allocated batch code. */
+    static final int DIGITS = 12;
+
+    /** Number of allocatable batch codes. */
+    private static final long MAX_CODES = 1_000_000_000_000L;
+
+    /** Repository of the counter table. */
+    private final BatchCodeCounterRepository batchCodeCounterRepository;
+
+    /** Transaction template reserving a block in its own transaction. */
+    private final TransactionTemplate transactionTemplate;
+
+    /** Number of codes reserved at a time. */
+    private final long blockSize;
+
+    /** Block the codes are currently handed out from; an exhausted placeholder until the first allocation. */
+    private volatile Block block = new Block(0, 0);
+
+    /**
+     * Range of reserved codes with the next code to hand out.
+     */
+    private static final class Block {
+
+        /** Next code of the block; may run past the end when threads race for the last codes. */
+        private final AtomicLong next;
+
+        /** First code after the block. */
+        private final long end;
+
+        private Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+
+    /**
+     * Creates the allocator.
+     *
+     * @param batchCodeCounterRepository Repository of the counter table.
+     * @param transactionManager         Transaction manager of the counter table.
+     * @param blockSize                  Number of codes reserved at a time.
+     */
+    @Autowired
+    public BatchCodeAllocator(BatchCodeCounterRepository batchCodeCounterRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${pharma.batch-code.block-size:1000}") long blockSize) {
+        this.batchCodeCounterRepository = batchCodeCounterRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Allocates a batch code.
+     *
+     * @return A batch code that has not been allocated before.
+     * @throws IllegalStateException if all codes have been allocated.
+     */
+    public String allocate() {
+        while (true) {
+            Block current = block;
+            long code = current.next.getAndIncrement();
+            if (code < current.end) {
+                return format(code);
+            }
+            synchronized (this) {
+                if (block == current) {
+                    block = reserveBlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Formats a code number as a batch code.
+     *
+     * @param code The code number.
+     * @return The batch code.
+     */
+    static String format(long code) {
+        String digits = Long.toString(code);
+        StringBuilder batchCode = new StringBuilder(4 + DIGITS).append("BTC-");
+        for (int i = digits.length(); i < DIGITS; i++) {
+            batchCode.append('0');
+        }
+        return batchCode.append(digits).toString();
+    }
+
+    /**
+     * Reserves the next block of codes, creating the counter on first use.
+     */
+    private Block reserveBlock() {
+        while (true) {
+            try {
+                Long start = transactionTemplate.execute(status -> {
+                    if (batchCodeCounterRepository.advanceNextValue(COUNTER_NAME, blockSize) == 0) {
+                        long first = firstUnallocatedCode();
+                        batchCodeCounterRepository.create(COUNTER_NAME, first + blockSize);
+                        return first;
+                    }
+                    // The row stays locked by the update until commit, so this reads our own advance
+                    return batchCodeCounterRepository.findById(COUNTER_NAME).orElseThrow().getNextValue() - blockSize;
+                });
+                if (start + blockSize > MAX_CODES) {
+                    throw new IllegalStateException("All batch codes have been allocated");
+                }
+                logger.debug("Reserved batch codes {} to {}", start, start + blockSize - 1);
+                return new Block(start, start + blockSize);
+            } catch (DataIntegrityViolationException e) {
+                // Another node created the counter first; advance it instead
+                logger.debug("Batch code counter created concurrently, retrying");
+            }
+        }
+    }
+
+    /**
+     * Returns the code after the highest allocated code already stored, or 0 if there is none, for a new counter.
+     */
+    private long firstUnallocatedCode() {
+        String highest = batchCodeCounterRepository.findHighestAllocatedBatchCode();
+        return highest == null ? 0 : Long.parseLong(highest.substring("BTC-".length())) + 1;
+    }
+}
@@ -0,0 +1,255 @@
+package com.ust.pharmaAssistant.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.ust.pharmaAssistant.exception.PharmaBusinessException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Service class responsible for exporting the whole batch_info table in the PharmaAssistant application.
+ * Rows are read from a forward-only, read-only JDBC cursor with a configured fetch size and written to the output
+ * as they arrive, so no entities are created and memory use does not depend on the size of the table.
+ */
+@Service
+public class BatchExportService {
+
+    /**
+     * Supported export formats.
+     */
+    public enum ExportFormat {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        ExportFormat(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * Parses a format name, ignoring case.
+         * @param name The format name.
+         * @return The format.
+         * @throws PharmaBusinessException if the format is not supported.
+         */
+        public static ExportFormat parse(String name) {
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new PharmaBusinessException(400, "Export format should be 'csv' or 'ndjson'");
+            }
+        }
+    }
+
+    /** Logger instance for logging purposes. */
+    private static final Logger logger = LoggerFactory.getLogger(BatchExportService.class);
+
+    /** Query of the exported columns, in primary key order. */
+    private static final String EXPORT_QUERY = "select batch_code, medicine_code, weight, price, medicine_type_code,"
+            + " shipping_charge, care_level, refrigeration from batch_info order by batch_code";
+
+    /** Header line of the CSV export. */
+    private static final String CSV_HEADER = "batchCode,medicineCode,weight,price,medicineTypeCode,shippingCharge,careLevel,refrigeration\n";
+
+    /** Size of the output buffer in bytes. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Jackson factory used to write NDJSON without building objects per row. */
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /** JdbcTemplate used to stream the rows. */
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /** Number of rows the driver fetches per round trip. */
+    @Value("${pharma.export.fetch-size:1000}")
+    private int fetchSize;
+
+    /**
+     * Writes all batches to the output stream in the given format. The stream is flushed but not closed.
+     * The export runs in a read-only transaction, so it reads the replica if one is configured.
+     * @param outputStream The output stream.
+     * @param format       The export format.
+     * @return The number of exported batches.
+     * @throws IOException if writing to the output stream fails.
+     */
+    @Transactional(readOnly = true)
+    public long export(OutputStream outputStream, ExportFormat format) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        long[] count = new long[1];
+        try {
+            if (format == ExportFormat.CSV) {
+                writer.write(CSV_HEADER);
+                streamRows(rs -> {
+                    writeCsvRow(writer, rs);
+                    count[0]++;
+                });
+                writer.flush();
+            } else {
+                JsonGenerator generator = JSON_FACTORY.createGenerator(writer);
+                generator.setRootValueSeparator(null);
+                streamRows(rs -> {
+                    writeJsonRow(generator, rs);
+                    count[0]++;
+                });
+                generator.flush();
+            }
+        } catch (UncheckedIOException e) {
+            // The client went away or the connection broke; stop reading from the cursor
+            throw e.getCause();
+        }
+        logger.info("Exported {} batches as {}", count[0], format);
+        return count[0];
+    }
+
+    /**
+     * Writes all batches to the output stream in the given format, optionally gzipped. The stream is flushed but not
+     * closed. The compressor's native memory is released even if the export fails; a failed export is not finished,
+     * so the client sees a truncated gzip stream rather than a complete one.
+     * @param outputStream The output stream.
+     * @param format       The export format.
+     * @param gzip         Whether to gzip the export.
+     * @return The number of exported batches.
+     * @throws IOException if writing to the output stream fails.
+     */
+    @Transactional(readOnly = true)
+    public long export(OutputStream outputStream, ExportFormat format, boolean gzip) throws IOException {
+        if (!gzip) {
+            return export(outputStream, format);
+        }
+        GzipStream gzipStream = new GzipStream(outputStream);
+        try {
+            long count = export(gzipStream, format);
+            gzipStream.finish();
+            return count;
+        } finally {
+            gzipStream.release();
+        }
+    }
+
+    /**
+     * Runs the export query on a forward-only, read-only cursor and hands each row to the handler.
+     */
+    private void streamRows(RowCallbackHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(EXPORT_QUERY, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, handler);
+    }
+
+    /**
+     * Writes the current row as a CSV line.
+     */
+    private static void writeCsvRow(Writer writer, ResultSet rs) throws SQLException {
+        try {
+            writeCsvField(writer, rs.getString(1));
+            writer.write(',');
+            writeCsvField(writer, rs.getString(2));
+            writer.write(',');
+            writer.write(Double.toString(rs.getDouble(3)));
+            writer.write(',');
+            writer.write(Double.toString(rs.getDouble(4)));
+            writer.write(',');
+            writeCsvField(writer, rs.getString(5));
+            writer.write(',');
+            writer.write(Double.toString(rs.getDouble(6)));
+            writer.write(',');
+            writeCsvField(writer, rs.getString(7));
+            writer.write(',');
+            writeCsvField(writer, rs.getString(8));
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes a CSV field, quoting it if it contains a separator, quote or line break. Null is written as empty.
+     */
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    /**
+     * Writes the current row as one JSON object followed by a line break.
+     */
+    private static void writeJsonRow(JsonGenerator generator, ResultSet rs) throws SQLException {
+        try {
+            generator.writeStartObject();
+            generator.writeStringField("batchCode", rs.getString(1));
+            generator.writeStringField("medicineCode", rs.getString(2));
+            generator.writeNumberField("weight", rs.getDouble(3));
+            generator.writeNumberField("price", rs.getDouble(4));
+            generator.writeStringField("medicineTypeCode", rs.getString(5));
+            generator.writeNumberField("shippingCharge", rs.getDouble(6));
+            generator.writeStringField("careLevel", rs.getString(7));
+            generator.writeStringField("refrigeration", rs.getString(8));
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Gzip stream whose compressor can be released without closing the underlying stream, which belongs to the caller.
+     */
+    private static final class GzipStream extends GZIPOutputStream {
+
+        GzipStream(OutputStream outputStream) throws IOException {
+            super(outputStream, BUFFER_SIZE);
+        }
+
+        /**
+         * Releases the native memory of the compressor; the stream cannot be written afterwards.
+         */
+        void release() {
+            def.end();
+        }
+    }
+}
@@ -0,0 +1,455 @@
+package com.ust.pharmaAssistant.service;
+
+import com.ust.pharmaAssistant.exception.PharmaBusinessException;
+import com.ust.pharmaAssistant.model.BatchInfo;
+import com.ust.pharmaAssistant.model.BatchResult;
+import com.ust.pharmaAssistant.model.ImportJobStatus;
+import com.ust.pharmaAssistant.model.ImportLineError;
+import com.ust.pharmaAssistant.service.BatchMetrics.Path;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service class responsible for importing batch manifests from CSV files in the PharmaAssistant application.
+ * An import runs as a background job with three stages:
+ * <ol>
+ *     <li>a reader parses the file line by line and groups the rows into chunks;</li>
+ *     <li>a pool of workers, one per core by default, validates each chunk and resolves its medicine, shipping
+ *     charge and care level from the reference data cache;</li>
+ *     <li>a single writer checks each chunk for existing batch codes and inserts it in its own transaction, in
+ *     file order, so that a batch code repeated in a later chunk is rejected as a duplicate.</li>
+ * </ol>
+ * At most a fixed number of chunks are in flight per job; the reader waits when the writer falls behind, so
+ * memory use depends on the chunk size and not on the size of the file.
+ */
+@Service
+public class BatchImportService {
+
+    /** Columns every manifest must have; other columns are ignored. */
+    static final List<String> REQUIRED_COLUMNS = List.of("batchCode", "medicineCode", "weight", "price", "medicineTypeCode", "refrigeration");
+
+    /**
+     * States of an import job.
+     */
+    public enum State {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    /** Logger instance for logging purposes. */
+    private static final Logger logger = LoggerFactory.getLogger(BatchImportService.class);
+
+    /** Service running the bulk pipeline stages. */
+    @Autowired
+    private BatchInfoService batchInfoService;
+
+    /** Number of rows inserted per transaction. */
+    @Value("${pharma.import.chunk-size:1000}")
+    private int chunkSize;
+
+    /** Number of validation workers; 0 uses one per available core. */
+    @Value("${pharma.import.workers:0}")
+    private int workers;
+
+    /** Number of imports that run at the same time; further imports are queued. */
+    @Value("${pharma.import.concurrent-jobs:1}")
+    private int concurrentJobs;
+
+    /** Number of rejected lines kept per job; further rejections are only counted. */
+    @Value("${pharma.import.max-errors:1000}")
+    private int maxErrors;
+
+    /** How long finished jobs stay available for status queries. */
+    @Value("${pharma.import.retention:1h}")
+    private Duration retention;
+
+    /** Pool running the validation and enrichment stage of all jobs. */
+    private ExecutorService workerPool;
+
+    /** Pool running the reader of each job. */
+    private ExecutorService jobPool;
+
+    /** Number of chunks a job may have between the reader and the writer. */
+    private int maxChunksInFlight;
+
+    /** Known jobs by id. */
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * Starts the worker and job pools.
+     */
+    @PostConstruct
+    void start() {
+        int workerCount = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        maxChunksInFlight = workerCount * 2;
+        workerPool = Executors.newFixedThreadPool(workerCount, new CustomizableThreadFactory("batch-import-worker-"));
+        jobPool = Executors.newFixedThreadPool(concurrentJobs, new CustomizableThreadFactory("batch-import-reader-"));
+    }
+
+    /**
+     * Stops the pools, interrupting running imports.
+     */
+    @PreDestroy
+    void stop() {
+        jobPool.shutdownNow();
+        workerPool.shutdownNow();
+    }
+
+    /**
+     * Saves an uploaded manifest to a temporary file and queues its import.
+     * @param file The uploaded CSV file; the first line must name the columns.
+     * @return The status of the new job.
+     * @throws PharmaBusinessException with error 400 if the file is empty or lacks a required column.
+     * @throws IOException if the upload cannot be saved.
+     */
+    public ImportJobStatus startImport(MultipartFile file) throws IOException {
+        removeExpiredJobs();
+        java.nio.file.Path manifest = Files.createTempFile("batch-import-", ".csv");
+        try {
+            file.transferTo(manifest);
+            int[] columns;
+            try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+                columns = mapColumns(reader.readLine());
+            }
+            ImportJob job = new ImportJob(UUID.randomUUID().toString());
+            jobs.put(job.id, job);
+            jobPool.execute(() -> runImport(job, manifest, columns));
+            logger.info("Queued import {} of {}", job.id, file.getOriginalFilename());
+            return job.status();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(manifest);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the status of an import job.
+     * @param jobId The job id.
+     * @return The status, or empty if the job is unknown or has expired.
+     */
+    public Optional<ImportJobStatus> findJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(ImportJob::status);
+    }
+
+    /**
+     * Reads a manifest and pushes its chunks through the pipeline, then deletes the file.
+     * @param job      The job to run.
+     * @param manifest The CSV file.
+     * @param columns  The index of each required column in a line.
+     */
+    void runImport(ImportJob job, java.nio.file.Path manifest, int[] columns) {
+        job.state = State.RUNNING;
+        ExecutorService writer = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("batch-import-writer-"));
+        Semaphore chunksInFlight = new Semaphore(maxChunksInFlight);
+        try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            reader.readLine();
+            List<BatchInfo> rows = new ArrayList<>(chunkSize);
+            long[] lines = new long[chunkSize];
+            long lineNumber = 1;
+            String line;
+            while ((line = reader.readLine()) != null && job.failure == null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                job.linesRead.incrementAndGet();
+                try {
+                    lines[rows.size()] = lineNumber;
+                    rows.add(parseLine(line, columns));
+                } catch (PharmaBusinessException e) {
+                    job.reject(lineNumber, null, e.getErrorCode(), e.getMessage());
+                }
+                if (rows.size() == chunkSize) {
+                    submitChunk(job, rows, lines, writer, chunksInFlight);
+                    rows = new ArrayList<>(chunkSize);
+                    lines = new long[chunkSize];
+                }
+            }
+            if (!rows.isEmpty()) {
+                submitChunk(job, rows, lines, writer, chunksInFlight);
+            }
+            writer.shutdown();
+            writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.fail("Import was interrupted");
+        } catch (IOException e) {
+            logger.error("Import {} could not read the manifest: {}", job.id, e.getMessage());
+            job.fail("Manifest could not be read");
+        } finally {
+            writer.shutdownNow();
+            try {
+                Files.deleteIfExists(manifest);
+            } catch (IOException e) {
+                logger.warn("Could not delete manifest {}: {}", manifest, e.getMessage());
+            }
+        }
+        job.finish();
+        logger.info("Import {} {}: {} lines, {} accepted, {} rejected", job.id, job.state,
+                job.linesRead.get(), job.accepted.get(), job.rejected.get());
+    }
+
+    /**
+     * Hands a chunk to the worker pool and queues its insert on the writer, waiting first if the job already
+     * has the maximum number of chunks in flight.
+     */
+    private void submitChunk(ImportJob job, List<BatchInfo> rows, long[] lines, ExecutorService writer,
+                             Semaphore chunksInFlight) throws InterruptedException {
+        chunksInFlight.acquire();
+        Future<BatchChunk> enriched = workerPool.submit(() -> {
+            BatchChunk chunk = batchInfoService.validateBatches(rows, Path.IMPORT);
+            batchInfoService.enrichBatches(chunk, Path.IMPORT);
+            return chunk;
+        });
+        writer.execute(() -> {
+            try {
+                if (job.failure != null) {
+                    return;
+                }
+                BatchChunk chunk = enriched.get();
+                batchInfoService.rejectExistingBatches(chunk, Path.IMPORT);
+                batchInfoService.insertBatches(chunk, Path.IMPORT);
+                batchInfoService.recordResults(chunk);
+                job.record(chunk, lines);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                job.fail("Import was interrupted");
+            } catch (ExecutionException | RuntimeException e) {
+                Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                logger.error("Import {} failed: {}", job.id, cause.getMessage());
+                job.fail("General system Error");
+            } finally {
+                chunksInFlight.release();
+            }
+        });
+    }
+
+    /**
+     * Removes finished jobs older than the retention period.
+     */
+    private void removeExpiredJobs() {
+        Instant cutoff = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(cutoff));
+    }
+
+    /**
+     * Finds the index of each required column in the header line.
+     * @param header The first line of the manifest.
+     * @return The index of each column of {@link #REQUIRED_COLUMNS}, in the same order.
+     * @throws PharmaBusinessException with error 400 if the header is missing or lacks a required column.
+     */
+    static int[] mapColumns(String header) {
+        if (header == null) {
+            throw new PharmaBusinessException(400, "Manifest is empty");
+        }
+        if (header.startsWith("\uFEFF")) {
+            header = header.substring(1);
+        }
+        List<String> names = splitLine(header);
+        int[] columns = new int[REQUIRED_COLUMNS.size()];
+        List<String> missing = new ArrayList<>();
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = names.indexOf(REQUIRED_COLUMNS.get(i));
+            if (columns[i] < 0) {
+                missing.add(REQUIRED_COLUMNS.get(i));
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new PharmaBusinessException(400, "Manifest is missing columns " + String.join(", ", missing));
+        }
+        return columns;
+    }
+
+    /**
+     * Parses a data line into a batch, leaving the business rules to the pipeline.
+     * @param line    The line.
+     * @param columns The index of each required column.
+     * @return The batch.
+     * @throws PharmaBusinessException with error 400 if the line is malformed.
+     */
+    static BatchInfo parseLine(String line, int[] columns) {
+        List<String> fields = splitLine(line);
+        for (int column : columns) {
+            if (column >= fields.size()) {
+                throw new PharmaBusinessException(400, "Line has " + fields.size() + " fields");
+            }
+        }
+        BatchInfo batchInfo = new BatchInfo();
+        batchInfo.setBatchCode(fields.get(columns[0]));
+        batchInfo.setMedicineCode(fields.get(columns[1]));
+        batchInfo.setWeight(parseNumber(fields.get(columns[2]), "weight"));
+        batchInfo.setPrice(parseNumber(fields.get(columns[3]), "price"));
+        batchInfo.setMedicineTypeCode(fields.get(columns[4]));
+        batchInfo.setRefrigeration(fields.get(columns[5]));
+        return batchInfo;
+    }
+
+    /**
+     * Parses a numeric field; an empty field is 0.
+     */
+    private static double parseNumber(String value, String column) {
+        if (value.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new PharmaBusinessException(400, "Column " + column + " is not a number");
+        }
+    }
+
+    /**
+     * Splits a CSV line into fields. Fields may be quoted, with quotes inside doubled, as written by the export.
+     * @param line The line.
+     * @return The fields, without quotes.
+     * @throws PharmaBusinessException with error 400 if a quoted field is not closed.
+     */
+    static List<String> splitLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        while (true) {
+            field.setLength(0);
+            if (i < line.length() && line.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i >= line.length()) {
+                        throw new PharmaBusinessException(400, "Quoted field is not closed");
+                    }
+                    char c = line.charAt(i++);
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i < line.length() && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+            }
+            while (i < line.length() && line.charAt(i) != ',') {
+                field.append(line.charAt(i++));
+            }
+            fields.add(field.toString().trim());
+            if (i >= line.length()) {
+                return fields;
+            }
+            i++;
+        }
+    }
+
+    /**
+     * Progress of an import job, updated by its reader and writer threads.
+     */
+    private class ImportJob {
+
+        /** The job id. */
+        private final String id;
+
+        /** Current state. */
+        private volatile State state = State.QUEUED;
+
+        /** Why the job stopped, if it failed. */
+        private volatile String failure;
+
+        /** When the job finished, or null while it runs. */
+        private volatile Instant finishedAt;
+
+        /** Number of data lines read. */
+        private final AtomicLong linesRead = new AtomicLong();
+
+        /** Number of batches inserted. */
+        private final AtomicLong accepted = new AtomicLong();
+
+        /** Number of lines rejected. */
+        private final AtomicLong rejected = new AtomicLong();
+
+        /** The first rejected lines, up to the configured maximum. */
+        private final List<ImportLineError> errors = new ArrayList<>();
+
+        ImportJob(String id) {
+            this.id = id;
+        }
+
+        /**
+         * Counts the results of an inserted chunk and keeps its rejected lines.
+         */
+        void record(BatchChunk chunk, long[] lines) {
+            BatchResult[] results = chunk.getResults();
+            for (int i = 0; i < results.length; i++) {
+                if (BatchResult.ACCEPTED.equals(results[i].getStatus())) {
+                    accepted.incrementAndGet();
+                } else {
+                    reject(lines[i], results[i].getBatchCode(), results[i].getErrorCode(), results[i].getErrorMessage());
+                }
+            }
+        }
+
+        /**
+         * Counts a rejected line, keeping it if the error report is not full.
+         */
+        void reject(long line, String batchCode, int errorCode, String errorMessage) {
+            rejected.incrementAndGet();
+            synchronized (errors) {
+                if (errors.size() < maxErrors) {
+                    errors.add(new ImportLineError(line, batchCode, errorCode, errorMessage));
+                }
+            }
+        }
+
+        /**
+         * Stops the job; chunks not yet inserted are skipped.
+         */
+        void fail(String reason) {
+            if (failure == null) {
+                failure = reason;
+            }
+        }
+
+        /**
+         * Marks the job as finished.
+         */
+        void finish() {
+            state = failure == null ? State.COMPLETED : State.FAILED;
+            finishedAt = Instant.now();
+        }
+
+        /**
+         * Returns a snapshot of the progress.
+         */
+        ImportJobStatus status() {
+            List<ImportLineError> errorsSoFar;
+            synchronized (errors) {
+                errorsSoFar = List.copyOf(errors);
+            }
+            return new ImportJobStatus(id, state.name(), linesRead.get(), accepted.get(), rejected.get(),
+                    errorsSoFar, failure);
+        }
+    }
+}
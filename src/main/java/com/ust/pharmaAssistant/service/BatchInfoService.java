@@ -1,24 +1,38 @@
 package com.ust.pharmaAssistant.service;
 
 import com.ust.pharmaAssistant.exception.PharmaBusinessException;
+import com.ust.pharmaAssistant.model.BatchFilter;
 import com.ust.pharmaAssistant.model.BatchInfo;
+import com.ust.pharmaAssistant.model.BatchPage;
+import com.ust.pharmaAssistant.model.BatchResult;
+import com.ust.pharmaAssistant.model.BatchSummary;
+import com.ust.pharmaAssistant.model.BatchValidationContext;
 import com.ust.pharmaAssistant.model.MedicalTypeMaster;
 import com.ust.pharmaAssistant.model.Medicine;
 import com.ust.pharmaAssistant.model.ShippingMaster;
+import com.ust.pharmaAssistant.repository.ArchivedBatchCodeRepository;
 import com.ust.pharmaAssistant.repository.BatchInfoRepository;
-import com.ust.pharmaAssistant.repository.MedicalTypeMasterRepository;
-import com.ust.pharmaAssistant.repository.MedicineRepository;
-import com.ust.pharmaAssistant.repository.ShippingMasterRepository;
+import com.ust.pharmaAssistant.service.BatchInfoValidator.Mode;
+import com.ust.pharmaAssistant.service.BatchMetrics.Path;
+import com.ust.pharmaAssistant.service.BatchMetrics.Stage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
-import org.springframework.util.StopWatch;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Set;
+import java.util.function.Function;
 
 /**
  * Service class responsible for managing BatchInfo operations in the PharmaAssistant application.
@@ -31,78 +45,492 @@ public class BatchInfoService {
     /** Logger instance for logging purposes. */
     private static final Logger logger = LoggerFactory.getLogger(BatchInfoService.class);
 
+    /** Largest page size of the batch query API. */
+    static final int MAX_PAGE_SIZE = 500;
+
     /** Repository for interacting with BatchInfo entities. */
     @Autowired
     private BatchInfoRepository batchInfoRepository;
 
-    /** Repository for interacting with MedicalTypeMaster entities. */
+    /** Repository of the batch codes of archived batches, which are still duplicates. */
+    @Autowired
+    private ArchivedBatchCodeRepository archivedBatchCodeRepository;
+
+    /** Cache of medicines, medicine types and shipping charges in front of the master data repositories. */
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    /** Timers and counters of the batch pipeline. */
+    @Autowired
+    private BatchMetrics batchMetrics;
+
+    /** Running totals of the inserted batches, updated in the transaction of each insert. */
+    @Autowired
+    private BatchStatsService batchStatsService;
+
+    /** Transactional outbox, to which an event is written in the transaction of each insert. */
+    @Autowired
+    private OutboxService outboxService;
+
+    /** Compiled care level, weight band and surcharge rules. */
+    @Autowired
+    private BatchRuleService batchRuleService;
+
+    /** Cache of single batches, filled as batches are added so that reading them back needs no query. */
+    @Autowired
+    private BatchReadCache batchReadCache;
+
+    /** Allocator of server-side batch codes, used for batches submitted without a batch code. */
     @Autowired
-    private MedicalTypeMasterRepository medicalTypeMasterRepository;
+    private BatchCodeAllocator batchCodeAllocator;
 
-    /** Repository for interacting with Medicine entities. */
+    /** Whether batches submitted without a batch code get one allocated instead of being rejected. */
+    @Value("${pharma.batch-code.allocation-enabled:false}")
+    private boolean batchCodeAllocationEnabled;
+
+    /** Admission control that sheds batch writes when the database slows down. */
     @Autowired
-    private MedicineRepository medicineRepository;
+    private AdmissionService admissionService;
 
-    /** Repository for interacting with ShippingMaster entities. */
+    /** Transaction template used to insert batches and update their totals atomically. */
     @Autowired
-    private ShippingMasterRepository shippingMasterRepository;
+    private TransactionTemplate transactionTemplate;
 
     /**
      * Adds a new batch to the system.
+     * When the master data of the batch is not cached yet, the duplicate flag and all master rows are fetched in a
+     * single query and cached. Otherwise no query runs before the insert: the primary key constraint on the batch
+     * code rejects duplicates, including concurrent ones, and is translated to error 511; the codes of archived
+     * batches are looked up by primary key in the same transaction. If the batch is rejected
+     * for its medicine code, shipping charge or medicine type, the duplicate check runs first so that error 511
+     * keeps precedence over 510, 514 and 515.
+     * A valid batch is only written if admission control lets it through.
+     * With batch code allocation enabled, a batch without a batch code gets a server-allocated one, which is unique
+     * by construction, so it is never checked for duplicates.
      * @param batchInfo The batch information to add.
      * @return true if the batch is added successfully, false otherwise.
-     * @throws PharmaBusinessException if an error occurs during batch addition.
+     * @throws PharmaBusinessException if an error occurs during batch addition, or
+     * {@link com.ust.pharmaAssistant.exception.AdmissionRejectedException} if the write is shed.
      */
     public boolean addBatch(BatchInfo batchInfo) {
-        StopWatch stopWatch = new StopWatch();
-        stopWatch.start("Add Batch");
+        try {
+            boolean allocated = allocateBatchCode(batchInfo);
+            batchMetrics.record(Path.SINGLE, Stage.VALIDATE, () -> validateBatchInfo(batchInfo, allocated));
+            return admissionService.execute(() -> addValidatedBatch(batchInfo, allocated));
+        } catch (PharmaBusinessException e) {
+            batchMetrics.recordRejection(e.getErrorCode());
+            throw e;
+        }
+    }
 
-        validateBatchInfo(batchInfo);
-        checkForDuplicates(batchInfo);
-        checkIfMedicineCodeExists(batchInfo.getMedicineCode());
-        calculateShippingCharge(batchInfo);
-        calculateCareLevel(batchInfo);
+    /**
+     * Adds a batch that passed validation.
+     * @param batchInfo The batch information to add.
+     * @param allocated Whether the batch code was allocated by the server, in which case it cannot be a duplicate.
+     * @return true once the batch is added.
+     * @throws PharmaBusinessException if an error occurs during batch addition.
+     */
+    private boolean addValidatedBatch(BatchInfo batchInfo, boolean allocated) {
+        boolean duplicateChecked = batchMetrics.record(Path.SINGLE, Stage.VALIDATION_CONTEXT, () -> loadValidationContext(batchInfo));
+        try {
+            batchMetrics.record(Path.SINGLE, Stage.MEDICINE_LOOKUP, () -> checkIfMedicineCodeExists(batchInfo.getMedicineCode()));
+            batchMetrics.record(Path.SINGLE, Stage.SHIPPING_CHARGE, () -> calculateShippingCharge(batchInfo));
+            batchMetrics.record(Path.SINGLE, Stage.CARE_LEVEL, () -> calculateCareLevel(batchInfo));
+        } catch (PharmaBusinessException e) {
+            if (!duplicateChecked && !allocated) {
+                batchMetrics.record(Path.SINGLE, Stage.DUPLICATE_CHECK, () -> checkForDuplicates(batchInfo));
+            }
+            throw e;
+        }
+        batchMetrics.record(Path.SINGLE, Stage.SAVE, () -> saveBatch(batchInfo, !duplicateChecked && !allocated));
+        batchReadCache.put(batchInfo);
+        batchMetrics.recordAccepted(1);
+        return true;
+    }
+
+    /**
+     * Allocates a batch code for a batch submitted without one, if batch code allocation is enabled.
+     * @param batchInfo The batch information.
+     * @return true if a batch code was allocated.
+     */
+    boolean allocateBatchCode(BatchInfo batchInfo) {
+        if (!batchCodeAllocationEnabled || StringUtils.hasLength(batchInfo.getBatchCode())) {
+            return false;
+        }
+        batchInfo.setBatchCode(batchCodeAllocator.allocate());
+        return true;
+    }
 
+    /**
+     * Validates a batch and calculates its shipping charge and care level from the reference data cache, without
+     * checking for duplicates or inserting it. Used when the insert happens later, e.g. for asynchronous ingestion.
+     * @param batchInfo The batch information to prepare.
+     * @param path      The pipeline path the batch belongs to, for metrics.
+     * @throws PharmaBusinessException if the batch breaks a business rule other than the duplicate check.
+     */
+    void prepareBatch(BatchInfo batchInfo, Path path) {
         try {
-            batchInfoRepository.save(batchInfo);
-            logger.info("Batch added successfully.");
-            stopWatch.stop();
-            logger.info("Time taken to add batch: {} ms", stopWatch.getTotalTimeMillis());
-            return true;
+            batchMetrics.record(path, Stage.VALIDATE, () -> validateBatchInfo(batchInfo));
+            batchMetrics.record(path, Stage.MEDICINE_LOOKUP, () -> checkIfMedicineCodeExists(batchInfo.getMedicineCode()));
+            batchMetrics.record(path, Stage.SHIPPING_CHARGE, () -> calculateShippingCharge(batchInfo));
+            batchMetrics.record(path, Stage.CARE_LEVEL, () -> calculateCareLevel(batchInfo));
+        } catch (PharmaBusinessException e) {
+            batchMetrics.recordRejection(e.getErrorCode());
+            throw e;
+        }
+    }
+
+    /**
+     * Fetches the duplicate flag and master rows of a batch in one query, unless its master rows are all cached.
+     * @param batchInfo The batch information to look up.
+     * @return true if the query ran, in which case the batch code has been checked for duplicates.
+     * @throws PharmaBusinessException if the batch code already exists.
+     */
+    boolean loadValidationContext(BatchInfo batchInfo) {
+        String weightRange = getWeightRange(batchInfo.getWeight());
+        if (referenceDataCache.isCached(batchInfo.getMedicineCode(), batchInfo.getMedicineTypeCode(), weightRange)) {
+            return false;
+        }
+        BatchValidationContext context = batchInfoRepository.findValidationContext(batchInfo.getBatchCode(),
+                batchInfo.getMedicineCode(), batchInfo.getMedicineTypeCode(), weightRange);
+        referenceDataCache.put(context, batchInfo.getMedicineCode(), batchInfo.getMedicineTypeCode(), weightRange);
+        if (context.getBatchCount() > 0) {
+            throw new PharmaBusinessException(511, "Batch Code already exists");
+        }
+        return true;
+    }
+
+    /**
+     * Inserts a validated and enriched batch, and adds it to the batch totals and writes its outbox event in the same
+     * transaction.
+     * The primary key rejects codes in batch_info, but not those of archived batches. Unless the caller has checked
+     * the code already, it is looked up in archived_batch_code after the insert, so that a batch archived
+     * concurrently is either still in batch_info or already recorded as archived.
+     * @param batchInfo     The batch information to insert.
+     * @param checkArchived Whether to reject the batch code if it belongs to an archived batch.
+     * @throws PharmaBusinessException with error 511 if the batch code already exists, or 500 if the insert fails.
+     */
+    private void saveBatch(BatchInfo batchInfo, boolean checkArchived) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                batchInfoRepository.saveAndFlush(batchInfo);
+                if (checkArchived && archivedBatchCodeRepository.existsById(batchInfo.getBatchCode())) {
+                    throw new PharmaBusinessException(511, "Batch Code already exists");
+                }
+                batchStatsService.recordInserted(List.of(batchInfo));
+                outboxService.recordAdded(List.of(batchInfo));
+            });
+            logger.debug("Batch {} added successfully.", batchInfo.getBatchCode());
+        } catch (PharmaBusinessException e) {
+            throw e;
+        } catch (DataIntegrityViolationException e) {
+            if (isDuplicateKey(e)) {
+                throw new PharmaBusinessException(511, "Batch Code already exists");
+            }
+            logger.error("An error occurred while adding batch: {}", e.getMessage());
+            throw new PharmaBusinessException(500, "General system Error");
         } catch (Exception e) {
             logger.error("An error occurred while adding batch: {}", e.getMessage());
             throw new PharmaBusinessException(500, "General system Error");
         }
     }
 
+    /**
+     * Adds a list of batches to the system in one pass.
+     * Duplicates and medicine codes are checked for the whole list with one query each, shipping and
+     * medicine type master data is loaded once, and accepted rows are inserted with JDBC statement batching.
+     * Rows that fail a business rule are rejected individually and do not prevent the others from being added.
+     * The database stages of the request are only run if admission control lets them through.
+     * With batch code allocation enabled, rows without a batch code get a server-allocated one.
+     * @param batchInfos The batch information to add.
+     * @return One result per submitted row, in the submitted order.
+     * @throws com.ust.pharmaAssistant.exception.AdmissionRejectedException if the write is shed.
+     */
+    public List<BatchResult> addBatches(List<BatchInfo> batchInfos) {
+        boolean[] allocated = new boolean[batchInfos.size()];
+        for (int i = 0; i < allocated.length; i++) {
+            allocated[i] = allocateBatchCode(batchInfos.get(i));
+        }
+        BatchChunk chunk = validateBatches(batchInfos, allocated, Path.BULK);
+        admissionService.execute(() -> {
+            rejectExistingBatches(chunk, Path.BULK);
+            enrichBatches(chunk, Path.BULK);
+            insertBatches(chunk, Path.BULK);
+            return chunk;
+        });
+        recordResults(chunk);
+        return List.of(chunk.getResults());
+    }
 
     /**
-     * Validates the batch information before adding it to the system.
-     * @param batchInfo The batch information to validate.
-     * @throws PharmaBusinessException if any validation error occurs.
+     * Validates each row of a list of batches and rejects batch codes repeated within the list itself.
+     * A rejected row reports every rule it breaks, with the error code of the first one.
+     * This stage does not access the database.
+     * @param batchInfos The batch information to validate.
+     * @param path       The pipeline path the rows belong to, for metrics.
+     * @return The chunk with the rejected rows filled in.
+     */
+    BatchChunk validateBatches(List<BatchInfo> batchInfos, Path path) {
+        return validateBatches(batchInfos, null, path);
+    }
+
+    /**
+     * Validates each row of a list of batches, some of which may have server-allocated batch codes, and rejects
+     * batch codes repeated within the list itself.
+     * @param batchInfos The batch information to validate.
+     * @param allocated  Whether the batch code of each row was allocated by the server, or null if none was.
+     * @param path       The pipeline path the rows belong to, for metrics.
+     * @return The chunk with the rejected rows filled in.
+     */
+    BatchChunk validateBatches(List<BatchInfo> batchInfos, boolean[] allocated, Path path) {
+        BatchChunk chunk = new BatchChunk(batchInfos);
+        Set<String> seenBatchCodes = new HashSet<>();
+        batchMetrics.record(path, Stage.VALIDATE, () -> {
+            for (int i = 0; i < chunk.size(); i++) {
+                BatchInfo batchInfo = batchInfos.get(i);
+                int violations = BatchInfoValidator.validate(batchInfo, Mode.COLLECT_ALL, allocated != null && allocated[i]);
+                if (violations != BatchInfoValidator.VALID) {
+                    chunk.getResults()[i] = BatchResult.rejected(batchInfo.getBatchCode(),
+                            BatchInfoValidator.firstViolation(violations).getErrorCode(),
+                            BatchInfoValidator.errorMessage(violations));
+                } else if (!seenBatchCodes.add(batchInfo.getBatchCode())) {
+                    chunk.getResults()[i] = BatchResult.rejected(batchInfo.getBatchCode(), 511, "Batch Code already exists");
+                } else {
+                    chunk.getValid()[i] = true;
+                }
+            }
+        });
+        return chunk;
+    }
+
+    /**
+     * Rejects the valid rows of a chunk whose batch code already exists, with one query.
+     * A row is rejected even if it has already been accepted or rejected by {@link #enrichBatches}, so that
+     * error 511 keeps precedence over 510, 514 and 515 whichever order the stages run in.
+     * @param chunk The chunk to check.
+     * @param path  The pipeline path the rows belong to, for metrics.
+     */
+    void rejectExistingBatches(BatchChunk chunk, Path path) {
+        Set<String> batchCodes = new HashSet<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            if (chunk.getValid()[i]) {
+                batchCodes.add(chunk.getBatchInfos().get(i).getBatchCode());
+            }
+        }
+        if (batchCodes.isEmpty()) {
+            return;
+        }
+        Set<String> existingBatchCodes = batchMetrics.record(path, Stage.DUPLICATE_CHECK,
+                () -> new HashSet<>(batchInfoRepository.findExistingBatchCodes(batchCodes)));
+        for (int i = 0; i < chunk.size(); i++) {
+            String batchCode = chunk.getBatchInfos().get(i).getBatchCode();
+            if (chunk.getValid()[i] && existingBatchCodes.contains(batchCode)) {
+                chunk.getResults()[i] = BatchResult.rejected(batchCode, 511, "Batch Code already exists");
+            }
+        }
+    }
+
+    /**
+     * Resolves the medicine, shipping charge and care level of the pending rows of a chunk from the reference
+     * data cache, and accepts the rows that pass. Master data is looked up once for the whole chunk.
+     * @param chunk The chunk to enrich.
+     * @param path  The pipeline path the rows belong to, for metrics.
+     */
+    void enrichBatches(BatchChunk chunk, Path path) {
+        List<BatchInfo> batchInfos = chunk.getBatchInfos();
+        BatchResult[] results = chunk.getResults();
+
+        Set<String> medicineCodes = collectPending(batchInfos, results, BatchInfo::getMedicineCode);
+        Set<String> knownMedicineCodes = medicineCodes.isEmpty() ? Set.of()
+                : batchMetrics.record(path, Stage.MEDICINE_LOOKUP,
+                        () -> referenceDataCache.findMedicines(medicineCodes).keySet());
+
+        // Look up the shipping and medicine type master rows for all medicine types in the chunk
+        Set<String> medicineTypeCodes = collectPending(batchInfos, results, BatchInfo::getMedicineTypeCode);
+        Set<String> weightRanges = new HashSet<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            if (chunk.isPending(i)) {
+                weightRanges.add(getWeightRange(batchInfos.get(i).getWeight()));
+            }
+        }
+        Map<String, ShippingMaster> shippingMasters = medicineTypeCodes.isEmpty() ? Map.of()
+                : batchMetrics.record(path, Stage.SHIPPING_CHARGE,
+                        () -> referenceDataCache.findShippingMasters(medicineTypeCodes, weightRanges));
+        Map<String, MedicalTypeMaster> medicalTypeMasters = medicineTypeCodes.isEmpty() ? Map.of()
+                : batchMetrics.record(path, Stage.CARE_LEVEL,
+                        () -> referenceDataCache.findMedicalTypes(medicineTypeCodes));
+
+        // Apply the remaining rules in the same order as addBatch
+        for (int i = 0; i < chunk.size(); i++) {
+            if (!chunk.isPending(i)) {
+                continue;
+            }
+            BatchInfo batchInfo = batchInfos.get(i);
+            try {
+                if (!knownMedicineCodes.contains(batchInfo.getMedicineCode())) {
+                    throw new PharmaBusinessException(510, "Medicine code does not exist");
+                }
+                applyShippingCharge(batchInfo, shippingMasters.get(
+                        ReferenceDataCache.shippingKey(batchInfo.getMedicineTypeCode(), getWeightRange(batchInfo.getWeight()))));
+                applyCareLevel(batchInfo, medicalTypeMasters.get(batchInfo.getMedicineTypeCode()));
+                results[i] = BatchResult.accepted(batchInfo);
+            } catch (PharmaBusinessException e) {
+                results[i] = BatchResult.rejected(batchInfo.getBatchCode(), e.getErrorCode(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Inserts the accepted rows of a chunk, and adds them to the batch totals and writes their outbox events in one
+     * transaction.
+     * If the insert fails on a batch code added or archived since {@link #rejectExistingBatches} ran, those rows are
+     * rejected with error 511 and the rest are inserted again, as {@link #addBatch} would report them one by one.
+     * If it fails otherwise, they are rejected with error 500.
+     * @param chunk The chunk to insert.
+     * @param path  The pipeline path the rows belong to, for metrics.
+     */
+    void insertBatches(BatchChunk chunk, Path path) {
+        while (true) {
+            List<BatchInfo> accepted = new ArrayList<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                if (chunk.isAccepted(i)) {
+                    accepted.add(chunk.getBatchInfos().get(i));
+                }
+            }
+            if (accepted.isEmpty()) {
+                return;
+            }
+            try {
+                batchMetrics.record(path, Stage.SAVE, () -> transactionTemplate.executeWithoutResult(status -> {
+                    batchInfoRepository.insertAll(accepted);
+                    batchStatsService.recordInserted(accepted);
+                    outboxService.recordAdded(accepted);
+                }));
+                return;
+            } catch (DataIntegrityViolationException e) {
+                if (!isDuplicateKey(e) || !rejectConcurrentDuplicates(chunk, path)) {
+                    rejectAccepted(chunk, e);
+                    return;
+                }
+            } catch (Exception e) {
+                rejectAccepted(chunk, e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Rejects the accepted rows of a chunk whose batch code has been added or archived by another request.
+     * @return true if any row was rejected.
      */
-    private void validateBatchInfo(BatchInfo batchInfo) {
-        StopWatch stopWatch = new StopWatch();
-        stopWatch.start("Validate Batch Info");
+    private boolean rejectConcurrentDuplicates(BatchChunk chunk, Path path) {
+        Set<String> batchCodes = new HashSet<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            if (chunk.isAccepted(i)) {
+                batchCodes.add(chunk.getBatchInfos().get(i).getBatchCode());
+            }
+        }
+        Set<String> existingBatchCodes = batchMetrics.record(path, Stage.DUPLICATE_CHECK,
+                () -> new HashSet<>(batchInfoRepository.findExistingBatchCodes(batchCodes)));
+        BatchResult[] results = chunk.getResults();
+        for (int i = 0; i < results.length; i++) {
+            if (chunk.isAccepted(i) && existingBatchCodes.contains(results[i].getBatchCode())) {
+                results[i] = BatchResult.rejected(results[i].getBatchCode(), 511, "Batch Code already exists");
+            }
+        }
+        if (existingBatchCodes.isEmpty()) {
+            return false;
+        }
+        logger.debug("Batch codes {} were added concurrently, inserting the rest of the chunk again", existingBatchCodes);
+        return true;
+    }
 
-        if (StringUtils.isEmpty(batchInfo.getMedicineCode())) {
-            throw new PharmaBusinessException(510, "Medicine code is required");
+    /**
+     * Rejects the accepted rows of a chunk whose insert failed with error 500.
+     */
+    private void rejectAccepted(BatchChunk chunk, Exception e) {
+        logger.error("An error occurred while adding batches: {}", e.getMessage());
+        BatchResult[] results = chunk.getResults();
+        for (int i = 0; i < results.length; i++) {
+            if (chunk.isAccepted(i)) {
+                results[i] = BatchResult.rejected(results[i].getBatchCode(), 500, "General system Error");
+            }
         }
-        if (StringUtils.isEmpty(batchInfo.getBatchCode())) {
-            throw new PharmaBusinessException(513, "Batch code is required");
+    }
+
+    /**
+     * Counts the accepted and rejected rows of a chunk.
+     * @param chunk The chunk whose results are final.
+     */
+    void recordResults(BatchChunk chunk) {
+        for (BatchResult result : chunk.getResults()) {
+            if (BatchResult.ACCEPTED.equals(result.getStatus())) {
+                batchMetrics.recordAccepted(1);
+            } else {
+                batchMetrics.recordRejection(result.getErrorCode());
+            }
         }
-        if (!isValidBatchCode(batchInfo.getBatchCode())) {
-            throw new PharmaBusinessException(513, "Batch code should be in the format 'BTC-1234'");
+    }
+
+    /**
+     * Finds one page of batches matching a filter, ordered by batch code.
+     * One extra row is fetched to know whether there is a next page.
+     * @param filter         The filter criteria.
+     * @param afterBatchCode The next cursor of the previous page, or null for the first page.
+     * @param limit          The page size, between 1 and {@value #MAX_PAGE_SIZE}.
+     * @return The page, with the cursor of the next page if there is one.
+     * @throws PharmaBusinessException if the page size is out of range.
+     */
+    public BatchPage findBatches(BatchFilter filter, String afterBatchCode, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new PharmaBusinessException(400, "Page size should be between 1 and " + MAX_PAGE_SIZE);
         }
-        if (batchInfo.getWeight() < 100) {
-            throw new PharmaBusinessException(512, "Batch Weight should be greater than 100");
+        List<BatchSummary> items = batchInfoRepository.findPage(filter, afterBatchCode, limit + 1);
+        if (items.size() <= limit) {
+            return new BatchPage(items, null);
         }
-        if (StringUtils.isEmpty(batchInfo.getRefrigeration())) {
-            throw new PharmaBusinessException(516, "Refrigeration requirement is mandatory");
+        List<BatchSummary> page = items.subList(0, limit);
+        return new BatchPage(List.copyOf(page), page.get(limit - 1).batchCode());
+    }
+
+    /**
+     * Collects a property of all rows that have not been rejected yet.
+     * @param batchInfos The submitted rows.
+     * @param results    The results so far; null for rows that are still pending.
+     * @param property   The property to collect.
+     * @return The distinct non-empty values of the property.
+     */
+    private Set<String> collectPending(List<BatchInfo> batchInfos, BatchResult[] results, Function<BatchInfo, String> property) {
+        Set<String> values = new HashSet<>();
+        for (int i = 0; i < batchInfos.size(); i++) {
+            String value = property.apply(batchInfos.get(i));
+            if (results[i] == null && StringUtils.hasLength(value)) {
+                values.add(value);
+            }
         }
+        return values;
+    }
+
+    /**
+     * Validates the batch information, with a batch code chosen by the client, before adding it to the system, stopping at the first error.
+     * @param batchInfo The batch information to validate.
+     * @throws PharmaBusinessException if any validation error occurs.
+     */
+    void validateBatchInfo(BatchInfo batchInfo) {
+        validateBatchInfo(batchInfo, false);
+    }
 
-        stopWatch.stop();
-        logger.info("Time taken to validate batch info: {} ms", stopWatch.getTotalTimeMillis());
+    /**
+     * Validates the batch information before adding it to the system, stopping at the first error.
+     * @param batchInfo The batch information to validate.
+     * @param allocated Whether the batch code was allocated by the server; only such codes may be in the long format.
+     * @throws PharmaBusinessException if any validation error occurs.
+     */
+    void validateBatchInfo(BatchInfo batchInfo, boolean allocated) {
+        int violations = BatchInfoValidator.validate(batchInfo, Mode.FAIL_FAST, allocated);
+        if (violations != BatchInfoValidator.VALID) {
+            throw BatchInfoValidator.toException(violations);
+        }
     }
 
     /**
@@ -110,35 +538,20 @@ public class BatchInfoService {
      * @param batchCode The batch code to validate.
      * @return true if the batch code is in the correct format, false otherwise.
      */
-    private boolean isValidBatchCode(String batchCode) {
-        StopWatch stopWatch = new StopWatch();
-        stopWatch.start("Validate Batch Code");
-
-        String regex = "^BTC-\\d{4}$";
-        Pattern pattern = Pattern.compile(regex);
-        Matcher matcher = pattern.matcher(batchCode);
-        boolean isValid = matcher.matches();
-
-        stopWatch.stop();
-        logger.info("Time taken to validate batch code: {} ms", stopWatch.getTotalTimeMillis());
-        return isValid;
+    boolean isValidBatchCode(String batchCode) {
+        return BatchInfoValidator.isValidBatchCode(batchCode);
     }
 
     /**
-     * Checks for duplicate batch codes in the repository.
+     * Checks for duplicate batch codes in the repository, including the codes of archived batches.
      * @param batchInfo The batch information to check for duplicates.
      * @throws PharmaBusinessException if a duplicate batch code is found.
      */
     void checkForDuplicates(BatchInfo batchInfo) {
-        StopWatch stopWatch = new StopWatch();
-        stopWatch.start("Check for Duplicates");
-
-        if (batchInfoRepository.existsByBatchCode(batchInfo.getBatchCode())) {
+        if (batchInfoRepository.existsByBatchCode(batchInfo.getBatchCode())
+                || archivedBatchCodeRepository.existsById(batchInfo.getBatchCode())) {
             throw new PharmaBusinessException(511, "Batch Code already exists");
         }
-
-        stopWatch.stop();
-        logger.info("Time taken to check for duplicates: {} ms", stopWatch.getTotalTimeMillis());
     }
 
     /**
@@ -147,16 +560,10 @@ public class BatchInfoService {
      * @throws PharmaBusinessException if the medicine code does not exist.
      */
     void checkIfMedicineCodeExists(String medicineCode) {
-        StopWatch stopWatch = new StopWatch();
-        stopWatch.start("Check Medicine Code Existence");
-
-        Optional<Medicine> medicine = medicineRepository.findById(medicineCode);
+        Optional<Medicine> medicine = referenceDataCache.findMedicine(medicineCode);
         if (medicine.isEmpty()) {
             throw new PharmaBusinessException(510, "Medicine code does not exist");
         }
-
-        stopWatch.stop();
-        logger.info("Time taken to check medicine code existence: {} ms", stopWatch.getTotalTimeMillis());
     }
 
     /**
@@ -165,22 +572,8 @@ public class BatchInfoService {
      * @throws PharmaBusinessException if no shipping charge is found for the given medicine type code and weight range.
      */
     void calculateShippingCharge(BatchInfo batchInfo) {
-        StopWatch stopWatch = new StopWatch();
-        stopWatch.start("Calculate Shipping Charge");
-
-        Optional<ShippingMaster> shippingMaster = shippingMasterRepository.findByMedicineTypeCodeAndWeightRange(batchInfo.getMedicineTypeCode(), getWeightRange(batchInfo.getWeight()));
-        if (shippingMaster.isPresent()) {
-            double shippingCharge = shippingMaster.get().getShippingCharge();
-            if ("Yes".equals(batchInfo.getRefrigeration())) {
-                shippingCharge += (shippingCharge * 0.05); // Add 5% for refrigeration
-            }
-            batchInfo.setShippingCharge(shippingCharge);
-        } else {
-            throw new PharmaBusinessException(514, "Shipping charge not found for the given medicine type code and weight range");
-        }
-
-        stopWatch.stop();
-        logger.info("Time taken to calculate shipping charge: {} ms", stopWatch.getTotalTimeMillis());
+        Optional<ShippingMaster> shippingMaster = referenceDataCache.findShippingMaster(batchInfo.getMedicineTypeCode(), getWeightRange(batchInfo.getWeight()));
+        applyShippingCharge(batchInfo, shippingMaster.orElse(null));
     }
 
     /**
@@ -189,47 +582,67 @@ public class BatchInfoService {
      * @throws PharmaBusinessException if the medicine type is not found.
      */
     void calculateCareLevel(BatchInfo batchInfo) {
-        StopWatch stopWatch = new StopWatch();
-        stopWatch.start("Calculate Care Level");
-
-        Optional<MedicalTypeMaster> medicalTypeMaster = medicalTypeMasterRepository.findById(batchInfo.getMedicineTypeCode());
-        if (medicalTypeMaster.isPresent()) {
-            String medicineTypeName = medicalTypeMaster.get().getMedicineTypeName();
-            switch (medicineTypeName) {
-                case "Capsules":
-                    batchInfo.setCareLevel("Normal");
-                    break;
-                case "Tablets":
-                    batchInfo.setCareLevel("High");
-                    break;
-                case "Syrups":
-                    batchInfo.setCareLevel("Extremely High");
-                    break;
-                default:
-                    batchInfo.setCareLevel("Normal");
-                    break;
-            }
-        } else {
-            throw new PharmaBusinessException(515, "Medicine type not found");
+        Optional<MedicalTypeMaster> medicalTypeMaster = referenceDataCache.findMedicalType(batchInfo.getMedicineTypeCode());
+        applyCareLevel(batchInfo, medicalTypeMaster.orElse(null));
+    }
+
+
+    /**
+     * Sets the shipping charge of the batch from its shipping master row, adding the refrigeration surcharge.
+     * @param batchInfo      The batch information to update.
+     * @param shippingMaster The shipping master row for the batch, or null if there is none.
+     * @throws PharmaBusinessException if there is no shipping master row.
+     */
+    private void applyShippingCharge(BatchInfo batchInfo, ShippingMaster shippingMaster) {
+        if (shippingMaster == null) {
+            throw new PharmaBusinessException(514, "Shipping charge not found for the given medicine type code and weight range");
         }
+        // Add the refrigeration surcharge, 5% by default
+        double shippingCharge = batchRuleService.getRules().applySurcharge(shippingMaster.getShippingCharge(), batchInfo.getRefrigeration());
+        batchInfo.setShippingCharge(shippingCharge);
+    }
 
-        stopWatch.stop();
-        logger.info("Time taken to calculate care level: {} ms", stopWatch.getTotalTimeMillis());
+    /**
+     * Sets the care level of the batch from the care level rule of its medicine type.
+     * @param batchInfo         The batch information to update.
+     * @param medicalTypeMaster The medicine type of the batch, or null if it is not found.
+     * @throws PharmaBusinessException if the medicine type is not found or no care level rule applies to it.
+     */
+    private void applyCareLevel(BatchInfo batchInfo, MedicalTypeMaster medicalTypeMaster) {
+        if (medicalTypeMaster == null) {
+            throw new PharmaBusinessException(515, "Medicine type not found");
+        }
+        String careLevel = batchRuleService.getRules().careLevel(medicalTypeMaster.getMedicineTypeName());
+        if (careLevel == null) {
+            throw new PharmaBusinessException(515, "No care level rule for the medicine type");
+        }
+        batchInfo.setCareLevel(careLevel);
     }
 
+    /**
+     * Checks whether a data integrity violation was caused by a duplicate primary or unique key.
+     * @param e The data integrity violation.
+     * @return true if the database reported a duplicate key.
+     */
+    static boolean isDuplicateKey(DataIntegrityViolationException e) {
+        if (e instanceof DuplicateKeyException) {
+            return true;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException) {
+                // 23505 is the standard unique violation state; MySQL reports 23000 with vendor code 1062
+                return "23505".equals(sqlException.getSQLState()) || sqlException.getErrorCode() == 1062;
+            }
+        }
+        return false;
+    }
 
     /**
-     * Determines the weight range based on the weight of the batch.
+     * Determines the weight range of the batch from the weight bands.
      * @param weight The weight of the batch.
      * @return The weight range identifier.
      */
     private String getWeightRange(double weight) {
-        if (weight <= 500) {
-            return "W1";
-        } else if (weight <= 1000) {
-            return "W2";
-        } else {
-            return "W3";
-        }
+        return batchRuleService.getRules().weightRange(weight);
     }
 }
\ No newline at end of file
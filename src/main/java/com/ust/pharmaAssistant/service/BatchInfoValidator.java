@@ -0,0 +1,236 @@
+package com.ust.pharmaAssistant.service;
+
+import com.ust.pharmaAssistant.exception.PharmaBusinessException;
+import com.ust.pharmaAssistant.model.BatchInfo;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks the fields of a batch that can be validated without reference data.
+ * The result of a validation is a bit set of {@link Violation}s held in an int, so a valid batch is checked
+ * without allocating anything; the violations are only turned into objects when the batch is rejected.
+ * Shared by single adds, bulk requests, CSV imports and asynchronous ingestion.
+ */
+public final class BatchInfoValidator {
+
+    /** Result of a validation without violations. */
+    public static final int VALID = 0;
+
+    /** Prefix of a valid batch code. */
+    private static final String BATCH_CODE_PREFIX = "BTC-";
+
+    /** Number of digits after the prefix of a batch code chosen by a client. */
+    private static final int BATCH_CODE_DIGITS = 4;
+
+    /** Number of digits after the prefix of a server-allocated batch code, see {@link BatchCodeAllocator}. */
+    private static final int ALLOCATED_BATCH_CODE_DIGITS = BatchCodeAllocator.DIGITS;
+
+    /** Violations in the order they are checked; the first one found decides the error code of the batch. */
+    private static final Violation[] VIOLATIONS = Violation.values();
+
+    /**
+     * How many violations to look for.
+     */
+    public enum Mode {
+        /** Stop at the first violation. */
+        FAIL_FAST,
+        /** Report every violation of the batch. */
+        COLLECT_ALL
+    }
+
+    /**
+     * Rule a batch can break, with the error code and message it is rejected with.
+     */
+    @Getter
+    public enum Violation {
+        MEDICINE_CODE_REQUIRED(510, "Medicine code is required"),
+        BATCH_CODE_REQUIRED(513, "Batch code is required"),
+        BATCH_CODE_FORMAT(513, "Batch code should be in the format 'BTC-1234'"),
+        WEIGHT_TOO_LOW(512, "Batch Weight should be greater than 100"),
+        REFRIGERATION_REQUIRED(516, "Refrigeration requirement is mandatory");
+
+        /** Error code of a batch rejected for this violation. */
+        private final int errorCode;
+
+        /** Error message of a batch rejected for this violation. */
+        private final String errorMessage;
+
+        Violation(int errorCode, String errorMessage) {
+            this.errorCode = errorCode;
+            this.errorMessage = errorMessage;
+        }
+
+        /**
+         * Returns the bit of this violation in a validation result.
+         *
+         * @return The bit.
+         */
+        int bit() {
+            return 1 << ordinal();
+        }
+    }
+
+    private BatchInfoValidator() {
+    }
+
+    /**
+     * Validates a batch whose batch code was chosen by the client.
+     *
+     * @param batchInfo The batch information to validate.
+     * @param mode      Whether to stop at the first violation.
+     * @return The violations found, as a bit set; {@link #VALID} if there are none.
+     */
+    public static int validate(BatchInfo batchInfo, Mode mode) {
+        return validate(batchInfo, mode, false);
+    }
+
+    /**
+     * Validates a batch.
+     * The long batch code format is reserved for the server: a client choosing a code in it could take a code the
+     * allocator hands out later, so it is only accepted for codes set by the allocator.
+     *
+     * @param batchInfo          The batch information to validate.
+     * @param mode               Whether to stop at the first violation.
+     * @param allocatedBatchCode Whether the batch code was allocated by the server.
+     * @return The violations found, as a bit set; {@link #VALID} if there are none.
+     */
+    public static int validate(BatchInfo batchInfo, Mode mode, boolean allocatedBatchCode) {
+        int violations = VALID;
+        if (isEmpty(batchInfo.getMedicineCode())) {
+            violations |= Violation.MEDICINE_CODE_REQUIRED.bit();
+            if (mode == Mode.FAIL_FAST) {
+                return violations;
+            }
+        }
+        String batchCode = batchInfo.getBatchCode();
+        if (isEmpty(batchCode)) {
+            violations |= Violation.BATCH_CODE_REQUIRED.bit();
+        } else if (allocatedBatchCode ? !isValidAllocatedBatchCode(batchCode) : !isValidBatchCode(batchCode)) {
+            violations |= Violation.BATCH_CODE_FORMAT.bit();
+        }
+        if (violations != VALID && mode == Mode.FAIL_FAST) {
+            return violations;
+        }
+        if (batchInfo.getWeight() < 100) {
+            violations |= Violation.WEIGHT_TOO_LOW.bit();
+            if (mode == Mode.FAIL_FAST) {
+                return violations;
+            }
+        }
+        if (isEmpty(batchInfo.getRefrigeration())) {
+            violations |= Violation.REFRIGERATION_REQUIRED.bit();
+        }
+        return violations;
+    }
+
+    /**
+     * Checks if a batch code chosen by a client is "BTC-" followed by four ASCII digits.
+     *
+     * @param batchCode The batch code to check.
+     * @return true if the batch code is in the correct format, false otherwise.
+     */
+    public static boolean isValidBatchCode(CharSequence batchCode) {
+        return hasFormat(batchCode, BATCH_CODE_DIGITS);
+    }
+
+    /**
+     * Checks if a batch code is "BTC-" followed by the twelve ASCII digits of a server-allocated code.
+     *
+     * @param batchCode The batch code to check.
+     * @return true if the batch code is in the allocated format, false otherwise.
+     */
+    public static boolean isValidAllocatedBatchCode(CharSequence batchCode) {
+        return hasFormat(batchCode, ALLOCATED_BATCH_CODE_DIGITS);
+    }
+
+    /**
+     * Checks if a batch code is "BTC-" followed by the given number of ASCII digits.
+     */
+    private static boolean hasFormat(CharSequence batchCode, int digits) {
+        if (batchCode == null) {
+            return false;
+        }
+        int length = batchCode.length();
+        if (length != BATCH_CODE_PREFIX.length() + digits) {
+            return false;
+        }
+        for (int i = 0; i < BATCH_CODE_PREFIX.length(); i++) {
+            if (batchCode.charAt(i) != BATCH_CODE_PREFIX.charAt(i)) {
+                return false;
+            }
+        }
+        for (int i = BATCH_CODE_PREFIX.length(); i < length; i++) {
+            char c = batchCode.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the violation a batch is rejected for, which is the first one found.
+     *
+     * @param violations The result of {@link #validate}; must not be {@link #VALID}.
+     * @return The first violation.
+     */
+    public static Violation firstViolation(int violations) {
+        return VIOLATIONS[Integer.numberOfTrailingZeros(violations)];
+    }
+
+    /**
+     * Returns all violations of a validation result, in the order they are checked.
+     *
+     * @param violations The result of {@link #validate}.
+     * @return The violations.
+     */
+    public static List<Violation> violations(int violations) {
+        List<Violation> list = new ArrayList<>(Integer.bitCount(violations));
+        for (Violation violation : VIOLATIONS) {
+            if ((violations & violation.bit()) != 0) {
+                list.add(violation);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Builds the message of a rejected batch: the message of each violation, separated by "; ".
+     *
+     * @param violations The result of {@link #validate}; must not be {@link #VALID}.
+     * @return The error message.
+     */
+    public static String errorMessage(int violations) {
+        if (Integer.bitCount(violations) == 1) {
+            return firstViolation(violations).getErrorMessage();
+        }
+        StringBuilder message = new StringBuilder();
+        for (Violation violation : violations(violations)) {
+            if (message.length() > 0) {
+                message.append("; ");
+            }
+            message.append(violation.getErrorMessage());
+        }
+        return message.toString();
+    }
+
+    /**
+     * Builds the exception a batch is rejected with: the error code of the first violation and the message of
+     * every violation found.
+     *
+     * @param violations The result of {@link #validate}; must not be {@link #VALID}.
+     * @return The exception.
+     */
+    public static PharmaBusinessException toException(int violations) {
+        return new PharmaBusinessException(firstViolation(violations).getErrorCode(), errorMessage(violations));
+    }
+
+    /**
+     * Checks if a string is null or empty.
+     */
+    private static boolean isEmpty(String value) {
+        return value == null || value.isEmpty();
+    }
+}
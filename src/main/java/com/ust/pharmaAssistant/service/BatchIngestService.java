@@ -0,0 +1,443 @@
+package com.ust.pharmaAssistant.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ust.pharmaAssistant.exception.PharmaBusinessException;
+import com.ust.pharmaAssistant.model.BatchInfo;
+import com.ust.pharmaAssistant.model.BatchResult;
+import com.ust.pharmaAssistant.model.IngestStatus;
+import com.ust.pharmaAssistant.service.BatchMetrics.Path;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Service class for the asynchronous ingestion mode of the PharmaAssistant application, enabled with
+ * {@code pharma.ingest.enabled=true}.
+ * A submitted batch is validated and enriched on the request thread, appended to a local journal and put on a
+ * bounded queue; the caller gets a tracking id right away. A single writer thread takes batches off the queue and
+ * inserts them in group commits of up to {@code pharma.ingest.group-size} rows, or whatever has arrived after
+ * {@code pharma.ingest.max-delay}. If a group fails, its rows are retried one by one so that one bad row does not
+ * reject the others. The duplicate check runs in the writer, so a duplicate batch code is reported through the
+ * tracking id rather than on submit. Batches that could not be written are queued again to be retried after
+ * {@code pharma.ingest.retry-delay}, behind which the writer keeps writing the other queued batches.
+ * <p>
+ * The journal is an append-only file of submitted and written batches. On startup, batches submitted but not yet
+ * written are queued again; one whose batch code already exists at that point was written just before the crash and
+ * is reported as stored. The journal is truncated whenever every batch in it has been written.
+ */
+@Service
+@ConditionalOnProperty(name = "pharma.ingest.enabled", havingValue = "true")
+public class BatchIngestService {
+
+    /** Logger instance for logging purposes. */
+    private static final Logger logger = LoggerFactory.getLogger(BatchIngestService.class);
+
+    /** Name of the journal file in the journal directory. */
+    static final String JOURNAL_FILE = "batch-ingest.journal";
+
+    /** Journal operation of a submitted batch. */
+    private static final String SUBMITTED = "S";
+
+    /** Journal operation of written or rejected batches. */
+    private static final String DONE = "D";
+
+    /** Service running the pipeline stages. */
+    @Autowired
+    private BatchInfoService batchInfoService;
+
+    /** Timers and counters of the batch pipeline. */
+    @Autowired
+    private BatchMetrics batchMetrics;
+
+    /** Mapper used to write and read journal entries. */
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /** Maximum number of batches waiting to be written. */
+    @Value("${pharma.ingest.capacity:10000}")
+    private int capacity;
+
+    /** Maximum number of batches per group commit. */
+    @Value("${pharma.ingest.group-size:500}")
+    private int groupSize;
+
+    /** Longest time a batch waits for its group to fill up. */
+    @Value("${pharma.ingest.max-delay:50ms}")
+    private Duration maxDelay;
+
+    /** Number of times a batch is written before it is rejected with a system error. */
+    @Value("${pharma.ingest.max-attempts:3}")
+    private int maxAttempts;
+
+    /** Pause before retrying batches that could not be written. */
+    @Value("${pharma.ingest.retry-delay:1s}")
+    private Duration retryDelay;
+
+    /** Directory of the journal. */
+    @Value("${pharma.ingest.journal-dir:data/ingest}")
+    private java.nio.file.Path journalDir;
+
+    /** Whether each submitted batch is forced to disk before the submit returns. */
+    @Value("${pharma.ingest.journal-sync:true}")
+    private boolean journalSync;
+
+    /** How long the status of a batch is kept. */
+    @Value("${pharma.ingest.status-retention:1h}")
+    private Duration statusRetention;
+
+    /** Batches waiting to be written. */
+    private final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<>();
+
+    /** Number of batches in the queue or being written; bounds the queue. */
+    private final AtomicInteger queued = new AtomicInteger();
+
+    /** Number of batches in {@link #queue}, which is not counted by walking it. */
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    /** Batches waiting to be written again, in retry order; only used by the writer thread. */
+    private final ArrayDeque<Pending> retries = new ArrayDeque<>();
+
+    /** Status of recent batches by tracking id. */
+    private Cache<String, IngestStatus> statuses;
+
+    /** The journal; written under {@link #journalLock}. */
+    private FileChannel journal;
+
+    /** Guards the journal and {@link #journalOpen}. */
+    private final Object journalLock = new Object();
+
+    /** Number of batches in the journal that have not been written or rejected yet. */
+    private long journalOpen;
+
+    /** The writer thread. */
+    private Thread writer;
+
+    /** Whether new batches are accepted; cleared on shutdown. */
+    private volatile boolean running;
+
+    /**
+     * Opens the journal, queues the batches it still holds and starts the writer.
+     * @throws IOException if the journal cannot be opened or read.
+     */
+    @PostConstruct
+    void start() throws IOException {
+        statuses = Caffeine.newBuilder().expireAfterWrite(statusRetention).build();
+        Files.createDirectories(journalDir);
+        java.nio.file.Path journalPath = journalDir.resolve(JOURNAL_FILE);
+        Map<String, BatchInfo> unwritten = readJournal(journalPath);
+
+        // Compact the journal into a new file and swap it in, so a crash during startup loses nothing
+        java.nio.file.Path compacted = journalDir.resolve(JOURNAL_FILE + ".tmp");
+        journal = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        for (Map.Entry<String, BatchInfo> entry : unwritten.entrySet()) {
+            appendToJournal(new JournalEntry(SUBMITTED, entry.getKey(), entry.getValue(), null), false);
+            enqueue(new Pending(entry.getKey(), entry.getValue(), true));
+        }
+        journal.force(false);
+        journal.close();
+        Files.move(compacted, journalPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        journal = FileChannel.open(journalPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (!unwritten.isEmpty()) {
+            logger.info("Replaying {} batches from the ingestion journal", unwritten.size());
+        }
+
+        running = true;
+        writer = new Thread(this::runWriter, "batch-ingest-writer");
+        writer.start();
+    }
+
+    /**
+     * Stops accepting batches and waits for the writer to write the queued ones.
+     * Batches still queued when the wait times out stay in the journal and are written on the next start.
+     * @throws InterruptedException if interrupted while waiting.
+     * @throws IOException if the journal cannot be closed.
+     */
+    @PreDestroy
+    void stop() throws InterruptedException, IOException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        synchronized (journalLock) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Validates and enriches a batch, then queues it for writing.
+     * @param batchInfo The batch information to add.
+     * @return The status of the queued batch, with its tracking id.
+     * @throws PharmaBusinessException if the batch breaks a business rule, or with error 503 if the queue is full.
+     * @throws IOException if the batch cannot be written to the journal.
+     */
+    public IngestStatus submit(BatchInfo batchInfo) throws IOException {
+        if (!running) {
+            throw new PharmaBusinessException(503, "Asynchronous ingestion is shutting down");
+        }
+        batchInfoService.prepareBatch(batchInfo, Path.ASYNC);
+        if (queued.incrementAndGet() > capacity) {
+            queued.decrementAndGet();
+            throw new PharmaBusinessException(503, "Ingestion queue is full");
+        }
+        String trackingId = UUID.randomUUID().toString();
+        try {
+            appendToJournal(new JournalEntry(SUBMITTED, trackingId, batchInfo, null), journalSync);
+        } catch (IOException e) {
+            queued.decrementAndGet();
+            throw e;
+        }
+        IngestStatus status = new IngestStatus(trackingId, batchInfo.getBatchCode(), IngestStatus.QUEUED, null, null);
+        statuses.put(trackingId, status);
+        int ready = waiting.incrementAndGet();
+        queue.add(new Pending(trackingId, batchInfo, false));
+        if (ready >= groupSize) {
+            LockSupport.unpark(writer);
+        }
+        return status;
+    }
+
+    /**
+     * Returns the status of a submitted batch.
+     * @param trackingId The tracking id returned on submit.
+     * @return The status, or empty if the id is unknown or its status has expired.
+     */
+    public Optional<IngestStatus> findStatus(String trackingId) {
+        return Optional.ofNullable(statuses.getIfPresent(trackingId));
+    }
+
+    /**
+     * Writes groups of queued batches until shutdown, then writes what is left.
+     * Batches due for a retry go first in their group.
+     */
+    private void runWriter() {
+        long maxDelayNanos = maxDelay.toNanos();
+        while (running || waiting.get() > 0 || !retries.isEmpty()) {
+            long untilRetry = retries.isEmpty() ? Long.MAX_VALUE : retries.peek().notBefore - System.nanoTime();
+            int ready = waiting.get();
+            if (untilRetry > 0 && (ready == 0 || running && ready < groupSize)) {
+                LockSupport.parkNanos(this, Math.min(maxDelayNanos, untilRetry));
+            }
+            List<Pending> group = new ArrayList<>(groupSize);
+            long now = System.nanoTime();
+            while (group.size() < groupSize && !retries.isEmpty() && retries.peek().notBefore - now <= 0) {
+                group.add(retries.poll());
+            }
+            Pending pending;
+            while (group.size() < groupSize && (pending = queue.poll()) != null) {
+                waiting.decrementAndGet();
+                group.add(pending);
+            }
+            if (!group.isEmpty()) {
+                try {
+                    writeGroup(group);
+                } catch (RuntimeException e) {
+                    logger.error("Unexpected error in the ingestion writer: {}", e.getMessage(), e);
+                    retryOrReject(group);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a group in one transaction, falling back to one transaction per batch if that fails.
+     */
+    private void writeGroup(List<Pending> group) {
+        List<BatchInfo> batchInfos = new ArrayList<>(group.size());
+        group.forEach(pending -> batchInfos.add(pending.batchInfo));
+        BatchChunk chunk = BatchChunk.ofEnriched(batchInfos);
+        batchInfoService.rejectExistingBatches(chunk, Path.ASYNC);
+        batchInfoService.insertBatches(chunk, Path.ASYNC);
+
+        List<Pending> done = new ArrayList<>(group.size());
+        List<Pending> failed = new ArrayList<>();
+        for (int i = 0; i < group.size(); i++) {
+            BatchResult result = chunk.getResults()[i];
+            if (result.getErrorCode() != null && result.getErrorCode() == 500) {
+                failed.add(group.get(i));
+            } else {
+                complete(group.get(i), result);
+                done.add(group.get(i));
+            }
+        }
+        markDone(done);
+
+        if (!failed.isEmpty() && group.size() > 1) {
+            // One row may have failed the whole group; write the rest on their own
+            for (Pending pending : failed) {
+                try {
+                    writeGroup(List.of(pending));
+                } catch (RuntimeException e) {
+                    logger.error("Could not write batch {}: {}", pending.batchInfo.getBatchCode(), e.getMessage());
+                    retryOrReject(List.of(pending));
+                }
+            }
+        } else if (!failed.isEmpty()) {
+            retryOrReject(failed);
+        }
+    }
+
+    /**
+     * Queues batches that could not be written to be retried after the retry delay, or rejects those out of attempts.
+     * The writer goes on with the other batches meanwhile.
+     */
+    private void retryOrReject(List<Pending> failed) {
+        List<Pending> rejected = new ArrayList<>();
+        long notBefore = System.nanoTime() + retryDelay.toNanos();
+        for (Pending pending : failed) {
+            if (++pending.attempts >= maxAttempts) {
+                complete(pending, BatchResult.rejected(pending.batchInfo.getBatchCode(), 500, "General system Error"));
+                rejected.add(pending);
+            } else {
+                pending.notBefore = notBefore;
+                retries.add(pending);
+            }
+        }
+        markDone(rejected);
+    }
+
+    /**
+     * Records the final status of a batch.
+     */
+    private void complete(Pending pending, BatchResult result) {
+        IngestStatus status;
+        if (BatchResult.ACCEPTED.equals(result.getStatus())) {
+            status = new IngestStatus(pending.trackingId, result.getBatchCode(), IngestStatus.STORED, null, null);
+            batchMetrics.recordAccepted(1);
+        } else if (pending.replayed && result.getErrorCode() == 511) {
+            // Written before the crash, after its journal entry and before the entry marking it done
+            status = new IngestStatus(pending.trackingId, result.getBatchCode(), IngestStatus.STORED, null, null);
+        } else {
+            status = new IngestStatus(pending.trackingId, result.getBatchCode(), IngestStatus.REJECTED,
+                    result.getErrorCode(), result.getErrorMessage());
+            batchMetrics.recordRejection(result.getErrorCode());
+        }
+        statuses.put(pending.trackingId, status);
+    }
+
+    /**
+     * Marks batches as done in the journal and releases their queue slots.
+     */
+    private void markDone(List<Pending> done) {
+        if (done.isEmpty()) {
+            return;
+        }
+        List<String> trackingIds = new ArrayList<>(done.size());
+        done.forEach(pending -> trackingIds.add(pending.trackingId));
+        try {
+            appendToJournal(new JournalEntry(DONE, null, null, trackingIds), false);
+        } catch (IOException e) {
+            // The batches are written; if the journal is replayed they are found as existing and reported as stored
+            logger.warn("Could not mark {} batches as done in the ingestion journal: {}", done.size(), e.getMessage());
+        }
+        queued.addAndGet(-done.size());
+    }
+
+    /**
+     * Appends an entry to the journal, truncating it when it no longer holds any batch to write.
+     */
+    private void appendToJournal(JournalEntry entry, boolean sync) throws IOException {
+        byte[] line = (objectMapper.writeValueAsString(entry) + "\n").getBytes(StandardCharsets.UTF_8);
+        synchronized (journalLock) {
+            journal.write(ByteBuffer.wrap(line));
+            journalOpen += SUBMITTED.equals(entry.op()) ? 1 : -entry.ids().size();
+            if (journalOpen == 0) {
+                journal.truncate(0);
+            }
+            if (sync) {
+                journal.force(false);
+            }
+        }
+    }
+
+    /**
+     * Reads the batches that were submitted but not marked done from an existing journal.
+     * A torn last line, left by a crash in the middle of a write, is skipped.
+     */
+    private Map<String, BatchInfo> readJournal(java.nio.file.Path journalPath) throws IOException {
+        Map<String, BatchInfo> unwritten = new LinkedHashMap<>();
+        if (!Files.exists(journalPath)) {
+            return unwritten;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                JournalEntry entry;
+                try {
+                    entry = objectMapper.readValue(line, JournalEntry.class);
+                } catch (IOException e) {
+                    logger.warn("Skipping unreadable ingestion journal entry: {}", e.getMessage());
+                    continue;
+                }
+                if (SUBMITTED.equals(entry.op())) {
+                    unwritten.put(entry.id(), entry.batch());
+                } else {
+                    entry.ids().forEach(unwritten::remove);
+                }
+            }
+        }
+        return unwritten;
+    }
+
+    /**
+     * Puts a batch read back from the journal on the queue.
+     */
+    private void enqueue(Pending pending) {
+        queued.incrementAndGet();
+        statuses.put(pending.trackingId, new IngestStatus(pending.trackingId, pending.batchInfo.getBatchCode(),
+                IngestStatus.QUEUED, null, null));
+        waiting.incrementAndGet();
+        queue.add(pending);
+    }
+
+    /**
+     * A line of the journal: a submitted batch, or the tracking ids of batches that are done.
+     */
+    record JournalEntry(String op, String id, BatchInfo batch, List<String> ids) {
+    }
+
+    /**
+     * A queued batch.
+     */
+    private static class Pending {
+        private final String trackingId;
+        private final BatchInfo batchInfo;
+        private final boolean replayed;
+        private int attempts;
+
+        /** {@link System#nanoTime()} before which a failed batch is not retried. */
+        private long notBefore;
+
+        Pending(String trackingId, BatchInfo batchInfo, boolean replayed) {
+            this.trackingId = trackingId;
+            this.batchInfo = batchInfo;
+            this.replayed = replayed;
+        }
+    }
+}
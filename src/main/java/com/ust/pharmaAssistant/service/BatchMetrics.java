@@ -0,0 +1,126 @@
+package com.ust.pharmaAssistant.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer instrumentation of the batch pipeline in the PharmaAssistant application.
+ * Each stage of adding a batch is recorded in the {@code pharma.batch.stage} timer, tagged with the stage and
+ * with the path it ran on: a single batch, a bulk request, a CSV import or asynchronous ingestion. Rejected batches are counted in
+ * {@code pharma.batch.rejections} by error code, and accepted ones in {@code pharma.batch.accepted}.
+ * Timers and counters are registered once and reused, so recording costs a few atomic updates.
+ */
+@Component
+public class BatchMetrics {
+
+    /**
+     * Stages of the batch pipeline.
+     */
+    public enum Stage {
+        VALIDATE, VALIDATION_CONTEXT, DUPLICATE_CHECK, MEDICINE_LOOKUP, SHIPPING_CHARGE, CARE_LEVEL, SAVE
+    }
+
+    /**
+     * Whether a stage ran for a single batch, a bulk request, a CSV import or asynchronous ingestion.
+     */
+    public enum Path {
+        SINGLE, BULK, IMPORT, ASYNC
+    }
+
+    /** Registry the meters are registered with. */
+    private final MeterRegistry registry;
+
+    /** Stage timers, indexed by path and stage ordinal. */
+    private final Timer[][] stageTimers;
+
+    /** Counter of accepted batches. */
+    private final Counter accepted;
+
+    /** Counters of rejected batches by error code, registered on first use. */
+    private final ConcurrentMap<Integer, Counter> rejections = new ConcurrentHashMap<>();
+
+    /**
+     * Registers the stage timers and the accepted counter.
+     *
+     * @param registry The meter registry.
+     */
+    public BatchMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.stageTimers = new Timer[Path.values().length][Stage.values().length];
+        for (Path path : Path.values()) {
+            for (Stage stage : Stage.values()) {
+                stageTimers[path.ordinal()][stage.ordinal()] = Timer.builder("pharma.batch.stage")
+                        .description("Time taken by a stage of the batch pipeline")
+                        .tag("path", path.name().toLowerCase(Locale.ROOT))
+                        .tag("stage", stage.name().toLowerCase(Locale.ROOT))
+                        .register(registry);
+            }
+        }
+        this.accepted = Counter.builder("pharma.batch.accepted")
+                .description("Number of batches added")
+                .register(registry);
+    }
+
+    /**
+     * Returns the timer of a stage.
+     *
+     * @param path  The path the stage runs on.
+     * @param stage The stage.
+     * @return The timer.
+     */
+    public Timer timer(Path path, Stage stage) {
+        return stageTimers[path.ordinal()][stage.ordinal()];
+    }
+
+    /**
+     * Runs a stage and records its duration, whether it completes or throws.
+     *
+     * @param path   The path the stage runs on.
+     * @param stage  The stage.
+     * @param action The stage to run.
+     */
+    public void record(Path path, Stage stage, Runnable action) {
+        timer(path, stage).record(action);
+    }
+
+    /**
+     * Runs a stage that returns a value and records its duration, whether it completes or throws.
+     *
+     * @param path   The path the stage runs on.
+     * @param stage  The stage.
+     * @param action The stage to run.
+     * @return The value returned by the stage.
+     */
+    public <T> T record(Path path, Stage stage, Supplier<T> action) {
+        return timer(path, stage).record(action);
+    }
+
+    /**
+     * Counts accepted batches.
+     *
+     * @param count The number of batches accepted.
+     */
+    public void recordAccepted(int count) {
+        accepted.increment(count);
+    }
+
+    /**
+     * Counts a rejected batch.
+     *
+     * @param errorCode The business error code it was rejected with.
+     */
+    public void recordRejection(int errorCode) {
+        rejections.computeIfAbsent(errorCode, code -> Counter.builder("pharma.batch.rejections")
+                        .description("Number of batches rejected, by business error code")
+                        .tag("code", String.valueOf(code))
+                        .register(registry))
+                .increment();
+    }
+}
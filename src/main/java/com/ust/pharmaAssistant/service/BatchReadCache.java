@@ -0,0 +1,128 @@
+package com.ust.pharmaAssistant.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ust.pharmaAssistant.model.BatchInfo;
+import com.ust.pharmaAssistant.repository.BatchInfoRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Read-through cache of single batches in the PharmaAssistant application, for clients polling a batch by its code.
+ * Each batch is kept as its serialized JSON body with a strong ETag computed from the body, so serving a cached
+ * batch, or answering a conditional request for it, needs neither a query nor serialization. Batches added through
+ * {@link BatchInfoService#addBatch} are put in the cache as they are inserted; other batches are loaded on their
+ * first read. Batches are not changed once inserted, so entries only expire to bound the memory they use.
+ */
+@Service
+public class BatchReadCache implements MeterBinder {
+
+    /** Name of the cache in the cache metrics. */
+    static final String CACHE_NAME = "batches";
+
+    /** Repository the batches are loaded from. */
+    private final BatchInfoRepository batchInfoRepository;
+
+    /** Object mapper serializing the batches. */
+    private final ObjectMapper objectMapper;
+
+    /** Serialized batches by batch code. */
+    private final Cache<String, CachedBatch> batches;
+
+    /**
+     * Serialized batch with its ETag.
+     *
+     * @param body The JSON body.
+     * @param etag The strong ETag of the body, quoted.
+     */
+    public record CachedBatch(byte[] body, String etag) {
+    }
+
+    /**
+     * Creates the cache with the configured size and expiry.
+     *
+     * @param batchInfoRepository Repository the batches are loaded from.
+     * @param objectMapper        Object mapper serializing the batches.
+     * @param maximumSize         Maximum number of batches kept.
+     * @param expireAfterWrite    Time after which a batch is dropped from the cache.
+     */
+    @Autowired
+    public BatchReadCache(BatchInfoRepository batchInfoRepository, ObjectMapper objectMapper,
+                          @Value("${pharma.batch-cache.maximum-size:100000}") long maximumSize,
+                          @Value("${pharma.batch-cache.expire-after-write:1h}") Duration expireAfterWrite) {
+        this.batchInfoRepository = batchInfoRepository;
+        this.objectMapper = objectMapper;
+        this.batches = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Finds a batch by its code, loading it from the database if it is not cached.
+     *
+     * @param batchCode The batch code.
+     * @return The serialized batch, or empty if it does not exist.
+     */
+    public Optional<CachedBatch> find(String batchCode) {
+        return Optional.ofNullable(batches.get(batchCode, code -> batchInfoRepository.findById(code)
+                .map(this::serialize)
+                .orElse(null)));
+    }
+
+    /**
+     * Puts a batch that has just been inserted in the cache.
+     *
+     * @param batchInfo The inserted batch.
+     */
+    public void put(BatchInfo batchInfo) {
+        batches.put(batchInfo.getBatchCode(), serialize(batchInfo));
+    }
+
+    /**
+     * Drops batches from the cache, e.g. after they were deleted or changed outside the API.
+     *
+     * @param batchCodes The batch codes to drop.
+     */
+    public void invalidate(Iterable<String> batchCodes) {
+        batches.invalidateAll(batchCodes);
+    }
+
+    /**
+     * Publishes the statistics of the cache as Micrometer cache metrics.
+     *
+     * @param registry The meter registry.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, batches, CACHE_NAME);
+    }
+
+    /**
+     * Serializes a batch and computes its ETag.
+     */
+    private CachedBatch serialize(BatchInfo batchInfo) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(batchInfo);
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return new CachedBatch(body, "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"");
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize batch " + batchInfo.getBatchCode(), e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
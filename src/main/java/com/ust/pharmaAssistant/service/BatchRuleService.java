@@ -0,0 +1,91 @@
+package com.ust.pharmaAssistant.service;
+
+import com.ust.pharmaAssistant.repository.CareLevelRuleRepository;
+import com.ust.pharmaAssistant.repository.RefrigerationSurchargeRepository;
+import com.ust.pharmaAssistant.repository.WeightBandRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service class holding the compiled care level, weight band and refrigeration surcharge rules of the
+ * PharmaAssistant application.
+ * The rule tables are read and compiled at startup, seeded with the previous hard-coded rules if they are empty,
+ * and read again every {@code pharma.rules.refresh-interval} or on demand. A reload swaps in a new compiled
+ * {@link BatchRules} at once, so a batch is never calculated with a mix of old and new rules. If the new rows do not
+ * compile, the previous rules stay in use.
+ */
+@Service
+public class BatchRuleService {
+
+    /** Logger instance for logging purposes. */
+    private static final Logger logger = LoggerFactory.getLogger(BatchRuleService.class);
+
+    /** Repository of the weight bands. */
+    @Autowired
+    private WeightBandRepository weightBandRepository;
+
+    /** Repository of the care level rules. */
+    @Autowired
+    private CareLevelRuleRepository careLevelRuleRepository;
+
+    /** Repository of the refrigeration surcharges. */
+    @Autowired
+    private RefrigerationSurchargeRepository refrigerationSurchargeRepository;
+
+    /** Transaction template used to check and seed the rule tables on the primary database. */
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /** The rules in use. */
+    private volatile BatchRules rules = BatchRules.defaults();
+
+    /**
+     * Seeds empty rule tables with the default rules and compiles them.
+     */
+    @PostConstruct
+    void load() {
+        // Counted in a read-write transaction, so that a lagging read replica does not get the tables seeded twice
+        transactionTemplate.executeWithoutResult(status -> {
+            if (weightBandRepository.count() == 0) {
+                weightBandRepository.saveAll(BatchRules.defaultWeightBands());
+            }
+            if (careLevelRuleRepository.count() == 0) {
+                careLevelRuleRepository.saveAll(BatchRules.defaultCareLevelRules());
+            }
+            if (refrigerationSurchargeRepository.count() == 0) {
+                refrigerationSurchargeRepository.saveAll(BatchRules.defaultSurcharges());
+            }
+        });
+        reload();
+    }
+
+    /**
+     * Returns the rules in use.
+     * @return The compiled rules.
+     */
+    public BatchRules getRules() {
+        return rules;
+    }
+
+    /**
+     * Reads and compiles the rule tables, keeping the current rules if they do not compile.
+     * @return true if the new rules are in use.
+     */
+    @Scheduled(fixedDelayString = "${pharma.rules.refresh-interval:PT1M}", initialDelayString = "${pharma.rules.refresh-interval:PT1M}")
+    public boolean reload() {
+        try {
+            rules = BatchRules.compile(weightBandRepository.findAll(), careLevelRuleRepository.findAll(),
+                    refrigerationSurchargeRepository.findAll());
+            logger.debug("Loaded batch rules with {} weight bands", rules.weightBandCount());
+            return true;
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid batch rules, keeping the previous ones: {}", e.getMessage());
+            return false;
+        }
+    }
+}
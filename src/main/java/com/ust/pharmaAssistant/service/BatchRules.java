@@ -0,0 +1,194 @@
+package com.ust.pharmaAssistant.service;
+
+import com.ust.pharmaAssistant.model.CareLevelRule;
+import com.ust.pharmaAssistant.model.RefrigerationSurcharge;
+import com.ust.pharmaAssistant.model.WeightBand;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, compiled form of the care level, weight band and refrigeration surcharge rule tables.
+ * Weight bands are kept as parallel arrays sorted by maximum weight, and surcharges as parallel arrays of
+ * requirement and rate, so looking up a batch reads a few array slots. Medicine types have no dense numeric key,
+ * so care levels are one hash lookup by medicine type name.
+ */
+public final class BatchRules {
+
+    /** Largest weight of each band, ascending; the last band is unbounded. */
+    private final double[] bandMaxWeights;
+
+    /** Weight range identifier of each band, in the same order. */
+    private final String[] bandWeightRanges;
+
+    /** Care level by medicine type name. */
+    private final Map<String, String> careLevels;
+
+    /** Care level of medicine types without a rule, or null if there is none. */
+    private final String defaultCareLevel;
+
+    /** Refrigeration requirements with a surcharge. */
+    private final String[] surchargeRefrigerations;
+
+    /** Surcharge rate of each requirement, in the same order. */
+    private final double[] surchargeRates;
+
+    private BatchRules(double[] bandMaxWeights, String[] bandWeightRanges, Map<String, String> careLevels,
+                       String defaultCareLevel, String[] surchargeRefrigerations, double[] surchargeRates) {
+        this.bandMaxWeights = bandMaxWeights;
+        this.bandWeightRanges = bandWeightRanges;
+        this.careLevels = careLevels;
+        this.defaultCareLevel = defaultCareLevel;
+        this.surchargeRefrigerations = surchargeRefrigerations;
+        this.surchargeRates = surchargeRates;
+    }
+
+    /**
+     * Compiles the rule table rows.
+     * @param weightBands    The weight bands; exactly one must have no maximum weight.
+     * @param careLevelRules The care level rules.
+     * @param surcharges     The refrigeration surcharges.
+     * @return The compiled rules.
+     * @throws IllegalArgumentException if the weight bands do not cover all weights exactly once.
+     */
+    public static BatchRules compile(List<WeightBand> weightBands, List<CareLevelRule> careLevelRules,
+                                     List<RefrigerationSurcharge> surcharges) {
+        List<WeightBand> bands = new ArrayList<>(weightBands);
+        bands.sort(Comparator.comparing(WeightBand::getMaxWeight, Comparator.nullsLast(Comparator.naturalOrder())));
+        if (bands.isEmpty() || bands.get(bands.size() - 1).getMaxWeight() != null) {
+            throw new IllegalArgumentException("One weight band must have no maximum weight");
+        }
+        double[] bandMaxWeights = new double[bands.size()];
+        String[] bandWeightRanges = new String[bands.size()];
+        for (int i = 0; i < bands.size(); i++) {
+            WeightBand band = bands.get(i);
+            if (i < bands.size() - 1 && band.getMaxWeight() == null) {
+                throw new IllegalArgumentException("Only one weight band may have no maximum weight");
+            }
+            bandMaxWeights[i] = band.getMaxWeight() == null ? Double.POSITIVE_INFINITY : band.getMaxWeight();
+            bandWeightRanges[i] = band.getWeightRange();
+        }
+
+        Map<String, String> careLevels = new HashMap<>();
+        String defaultCareLevel = null;
+        for (CareLevelRule rule : careLevelRules) {
+            if (CareLevelRule.DEFAULT_MEDICINE_TYPE.equals(rule.getMedicineTypeName())) {
+                defaultCareLevel = rule.getCareLevel();
+            } else {
+                careLevels.put(rule.getMedicineTypeName(), rule.getCareLevel());
+            }
+        }
+
+        String[] surchargeRefrigerations = new String[surcharges.size()];
+        double[] surchargeRates = new double[surcharges.size()];
+        for (int i = 0; i < surcharges.size(); i++) {
+            surchargeRefrigerations[i] = surcharges.get(i).getRefrigeration();
+            surchargeRates[i] = surcharges.get(i).getSurchargeRate();
+        }
+        return new BatchRules(bandMaxWeights, bandWeightRanges, Map.copyOf(careLevels), defaultCareLevel,
+                surchargeRefrigerations, surchargeRates);
+    }
+
+    /**
+     * Returns the rules the application used before they moved into rule tables; used to seed empty tables.
+     * @return The weight bands W1 up to 500, W2 up to 1000 and W3 above; care levels Normal for Capsules, High for
+     * Tablets, Extremely High for Syrups and Normal otherwise; and a 5% surcharge for refrigeration.
+     */
+    public static BatchRules defaults() {
+        return compile(defaultWeightBands(), defaultCareLevelRules(), defaultSurcharges());
+    }
+
+    /**
+     * Returns the default weight bands.
+     * @return The weight bands.
+     */
+    static List<WeightBand> defaultWeightBands() {
+        return List.of(new WeightBand("W1", 500.0), new WeightBand("W2", 1000.0), new WeightBand("W3", null));
+    }
+
+    /**
+     * Returns the default care level rules.
+     * @return The care level rules.
+     */
+    static List<CareLevelRule> defaultCareLevelRules() {
+        return List.of(new CareLevelRule("Capsules", "Normal"), new CareLevelRule("Tablets", "High"),
+                new CareLevelRule("Syrups", "Extremely High"), new CareLevelRule(CareLevelRule.DEFAULT_MEDICINE_TYPE, "Normal"));
+    }
+
+    /**
+     * Returns the default refrigeration surcharges.
+     * @return The surcharges.
+     */
+    static List<RefrigerationSurcharge> defaultSurcharges() {
+        return List.of(new RefrigerationSurcharge("Yes", 0.05));
+    }
+
+    /**
+     * Returns the weight range of a weight.
+     * @param weight The weight of the batch.
+     * @return The weight range identifier.
+     */
+    public String weightRange(double weight) {
+        return bandWeightRanges[weightBand(weight)];
+    }
+
+    /**
+     * Returns the position of the weight band of a weight, in ascending order of maximum weight.
+     * @param weight The weight of the batch.
+     * @return The band position, from 0 to {@link #weightBandCount()} - 1.
+     */
+    public int weightBand(double weight) {
+        int last = bandMaxWeights.length - 1;
+        for (int i = 0; i < last; i++) {
+            if (weight <= bandMaxWeights[i]) {
+                return i;
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Returns the weight range identifier of a weight band.
+     * @param band The band position.
+     * @return The weight range identifier.
+     */
+    public String weightRangeOf(int band) {
+        return bandWeightRanges[band];
+    }
+
+    /**
+     * Returns the care level of a medicine type.
+     * @param medicineTypeName The medicine type name.
+     * @return The care level, or null if there is neither a rule for the type nor a default rule.
+     */
+    public String careLevel(String medicineTypeName) {
+        String careLevel = careLevels.get(medicineTypeName);
+        return careLevel != null ? careLevel : defaultCareLevel;
+    }
+
+    /**
+     * Adds the refrigeration surcharge to a shipping charge.
+     * @param shippingCharge The shipping charge from the ShippingMaster row.
+     * @param refrigeration  The refrigeration requirement of the batch.
+     * @return The shipping charge including the surcharge, if any.
+     */
+    public double applySurcharge(double shippingCharge, String refrigeration) {
+        for (int i = 0; i < surchargeRefrigerations.length; i++) {
+            if (surchargeRefrigerations[i].equals(refrigeration)) {
+                return shippingCharge + (shippingCharge * surchargeRates[i]);
+            }
+        }
+        return shippingCharge;
+    }
+
+    /**
+     * Returns the number of weight bands.
+     * @return The number of bands.
+     */
+    public int weightBandCount() {
+        return bandMaxWeights.length;
+    }
+}
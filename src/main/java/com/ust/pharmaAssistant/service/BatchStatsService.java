@@ -0,0 +1,245 @@
+package com.ust.pharmaAssistant.service;
+
+import com.ust.pharmaAssistant.exception.PharmaBusinessException;
+import com.ust.pharmaAssistant.model.BatchInfo;
+import com.ust.pharmaAssistant.model.BatchStats;
+import com.ust.pharmaAssistant.model.BatchStatsKey;
+import com.ust.pharmaAssistant.model.BatchTotals;
+import com.ust.pharmaAssistant.repository.BatchStatsRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Service class maintaining the batch totals by medicine type, care level and refrigeration in the PharmaAssistant
+ * application.
+ * Every insert of batches adds to the batch_stats summary table in the same transaction, and to in-memory counters
+ * once that transaction commits, so reading the totals never touches batch_info or the database. Archived batches
+ * are subtracted the same way, so the totals cover the batches in batch_info, as a rebuild does.
+ * The counters are loaded from the summary table at startup, after a rebuild, and on the schedule of
+ * {@code pharma.batch-stats.refresh-interval}, so that the batches inserted or archived by other instances show up
+ * within that interval. A reload swaps the counters while no inserting transaction is between its commit and the
+ * update of the counters, so no insert is counted twice or lost.
+ */
+@Service
+public class BatchStatsService {
+
+    /** Dimensions the totals can be grouped by. */
+    public static final Set<String> DIMENSIONS = Set.of("medicineTypeCode", "careLevel", "refrigeration");
+
+    /** Logger instance for logging purposes. */
+    private static final Logger logger = LoggerFactory.getLogger(BatchStatsService.class);
+
+    /** Repository of the summary table. */
+    @Autowired
+    private BatchStatsRepository batchStatsRepository;
+
+    /** In-memory totals by group; replaced as a whole when reloaded. */
+    private volatile Map<BatchStatsKey, Totals> totals = new ConcurrentHashMap<>();
+
+    /** Held for reading by inserting transactions from their commit until their counters are updated. */
+    private final ReadWriteLock reloadLock = new ReentrantReadWriteLock();
+
+    /**
+     * Loads the counters from the summary table.
+     */
+    @PostConstruct
+    void load() {
+        reload();
+    }
+
+    /**
+     * Adds inserted batches to the summary table within the current transaction, and to the counters after it commits.
+     * @param batchInfos The batches inserted by the current transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordInserted(Collection<BatchInfo> batchInfos) {
+        record(batchInfos, 1);
+    }
+
+    /**
+     * Subtracts deleted batches from the summary table within the current transaction, and from the counters after
+     * it commits.
+     * @param batchInfos The batches deleted by the current transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeleted(Collection<BatchInfo> batchInfos) {
+        record(batchInfos, -1);
+    }
+
+    /**
+     * Adds batches, or subtracts them with a sign of -1, to the summary table and to the counters after commit.
+     * The groups are upserted in {@link BatchStatsKey#ORDER}, so that transactions updating the same groups lock
+     * their rows in the same order and cannot deadlock each other.
+     */
+    private void record(Collection<BatchInfo> batchInfos, int sign) {
+        Map<BatchStatsKey, BatchStats> deltas = new TreeMap<>(BatchStatsKey.ORDER);
+        for (BatchInfo batchInfo : batchInfos) {
+            BatchStats delta = deltas.computeIfAbsent(BatchStatsKey.of(batchInfo), key -> new BatchStats(
+                    key.getMedicineTypeCode(), key.getCareLevel(), key.getRefrigeration(), 0, 0, 0, 0));
+            delta.setBatchCount(delta.getBatchCount() + sign);
+            delta.setTotalWeight(delta.getTotalWeight() + sign * batchInfo.getWeight());
+            delta.setTotalPrice(delta.getTotalPrice() + sign * batchInfo.getPrice());
+            delta.setTotalShippingCharge(delta.getTotalShippingCharge() + sign * batchInfo.getShippingCharge());
+        }
+        deltas.values().forEach(batchStatsRepository::addTotals);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean locked;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                reloadLock.readLock().lock();
+                locked = true;
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (!locked) {
+                    return;
+                }
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        deltas.values().forEach(delta -> add(totals, delta));
+                    }
+                } finally {
+                    reloadLock.readLock().unlock();
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the totals grouped by the given dimensions, from memory.
+     * @param groupBy The dimensions to group by; all three if empty.
+     * @return The totals of each group, ordered by group.
+     * @throws PharmaBusinessException if a dimension is unknown.
+     */
+    public List<BatchTotals> getTotals(Collection<String> groupBy) {
+        for (String dimension : groupBy) {
+            if (!DIMENSIONS.contains(dimension)) {
+                throw new PharmaBusinessException(400, "Totals can be grouped by medicineTypeCode, careLevel or refrigeration");
+            }
+        }
+        boolean all = groupBy.isEmpty();
+        boolean byType = all || groupBy.contains("medicineTypeCode");
+        boolean byCareLevel = all || groupBy.contains("careLevel");
+        boolean byRefrigeration = all || groupBy.contains("refrigeration");
+
+        Map<BatchStatsKey, BatchStats> groups = new LinkedHashMap<>();
+        totals.forEach((key, value) -> {
+            BatchStatsKey group = new BatchStatsKey(byType ? key.getMedicineTypeCode() : null,
+                    byCareLevel ? key.getCareLevel() : null, byRefrigeration ? key.getRefrigeration() : null);
+            BatchStats sum = groups.computeIfAbsent(group, k -> new BatchStats(
+                    k.getMedicineTypeCode(), k.getCareLevel(), k.getRefrigeration(), 0, 0, 0, 0));
+            sum.setBatchCount(sum.getBatchCount() + value.batchCount.sum());
+            sum.setTotalWeight(sum.getTotalWeight() + value.totalWeight.sum());
+            sum.setTotalPrice(sum.getTotalPrice() + value.totalPrice.sum());
+            sum.setTotalShippingCharge(sum.getTotalShippingCharge() + value.totalShippingCharge.sum());
+        });
+
+        List<BatchTotals> result = new ArrayList<>(groups.size());
+        for (BatchStats sum : groups.values()) {
+            if (sum.getBatchCount() > 0) {
+                result.add(new BatchTotals(sum.getMedicineTypeCode(), sum.getCareLevel(), sum.getRefrigeration(),
+                        sum.getBatchCount(), sum.getTotalWeight(), sum.getTotalPrice(), sum.getTotalShippingCharge()));
+            }
+        }
+        result.sort(Comparator.comparing(BatchTotals::medicineTypeCode, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(BatchTotals::careLevel, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(BatchTotals::refrigeration, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return result;
+    }
+
+    /**
+     * Recomputes the summary table from batch_info and reloads the counters.
+     * Runs on the schedule of {@code pharma.batch-stats.rebuild-cron}, which is disabled by default.
+     */
+    @Scheduled(cron = "${pharma.batch-stats.rebuild-cron:-}")
+    @Transactional
+    public void rebuild() {
+        batchStatsRepository.deleteAllInBatch();
+        int groups = batchStatsRepository.insertTotalsFromBatches();
+        logger.info("Rebuilt batch totals: {} groups", groups);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                reload();
+            }
+        });
+    }
+
+    /**
+     * Reloads the counters from the summary table, keeping the current ones if it cannot be read.
+     * Runs on the schedule of {@code pharma.batch-stats.refresh-interval}.
+     */
+    @Scheduled(fixedDelayString = "${pharma.batch-stats.refresh-interval:PT5S}", initialDelayString = "${pharma.batch-stats.refresh-interval:PT5S}")
+    public void refresh() {
+        try {
+            reload();
+        } catch (DataAccessException e) {
+            logger.warn("Could not reload batch totals, keeping the current ones: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Replaces the counters with the contents of the summary table.
+     */
+    private void reload() {
+        reloadLock.writeLock().lock();
+        try {
+            Map<BatchStatsKey, Totals> loaded = new ConcurrentHashMap<>();
+            for (BatchStats stats : batchStatsRepository.findAll()) {
+                add(loaded, stats);
+            }
+            totals = loaded;
+        } finally {
+            reloadLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds amounts to the counters of their group.
+     */
+    private static void add(Map<BatchStatsKey, Totals> counters, BatchStats delta) {
+        Totals group = counters.computeIfAbsent(
+                new BatchStatsKey(delta.getMedicineTypeCode(), delta.getCareLevel(), delta.getRefrigeration()),
+                key -> new Totals());
+        group.batchCount.add(delta.getBatchCount());
+        group.totalWeight.add(delta.getTotalWeight());
+        group.totalPrice.add(delta.getTotalPrice());
+        group.totalShippingCharge.add(delta.getTotalShippingCharge());
+    }
+
+    /**
+     * Striped counters of one group, so concurrent inserts into the same group do not contend.
+     */
+    private static class Totals {
+        private final LongAdder batchCount = new LongAdder();
+        private final DoubleAdder totalWeight = new DoubleAdder();
+        private final DoubleAdder totalPrice = new DoubleAdder();
+        private final DoubleAdder totalShippingCharge = new DoubleAdder();
+    }
+}
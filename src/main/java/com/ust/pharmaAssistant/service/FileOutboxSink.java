@@ -0,0 +1,82 @@
+package com.ust.pharmaAssistant.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ust.pharmaAssistant.model.OutboxEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Outbox sink appending the events to a local NDJSON file, one line per event with its id, type, batch code,
+ * creation time and payload, for consumers that tail the file or ship it elsewhere.
+ * Each batch is appended with one write and synced to disk before it counts as delivered. A batch delivered again
+ * after a failure appends its lines again, so readers should skip ids they have already seen.
+ * Enabled when {@code pharma.outbox.file.path} is set.
+ */
+@Component
+@ConditionalOnProperty("pharma.outbox.file.path")
+public class FileOutboxSink implements OutboxSink {
+
+    /** Object mapper writing the lines. */
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /** File the events are appended to. */
+    @Value("${pharma.outbox.file.path}")
+    private Path path;
+
+    /**
+     * Returns the name of the sink.
+     * @return "file".
+     */
+    @Override
+    public String name() {
+        return "file";
+    }
+
+    /**
+     * Appends a batch of events to the file and syncs it.
+     * @param events The events.
+     * @throws IOException if the file cannot be written.
+     */
+    @Override
+    public void deliver(List<OutboxEvent> events) throws IOException {
+        ByteArrayOutputStream lines = new ByteArrayOutputStream(events.size() * 320);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(lines)) {
+            generator.setRootValueSeparator(null);
+            for (OutboxEvent event : events) {
+                generator.writeStartObject();
+                generator.writeNumberField("id", event.getId());
+                generator.writeStringField("type", event.getEventType());
+                generator.writeStringField("batchCode", event.getBatchCode());
+                generator.writeStringField("createdAt", event.getCreatedAt().toString());
+                generator.writeFieldName("payload");
+                generator.writeRawValue(event.getPayload());
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            }
+        }
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.ust.pharmaAssistant.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ust.pharmaAssistant.exception.PharmaBusinessException;
+import com.ust.pharmaAssistant.model.BatchInfo;
+import com.ust.pharmaAssistant.model.IdempotencyRecord;
+import com.ust.pharmaAssistant.model.IdempotentResponse;
+import com.ust.pharmaAssistant.repository.IdempotencyRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Service class making requests with an Idempotency-Key header safe to retry in the PharmaAssistant application.
+ * The first request with a key runs normally and its response is stored, unless it failed with a server error.
+ * Retries with the same key and request get the stored response without running the request again; a request still
+ * in progress is waited for instead of being run a second time. Stored responses are kept in a bounded in-memory LRU
+ * in front of the idempotency_record table, and both expire after the configured time to live.
+ * Concurrent requests are only coalesced within one instance; across instances the stored record is shared once
+ * the first request completes.
+ */
+@Service
+public class IdempotencyService {
+
+    /** Longest accepted idempotency key. */
+    static final int MAX_KEY_LENGTH = 255;
+
+    /** Logger instance for logging purposes. */
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    /** Repository of the stored responses. */
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+
+    /** How long a stored response is replayed. */
+    private final Duration timeToLive;
+
+    /** How long a retry waits for the request in progress with the same key. */
+    private final Duration waitTimeout;
+
+    /** Clock used to compute expiry times. */
+    private final Clock clock;
+
+    /** Recently stored responses by key. */
+    private final Cache<String, IdempotencyRecord> completed;
+
+    /** Requests in progress by key. */
+    private final ConcurrentMap<String, CompletableFuture<IdempotencyRecord>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the in-memory store with the configured size and time to live.
+     *
+     * @param idempotencyRecordRepository Repository of the stored responses.
+     * @param maximumSize                 Maximum number of responses kept in memory.
+     * @param timeToLive                  How long a stored response is replayed.
+     * @param waitTimeout                 How long a retry waits for the request in progress.
+     */
+    @Autowired
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              @Value("${pharma.idempotency.maximum-size:10000}") long maximumSize,
+                              @Value("${pharma.idempotency.ttl:24h}") Duration timeToLive,
+                              @Value("${pharma.idempotency.wait-timeout:30s}") Duration waitTimeout) {
+        this(idempotencyRecordRepository, maximumSize, timeToLive, waitTimeout, Clock.systemUTC());
+    }
+
+    /**
+     * Creates the in-memory store with an explicit clock.
+     */
+    IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository, long maximumSize,
+                       Duration timeToLive, Duration waitTimeout, Clock clock) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.timeToLive = timeToLive;
+        this.waitTimeout = waitTimeout;
+        this.clock = clock;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .build();
+    }
+
+    /**
+     * Runs a request once per idempotency key.
+     * @param idempotencyKey The Idempotency-Key header.
+     * @param requestHash    Fingerprint of the request, see {@link #fingerprint(BatchInfo)}.
+     * @param request        The request to run if the key has not been used yet.
+     * @return The response of the request, or the stored response of an earlier request with the same key.
+     * @throws PharmaBusinessException with error 400 if the key is blank or too long, 422 if the key was used with a
+     * different request, or 409 if the earlier request with the key is still in progress after the wait timeout.
+     */
+    public IdempotentResponse execute(String idempotencyKey, String requestHash, Supplier<IdempotentResponse> request) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new PharmaBusinessException(400, "Idempotency-Key should have between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+        IdempotencyRecord stored = completed.getIfPresent(idempotencyKey);
+        if (stored != null) {
+            return replay(stored, requestHash);
+        }
+
+        CompletableFuture<IdempotencyRecord> own = new CompletableFuture<>();
+        CompletableFuture<IdempotencyRecord> running = inFlight.putIfAbsent(idempotencyKey, own);
+        if (running != null) {
+            return replay(await(running), requestHash);
+        }
+        try {
+            stored = findStored(idempotencyKey);
+            if (stored != null) {
+                completed.put(idempotencyKey, stored);
+                own.complete(stored);
+                return replay(stored, requestHash);
+            }
+
+            IdempotentResponse response = request.get();
+            IdempotencyRecord record = new IdempotencyRecord(idempotencyKey, requestHash, response.status(),
+                    response.body(), clock.instant().plus(timeToLive));
+            if (response.status() < 500) {
+                store(record);
+            }
+            // Requests waiting on this one get its response even if it is not stored
+            own.complete(record);
+            return response;
+        } catch (RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(idempotencyKey, own);
+        }
+    }
+
+    /**
+     * Computes the fingerprint of a batch request from the fields the client sends.
+     * @param batchInfo The batch information as received.
+     * @return The hex SHA-256 of the fields.
+     */
+    public static String fingerprint(BatchInfo batchInfo) {
+        String fields = String.join("\u0000", batchInfo.getBatchCode(), batchInfo.getMedicineCode(),
+                Double.toString(batchInfo.getWeight()), Double.toString(batchInfo.getPrice()),
+                batchInfo.getMedicineTypeCode(), batchInfo.getRefrigeration());
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(fields.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Deletes expired records from the idempotency_record table.
+     */
+    @Scheduled(fixedDelayString = "${pharma.idempotency.cleanup-interval:PT10M}")
+    public void deleteExpired() {
+        int deleted = idempotencyRecordRepository.deleteExpired(clock.instant());
+        if (deleted > 0) {
+            logger.info("Deleted {} expired idempotency records", deleted);
+        }
+    }
+
+    /**
+     * Returns a stored response if it belongs to the same request.
+     */
+    private IdempotentResponse replay(IdempotencyRecord stored, String requestHash) {
+        if (!stored.getRequestHash().equals(requestHash)) {
+            throw new PharmaBusinessException(422, "Idempotency-Key has already been used with a different request");
+        }
+        return new IdempotentResponse(stored.getStatusCode(), stored.getResponseBody(), true);
+    }
+
+    /**
+     * Waits for the request in progress with the same key.
+     */
+    private IdempotencyRecord await(CompletableFuture<IdempotencyRecord> running) {
+        try {
+            return running.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new PharmaBusinessException(409, "A request with this Idempotency-Key is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PharmaBusinessException(409, "A request with this Idempotency-Key is still in progress");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Loads an unexpired record from the database, deleting the record if it has expired so the key can be reused.
+     */
+    private IdempotencyRecord findStored(String idempotencyKey) {
+        Optional<IdempotencyRecord> stored = idempotencyRecordRepository.findById(idempotencyKey);
+        if (stored.isEmpty()) {
+            return null;
+        }
+        if (stored.get().getExpiresAt().isAfter(clock.instant())) {
+            return stored.get();
+        }
+        idempotencyRecordRepository.delete(stored.get());
+        return null;
+    }
+
+    /**
+     * Stores a response in memory and in the database. A failure to write the database is logged; the response is
+     * still replayed by this instance.
+     */
+    private void store(IdempotencyRecord record) {
+        completed.put(record.getIdempotencyKey(), record);
+        try {
+            idempotencyRecordRepository.save(record);
+        } catch (Exception e) {
+            logger.warn("Could not store idempotency record {}: {}", record.getIdempotencyKey(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.ust.pharmaAssistant.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ust.pharmaAssistant.model.BatchAddedEvent;
+import com.ust.pharmaAssistant.model.BatchSummary;
+import com.ust.pharmaAssistant.model.OutboxEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Outbox sink publishing each batch-added event as a {@link BatchAddedEvent} to the listeners of the application
+ * context, e.g. methods annotated with {@code @EventListener}. Listeners run synchronously on the relay thread, so a
+ * listener that throws makes the relay deliver the batch again, to all listeners. Only the node running the relay
+ * publishes events.
+ * Enabled unless {@code pharma.outbox.in-process.enabled} is false.
+ */
+@Component
+@ConditionalOnProperty(name = "pharma.outbox.in-process.enabled", matchIfMissing = true)
+public class InProcessOutboxSink implements OutboxSink {
+
+    /** Publisher of the application events. */
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    /** Object mapper reading the event payloads. */
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Returns the name of the sink.
+     * @return "in-process".
+     */
+    @Override
+    public String name() {
+        return "in-process";
+    }
+
+    /**
+     * Publishes the batch-added events of a batch to the listeners, in order.
+     * @param events The events.
+     * @throws IOException if a payload cannot be read.
+     */
+    @Override
+    public void deliver(List<OutboxEvent> events) throws IOException {
+        for (OutboxEvent event : events) {
+            if (OutboxEvent.BATCH_ADDED.equals(event.getEventType())) {
+                BatchSummary batch = objectMapper.readValue(event.getPayload(), BatchSummary.class);
+                applicationEventPublisher.publishEvent(new BatchAddedEvent(event.getId(), event.getCreatedAt(), batch));
+            }
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.ust.pharmaAssistant.service;
+
+import com.ust.pharmaAssistant.model.OutboxCursor;
+import com.ust.pharmaAssistant.model.OutboxEvent;
+import com.ust.pharmaAssistant.repository.OutboxCursorRepository;
+import com.ust.pharmaAssistant.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Service class relaying the events of the transactional outbox of the PharmaAssistant application to the outbox
+ * sinks.
+ * Every {@code pharma.outbox.poll-interval}, each sink gets the events after its cursor, in id order and in batches of
+ * {@code pharma.outbox.batch-size}, until it is caught up; its cursor is saved after each delivered batch. A sink that
+ * fails is retried from the same event after a backoff that doubles from {@code pharma.outbox.retry.initial-backoff}
+ * up to {@code pharma.outbox.retry.max-backoff}, without holding up the other sinks. Events delivered to every sink
+ * are then deleted.
+ * Ids are taken when events are inserted but become visible when their transaction commits, so a gap before an
+ * event may be an event that is not committed yet. The relay stops at such a gap until the event after it is older
+ * than {@code pharma.outbox.settle-time}; gaps left by rolled back transactions are skipped after that. The settle
+ * time should exceed the clock skew between the nodes.
+ * The relay runs unless {@code pharma.outbox.relay.enabled} is false, and should only run on one node.
+ * For each sink, {@code pharma.outbox.lag} gauges the number of events not delivered yet and
+ * {@code pharma.outbox.lag.seconds} the age of the oldest of them, and {@code pharma.outbox.delivered} and
+ * {@code pharma.outbox.failures} count delivered events and failed batches.
+ */
+@Service
+public class OutboxRelay {
+
+    /** Logger instance for logging purposes. */
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    /** Repository of the outbox events. */
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    /** Repository of the sink cursors. */
+    @Autowired
+    private OutboxCursorRepository outboxCursorRepository;
+
+    /** Transaction template saving a cursor or deleting delivered events. */
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /** Whether this node relays events. */
+    @Value("${pharma.outbox.relay.enabled:true}")
+    private boolean enabled;
+
+    /** Maximum number of events per delivered batch. */
+    @Value("${pharma.outbox.batch-size:500}")
+    private int batchSize;
+
+    /** How long the relay waits at a gap in the event ids for the missing event to commit. */
+    @Value("${pharma.outbox.settle-time:5s}")
+    private Duration settleTime;
+
+    /** Backoff after the first failure of a sink. */
+    @Value("${pharma.outbox.retry.initial-backoff:1s}")
+    private Duration initialBackoff;
+
+    /** Longest backoff between two attempts of a failing sink. */
+    @Value("${pharma.outbox.retry.max-backoff:5m}")
+    private Duration maxBackoff;
+
+    /** Delivery state of each sink. */
+    private final List<SinkState> sinks;
+
+    /**
+     * Delivery state and meters of one sink.
+     */
+    private static final class SinkState {
+
+        private final OutboxSink sink;
+
+        private final Counter delivered;
+
+        private final Counter failures;
+
+        /** Id of the last event delivered to the sink, as of the last relay. */
+        private long cursor;
+
+        /** Number of consecutive failed batches. */
+        private int consecutiveFailures;
+
+        /** Time before which the sink is not retried. */
+        private Instant retryAt = Instant.MIN;
+
+        /** Number of events not delivered yet, as of the last relay. */
+        private volatile long lagEvents;
+
+        /** Age in seconds of the oldest event not delivered yet, as of the last relay. */
+        private volatile double lagSeconds;
+
+        private SinkState(OutboxSink sink, MeterRegistry registry) {
+            this.sink = sink;
+            this.delivered = Counter.builder("pharma.outbox.delivered")
+                    .description("Number of outbox events delivered to the sink")
+                    .tag("sink", sink.name())
+                    .register(registry);
+            this.failures = Counter.builder("pharma.outbox.failures")
+                    .description("Number of outbox batches the sink failed to take")
+                    .tag("sink", sink.name())
+                    .register(registry);
+            Gauge.builder("pharma.outbox.lag", this, state -> state.lagEvents)
+                    .description("Number of outbox events not delivered to the sink yet")
+                    .tag("sink", sink.name())
+                    .register(registry);
+            Gauge.builder("pharma.outbox.lag.seconds", this, state -> state.lagSeconds)
+                    .description("Age of the oldest outbox event not delivered to the sink yet")
+                    .tag("sink", sink.name())
+                    .baseUnit("seconds")
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Creates the relay for all outbox sinks and registers their metrics.
+     *
+     * @param sinks    The outbox sinks.
+     * @param registry The meter registry.
+     */
+    @Autowired
+    public OutboxRelay(ObjectProvider<OutboxSink> sinks, MeterRegistry registry) {
+        this.sinks = sinks.orderedStream().map(sink -> new SinkState(sink, registry)).toList();
+    }
+
+    /**
+     * Delivers the pending events to every sink that is not backing off, then deletes the events every sink has.
+     *
+     * @return The number of events delivered, summed over the sinks.
+     */
+    @Scheduled(fixedDelayString = "${pharma.outbox.poll-interval:PT1S}")
+    public synchronized long relay() {
+        if (!enabled) {
+            return 0;
+        }
+        Long lastId = outboxEventRepository.findLastId();
+        if (lastId == null) {
+            sinks.forEach(state -> {
+                state.lagEvents = 0;
+                state.lagSeconds = 0;
+            });
+            return 0;
+        }
+        long delivered = 0;
+        long purgeUpTo = lastId;
+        for (SinkState state : sinks) {
+            delivered += relay(state, lastId);
+            purgeUpTo = Math.min(purgeUpTo, state.cursor);
+        }
+        long deleteUpTo = purgeUpTo;
+        if (deleteUpTo > 0) {
+            transactionTemplate.executeWithoutResult(status -> outboxEventRepository.deleteUpTo(deleteUpTo));
+        }
+        return delivered;
+    }
+
+    /**
+     * Delivers the events after the cursor of a sink, batch by batch, until it is caught up, a gap is not settled
+     * yet or a batch fails.
+     *
+     * @return The number of delivered events.
+     */
+    private long relay(SinkState state, long lastId) {
+        Instant now = Instant.now();
+        long cursor = cursorOf(state.sink);
+        state.cursor = cursor;
+        if (now.isBefore(state.retryAt)) {
+            state.lagEvents = lastId - cursor;
+            return 0;
+        }
+        long delivered = 0;
+        List<OutboxEvent> events;
+        do {
+            List<OutboxEvent> pending = outboxEventRepository.findAfter(cursor, Limit.of(batchSize));
+            state.lagEvents = Math.max(0, lastId - cursor);
+            state.lagSeconds = pending.isEmpty() ? 0
+                    : Math.max(0, Duration.between(pending.get(0).getCreatedAt(), now).toNanos() / 1e9);
+            events = settled(cursor, pending, now);
+            if (events.isEmpty()) {
+                break;
+            }
+            try {
+                state.sink.deliver(events);
+            } catch (Exception e) {
+                state.failures.increment();
+                state.consecutiveFailures++;
+                Duration backoff = backoff(state.consecutiveFailures);
+                state.retryAt = now.plus(backoff);
+                logger.warn("Outbox sink {} failed to take events {} to {}, retrying in {}: {}", state.sink.name(),
+                        events.get(0).getId(), events.get(events.size() - 1).getId(), backoff, e.toString());
+                break;
+            }
+            cursor = events.get(events.size() - 1).getId();
+            saveCursor(state.sink, cursor);
+            state.cursor = cursor;
+            state.consecutiveFailures = 0;
+            state.delivered.increment(events.size());
+            delivered += events.size();
+        } while (events.size() == batchSize);
+        if (cursor >= lastId) {
+            state.lagEvents = 0;
+            state.lagSeconds = 0;
+        }
+        return delivered;
+    }
+
+    /**
+     * Returns the leading events that can be delivered: each one follows the previous id, or is older than the
+     * settle time so that the events missing before it are not coming.
+     */
+    List<OutboxEvent> settled(long cursor, List<OutboxEvent> pending, Instant now) {
+        Instant settled = now.minus(settleTime);
+        long expectedId = cursor + 1;
+        int count = 0;
+        for (OutboxEvent event : pending) {
+            if (event.getId() != expectedId && event.getCreatedAt().isAfter(settled)) {
+                break;
+            }
+            expectedId = event.getId() + 1;
+            count++;
+        }
+        return pending.subList(0, count);
+    }
+
+    /**
+     * Returns the backoff after a number of consecutive failures.
+     */
+    private Duration backoff(int consecutiveFailures) {
+        Duration backoff = initialBackoff.multipliedBy(1L << Math.min(consecutiveFailures - 1, 30));
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+
+    /**
+     * Returns the id of the last event delivered to a sink, or 0.
+     */
+    private long cursorOf(OutboxSink sink) {
+        return outboxCursorRepository.findById(sink.name()).map(OutboxCursor::getLastEventId).orElse(0L);
+    }
+
+    /**
+     * Saves the id of the last event delivered to a sink.
+     */
+    private void saveCursor(OutboxSink sink, long lastEventId) {
+        transactionTemplate.executeWithoutResult(status ->
+                outboxCursorRepository.save(new OutboxCursor(sink.name(), lastEventId, Instant.now())));
+    }
+}
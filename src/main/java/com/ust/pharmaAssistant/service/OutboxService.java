@@ -0,0 +1,64 @@
+package com.ust.pharmaAssistant.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ust.pharmaAssistant.model.BatchInfo;
+import com.ust.pharmaAssistant.model.BatchSummary;
+import com.ust.pharmaAssistant.model.OutboxEvent;
+import com.ust.pharmaAssistant.repository.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Service class writing the events of the transactional outbox of the PharmaAssistant application.
+ * Every insert of batches writes one batch-added event per batch in the same transaction, so consumers learn about
+ * exactly the batches that were committed without polling batch_info, and adding a batch waits for no consumer.
+ * {@link OutboxRelay} delivers the events to the outbox sinks afterwards.
+ */
+@Service
+public class OutboxService {
+
+    /** Repository the events are written to. */
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    /** Object mapper writing the event payloads. */
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Writes a batch-added event for each inserted batch within the current transaction.
+     * Called last in the transaction, so that the event ids are taken shortly before the commit.
+     * @param batchInfos The batches inserted by the current transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAdded(Collection<BatchInfo> batchInfos) {
+        Instant now = Instant.now();
+        List<OutboxEvent> events = new ArrayList<>(batchInfos.size());
+        for (BatchInfo batchInfo : batchInfos) {
+            BatchSummary summary = new BatchSummary(batchInfo.getBatchCode(), batchInfo.getMedicineCode(),
+                    batchInfo.getWeight(), batchInfo.getPrice(), batchInfo.getMedicineTypeCode(),
+                    batchInfo.getShippingCharge(), batchInfo.getCareLevel(), batchInfo.getRefrigeration());
+            events.add(new OutboxEvent(null, OutboxEvent.BATCH_ADDED, batchInfo.getBatchCode(), toJson(summary), now));
+        }
+        outboxEventRepository.insertAll(events);
+    }
+
+    /**
+     * Writes an event payload as compact JSON.
+     */
+    private String toJson(BatchSummary summary) {
+        try {
+            return objectMapper.writeValueAsString(summary);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not write the outbox event of batch " + summary.batchCode(), e);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.ust.pharmaAssistant.service;
+
+import com.ust.pharmaAssistant.model.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * Destination of the events of the transactional outbox, fed by {@link OutboxRelay}.
+ * Every bean implementing this interface gets its own cursor and receives every event, in id order and in batches.
+ * Delivery is at least once: a batch that fails, or whose cursor could not be saved, is delivered again, so a sink
+ * should ignore event ids it has already handled.
+ */
+public interface OutboxSink {
+
+    /**
+     * Returns the name of the sink, which keys its cursor and tags its metrics. It should not change between
+     * releases, or the sink starts again from the oldest event kept in the outbox.
+     * @return The name, at most 64 characters.
+     */
+    String name();
+
+    /**
+     * Delivers a batch of events. The batch counts as delivered if the method returns normally.
+     * @param events The events, in id order.
+     * @throws Exception if the batch could not be delivered; it is retried with backoff.
+     */
+    void deliver(List<OutboxEvent> events) throws Exception;
+}
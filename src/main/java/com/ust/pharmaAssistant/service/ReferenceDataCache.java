@@ -0,0 +1,367 @@
+package com.ust.pharmaAssistant.service;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.ust.pharmaAssistant.config.ReferenceCacheProperties;
+import com.ust.pharmaAssistant.model.BatchValidationContext;
+import com.ust.pharmaAssistant.model.MedicalTypeMaster;
+import com.ust.pharmaAssistant.model.Medicine;
+import com.ust.pharmaAssistant.model.ShippingMaster;
+import com.ust.pharmaAssistant.repository.MedicalTypeMasterRepository;
+import com.ust.pharmaAssistant.repository.MedicineRepository;
+import com.ust.pharmaAssistant.repository.ShippingMasterRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Read-through cache in front of the Medicine, MedicalTypeMaster and ShippingMaster repositories.
+ * The master tables are small and rarely change, so their rows are kept in bounded in-memory caches that are
+ * refreshed in the background after a while and dropped after a longer while. Concurrent misses for the same key
+ * share a single load, and missing rows are cached as empty so unknown codes do not hit the database on every request.
+ * When master rows change, the caches must be invalidated through {@link #invalidate(String, String)}
+ * or {@link #invalidateAll()}. The statistics of each cache are published as Micrometer cache metrics.
+ */
+@Service
+public class ReferenceDataCache implements MeterBinder {
+
+    /** Name of the medicine cache. */
+    public static final String MEDICINES = "medicines";
+
+    /** Name of the medicine type cache. */
+    public static final String MEDICAL_TYPES = "medicalTypes";
+
+    /** Name of the shipping charge cache. */
+    public static final String SHIPPING_MASTERS = "shippingMasters";
+
+    /** Logger instance for logging purposes. */
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceDataCache.class);
+
+    /** Medicines by medicine code. */
+    private final LoadingCache<String, Optional<Medicine>> medicines;
+
+    /** Medicine types by medicine type code. */
+    private final LoadingCache<String, Optional<MedicalTypeMaster>> medicalTypes;
+
+    /** Shipping master rows by medicine type code and weight range. */
+    private final LoadingCache<ShippingKey, Optional<ShippingMaster>> shippingMasters;
+
+    /**
+     * Creates the caches with the configured size and expiry.
+     *
+     * @param medicineRepository          Repository for Medicine entities.
+     * @param medicalTypeMasterRepository Repository for MedicalTypeMaster entities.
+     * @param shippingMasterRepository    Repository for ShippingMaster entities.
+     * @param properties                  Cache size and expiry settings.
+     */
+    public ReferenceDataCache(MedicineRepository medicineRepository,
+                              MedicalTypeMasterRepository medicalTypeMasterRepository,
+                              ShippingMasterRepository shippingMasterRepository,
+                              ReferenceCacheProperties properties) {
+        this.medicines = newCache(properties, new CacheLoader<>() {
+            @Override
+            public Optional<Medicine> load(String medicineCode) {
+                return medicineRepository.findById(medicineCode);
+            }
+
+            @Override
+            public Map<String, Optional<Medicine>> loadAll(Set<? extends String> medicineCodes) {
+                return completeWithEmpty(medicineCodes, medicineRepository.findAllById(Set.copyOf(medicineCodes)), Medicine::getMedicineCode);
+            }
+        });
+        this.medicalTypes = newCache(properties, new CacheLoader<>() {
+            @Override
+            public Optional<MedicalTypeMaster> load(String medicineTypeCode) {
+                return medicalTypeMasterRepository.findById(medicineTypeCode);
+            }
+
+            @Override
+            public Map<String, Optional<MedicalTypeMaster>> loadAll(Set<? extends String> medicineTypeCodes) {
+                return completeWithEmpty(medicineTypeCodes, medicalTypeMasterRepository.findAllById(Set.copyOf(medicineTypeCodes)), MedicalTypeMaster::getMedicineTypeCode);
+            }
+        });
+        this.shippingMasters = newCache(properties, new CacheLoader<>() {
+            @Override
+            public Optional<ShippingMaster> load(ShippingKey key) {
+                return shippingMasterRepository.findByMedicineTypeCodeAndWeightRange(key.medicineTypeCode(), key.weightRange());
+            }
+
+            @Override
+            public Map<ShippingKey, Optional<ShippingMaster>> loadAll(Set<? extends ShippingKey> keys) {
+                Set<String> medicineTypeCodes = new HashSet<>();
+                keys.forEach(key -> medicineTypeCodes.add(key.medicineTypeCode()));
+                return completeWithEmpty(keys, shippingMasterRepository.findByMedicineTypeCodeIn(medicineTypeCodes),
+                        s -> new ShippingKey(s.getMedicineTypeCode(), s.getWeightRange()));
+            }
+        });
+    }
+
+    /**
+     * Finds a medicine by its code.
+     * @param medicineCode The medicine code.
+     * @return The medicine, or empty if it does not exist.
+     */
+    public Optional<Medicine> findMedicine(String medicineCode) {
+        return medicineCode == null ? Optional.empty() : medicines.get(medicineCode);
+    }
+
+    /**
+     * Finds the medicines for a set of codes, loading all missing ones with a single query.
+     * @param medicineCodes The medicine codes.
+     * @return The medicines that exist, by medicine code.
+     */
+    public Map<String, Medicine> findMedicines(Collection<String> medicineCodes) {
+        return present(medicines.getAll(medicineCodes));
+    }
+
+    /**
+     * Finds a medicine type by its code.
+     * @param medicineTypeCode The medicine type code.
+     * @return The medicine type, or empty if it does not exist.
+     */
+    public Optional<MedicalTypeMaster> findMedicalType(String medicineTypeCode) {
+        return medicineTypeCode == null ? Optional.empty() : medicalTypes.get(medicineTypeCode);
+    }
+
+    /**
+     * Finds the medicine types for a set of codes, loading all missing ones with a single query.
+     * @param medicineTypeCodes The medicine type codes.
+     * @return The medicine types that exist, by medicine type code.
+     */
+    public Map<String, MedicalTypeMaster> findMedicalTypes(Collection<String> medicineTypeCodes) {
+        return present(medicalTypes.getAll(medicineTypeCodes));
+    }
+
+    /**
+     * Finds the shipping master row for a medicine type and weight range.
+     * @param medicineTypeCode The medicine type code.
+     * @param weightRange      The weight range identifier.
+     * @return The shipping master row, or empty if there is none.
+     */
+    public Optional<ShippingMaster> findShippingMaster(String medicineTypeCode, String weightRange) {
+        return shippingMasters.get(new ShippingKey(medicineTypeCode, weightRange));
+    }
+
+    /**
+     * Finds the shipping master rows for a set of medicine types, across all weight ranges, loading all
+     * missing ones with a single query.
+     * @param medicineTypeCodes The medicine type codes.
+     * @param weightRanges      The weight range identifiers.
+     * @return The shipping master rows that exist, keyed by {@link #shippingKey(String, String)}.
+     */
+    public Map<String, ShippingMaster> findShippingMasters(Collection<String> medicineTypeCodes, Collection<String> weightRanges) {
+        Set<ShippingKey> keys = new HashSet<>();
+        for (String medicineTypeCode : medicineTypeCodes) {
+            for (String weightRange : weightRanges) {
+                keys.add(new ShippingKey(medicineTypeCode, weightRange));
+            }
+        }
+        Map<String, ShippingMaster> result = new HashMap<>();
+        shippingMasters.getAll(keys).forEach((key, value) ->
+                value.ifPresent(s -> result.put(shippingKey(key.medicineTypeCode(), key.weightRange()), s)));
+        return result;
+    }
+
+    /**
+     * Builds the key under which {@link #findShippingMasters(Collection, Collection)} returns a shipping master row.
+     * @param medicineTypeCode The medicine type code.
+     * @param weightRange      The weight range identifier.
+     * @return The lookup key.
+     */
+    public static String shippingKey(String medicineTypeCode, String weightRange) {
+        return medicineTypeCode + '|' + weightRange;
+    }
+
+    /**
+     * Checks whether the medicine, medicine type and shipping charge of a batch are all cached, found or not,
+     * so that validating the batch needs no query.
+     * @param medicineCode     The medicine code.
+     * @param medicineTypeCode The medicine type code.
+     * @param weightRange      The weight range identifier.
+     * @return true if all three lookups would be served from the cache.
+     */
+    public boolean isCached(String medicineCode, String medicineTypeCode, String weightRange) {
+        return medicineCode != null && medicineTypeCode != null
+                && medicines.asMap().containsKey(medicineCode)
+                && medicalTypes.asMap().containsKey(medicineTypeCode)
+                && shippingMasters.asMap().containsKey(new ShippingKey(medicineTypeCode, weightRange));
+    }
+
+    /**
+     * Caches the master rows fetched together with a batch validation context, including the ones that do not exist.
+     * @param context          The validation context.
+     * @param medicineCode     The medicine code it was fetched for.
+     * @param medicineTypeCode The medicine type code it was fetched for.
+     * @param weightRange      The weight range identifier it was fetched for.
+     */
+    public void put(BatchValidationContext context, String medicineCode, String medicineTypeCode, String weightRange) {
+        if (medicineCode != null) {
+            Medicine medicine = null;
+            if (context.getMedicineCode() != null) {
+                medicine = new Medicine();
+                medicine.setMedicineCode(context.getMedicineCode());
+                medicine.setMedicineName(context.getMedicineName());
+            }
+            medicines.put(medicineCode, Optional.ofNullable(medicine));
+        }
+        if (medicineTypeCode != null) {
+            MedicalTypeMaster medicalType = context.getMedicineTypeCode() == null ? null
+                    : new MedicalTypeMaster(context.getMedicineTypeCode(), context.getMedicineTypeName());
+            medicalTypes.put(medicineTypeCode, Optional.ofNullable(medicalType));
+
+            ShippingMaster shippingMaster = null;
+            if (context.getShippingId() != null) {
+                shippingMaster = new ShippingMaster();
+                shippingMaster.setId(context.getShippingId());
+                shippingMaster.setMedicineTypeCode(medicineTypeCode);
+                shippingMaster.setWeightRange(weightRange);
+                shippingMaster.setShippingCharge(context.getShippingCharge());
+            }
+            shippingMasters.put(new ShippingKey(medicineTypeCode, weightRange), Optional.ofNullable(shippingMaster));
+        }
+    }
+
+    /**
+     * Invalidates one entry, or all entries, of a cache.
+     * @param cacheName The cache name: medicines, medicalTypes or shippingMasters.
+     * @param key       The medicine code, medicine type code, or "medicineTypeCode|weightRange" to invalidate;
+     *                  null to invalidate the whole cache.
+     * @throws IllegalArgumentException if the cache name is unknown.
+     */
+    @SuppressWarnings("unchecked")
+    public void invalidate(String cacheName, String key) {
+        LoadingCache<?, ?> cache = cache(cacheName);
+        if (key == null) {
+            cache.invalidateAll();
+        } else if (cache == shippingMasters) {
+            int separator = key.indexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Shipping key should be in the format 'medicineTypeCode|weightRange'");
+            }
+            shippingMasters.invalidate(new ShippingKey(key.substring(0, separator), key.substring(separator + 1)));
+        } else {
+            ((LoadingCache<String, ?>) cache).invalidate(key);
+        }
+        logger.info("Invalidated reference data cache {} for key {}", cacheName, key == null ? "*" : key);
+    }
+
+    /**
+     * Invalidates all entries of all caches.
+     */
+    public void invalidateAll() {
+        medicines.invalidateAll();
+        medicalTypes.invalidateAll();
+        shippingMasters.invalidateAll();
+        logger.info("Invalidated all reference data caches");
+    }
+
+    /**
+     * Registers the size, hit, miss, load and eviction metrics of each cache.
+     * @param registry The meter registry.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, medicines, MEDICINES);
+        CaffeineCacheMetrics.monitor(registry, medicalTypes, MEDICAL_TYPES);
+        CaffeineCacheMetrics.monitor(registry, shippingMasters, SHIPPING_MASTERS);
+    }
+
+    /**
+     * Returns the hit, miss and load statistics of each cache.
+     * @return The statistics by cache name.
+     */
+    public Map<String, CacheStats> stats() {
+        Map<String, CacheStats> stats = new LinkedHashMap<>();
+        stats.put(MEDICINES, medicines.stats());
+        stats.put(MEDICAL_TYPES, medicalTypes.stats());
+        stats.put(SHIPPING_MASTERS, shippingMasters.stats());
+        return stats;
+    }
+
+    /**
+     * Returns the number of entries in each cache.
+     * @return The estimated sizes by cache name.
+     */
+    public Map<String, Long> sizes() {
+        Map<String, Long> sizes = new LinkedHashMap<>();
+        sizes.put(MEDICINES, medicines.estimatedSize());
+        sizes.put(MEDICAL_TYPES, medicalTypes.estimatedSize());
+        sizes.put(SHIPPING_MASTERS, shippingMasters.estimatedSize());
+        return sizes;
+    }
+
+    /**
+     * Looks up a cache by name.
+     * @param cacheName The cache name.
+     * @return The cache.
+     * @throws IllegalArgumentException if the cache name is unknown.
+     */
+    private LoadingCache<?, ?> cache(String cacheName) {
+        switch (cacheName) {
+            case MEDICINES:
+                return medicines;
+            case MEDICAL_TYPES:
+                return medicalTypes;
+            case SHIPPING_MASTERS:
+                return shippingMasters;
+            default:
+                throw new IllegalArgumentException("Unknown reference data cache: " + cacheName);
+        }
+    }
+
+    /**
+     * Builds a cache with the configured size, refresh and expiry settings and statistics recording.
+     */
+    private static <K, V> LoadingCache<K, V> newCache(ReferenceCacheProperties properties, CacheLoader<K, V> loader) {
+        return Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .refreshAfterWrite(properties.getRefreshAfterWrite())
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .recordStats()
+                .build(loader);
+    }
+
+    /**
+     * Maps loaded rows by key and adds an empty entry for every requested key that was not found,
+     * so that missing rows are cached as well.
+     */
+    private static <K, V> Map<K, Optional<V>> completeWithEmpty(Set<? extends K> keys, Iterable<V> rows, Function<V, K> keyOf) {
+        Map<K, Optional<V>> result = new HashMap<>();
+        for (V row : rows) {
+            result.put(keyOf.apply(row), Optional.of(row));
+        }
+        for (K key : keys) {
+            result.putIfAbsent(key, Optional.empty());
+        }
+        return result;
+    }
+
+    /**
+     * Drops the empty entries of a bulk lookup.
+     */
+    private static <K, V> Map<K, V> present(Map<K, Optional<V>> entries) {
+        Map<K, V> result = new HashMap<>();
+        entries.forEach((key, value) -> value.ifPresent(v -> result.put(key, v)));
+        return result;
+    }
+
+    /**
+     * Key of a shipping master row.
+     */
+    private record ShippingKey(String medicineTypeCode, String weightRange) {
+    }
+}
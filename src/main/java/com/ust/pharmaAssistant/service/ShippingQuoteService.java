@@ -0,0 +1,306 @@
+package com.ust.pharmaAssistant.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.ust.pharmaAssistant.exception.PharmaBusinessException;
+import com.ust.pharmaAssistant.model.BatchInfo;
+import com.ust.pharmaAssistant.repository.MedicalTypeMasterRepository;
+import com.ust.pharmaAssistant.repository.ShippingMasterRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Service class quoting the shipping charge and care level of hypothetical batches in the PharmaAssistant
+ * application, without adding them.
+ * Quotes follow the rules of {@link BatchInfoService#addBatch}: the weight range of the weight, the shipping charge
+ * of the medicine type and weight range with the refrigeration surcharge, and the care level of the medicine type.
+ * They are computed from an in-memory {@link ShippingQuoteTable} of all shipping and medicine type master rows,
+ * which is read again every {@code pharma.quote.refresh-interval} and when the reference data cache is invalidated,
+ * and compiled again when the rules are reloaded. Requests are parsed into and answered from parallel arrays, so a
+ * quote creates no entity and runs no query.
+ */
+@Service
+public class ShippingQuoteService {
+
+    /** Logger instance for logging purposes. */
+    private static final Logger logger = LoggerFactory.getLogger(ShippingQuoteService.class);
+
+    /** Message of quotes without a shipping master row, as addBatch reports it. */
+    private static final String SHIPPING_CHARGE_NOT_FOUND = "Shipping charge not found for the given medicine type code and weight range";
+
+    /** Message of quotes of an unknown medicine type, as addBatch reports it. */
+    private static final String MEDICINE_TYPE_NOT_FOUND = "Medicine type not found";
+
+    /** Message of quotes of a medicine type without a care level rule, as addBatch reports it. */
+    private static final String NO_CARE_LEVEL_RULE = "No care level rule for the medicine type";
+
+    /** Jackson factory used to read and write quotes without building objects per quote. */
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /** Repository of the shipping master rows. */
+    @Autowired
+    private ShippingMasterRepository shippingMasterRepository;
+
+    /** Repository of the medicine type master rows. */
+    @Autowired
+    private MedicalTypeMasterRepository medicalTypeMasterRepository;
+
+    /** Service holding the compiled batch rules. */
+    @Autowired
+    private BatchRuleService batchRuleService;
+
+    /** Maximum number of quotes per request. */
+    @Value("${pharma.quote.max-items:10000}")
+    private int maxItems;
+
+    /** The master data snapshot in use. */
+    private volatile ShippingQuoteTable table;
+
+    /**
+     * Quotes of a request, in request order, as parallel arrays.
+     */
+    public static final class Quotes {
+
+        /** Weight range of each quote. */
+        private final String[] weightRanges;
+
+        /** Shipping charge of each quote, including the refrigeration surcharge; NaN if rejected. */
+        private final double[] shippingCharges;
+
+        /** Care level of each quote, or null if rejected. */
+        private final String[] careLevels;
+
+        /** Error code of each quote, or 0 if it was quoted. */
+        private final int[] errorCodes;
+
+        /** Error message of each quote, or null if it was quoted. */
+        private final String[] errorMessages;
+
+        private Quotes(int count) {
+            this.weightRanges = new String[count];
+            this.shippingCharges = new double[count];
+            this.careLevels = new String[count];
+            this.errorCodes = new int[count];
+            this.errorMessages = new String[count];
+        }
+
+        /**
+         * Returns the number of quotes.
+         * @return The number of quotes.
+         */
+        public int size() {
+            return errorCodes.length;
+        }
+
+        /**
+         * Returns the weight range of a quote.
+         * @param index The quote index.
+         * @return The weight range identifier.
+         */
+        public String weightRange(int index) {
+            return weightRanges[index];
+        }
+
+        /**
+         * Returns the shipping charge of a quote.
+         * @param index The quote index.
+         * @return The shipping charge including the refrigeration surcharge, or NaN if the quote was rejected.
+         */
+        public double shippingCharge(int index) {
+            return shippingCharges[index];
+        }
+
+        /**
+         * Returns the care level of a quote.
+         * @param index The quote index.
+         * @return The care level, or null if the quote was rejected.
+         */
+        public String careLevel(int index) {
+            return careLevels[index];
+        }
+
+        /**
+         * Returns the error code of a quote.
+         * @param index The quote index.
+         * @return 514 if there is no shipping charge, 515 if the medicine type or its care level rule is unknown,
+         * or 0 if the quote succeeded.
+         */
+        public int errorCode(int index) {
+            return errorCodes[index];
+        }
+
+        /**
+         * Returns the error message of a quote.
+         * @param index The quote index.
+         * @return The message addBatch would reject the batch with, or null if the quote succeeded.
+         */
+        public String errorMessage(int index) {
+            return errorMessages[index];
+        }
+    }
+
+    /**
+     * Reads the master data snapshot at startup.
+     */
+    @PostConstruct
+    void load() {
+        reload();
+    }
+
+    /**
+     * Reads all shipping and medicine type master rows and compiles them into a new snapshot.
+     */
+    @Scheduled(fixedDelayString = "${pharma.quote.refresh-interval:PT1M}", initialDelayString = "${pharma.quote.refresh-interval:PT1M}")
+    public void reload() {
+        ShippingQuoteTable loaded = ShippingQuoteTable.compile(batchRuleService.getRules(),
+                shippingMasterRepository.findAll(), medicalTypeMasterRepository.findAll());
+        table = loaded;
+        logger.debug("Loaded shipping quote snapshot");
+    }
+
+    /**
+     * Quotes batches given as parallel arrays.
+     *
+     * @param medicineTypeCodes The medicine type code of each batch.
+     * @param weights           The weight of each batch.
+     * @param refrigerations    The refrigeration requirement of each batch.
+     * @param count             The number of batches, at most the length of the arrays.
+     * @return The quotes.
+     */
+    public Quotes quote(String[] medicineTypeCodes, double[] weights, String[] refrigerations, int count) {
+        ShippingQuoteTable current = currentTable();
+        BatchRules rules = current.getRules();
+        Quotes quotes = new Quotes(count);
+        for (int i = 0; i < count; i++) {
+            int band = rules.weightBand(weights[i]);
+            int type = current.typePosition(medicineTypeCodes[i]);
+            quotes.weightRanges[i] = rules.weightRangeOf(band);
+            quotes.shippingCharges[i] = Double.NaN;
+            double charge = current.charge(type, band);
+            byte careLevelStatus = current.careLevelStatus(type);
+            if (Double.isNaN(charge)) {
+                quotes.errorCodes[i] = 514;
+                quotes.errorMessages[i] = SHIPPING_CHARGE_NOT_FOUND;
+            } else if (careLevelStatus != ShippingQuoteTable.CARE_LEVEL_FOUND) {
+                quotes.errorCodes[i] = 515;
+                quotes.errorMessages[i] = careLevelStatus == ShippingQuoteTable.TYPE_NOT_FOUND
+                        ? MEDICINE_TYPE_NOT_FOUND : NO_CARE_LEVEL_RULE;
+            } else {
+                quotes.shippingCharges[i] = rules.applySurcharge(charge, refrigerations[i]);
+                quotes.careLevels[i] = current.careLevel(type);
+            }
+        }
+        return quotes;
+    }
+
+    /**
+     * Quotes batches given as a JSON array of objects with a medicineTypeCode, a weight and optionally a
+     * refrigeration requirement, which defaults to the one a batch of that weight gets. Other fields are ignored.
+     *
+     * @param request The JSON request body.
+     * @return The JSON response body: an array with, for each batch in request order, its weightRange and either
+     * its shippingCharge and careLevel or an errorCode and message.
+     * @throws PharmaBusinessException with error 400 if the request is invalid, or 413 if it has too many batches.
+     */
+    public byte[] quote(byte[] request) {
+        String[] medicineTypeCodes = new String[16];
+        double[] weights = new double[16];
+        String[] refrigerations = new String[16];
+        int count = 0;
+        try (JsonParser parser = JSON_FACTORY.createParser(request)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new PharmaBusinessException(400, "Quote request should be a JSON array");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                if (count == maxItems) {
+                    throw new PharmaBusinessException(413, "At most " + maxItems + " quotes per request");
+                }
+                if (count == weights.length) {
+                    int capacity = Math.min(maxItems, count * 2);
+                    medicineTypeCodes = Arrays.copyOf(medicineTypeCodes, capacity);
+                    weights = Arrays.copyOf(weights, capacity);
+                    refrigerations = Arrays.copyOf(refrigerations, capacity);
+                }
+                String medicineTypeCode = null;
+                double weight = Double.NaN;
+                String refrigeration = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    switch (field) {
+                        case "medicineTypeCode" -> medicineTypeCode = parser.getValueAsString();
+                        case "weight" -> weight = value.isNumeric() ? parser.getDoubleValue() : Double.NaN;
+                        case "refrigeration" -> refrigeration = parser.getValueAsString();
+                        default -> parser.skipChildren();
+                    }
+                }
+                if (Double.isNaN(weight)) {
+                    throw new PharmaBusinessException(400, "Quote " + count + " should have a numeric weight");
+                }
+                medicineTypeCodes[count] = medicineTypeCode;
+                weights[count] = weight;
+                refrigerations[count] = refrigeration != null ? refrigeration : BatchInfo.determineRefrigeration(weight);
+                count++;
+            }
+            if (parser.currentToken() != JsonToken.END_ARRAY) {
+                throw new PharmaBusinessException(400, "Quote request should be an array of objects");
+            }
+        } catch (JsonProcessingException e) {
+            throw new PharmaBusinessException(400, "Invalid quote request: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read the quote request", e);
+        }
+        return write(quote(medicineTypeCodes, weights, refrigerations, count));
+    }
+
+    /**
+     * Returns the snapshot in use, compiling it again first if the rules were reloaded since.
+     */
+    private ShippingQuoteTable currentTable() {
+        ShippingQuoteTable current = table;
+        BatchRules rules = batchRuleService.getRules();
+        if (current.getRules() != rules) {
+            current = current.recompile(rules);
+            table = current;
+        }
+        return current;
+    }
+
+    /**
+     * Writes quotes as a JSON array.
+     */
+    private static byte[] write(Quotes quotes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 + quotes.size() * 72);
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            generator.writeStartArray();
+            for (int i = 0; i < quotes.size(); i++) {
+                generator.writeStartObject();
+                generator.writeStringField("weightRange", quotes.weightRange(i));
+                if (quotes.errorCode(i) == 0) {
+                    generator.writeNumberField("shippingCharge", quotes.shippingCharge(i));
+                    generator.writeStringField("careLevel", quotes.careLevel(i));
+                } else {
+                    generator.writeNumberField("errorCode", quotes.errorCode(i));
+                    generator.writeStringField("message", quotes.errorMessage(i));
+                }
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write the quotes", e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,170 @@
+package com.ust.pharmaAssistant.service;
+
+import com.ust.pharmaAssistant.model.MedicalTypeMaster;
+import com.ust.pharmaAssistant.model.ShippingMaster;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the shipping master and medicine type master tables compiled against the batch rules, used
+ * to quote shipping charges without the database.
+ * Each medicine type code gets a dense position; shipping charges are a flat array by type position and weight
+ * band, and care levels an array by type position, so a quote is one hash lookup of the type code plus a few array
+ * reads. The rows are kept so that the table can be compiled again when the rules change.
+ */
+final class ShippingQuoteTable {
+
+    /** Care level status of a type: the care level is known. */
+    static final byte CARE_LEVEL_FOUND = 0;
+
+    /** Care level status of a type: there is no medicine type master row. */
+    static final byte TYPE_NOT_FOUND = 1;
+
+    /** Care level status of a type: no care level rule applies to the type. */
+    static final byte NO_CARE_LEVEL_RULE = 2;
+
+    /** Rules the table was compiled against. */
+    private final BatchRules rules;
+
+    /** Shipping master rows the table was compiled from. */
+    private final List<ShippingMaster> shippingMasters;
+
+    /** Medicine type master rows the table was compiled from. */
+    private final List<MedicalTypeMaster> medicalTypeMasters;
+
+    /** Position of each medicine type code. */
+    private final Map<String, Integer> typePositions;
+
+    /** Number of weight bands of the rules. */
+    private final int bandCount;
+
+    /** Shipping charge before surcharge by type position * bandCount + band, NaN if there is no shipping row. */
+    private final double[] charges;
+
+    /** Care level by type position, null unless its status is {@link #CARE_LEVEL_FOUND}. */
+    private final String[] careLevels;
+
+    /** Care level status by type position. */
+    private final byte[] careLevelStatuses;
+
+    private ShippingQuoteTable(BatchRules rules, List<ShippingMaster> shippingMasters,
+                               List<MedicalTypeMaster> medicalTypeMasters, Map<String, Integer> typePositions,
+                               double[] charges, String[] careLevels, byte[] careLevelStatuses) {
+        this.rules = rules;
+        this.shippingMasters = shippingMasters;
+        this.medicalTypeMasters = medicalTypeMasters;
+        this.typePositions = typePositions;
+        this.bandCount = rules.weightBandCount();
+        this.charges = charges;
+        this.careLevels = careLevels;
+        this.careLevelStatuses = careLevelStatuses;
+    }
+
+    /**
+     * Compiles master data rows against the rules. Shipping rows whose weight range is not a band of the rules can
+     * never be quoted and are left out.
+     * @param rules              The batch rules.
+     * @param shippingMasters    All shipping master rows.
+     * @param medicalTypeMasters All medicine type master rows.
+     * @return The compiled table.
+     */
+    static ShippingQuoteTable compile(BatchRules rules, List<ShippingMaster> shippingMasters,
+                                      List<MedicalTypeMaster> medicalTypeMasters) {
+        Map<String, Integer> typePositions = new HashMap<>();
+        for (MedicalTypeMaster medicalTypeMaster : medicalTypeMasters) {
+            typePositions.putIfAbsent(medicalTypeMaster.getMedicineTypeCode(), typePositions.size());
+        }
+        for (ShippingMaster shippingMaster : shippingMasters) {
+            if (shippingMaster.getMedicineTypeCode() != null) {
+                typePositions.putIfAbsent(shippingMaster.getMedicineTypeCode(), typePositions.size());
+            }
+        }
+        Map<String, Integer> bands = new HashMap<>();
+        for (int band = 0; band < rules.weightBandCount(); band++) {
+            bands.put(rules.weightRangeOf(band), band);
+        }
+
+        int bandCount = rules.weightBandCount();
+        double[] charges = new double[typePositions.size() * bandCount];
+        Arrays.fill(charges, Double.NaN);
+        for (ShippingMaster shippingMaster : shippingMasters) {
+            Integer band = bands.get(shippingMaster.getWeightRange());
+            if (band == null || shippingMaster.getMedicineTypeCode() == null) {
+                continue;
+            }
+            int slot = typePositions.get(shippingMaster.getMedicineTypeCode()) * bandCount + band;
+            if (Double.isNaN(charges[slot])) {
+                charges[slot] = shippingMaster.getShippingCharge();
+            }
+        }
+
+        String[] careLevels = new String[typePositions.size()];
+        byte[] careLevelStatuses = new byte[typePositions.size()];
+        Arrays.fill(careLevelStatuses, TYPE_NOT_FOUND);
+        for (MedicalTypeMaster medicalTypeMaster : medicalTypeMasters) {
+            int position = typePositions.get(medicalTypeMaster.getMedicineTypeCode());
+            careLevels[position] = rules.careLevel(medicalTypeMaster.getMedicineTypeName());
+            careLevelStatuses[position] = careLevels[position] != null ? CARE_LEVEL_FOUND : NO_CARE_LEVEL_RULE;
+        }
+        return new ShippingQuoteTable(rules, List.copyOf(shippingMasters), List.copyOf(medicalTypeMasters),
+                Map.copyOf(typePositions), charges, careLevels, careLevelStatuses);
+    }
+
+    /**
+     * Compiles the same rows against other rules.
+     * @param rules The new rules.
+     * @return The compiled table.
+     */
+    ShippingQuoteTable recompile(BatchRules rules) {
+        return compile(rules, shippingMasters, medicalTypeMasters);
+    }
+
+    /**
+     * Returns the rules the table was compiled against.
+     * @return The rules.
+     */
+    BatchRules getRules() {
+        return rules;
+    }
+
+    /**
+     * Returns the position of a medicine type code.
+     * @param medicineTypeCode The medicine type code.
+     * @return The position, or -1 if the code is in neither table.
+     */
+    int typePosition(String medicineTypeCode) {
+        Integer position = medicineTypeCode == null ? null : typePositions.get(medicineTypeCode);
+        return position == null ? -1 : position;
+    }
+
+    /**
+     * Returns the shipping charge of a type and weight band, before the refrigeration surcharge.
+     * @param typePosition The type position, or -1.
+     * @param band         The weight band.
+     * @return The shipping charge, or NaN if there is no shipping master row.
+     */
+    double charge(int typePosition, int band) {
+        return typePosition < 0 ? Double.NaN : charges[typePosition * bandCount + band];
+    }
+
+    /**
+     * Returns the care level status of a type.
+     * @param typePosition The type position, or -1.
+     * @return One of {@link #CARE_LEVEL_FOUND}, {@link #TYPE_NOT_FOUND} and {@link #NO_CARE_LEVEL_RULE}.
+     */
+    byte careLevelStatus(int typePosition) {
+        return typePosition < 0 ? TYPE_NOT_FOUND : careLevelStatuses[typePosition];
+    }
+
+    /**
+     * Returns the care level of a type.
+     * @param typePosition The type position, or -1.
+     * @return The care level, or null if its status is not {@link #CARE_LEVEL_FOUND}.
+     */
+    String careLevel(int typePosition) {
+        return typePosition < 0 ? null : careLevels[typePosition];
+    }
+}
@@ -0,0 +1,79 @@
+-- Baseline schema, as created by spring.jpa.hibernate.ddl-auto=update for the entities at this version.
+-- Databases created by ddl-auto are baselined at this version by spring.flyway.baseline-on-migrate.
+
+create table medicine (
+    medicine_code varchar(255) not null,
+    medicine_name varchar(255),
+    primary key (medicine_code)
+) engine=InnoDB;
+
+create table medical_type_master (
+    medicine_type_code varchar(255) not null,
+    medicine_type_name varchar(255),
+    primary key (medicine_type_code)
+) engine=InnoDB;
+
+create table shipping_master (
+    id bigint not null auto_increment,
+    medicine_type_code varchar(255),
+    weight_range varchar(255),
+    shipping_charge float(53) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table batch_info (
+    batch_code varchar(255) not null,
+    medicine_code varchar(255),
+    weight float(53) not null,
+    price float(53) not null,
+    medicine_type_code varchar(255),
+    shipping_charge float(53) not null,
+    care_level varchar(255),
+    refrigeration varchar(255),
+    primary key (batch_code)
+) engine=InnoDB;
+
+create index idx_batch_info_medicine_code on batch_info (medicine_code, batch_code);
+create index idx_batch_info_medicine_type_code on batch_info (medicine_type_code, batch_code);
+create index idx_batch_info_care_level on batch_info (care_level, batch_code);
+create index idx_batch_info_refrigeration on batch_info (refrigeration, batch_code);
+
+create table batch_stats (
+    medicine_type_code varchar(255) not null,
+    care_level varchar(255) not null,
+    refrigeration varchar(255) not null,
+    batch_count bigint not null,
+    total_weight float(53) not null,
+    total_price float(53) not null,
+    total_shipping_charge float(53) not null,
+    primary key (care_level, medicine_type_code, refrigeration)
+) engine=InnoDB;
+
+create table idempotency_record (
+    idempotency_key varchar(255) not null,
+    request_hash varchar(255),
+    status_code integer not null,
+    response_body varchar(1000),
+    expires_at datetime(6),
+    primary key (idempotency_key)
+) engine=InnoDB;
+
+create index idx_idempotency_record_expires_at on idempotency_record (expires_at);
+
+create table care_level_rule (
+    medicine_type_name varchar(255) not null,
+    care_level varchar(255),
+    primary key (medicine_type_name)
+) engine=InnoDB;
+
+create table weight_band (
+    weight_range varchar(255) not null,
+    max_weight float(53),
+    primary key (weight_range)
+) engine=InnoDB;
+
+create table refrigeration_surcharge (
+    refrigeration varchar(255) not null,
+    surcharge_rate float(53) not null,
+    primary key (refrigeration)
+) engine=InnoDB;
@@ -0,0 +1,7 @@
+-- Sequence of the blocks of server-allocated batch codes.
+
+create table batch_code_sequence (
+    name varchar(255) not null,
+    next_block bigint not null,
+    primary key (name)
+) engine=InnoDB;
@@ -0,0 +1,6 @@
+-- Creation time of the batches, which archival ages them out by.
+-- Batches inserted before this version get the time of the migration.
+
+alter table batch_info add column created_at datetime(6) not null default current_timestamp(6);
+
+create index idx_batch_info_created_at on batch_info (created_at, batch_code);
@@ -0,0 +1,17 @@
+-- Transactional outbox: events written with the batches they describe, and the delivery position of each sink.
+
+create table outbox_event (
+    id bigint not null auto_increment,
+    event_type varchar(32) not null,
+    batch_code varchar(255) not null,
+    payload varchar(1000) not null,
+    created_at datetime(6) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table outbox_cursor (
+    sink varchar(64) not null,
+    last_event_id bigint not null,
+    updated_at datetime(6),
+    primary key (sink)
+) engine=InnoDB;
@@ -0,0 +1,6 @@
+-- Batch codes of archived batches, which the duplicate checks keep rejecting once the batches leave batch_info.
+
+create table archived_batch_code (
+    batch_code varchar(255) not null,
+    primary key (batch_code)
+) engine=InnoDB;
@@ -0,0 +1,14 @@
+-- Counter of the next server-allocated batch code, replacing the block number of batch_code_sequence.
+-- Blocks were reserved as block number times the block size of the reserving node; the counter starts after the
+-- blocks reserved so far, assuming the block size of the node running this migration (pharma.batch-code.block-size).
+
+create table batch_code_counter (
+    name varchar(255) not null,
+    next_value bigint not null,
+    primary key (name)
+) engine=InnoDB;
+
+insert into batch_code_counter (name, next_value)
+select name, next_block * ${batch-code-block-size} from batch_code_sequence;
+
+drop table batch_code_sequence;
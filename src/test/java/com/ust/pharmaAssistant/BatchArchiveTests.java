@@ -0,0 +1,176 @@
+package com.ust.pharmaAssistant;
+
+import com.ust.pharmaAssistant.exception.PharmaBusinessException;
+import com.ust.pharmaAssistant.model.BatchInfo;
+import com.ust.pharmaAssistant.model.BatchResult;
+import com.ust.pharmaAssistant.model.BatchTotals;
+import com.ust.pharmaAssistant.model.MedicalTypeMaster;
+import com.ust.pharmaAssistant.model.Medicine;
+import com.ust.pharmaAssistant.model.ShippingMaster;
+import com.ust.pharmaAssistant.repository.BatchInfoRepository;
+import com.ust.pharmaAssistant.repository.MedicalTypeMasterRepository;
+import com.ust.pharmaAssistant.repository.MedicineRepository;
+import com.ust.pharmaAssistant.repository.ShippingMasterRepository;
+import com.ust.pharmaAssistant.service.BatchArchiveService;
+import com.ust.pharmaAssistant.service.BatchInfoService;
+import com.ust.pharmaAssistant.service.BatchStatsService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Archives batches from an embedded database and scans them back through the API.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:archive;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+		"pharma.archive.retention=30d",
+		"pharma.archive.chunk-size=3"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class BatchArchiveTests {
+
+	@TempDir
+	static Path archiveDir;
+
+	@DynamicPropertySource
+	static void archiveProperties(DynamicPropertyRegistry registry) {
+		registry.add("pharma.archive.dir", archiveDir::toString);
+	}
+
+	@Autowired
+	private BatchArchiveService batchArchiveService;
+
+	@Autowired
+	private BatchInfoRepository batchInfoRepository;
+
+	@Autowired
+	private BatchStatsService batchStatsService;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private BatchInfoService batchInfoService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private MedicineRepository medicineRepository;
+
+	@Autowired
+	private MedicalTypeMasterRepository medicalTypeMasterRepository;
+
+	@Autowired
+	private ShippingMasterRepository shippingMasterRepository;
+
+	// Helper method to create a batch inserted the given number of days ago
+	private static BatchInfo batch(String batchCode, long daysAgo) {
+		BatchInfo batchInfo = new BatchInfo(batchCode, "MED001", 600, 50, "T1");
+		batchInfo.setCareLevel("Normal");
+		batchInfo.setCreatedAt(Instant.now().minus(daysAgo, ChronoUnit.DAYS));
+		return batchInfo;
+	}
+
+	@Test
+	void archive_MovesOldBatchesToTheArchive() throws Exception {
+		// Arrange
+		List<BatchInfo> batchInfos = List.of(batch("BTC-8001", 100), batch("BTC-8002", 90), batch("BTC-8003", 80),
+				batch("BTC-8004", 70), batch("BTC-8005", 1));
+		transactionTemplate.executeWithoutResult(status -> {
+			batchInfoRepository.insertAll(batchInfos);
+			batchStatsService.recordInserted(batchInfos);
+		});
+
+		// Act
+		long archived = batchArchiveService.archive();
+
+		// Assert
+		assertEquals(4, archived);
+		assertFalse(batchInfoRepository.existsByBatchCode("BTC-8001"));
+		assertTrue(batchInfoRepository.existsByBatchCode("BTC-8005"));
+		assertEquals(1, batchStatsService.getTotals(List.of()).stream().mapToLong(BatchTotals::batchCount).sum());
+
+		Instant from = Instant.now().minus(85, ChronoUnit.DAYS);
+		MvcResult result = mockMvc.perform(get("/api/batch/archive").param("createdFrom", from.toString()))
+				.andReturn();
+		String body = mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		String[] lines = body.split("\n");
+		assertEquals(2, lines.length);
+		assertTrue(lines[0].contains("\"batchCode\":\"BTC-8003\""), lines[0]);
+		assertTrue(lines[1].contains("\"batchCode\":\"BTC-8004\""), lines[1]);
+	}
+
+	@Test
+	void createdAt_DefaultsToTheInsertTime() {
+		// Arrange: a row written without the column, as rows existing when ddl-auto adds it
+		jdbcTemplate.update("insert into batch_info (batch_code, medicine_code, weight, price, shipping_charge)"
+				+ " values ('BTC-8201', 'MED001', 600, 50, 20)");
+
+		// Act
+		long archived = batchArchiveService.archive();
+
+		// Assert: not taken for an infinitely old batch
+		assertEquals(0, archived);
+		Instant createdAt = batchInfoRepository.findById("BTC-8201").orElseThrow().getCreatedAt();
+		assertTrue(createdAt.isAfter(Instant.now().minus(1, ChronoUnit.HOURS)), createdAt.toString());
+	}
+
+	@Test
+	void archive_KeepsTheBatchCodesOfArchivedBatchesTaken() {
+		// Arrange
+		Medicine medicine = new Medicine();
+		medicine.setMedicineCode("MED001");
+		medicine.setMedicineName("Paracetamol");
+		medicineRepository.save(medicine);
+		medicalTypeMasterRepository.save(new MedicalTypeMaster("T1", "Tablets"));
+		ShippingMaster shippingMaster = new ShippingMaster();
+		shippingMaster.setMedicineTypeCode("T1");
+		shippingMaster.setWeightRange("W2");
+		shippingMaster.setShippingCharge(20);
+		shippingMasterRepository.save(shippingMaster);
+		List<BatchInfo> batchInfos = List.of(batch("BTC-8101", 100), batch("BTC-8102", 100));
+		transactionTemplate.executeWithoutResult(status -> batchInfoRepository.insertAll(batchInfos));
+		batchArchiveService.archive();
+
+		// Act and Assert: with a cold cache the code is checked with the master data, then after the insert
+		for (int attempt = 0; attempt < 2; attempt++) {
+			PharmaBusinessException exception = assertThrows(PharmaBusinessException.class,
+					() -> batchInfoService.addBatch(new BatchInfo("BTC-8101", "MED001", 600, 50, "T1")));
+			assertEquals(511, exception.getErrorCode());
+		}
+		List<BatchResult> results = batchInfoService.addBatches(List.of(new BatchInfo("BTC-8102", "MED001", 600, 50, "T1"),
+				new BatchInfo("BTC-8103", "MED001", 600, 50, "T1")));
+		assertEquals(511, results.get(0).getErrorCode());
+		assertEquals(BatchResult.ACCEPTED, results.get(1).getStatus());
+		assertFalse(batchInfoRepository.existsByBatchCode("BTC-8101"));
+	}
+}
@@ -0,0 +1,230 @@
+package com.ust.pharmaAssistant;
+
+import com.ust.pharmaAssistant.model.BatchAddedEvent;
+import com.ust.pharmaAssistant.model.BatchInfo;
+import com.ust.pharmaAssistant.model.OutboxEvent;
+import com.ust.pharmaAssistant.repository.BatchInfoRepository;
+import com.ust.pharmaAssistant.repository.OutboxEventRepository;
+import com.ust.pharmaAssistant.service.OutboxRelay;
+import com.ust.pharmaAssistant.service.OutboxService;
+import com.ust.pharmaAssistant.service.OutboxSink;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.event.EventListener;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Writes outbox events with inserted batches on an embedded database and relays them to the sinks.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:outbox;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+		"pharma.outbox.poll-interval=PT1H",
+		"pharma.outbox.batch-size=2",
+		"pharma.outbox.retry.initial-backoff=0s"
+})
+@ActiveProfiles("h2")
+class OutboxRelayTests {
+
+	@TempDir
+	static Path outboxDir;
+
+	@DynamicPropertySource
+	static void outboxProperties(DynamicPropertyRegistry registry) {
+		registry.add("pharma.outbox.file.path", () -> outboxDir.resolve("events.ndjson").toString());
+	}
+
+	@TestConfiguration
+	static class Sinks {
+
+		@Bean
+		FlakySink flakySink() {
+			return new FlakySink();
+		}
+
+		@Bean
+		BatchAddedListener batchAddedListener() {
+			return new BatchAddedListener();
+		}
+	}
+
+	// Sink that fails while told to, and records what it took otherwise
+	static class FlakySink implements OutboxSink {
+
+		private volatile boolean failing;
+
+		private final List<Long> eventIds = new CopyOnWriteArrayList<>();
+
+		@Override
+		public String name() {
+			return "flaky";
+		}
+
+		@Override
+		public void deliver(List<OutboxEvent> events) throws IOException {
+			if (failing) {
+				throw new IOException("Sink unavailable");
+			}
+			events.forEach(event -> eventIds.add(event.getId()));
+		}
+	}
+
+	// Listener of the in-process sink
+	static class BatchAddedListener {
+
+		private final List<BatchAddedEvent> events = new CopyOnWriteArrayList<>();
+
+		@EventListener
+		void onBatchAdded(BatchAddedEvent event) {
+			events.add(event);
+		}
+	}
+
+	@Autowired
+	private OutboxRelay outboxRelay;
+
+	@Autowired
+	private OutboxService outboxService;
+
+	@Autowired
+	private OutboxEventRepository outboxEventRepository;
+
+	@Autowired
+	private BatchInfoRepository batchInfoRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private FlakySink flakySink;
+
+	@Autowired
+	private BatchAddedListener batchAddedListener;
+
+	@BeforeEach
+	void drainOutbox() {
+		flakySink.failing = false;
+		outboxRelay.relay();
+		flakySink.eventIds.clear();
+		batchAddedListener.events.clear();
+	}
+
+	// Helper method to insert batches with their outbox events, as addBatches does
+	private void addBatches(String... batchCodes) {
+		List<BatchInfo> batchInfos = new ArrayList<>();
+		for (String batchCode : batchCodes) {
+			BatchInfo batchInfo = new BatchInfo(batchCode, "MED001", 600, 50, "T1");
+			batchInfo.setShippingCharge(21);
+			batchInfo.setCareLevel("Normal");
+			batchInfos.add(batchInfo);
+		}
+		transactionTemplate.executeWithoutResult(status -> {
+			batchInfoRepository.insertAll(batchInfos);
+			outboxService.recordAdded(batchInfos);
+		});
+	}
+
+	// Helper method to read the lines of the file sink
+	private List<String> fileLines() throws IOException {
+		Path file = outboxDir.resolve("events.ndjson");
+		return Files.exists(file) ? Files.readAllLines(file) : List.of();
+	}
+
+	private double lag(String sink) {
+		return meterRegistry.get("pharma.outbox.lag").tag("sink", sink).gauge().value();
+	}
+
+	@Test
+	void relay_DeliversAddedBatchesToEverySinkInOrder() throws Exception {
+		// Arrange
+		int linesBefore = fileLines().size();
+		addBatches("BTC-7001", "BTC-7002", "BTC-7003");
+
+		// Act
+		long delivered = outboxRelay.relay();
+
+		// Assert
+		assertEquals(9, delivered);
+		assertEquals(List.of("BTC-7001", "BTC-7002", "BTC-7003"),
+				batchAddedListener.events.stream().map(event -> event.batch().batchCode()).toList());
+		assertEquals(21, batchAddedListener.events.get(0).batch().shippingCharge(), 1e-9);
+		assertEquals(3, flakySink.eventIds.size());
+		List<String> lines = fileLines();
+		assertEquals(linesBefore + 3, lines.size());
+		assertTrue(lines.get(linesBefore).startsWith("{\"id\":" + flakySink.eventIds.get(0) + ",\"type\":\"BATCH_ADDED\""));
+		assertTrue(lines.get(linesBefore).contains("\"payload\":{\"batchCode\":\"BTC-7001\""));
+		assertEquals(0, outboxEventRepository.count());
+		assertEquals(0, lag("flaky"));
+	}
+
+	@Test
+	void relay_RetriesAFailingSinkFromItsCursor() {
+		// Arrange
+		addBatches("BTC-7011", "BTC-7012");
+		flakySink.failing = true;
+
+		// Act
+		outboxRelay.relay();
+
+		// Assert: the other sinks are not held up, and the events are kept for the failing one
+		assertEquals(2, batchAddedListener.events.size());
+		assertEquals(2, lag("flaky"));
+		assertEquals(2, outboxEventRepository.count());
+
+		// Act
+		flakySink.failing = false;
+		outboxRelay.relay();
+
+		// Assert
+		assertEquals(2, flakySink.eventIds.size());
+		assertEquals(2, batchAddedListener.events.size());
+		assertEquals(0, lag("flaky"));
+		assertEquals(0, outboxEventRepository.count());
+	}
+
+	@Test
+	void relay_WaitsAtAGapUntilItSettles() {
+		// Arrange: the first event stands for a transaction that has not committed yet
+		addBatches("BTC-7021", "BTC-7022");
+		List<OutboxEvent> events = outboxEventRepository.findAll();
+		transactionTemplate.executeWithoutResult(status -> outboxEventRepository.deleteById(events.get(0).getId()));
+
+		// Act
+		outboxRelay.relay();
+
+		// Assert
+		assertTrue(batchAddedListener.events.isEmpty());
+
+		// Act
+		OutboxEvent event = events.get(1);
+		event.setCreatedAt(Instant.now().minus(1, ChronoUnit.MINUTES));
+		transactionTemplate.executeWithoutResult(status -> outboxEventRepository.save(event));
+		outboxRelay.relay();
+
+		// Assert
+		assertEquals(List.of("BTC-7022"), batchAddedListener.events.stream().map(added -> added.batch().batchCode()).toList());
+	}
+}
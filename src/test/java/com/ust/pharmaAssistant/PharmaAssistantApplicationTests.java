@@ -2,8 +2,10 @@ package com.ust.pharmaAssistant;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
 
 @SpringBootTest
+@ActiveProfiles("h2")
 class PharmaAssistantApplicationTests {
 
 	@Test
@@ -0,0 +1,101 @@
+package com.ust.pharmaAssistant;
+
+import com.ust.pharmaAssistant.model.BatchInfo;
+import com.ust.pharmaAssistant.model.IdempotencyRecord;
+import com.ust.pharmaAssistant.model.IdempotentResponse;
+import com.ust.pharmaAssistant.repository.BatchInfoRepository;
+import com.ust.pharmaAssistant.repository.IdempotencyRecordRepository;
+import com.ust.pharmaAssistant.repository.MedicineRepository;
+import com.ust.pharmaAssistant.service.IdempotencyService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the application against two embedded databases, a primary and a replica that is not replicated to, and
+ * checks which of them each kind of query reads.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=" + ReplicaRoutingTests.PRIMARY_URL,
+		"pharma.datasource.replica.url=" + ReplicaRoutingTests.REPLICA_URL,
+		"pharma.datasource.replica.username=sa",
+		"pharma.datasource.replica.password="
+})
+@ActiveProfiles("h2")
+class ReplicaRoutingTests {
+
+	static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+	static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+	@Autowired
+	private MedicineRepository medicineRepository;
+
+	@Autowired
+	private BatchInfoRepository batchInfoRepository;
+
+	@Autowired
+	private IdempotencyRecordRepository idempotencyRecordRepository;
+
+	@Autowired
+	private IdempotencyService idempotencyService;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@BeforeAll
+	static void createReplicaSchema() {
+		DriverManagerDataSource replica = new DriverManagerDataSource(REPLICA_URL, "sa", "");
+		Flyway.configure().dataSource(replica).placeholders(Map.of("batch-code-block-size", "1000")).load().migrate();
+		new JdbcTemplate(replica).update("insert into medicine (medicine_code, medicine_name) values ('MED-R', 'Replica only')");
+	}
+
+	@Test
+	void readOnlyLookups_ReadTheReplica() {
+		assertTrue(medicineRepository.findById("MED-R").isPresent());
+	}
+
+	@Test
+	void duplicateCheck_ReadsThePrimary() {
+		batchInfoRepository.saveAndFlush(new BatchInfo("BTC-7001", "MED001", 600, 50, "T1"));
+
+		assertTrue(batchInfoRepository.existsByBatchCode("BTC-7001"));
+		assertFalse(batchInfoRepository.findById("BTC-7001").isPresent());
+	}
+
+	@Test
+	void idempotencyLookup_ReadsThePrimary() {
+		// Stored by the first request on another node, not replicated yet
+		idempotencyRecordRepository.saveAndFlush(new IdempotencyRecord("key-7002", "hash", 200, "Batch added",
+				Instant.now().plus(1, ChronoUnit.HOURS)));
+
+		IdempotentResponse response = idempotencyService.execute("key-7002", "hash", () -> {
+			throw new AssertionError("The request should be replayed, not run again");
+		});
+
+		assertEquals(200, response.status());
+		assertEquals("Batch added", response.body());
+		assertTrue(response.replayed());
+	}
+
+	@Test
+	void pools_PublishTheirOwnMetrics() {
+		assertNotNull(meterRegistry.find("hikaricp.connections").tag("pool", "primary").gauge());
+		assertNotNull(meterRegistry.find("hikaricp.connections").tag("pool", "replica").gauge());
+	}
+}
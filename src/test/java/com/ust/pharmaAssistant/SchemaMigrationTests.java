@@ -0,0 +1,64 @@
+package com.ust.pharmaAssistant;
+
+import com.ust.pharmaAssistant.model.BatchInfo;
+import com.ust.pharmaAssistant.repository.BatchInfoRepository;
+import com.ust.pharmaAssistant.service.BatchCodeAllocator;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Applies the schema migrations to an empty database and checks that they match the entities.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:migration;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+		"spring.flyway.enabled=true",
+		"spring.jpa.hibernate.ddl-auto=validate"
+})
+@ActiveProfiles("h2")
+class SchemaMigrationTests {
+
+	@Autowired
+	private BatchInfoRepository batchInfoRepository;
+
+	@Autowired
+	private BatchCodeAllocator batchCodeAllocator;
+
+	@Test
+	void migrationsMatchTheEntities() {
+	}
+
+	@Test
+	void batchCodeCounter_StartsAfterTheHighestStoredCode() {
+		batchInfoRepository.saveAndFlush(new BatchInfo("BTC-000000004999", "MED001", 600, 50, "T1"));
+
+		assertEquals("BTC-000000005000", batchCodeAllocator.allocate());
+	}
+
+	@Test
+	void batchCodeCounterMigration_StartsAfterTheReservedBlocks() {
+		// Arrange: three blocks of 500 codes reserved before the counter
+		DriverManagerDataSource dataSource = new DriverManagerDataSource(
+				"jdbc:h2:mem:counter-migration;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+		Map<String, String> placeholders = Map.of("batch-code-block-size", "500");
+		Flyway.configure().dataSource(dataSource).placeholders(placeholders).target("5").load().migrate();
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.update("insert into batch_code_sequence (name, next_block) values ('batch_code', 3)");
+
+		// Act
+		Flyway.configure().dataSource(dataSource).placeholders(placeholders).load().migrate();
+
+		// Assert
+		assertEquals(1500L, jdbcTemplate.queryForObject(
+				"select next_value from batch_code_counter where name = 'batch_code'", Long.class));
+	}
+
+}
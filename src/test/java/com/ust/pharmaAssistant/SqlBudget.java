@@ -0,0 +1,33 @@
+package com.ust.pharmaAssistant;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Fails a test that runs more SQL statements, or reads and changes more rows, than its budget.
+ * Statements are counted on the test thread from the start of the test method to its end, so setup in
+ * {@code @BeforeEach} methods is not counted, and neither is work done by other threads. Requests made with MockMvc
+ * run on the test thread and are counted.
+ * Catches N+1 queries and extra selects creeping into a code path.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+@ExtendWith(SqlBudgetExtension.class)
+public @interface SqlBudget {
+
+	/**
+	 * Maximum number of statements; a JDBC batch counts as one.
+	 */
+	long statements();
+
+	/**
+	 * Maximum number of rows read or changed, or -1 for no limit.
+	 */
+	long rows() default -1;
+}
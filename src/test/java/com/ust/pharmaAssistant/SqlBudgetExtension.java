@@ -0,0 +1,40 @@
+package com.ust.pharmaAssistant;
+
+import com.ust.pharmaAssistant.config.SqlStats;
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.opentest4j.AssertionFailedError;
+
+/**
+ * Enforces the {@link SqlBudget} of a test method by counting its statements in a {@link SqlStats} scope.
+ */
+class SqlBudgetExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+
+	/** Store namespace of the open scopes. */
+	private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(SqlBudgetExtension.class);
+
+	@Override
+	public void beforeTestExecution(ExtensionContext context) {
+		context.getStore(NAMESPACE).put(context.getUniqueId(), SqlStats.open());
+	}
+
+	@Override
+	public void afterTestExecution(ExtensionContext context) {
+		SqlStats.Scope scope = context.getStore(NAMESPACE).remove(context.getUniqueId(), SqlStats.Scope.class);
+		scope.close();
+		if (context.getExecutionException().isPresent()) {
+			return;
+		}
+		SqlBudget budget = AnnotationSupport.findAnnotation(context.getRequiredTestMethod(), SqlBudget.class).orElseThrow();
+		if (scope.getStatements() > budget.statements()) {
+			throw new AssertionFailedError("SQL statement budget exceeded: " + scope.getStatements() + " statements, budget "
+					+ budget.statements(), budget.statements(), scope.getStatements());
+		}
+		if (budget.rows() >= 0 && scope.getRows() > budget.rows()) {
+			throw new AssertionFailedError("SQL row budget exceeded: " + scope.getRows() + " rows, budget " + budget.rows(),
+					budget.rows(), scope.getRows());
+		}
+	}
+}
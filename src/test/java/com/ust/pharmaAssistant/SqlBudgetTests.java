@@ -0,0 +1,110 @@
+package com.ust.pharmaAssistant;
+
+import com.ust.pharmaAssistant.controller.SqlStatsHeaderAdvice;
+import com.ust.pharmaAssistant.model.MedicalTypeMaster;
+import com.ust.pharmaAssistant.model.Medicine;
+import com.ust.pharmaAssistant.model.ShippingMaster;
+import com.ust.pharmaAssistant.repository.MedicalTypeMasterRepository;
+import com.ust.pharmaAssistant.repository.MedicineRepository;
+import com.ust.pharmaAssistant.repository.ShippingMasterRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Holds the batch endpoints to their SQL statement budgets on an embedded database.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:budget;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+		"pharma.sql-stats.response-header=true",
+		"pharma.outbox.relay.enabled=false"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class SqlBudgetTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private MedicineRepository medicineRepository;
+
+	@Autowired
+	private MedicalTypeMasterRepository medicalTypeMasterRepository;
+
+	@Autowired
+	private ShippingMasterRepository shippingMasterRepository;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private static int sequence = 6000;
+
+	@BeforeEach
+	void seedMasterData() throws Exception {
+		if (medicineRepository.existsById("MED001")) {
+			return;
+		}
+		Medicine medicine = new Medicine();
+		medicine.setMedicineCode("MED001");
+		medicine.setMedicineName("Paracetamol");
+		medicineRepository.save(medicine);
+		medicalTypeMasterRepository.save(new MedicalTypeMaster("T1", "Tablets"));
+		ShippingMaster shippingMaster = new ShippingMaster();
+		shippingMaster.setMedicineTypeCode("T1");
+		shippingMaster.setWeightRange("W2");
+		shippingMaster.setShippingCharge(20);
+		shippingMasterRepository.save(shippingMaster);
+		// Fill the reference data cache, as production traffic does
+		addBatch().andExpect(status().isOk());
+	}
+
+	// Helper method to add a batch with a new batch code
+	private ResultActions addBatch() throws Exception {
+		String body = "{\"batchCode\":\"BTC-" + sequence++ + "\",\"medicineCode\":\"MED001\",\"weight\":600,"
+				+ "\"price\":25.5,\"medicineTypeCode\":\"T1\",\"refrigeration\":\"Yes\"}";
+		return mockMvc.perform(post("/api/batch/add").contentType(MediaType.APPLICATION_JSON).content(body));
+	}
+
+	@Test
+	@SqlBudget(statements = 4)
+	void addBatch_InsertsTheBatchItsTotalsAndItsOutboxEvent() throws Exception {
+		// The fourth statement looks the batch code up among the archived ones by primary key
+		addBatch().andExpect(status().isOk())
+				.andExpect(header().string(SqlStatsHeaderAdvice.HEADER, startsWith("statements=4, ")));
+	}
+
+	@Test
+	@SqlBudget(statements = 0, rows = 0)
+	void getBatch_IsServedFromTheCache() throws Exception {
+		mockMvc.perform(get("/api/batch/BTC-6000")).andExpect(status().isOk());
+	}
+
+	@Test
+	@SqlBudget(statements = 4)
+	void addBatch_RecordsTheStatementsOfTheRequest() throws Exception {
+		// Arrange
+		long before = meterRegistry.find("pharma.sql.statements").tag("uri", "/api/batch/add").summaries().stream()
+				.mapToLong(summary -> summary.count()).sum();
+
+		// Act
+		addBatch().andExpect(status().isOk());
+
+		// Assert
+		assertEquals(before + 1, meterRegistry.get("pharma.sql.statements").tag("uri", "/api/batch/add").summary().count());
+	}
+}
@@ -0,0 +1,144 @@
+package com.ust.pharmaAssistant.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ust.pharmaAssistant.config.MessageSourceConfig;
+import com.ust.pharmaAssistant.exception.PharmaExceptionHandler;
+import com.ust.pharmaAssistant.model.BatchInfo;
+import com.ust.pharmaAssistant.repository.BatchInfoRepository;
+import com.ust.pharmaAssistant.service.BatchReadCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class BatchInfoControllerTest {
+
+    @Mock
+    private BatchInfoRepository batchInfoRepository;
+
+    @InjectMocks
+    private BatchInfoController batchInfoController;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(batchInfoController, "batchReadCache",
+                new BatchReadCache(batchInfoRepository, new ObjectMapper(), 100, Duration.ofHours(1)));
+        PharmaExceptionHandler pharmaExceptionHandler = new PharmaExceptionHandler();
+        ReflectionTestUtils.setField(pharmaExceptionHandler, "messageSource", new MessageSourceConfig().messageSource());
+        mockMvc = MockMvcBuilders.standaloneSetup(batchInfoController)
+                .setControllerAdvice(pharmaExceptionHandler)
+                .build();
+    }
+
+    // Helper method to create a stored batch
+    private static BatchInfo batch(String batchCode) {
+        BatchInfo batchInfo = new BatchInfo(batchCode, "MED001", 600, 25.5, "T1");
+        batchInfo.setShippingCharge(21);
+        batchInfo.setCareLevel("Normal");
+        return batchInfo;
+    }
+
+    // Helper method to read a batch and return its ETag
+    private String getETag(String batchCode) throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/batch/" + batchCode))
+                .andExpect(status().isOk())
+                .andReturn();
+        return result.getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    @Test
+    void getBatch_ReturnsTheBatchWithAnETag() throws Exception {
+        // Arrange
+        when(batchInfoRepository.findById("BTC-0001")).thenReturn(Optional.of(batch("BTC-0001")));
+
+        // Act and Assert
+        mockMvc.perform(get("/api/batch/BTC-0001"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, matchesPattern("\"[0-9a-f]{32}\"")))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andExpect(jsonPath("$.batchCode").value("BTC-0001"))
+                .andExpect(jsonPath("$.careLevel").value("Normal"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"%s", "W/%s", "\"0123\", %s", "\"0123\",W/%s ", "*"})
+    void getBatch_WhenTheClientHasTheBatch_ReturnsNotModifiedWithoutBody(String ifNoneMatch) throws Exception {
+        // Arrange
+        when(batchInfoRepository.findById("BTC-0001")).thenReturn(Optional.of(batch("BTC-0001")));
+        String etag = getETag("BTC-0001");
+
+        // Act and Assert
+        mockMvc.perform(get("/api/batch/BTC-0001").header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch.replace("%s", etag)))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andExpect(content().bytes(new byte[0]));
+        // The second read is served from the cache
+        verify(batchInfoRepository, times(1)).findById("BTC-0001");
+    }
+
+    @Test
+    void getBatch_WhenTheClientHasAnOlderVersion_ReturnsTheBatch() throws Exception {
+        // Arrange
+        when(batchInfoRepository.findById("BTC-0001")).thenReturn(Optional.of(batch("BTC-0001")));
+
+        // Act and Assert
+        mockMvc.perform(get("/api/batch/BTC-0001").header(HttpHeaders.IF_NONE_MATCH, "\"0123\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.batchCode").value("BTC-0001"));
+    }
+
+    @Test
+    void getBatch_UnknownBatch_ReturnsNotFoundWithoutCachingTheMiss() throws Exception {
+        // Arrange
+        when(batchInfoRepository.findById("BTC-0002")).thenReturn(Optional.empty());
+
+        // Act and Assert
+        mockMvc.perform(get("/api/batch/BTC-0002"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.code").value(404));
+
+        // Once the batch is added, it is found
+        when(batchInfoRepository.findById("BTC-0002")).thenReturn(Optional.of(batch("BTC-0002")));
+        mockMvc.perform(get("/api/batch/BTC-0002"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.batchCode").value("BTC-0002"));
+    }
+
+    @Test
+    void matchesETag_ComparesEachTagOfTheList() {
+        assertTrue(BatchInfoController.matchesETag("\"abc\"", "\"abc\""));
+        assertTrue(BatchInfoController.matchesETag("W/\"abc\"", "\"abc\""));
+        assertTrue(BatchInfoController.matchesETag("\"x\" , W/\"abc\"", "\"abc\""));
+        assertTrue(BatchInfoController.matchesETag("*", "\"abc\""));
+        assertFalse(BatchInfoController.matchesETag("\"abd\"", "\"abc\""));
+        assertFalse(BatchInfoController.matchesETag("abc", "\"abc\""));
+        assertFalse(BatchInfoController.matchesETag("", "\"abc\""));
+    }
+}
@@ -0,0 +1,95 @@
+package com.ust.pharmaAssistant.exception;
+
+import com.ust.pharmaAssistant.config.MessageSourceConfig;
+import com.ust.pharmaAssistant.model.ErrorResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.bind.MissingServletRequestParameterException;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PharmaExceptionHandlerTest {
+
+    private PharmaExceptionHandler pharmaExceptionHandler;
+
+    @BeforeEach
+    void setUp() {
+        pharmaExceptionHandler = new PharmaExceptionHandler();
+        ReflectionTestUtils.setField(pharmaExceptionHandler, "messageSource", new MessageSourceConfig().messageSource());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "510, 400",
+            "511, 409",
+            "512, 400",
+            "513, 400",
+            "514, 422",
+            "515, 422",
+            "516, 400",
+            "400, 400",
+            "503, 503",
+            "500, 500",
+            "700, 500"
+    })
+    void getHttpStatus_MapsBusinessErrorsToClientErrors(int errorCode, int expectedStatus) {
+        assertEquals(expectedStatus, new PharmaBusinessException(errorCode, "Error").getHttpStatus());
+    }
+
+    @Test
+    void handleBusinessException_DescribesTheErrorCode() {
+        // Act
+        ResponseEntity<ErrorResponse> response = pharmaExceptionHandler.handleBusinessException(
+                new PharmaBusinessException(513, "Batch code is required"), Locale.ENGLISH);
+
+        // Assert
+        assertEquals(400, response.getStatusCode().value());
+        assertEquals(new ErrorResponse(400, 513, "Batch format wrong. It should be in the format 'BTC-1234'",
+                "Batch code is required"), response.getBody());
+    }
+
+    @Test
+    void handleBusinessException_WithoutDescription_UsesTheMessage() {
+        // Act
+        ResponseEntity<ErrorResponse> response = pharmaExceptionHandler.handleBusinessException(
+                new PharmaBusinessException(400, "Page size should be between 1 and 500"), Locale.ENGLISH);
+
+        // Assert
+        assertEquals(new ErrorResponse(400, 400, "Page size should be between 1 and 500",
+                "Page size should be between 1 and 500"), response.getBody());
+    }
+
+    @Test
+    void handleUnexpectedException_ReturnsAGeneralErrorWithoutTheMessage() throws Exception {
+        // Act
+        ResponseEntity<ErrorResponse> response = pharmaExceptionHandler.handleUnexpectedException(
+                new IllegalStateException("Connection refused"), Locale.ENGLISH);
+
+        // Assert
+        assertEquals(500, response.getStatusCode().value());
+        assertEquals(new ErrorResponse(500, 500, "General system Error", "General system Error"), response.getBody());
+    }
+
+    @Test
+    void handleUnexpectedException_RethrowsExceptionsSpringMapsToAStatus() {
+        // Arrange
+        MissingServletRequestParameterException missingParameter = new MissingServletRequestParameterException("file", "MultipartFile");
+
+        // Act and Assert
+        assertSame(missingParameter, assertThrows(MissingServletRequestParameterException.class,
+                () -> pharmaExceptionHandler.handleUnexpectedException(missingParameter, Locale.ENGLISH)));
+    }
+
+    @Test
+    void pharmaBusinessException_HasNoStackTrace() {
+        assertEquals(0, new PharmaBusinessException(511, "Batch Code already exists").getStackTrace().length);
+    }
+}
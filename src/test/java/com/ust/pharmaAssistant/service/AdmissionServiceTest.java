@@ -0,0 +1,89 @@
+package com.ust.pharmaAssistant.service;
+
+import com.ust.pharmaAssistant.config.AdmissionProperties;
+import com.ust.pharmaAssistant.exception.AdmissionRejectedException;
+import com.ust.pharmaAssistant.exception.PharmaBusinessException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionServiceTest {
+
+    private AdmissionProperties properties;
+
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        properties = new AdmissionProperties();
+        properties.setInitialLimit(2);
+        properties.setMinLimit(1);
+        properties.setLatencyThreshold(Duration.ofSeconds(10));
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void execute_OverTheLimit_ShouldShedWithRetryAfter() {
+        // Arrange
+        properties.setInitialLimit(1);
+        AdmissionService admissionService = new AdmissionService(properties, registry, null);
+
+        // Act
+        AdmissionRejectedException exception = assertThrows(AdmissionRejectedException.class,
+                () -> admissionService.execute(() -> admissionService.execute(() -> "inner")));
+
+        // Assert
+        assertEquals(429, exception.getHttpStatus());
+        assertEquals(1, exception.getRetryAfterSeconds());
+        assertEquals(1.0, registry.get("pharma.admission.shed").tag("reason", "limit").counter().count());
+        assertEquals(0, admissionService.getInFlight());
+    }
+
+    @Test
+    void execute_FastWrites_ShouldGrowTheLimit() {
+        // Arrange
+        AdmissionService admissionService = new AdmissionService(properties, registry, null);
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            admissionService.execute(() -> "written");
+        }
+
+        // Assert
+        assertTrue(admissionService.getLimit() > 2);
+    }
+
+    @Test
+    void execute_SlowOrFailedWrites_ShouldShrinkTheLimit() {
+        // Arrange
+        properties.setInitialLimit(10);
+        properties.setLatencyThreshold(Duration.ZERO);
+        AdmissionService admissionService = new AdmissionService(properties, registry, null);
+
+        // Act
+        admissionService.execute(() -> "slow");
+        assertThrows(PharmaBusinessException.class, () -> admissionService.execute(() -> {
+            throw new PharmaBusinessException(500, "General system Error");
+        }));
+
+        // Assert
+        assertEquals(10 * 0.9 * 0.9, admissionService.getLimit(), 0.0001);
+    }
+
+    @Test
+    void execute_Disabled_ShouldNotShed() {
+        // Arrange
+        properties.setEnabled(false);
+        properties.setInitialLimit(1);
+        AdmissionService admissionService = new AdmissionService(properties, registry, null);
+
+        // Act & Assert
+        assertEquals("inner", admissionService.execute(() -> admissionService.execute(() -> "inner")));
+    }
+}
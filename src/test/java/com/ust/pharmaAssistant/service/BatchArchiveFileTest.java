@@ -0,0 +1,98 @@
+package com.ust.pharmaAssistant.service;
+
+import com.ust.pharmaAssistant.model.BatchFilter;
+import com.ust.pharmaAssistant.model.BatchInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchArchiveFileTest {
+
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00.123456Z");
+
+    @TempDir
+    private Path directory;
+
+    // Helper method to create archived batches, one hour apart
+    private List<BatchInfo> batches(int count) {
+        List<BatchInfo> batchInfos = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            BatchInfo batchInfo = new BatchInfo(String.format("BTC-%04d", i), "MED00" + (i % 3), 100 + i * 10, 20 + i,
+                    i % 2 == 0 ? "T1" : "T2");
+            batchInfo.setShippingCharge(5 + i);
+            batchInfo.setCareLevel(i % 2 == 0 ? "Normal" : null);
+            batchInfo.setCreatedAt(START.plusSeconds(3600L * i));
+            batchInfos.add(batchInfo);
+        }
+        return batchInfos;
+    }
+
+    // Helper method to scan a file into a list
+    private List<BatchInfo> scan(Path file, BatchFilter filter) throws IOException {
+        List<BatchInfo> result = new ArrayList<>();
+        int matched = BatchArchiveFile.scan(file, filter, result::add);
+        assertEquals(result.size(), matched);
+        return result;
+    }
+
+    @Test
+    void scan_WithoutFilter_ReturnsTheArchivedBatches() throws IOException {
+        // Arrange
+        List<BatchInfo> batchInfos = batches(100);
+        Path file = directory.resolve("batches" + BatchArchiveFile.EXTENSION);
+
+        // Act
+        BatchArchiveFile.write(file, batchInfos);
+        List<BatchInfo> scanned = scan(file, new BatchFilter());
+
+        // Assert
+        assertEquals(batchInfos, scanned);
+        for (int i = 0; i < batchInfos.size(); i++) {
+            assertEquals(batchInfos.get(i).getCreatedAt(), scanned.get(i).getCreatedAt());
+        }
+        assertTrue(Files.list(directory).allMatch(path -> path.equals(file)), "no temporary file is left");
+    }
+
+    @Test
+    void scan_WithFilter_ReturnsOnlyMatchingBatches() throws IOException {
+        // Arrange
+        Path file = directory.resolve("batches" + BatchArchiveFile.EXTENSION);
+        BatchArchiveFile.write(file, batches(100));
+        BatchFilter filter = new BatchFilter();
+        filter.setMedicineTypeCode("T1");
+        filter.setMedicineCode("MED000");
+        filter.setMinWeight(200.0);
+        filter.setCreatedTo(START.plusSeconds(3600L * 50));
+
+        // Act
+        List<BatchInfo> scanned = scan(file, filter);
+
+        // Assert (even rows, multiples of 3, weight >= 200 from row 10, before row 50)
+        assertEquals(List.of("BTC-0012", "BTC-0018", "BTC-0024", "BTC-0030", "BTC-0036", "BTC-0042", "BTC-0048"),
+                scanned.stream().map(BatchInfo::getBatchCode).toList());
+    }
+
+    @Test
+    void scan_WithValuesOutsideTheFile_ReturnsNothing() throws IOException {
+        // Arrange
+        Path file = directory.resolve("batches" + BatchArchiveFile.EXTENSION);
+        BatchArchiveFile.write(file, batches(10));
+        BatchFilter unknownCode = new BatchFilter();
+        unknownCode.setMedicineCode("MED999");
+        BatchFilter later = new BatchFilter();
+        later.setCreatedFrom(START.plusSeconds(3600L * 10));
+
+        // Act and Assert
+        assertTrue(scan(file, unknownCode).isEmpty());
+        assertTrue(scan(file, later).isEmpty());
+    }
+}
@@ -0,0 +1,132 @@
+package com.ust.pharmaAssistant.service;
+
+import com.ust.pharmaAssistant.model.BatchCodeCounter;
+import com.ust.pharmaAssistant.repository.BatchCodeCounterRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BatchCodeAllocatorTest {
+
+    // Helper method to create a repository backed by an in-memory counter, which does not exist while it is -1
+    private BatchCodeCounterRepository counterRepository(AtomicLong nextValue, String highestAllocatedBatchCode) {
+        BatchCodeCounterRepository repository = mock(BatchCodeCounterRepository.class);
+        // Each node reads back its own advance, as the row lock does in the database
+        ThreadLocal<Long> advanced = new ThreadLocal<>();
+        when(repository.advanceNextValue(eq(BatchCodeAllocator.COUNTER_NAME), anyLong())).thenAnswer(invocation -> {
+            synchronized (nextValue) {
+                if (nextValue.get() < 0) {
+                    return 0;
+                }
+                advanced.set(nextValue.addAndGet(invocation.getArgument(1)));
+                return 1;
+            }
+        });
+        when(repository.create(eq(BatchCodeAllocator.COUNTER_NAME), anyLong())).thenAnswer(invocation -> {
+            synchronized (nextValue) {
+                nextValue.set(invocation.getArgument(1));
+                return 1;
+            }
+        });
+        when(repository.findById(BatchCodeAllocator.COUNTER_NAME)).thenAnswer(invocation ->
+                Optional.of(new BatchCodeCounter(BatchCodeAllocator.COUNTER_NAME, advanced.get())));
+        when(repository.findHighestAllocatedBatchCode()).thenReturn(highestAllocatedBatchCode);
+        return repository;
+    }
+
+    @Test
+    void allocate_HandsOutConsecutiveCodesAndReservesTheNextBlock() {
+        // Arrange
+        AtomicLong nextValue = new AtomicLong(-1);
+        BatchCodeCounterRepository repository = counterRepository(nextValue, null);
+        BatchCodeAllocator allocator = new BatchCodeAllocator(repository, mock(PlatformTransactionManager.class), 2);
+
+        // Act
+        List<String> codes = List.of(allocator.allocate(), allocator.allocate(), allocator.allocate());
+
+        // Assert
+        assertEquals(List.of("BTC-000000000000", "BTC-000000000001", "BTC-000000000002"), codes);
+        verify(repository, times(1)).create(BatchCodeAllocator.COUNTER_NAME, 2);
+        assertEquals(4, nextValue.get());
+    }
+
+    @Test
+    void allocate_FromManyThreads_NeverRepeatsACode() throws Exception {
+        // Arrange
+        BatchCodeAllocator allocator = new BatchCodeAllocator(counterRepository(new AtomicLong(-1), null),
+                mock(PlatformTransactionManager.class), 10);
+        Set<String> codes = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // Act
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < 500; j++) {
+                    assertTrue(codes.add(allocator.allocate()));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // Assert
+        assertEquals(4000, codes.size());
+    }
+
+    @Test
+    void allocate_WithDifferentBlockSizesPerNode_NeverRepeatsACode() {
+        // Arrange: two nodes sharing one counter, configured with different block sizes
+        BatchCodeCounterRepository repository = counterRepository(new AtomicLong(-1), null);
+        BatchCodeAllocator small = new BatchCodeAllocator(repository, mock(PlatformTransactionManager.class), 3);
+        BatchCodeAllocator large = new BatchCodeAllocator(repository, mock(PlatformTransactionManager.class), 10);
+        Set<String> codes = new HashSet<>();
+
+        // Act
+        for (int i = 0; i < 100; i++) {
+            assertTrue(codes.add(small.allocate()));
+            assertTrue(codes.add(large.allocate()));
+        }
+
+        // Assert: the blocks are adjacent ranges of the counter
+        assertEquals(200, codes.size());
+        assertTrue(codes.contains("BTC-000000000000"));
+    }
+
+    @Test
+    void allocate_NewCounter_StartsAfterTheHighestStoredCode() {
+        // Arrange
+        BatchCodeAllocator allocator = new BatchCodeAllocator(counterRepository(new AtomicLong(-1), "BTC-000000004999"),
+                mock(PlatformTransactionManager.class), 10);
+
+        // Act and Assert
+        assertEquals("BTC-000000005000", allocator.allocate());
+    }
+
+    @Test
+    void format_PadsTheCodeToTwelveDigits() {
+        assertEquals("BTC-000000001234", BatchCodeAllocator.format(1234));
+        assertTrue(BatchInfoValidator.isValidAllocatedBatchCode(BatchCodeAllocator.format(999_999_999_999L)));
+    }
+}
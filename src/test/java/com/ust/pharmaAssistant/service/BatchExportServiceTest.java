@@ -0,0 +1,130 @@
+package com.ust.pharmaAssistant.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ust.pharmaAssistant.service.BatchExportService.ExportFormat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchExportServiceTest {
+
+    private BatchExportService batchExportService;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:export;MODE=MySQL;DB_CLOSE_DELAY=-1"));
+        jdbcTemplate.execute("create table batch_info (batch_code varchar(255) primary key, medicine_code varchar(255),"
+                + " weight double, price double, medicine_type_code varchar(255), shipping_charge double,"
+                + " care_level varchar(255), refrigeration varchar(255))");
+        String insert = "insert into batch_info values (?, ?, ?, ?, ?, ?, ?, ?)";
+        jdbcTemplate.update(insert, "BTC-0001", "MED,001", 600.0, 25.5, "T1", 21.0, "Say \"High\"", "Yes");
+        jdbcTemplate.update(insert, "BTC-0002", "MED002", 150.0, 10.0, null, 0.0, "line one\nline two\r\nthree", null);
+        jdbcTemplate.update(insert, "BTC-0003", "MED003", 300.0, 12.25, "T2", 8.5, "Normal", "No");
+
+        batchExportService = new BatchExportService();
+        ReflectionTestUtils.setField(batchExportService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(batchExportService, "fetchSize", 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("drop table batch_info");
+    }
+
+    // Helper method to export the table and return the text written, unzipped if needed
+    private String export(ExportFormat format, boolean gzip) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        assertEquals(3, batchExportService.export(outputStream, format, gzip));
+        byte[] bytes = outputStream.toByteArray();
+        if (gzip) {
+            try (GZIPInputStream gzipStream = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+                bytes = gzipStream.readAllBytes();
+            }
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Helper method to parse CSV records, with quoted fields that may hold separators, quotes and line breaks
+    private static List<List<String>> parseCsv(String csv) {
+        List<List<String>> records = new ArrayList<>();
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < csv.length(); i++) {
+            char c = csv.charAt(i);
+            if (quoted && c == '"' && i + 1 < csv.length() && csv.charAt(i + 1) == '"') {
+                field.append('"');
+                i++;
+            } else if (c == '"') {
+                quoted = !quoted;
+            } else if (!quoted && c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (!quoted && c == '\n') {
+                fields.add(field.toString());
+                field.setLength(0);
+                records.add(fields);
+                fields = new ArrayList<>();
+            } else {
+                field.append(c);
+            }
+        }
+        return records;
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void export_Csv_RoundTripsSeparatorsQuotesLineBreaksAndNulls(boolean gzip) throws IOException {
+        // Act
+        List<List<String>> records = parseCsv(export(ExportFormat.CSV, gzip));
+
+        // Assert
+        assertEquals(4, records.size());
+        assertEquals(List.of("batchCode", "medicineCode", "weight", "price", "medicineTypeCode",
+                "shippingCharge", "careLevel", "refrigeration"), records.get(0));
+        assertEquals(List.of("BTC-0001", "MED,001", "600.0", "25.5", "T1", "21.0", "Say \"High\"", "Yes"), records.get(1));
+        // Nulls are written as empty fields
+        assertEquals(List.of("BTC-0002", "MED002", "150.0", "10.0", "", "0.0", "line one\nline two\r\nthree", ""), records.get(2));
+        assertEquals(List.of("BTC-0003", "MED003", "300.0", "12.25", "T2", "8.5", "Normal", "No"), records.get(3));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void export_Ndjson_RoundTripsSeparatorsQuotesLineBreaksAndNulls(boolean gzip) throws IOException {
+        // Act
+        String ndjson = export(ExportFormat.NDJSON, gzip);
+
+        // Assert: one object per line
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<JsonNode> rows = new ArrayList<>();
+        for (String line : ndjson.split("\n")) {
+            rows.add(objectMapper.readTree(line));
+        }
+        assertEquals(3, rows.size());
+        assertEquals("MED,001", rows.get(0).get("medicineCode").asText());
+        assertEquals("Say \"High\"", rows.get(0).get("careLevel").asText());
+        assertEquals(600.0, rows.get(0).get("weight").asDouble());
+        assertEquals("line one\nline two\r\nthree", rows.get(1).get("careLevel").asText());
+        assertTrue(rows.get(1).get("medicineTypeCode").isNull());
+        assertTrue(rows.get(1).get("refrigeration").isNull());
+        assertEquals(12.25, rows.get(2).get("price").asDouble());
+    }
+}
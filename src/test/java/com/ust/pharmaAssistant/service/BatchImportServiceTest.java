@@ -0,0 +1,248 @@
+package com.ust.pharmaAssistant.service;
+
+import com.ust.pharmaAssistant.exception.PharmaBusinessException;
+import com.ust.pharmaAssistant.model.BatchInfo;
+import com.ust.pharmaAssistant.model.BatchResult;
+import com.ust.pharmaAssistant.model.ImportJobStatus;
+import com.ust.pharmaAssistant.model.ImportLineError;
+import com.ust.pharmaAssistant.service.BatchMetrics.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BatchImportServiceTest {
+
+    private static final String HEADER = String.join(",", BatchImportService.REQUIRED_COLUMNS);
+
+    @Mock
+    private BatchInfoService batchInfoService;
+
+    @InjectMocks
+    private BatchImportService batchImportService;
+
+    /** First batch code of each chunk, in the order the writer inserted them. */
+    private final List<String> insertedChunks = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(batchImportService, "chunkSize", 2);
+        ReflectionTestUtils.setField(batchImportService, "workers", 2);
+        ReflectionTestUtils.setField(batchImportService, "concurrentJobs", 1);
+        ReflectionTestUtils.setField(batchImportService, "maxErrors", 10);
+        ReflectionTestUtils.setField(batchImportService, "retention", Duration.ofHours(1));
+
+        // Validation rejects batch codes starting with BAD; the first chunk is slow so later chunks overtake it
+        when(batchInfoService.validateBatches(anyList(), eq(Path.IMPORT))).thenAnswer(invocation -> {
+            List<BatchInfo> rows = invocation.getArgument(0);
+            BatchChunk chunk = new BatchChunk(rows);
+            for (int i = 0; i < chunk.size(); i++) {
+                String batchCode = rows.get(i).getBatchCode();
+                if (batchCode.startsWith("BAD")) {
+                    chunk.getResults()[i] = BatchResult.rejected(batchCode, 400, "Invalid batch code");
+                } else {
+                    chunk.getValid()[i] = true;
+                }
+            }
+            if ("BTC-0001".equals(rows.get(0).getBatchCode())) {
+                Thread.sleep(100);
+            }
+            return chunk;
+        });
+        // BTC-0003 is already stored
+        doAnswer(invocation -> {
+            BatchChunk chunk = invocation.getArgument(0);
+            for (int i = 0; i < chunk.size(); i++) {
+                if (chunk.isPending(i) && "BTC-0003".equals(chunk.getBatchInfos().get(i).getBatchCode())) {
+                    chunk.getResults()[i] = BatchResult.rejected("BTC-0003", 511, "Duplicate batch code");
+                }
+            }
+            return null;
+        }).when(batchInfoService).rejectExistingBatches(any(), eq(Path.IMPORT));
+        doAnswer(invocation -> {
+            BatchChunk chunk = invocation.getArgument(0);
+            insertedChunks.add(chunk.getBatchInfos().get(0).getBatchCode());
+            for (int i = 0; i < chunk.size(); i++) {
+                if (chunk.isPending(i)) {
+                    chunk.getResults()[i] = BatchResult.accepted(chunk.getBatchInfos().get(i));
+                }
+            }
+            return null;
+        }).when(batchInfoService).insertBatches(any(), eq(Path.IMPORT));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (ReflectionTestUtils.getField(batchImportService, "jobPool") != null) {
+            batchImportService.stop();
+        }
+    }
+
+    // Helper method to build a manifest line
+    private static String line(String batchCode) {
+        return batchCode + ",MED001,600,25.5,T1,No";
+    }
+
+    // Helper method to upload a manifest
+    private ImportJobStatus upload(String... lines) throws Exception {
+        String manifest = HEADER + "\n" + String.join("\n", lines) + "\n";
+        return batchImportService.startImport(new MockMultipartFile("file", "manifest.csv", "text/csv",
+                manifest.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // Helper method to wait for a job to finish
+    private ImportJobStatus awaitFinished(String jobId) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (System.nanoTime() < deadline) {
+            ImportJobStatus status = batchImportService.findJob(jobId).orElseThrow();
+            if (BatchImportService.State.COMPLETED.name().equals(status.state())
+                    || BatchImportService.State.FAILED.name().equals(status.state())) {
+                return status;
+            }
+            Thread.sleep(5);
+        }
+        return fail("Import " + jobId + " did not finish");
+    }
+
+    @Test
+    void startImport_MultipleChunks_ShouldInsertInFileOrderAndReportRejectedLines() throws Exception {
+        // Arrange
+        batchImportService.start();
+
+        // Act: chunks are [0001, 0002], [0003, BAD-0005], [0006, 0007]; line 4 cannot be parsed
+        ImportJobStatus queued = upload(line("BTC-0001"), line("BTC-0002"), "BTC-0004,MED001,heavy,25.5,T1,No",
+                line("BTC-0003"), line("BAD-0005"), "", line("BTC-0006"), line("BTC-0007"));
+        ImportJobStatus status = awaitFinished(queued.jobId());
+
+        // Assert
+        assertEquals(BatchImportService.State.COMPLETED.name(), status.state());
+        assertNull(status.failure());
+        assertEquals(7, status.linesRead());
+        assertEquals(4, status.accepted());
+        assertEquals(3, status.rejected());
+        assertEquals(List.of(
+                new ImportLineError(4, null, 400, "Column weight is not a number"),
+                new ImportLineError(5, "BTC-0003", 511, "Duplicate batch code"),
+                new ImportLineError(6, "BAD-0005", 400, "Invalid batch code")), status.errors());
+        assertEquals(List.of("BTC-0001", "BTC-0003", "BTC-0006"), insertedChunks);
+        verify(batchInfoService, times(3)).recordResults(any());
+    }
+
+    @Test
+    void startImport_WhenWriterFails_ShouldFailJobAndSkipLaterChunks() throws Exception {
+        // Arrange
+        doAnswer(invocation -> {
+            BatchChunk chunk = invocation.getArgument(0);
+            insertedChunks.add(chunk.getBatchInfos().get(0).getBatchCode());
+            if ("BTC-0003".equals(chunk.getBatchInfos().get(0).getBatchCode())) {
+                throw new IllegalStateException("Connection lost");
+            }
+            for (int i = 0; i < chunk.size(); i++) {
+                chunk.getResults()[i] = BatchResult.accepted(chunk.getBatchInfos().get(i));
+            }
+            return null;
+        }).when(batchInfoService).insertBatches(any(), eq(Path.IMPORT));
+        batchImportService.start();
+
+        // Act
+        ImportJobStatus queued = upload(line("BTC-0001"), line("BTC-0002"), line("BTC-0003"), line("BTC-0004"),
+                line("BTC-0005"), line("BTC-0006"));
+        ImportJobStatus status = awaitFinished(queued.jobId());
+
+        // Assert
+        assertEquals(BatchImportService.State.FAILED.name(), status.state());
+        assertEquals("General system Error", status.failure());
+        assertEquals(2, status.accepted());
+        assertEquals(List.of("BTC-0001", "BTC-0003"), insertedChunks);
+    }
+
+    @Test
+    void startImport_WhenWriterIsSlow_ShouldLimitChunksInFlight() throws Exception {
+        // Arrange: one worker allows two chunks in flight; the writer blocks on the first chunk
+        ReflectionTestUtils.setField(batchImportService, "chunkSize", 1);
+        ReflectionTestUtils.setField(batchImportService, "workers", 1);
+        CountDownLatch writerBlocked = new CountDownLatch(1);
+        CountDownLatch releaseWriter = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            BatchChunk chunk = invocation.getArgument(0);
+            writerBlocked.countDown();
+            releaseWriter.await();
+            chunk.getResults()[0] = BatchResult.accepted(chunk.getBatchInfos().get(0));
+            return null;
+        }).when(batchInfoService).insertBatches(any(), eq(Path.IMPORT));
+        batchImportService.start();
+
+        // Act
+        ImportJobStatus queued = upload(line("BTC-0011"), line("BTC-0012"), line("BTC-0013"), line("BTC-0014"),
+                line("BTC-0015"));
+        assertTrue(writerBlocked.await(10, TimeUnit.SECONDS));
+        verify(batchInfoService, timeout(10000).times(2)).validateBatches(anyList(), eq(Path.IMPORT));
+        Thread.sleep(100);
+        verify(batchInfoService, times(2)).validateBatches(anyList(), eq(Path.IMPORT));
+        releaseWriter.countDown();
+        ImportJobStatus status = awaitFinished(queued.jobId());
+
+        // Assert
+        assertEquals(BatchImportService.State.COMPLETED.name(), status.state());
+        assertEquals(5, status.accepted());
+        verify(batchInfoService, times(5)).validateBatches(anyList(), eq(Path.IMPORT));
+    }
+
+    @Test
+    void parseLine_MapsColumnsByHeaderAndUnquotesFields() {
+        // Arrange
+        int[] columns = BatchImportService.mapColumns("refrigeration,batchCode,medicineCode,weight,price,medicineTypeCode,careLevel");
+
+        // Act
+        BatchInfo batchInfo = BatchImportService.parseLine("Yes,\"BTC-0001\",\"MED,\"\"1\"\"\",600,12.5,T1,High", columns);
+
+        // Assert
+        assertArrayEquals(new int[]{1, 2, 3, 4, 5, 0}, columns);
+        assertEquals("BTC-0001", batchInfo.getBatchCode());
+        assertEquals("MED,\"1\"", batchInfo.getMedicineCode());
+        assertEquals(600, batchInfo.getWeight());
+        assertEquals(12.5, batchInfo.getPrice());
+        assertEquals("T1", batchInfo.getMedicineTypeCode());
+        assertEquals("Yes", batchInfo.getRefrigeration());
+    }
+
+    @Test
+    void parseLine_MalformedLines_ShouldThrowException() {
+        int[] columns = BatchImportService.mapColumns(String.join(",", BatchImportService.REQUIRED_COLUMNS));
+
+        assertEquals(400, assertThrows(PharmaBusinessException.class,
+                () -> BatchImportService.parseLine("BTC-0001,MED001,heavy,5,T1,No", columns)).getErrorCode());
+        assertEquals(400, assertThrows(PharmaBusinessException.class,
+                () -> BatchImportService.parseLine("BTC-0001,MED001", columns)).getErrorCode());
+        assertEquals(400, assertThrows(PharmaBusinessException.class,
+                () -> BatchImportService.mapColumns("batchCode,medicineCode")).getErrorCode());
+        assertEquals(List.of("a", "", "b"), BatchImportService.splitLine("a,,b"));
+    }
+}
@@ -1,14 +1,24 @@
 package com.ust.pharmaAssistant.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ust.pharmaAssistant.config.AdmissionProperties;
+import com.ust.pharmaAssistant.config.ReferenceCacheProperties;
 import com.ust.pharmaAssistant.exception.PharmaBusinessException;
+import com.ust.pharmaAssistant.model.BatchFilter;
 import com.ust.pharmaAssistant.model.BatchInfo;
+import com.ust.pharmaAssistant.model.BatchPage;
+import com.ust.pharmaAssistant.model.BatchResult;
+import com.ust.pharmaAssistant.model.BatchSummary;
+import com.ust.pharmaAssistant.model.BatchValidationContext;
 import com.ust.pharmaAssistant.model.MedicalTypeMaster;
 import com.ust.pharmaAssistant.model.Medicine;
 import com.ust.pharmaAssistant.model.ShippingMaster;
+import com.ust.pharmaAssistant.repository.ArchivedBatchCodeRepository;
 import com.ust.pharmaAssistant.repository.BatchInfoRepository;
 import com.ust.pharmaAssistant.repository.MedicalTypeMasterRepository;
 import com.ust.pharmaAssistant.repository.MedicineRepository;
 import com.ust.pharmaAssistant.repository.ShippingMasterRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -18,11 +28,26 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
-
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class BatchInfoServiceTest {
@@ -30,6 +55,9 @@ class BatchInfoServiceTest {
     @Mock
     private BatchInfoRepository batchInfoRepository;
 
+    @Mock
+    private ArchivedBatchCodeRepository archivedBatchCodeRepository;
+
     @Mock
     private MedicalTypeMasterRepository medicalTypeMasterRepository;
 
@@ -38,12 +66,38 @@ class BatchInfoServiceTest {
 
     @Mock
     private MedicineRepository medicineRepository;
+
+    @Mock
+    private BatchStatsService batchStatsService;
+
+    @Mock
+    private OutboxService outboxService;
     @InjectMocks
     private BatchInfoService batchInfoService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.initMocks(this);
+        ReferenceDataCache referenceDataCache = new ReferenceDataCache(medicineRepository, medicalTypeMasterRepository, shippingMasterRepository, new ReferenceCacheProperties());
+        ReflectionTestUtils.setField(batchInfoService, "referenceDataCache", referenceDataCache);
+        ReflectionTestUtils.setField(batchInfoService, "batchMetrics", new BatchMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(batchInfoService, "batchRuleService", new BatchRuleService());
+        ReflectionTestUtils.setField(batchInfoService, "batchReadCache", new BatchReadCache(batchInfoRepository, new ObjectMapper(), 100, Duration.ofHours(1)));
+        ReflectionTestUtils.setField(batchInfoService, "admissionService", new AdmissionService(new AdmissionProperties(), new SimpleMeterRegistry(), null));
+        ReflectionTestUtils.setField(batchInfoService, "transactionTemplate", new TransactionTemplate(mock(PlatformTransactionManager.class)));
+    }
+
+    // Helper method to create the result of the validation context query
+    private BatchValidationContext validationContext(Long batchCount, String medicineCode, String medicineTypeCode,
+                                                     String medicineTypeName, Double shippingCharge) {
+        BatchValidationContext context = mock(BatchValidationContext.class);
+        when(context.getBatchCount()).thenReturn(batchCount);
+        when(context.getMedicineCode()).thenReturn(medicineCode);
+        when(context.getMedicineTypeCode()).thenReturn(medicineTypeCode);
+        when(context.getMedicineTypeName()).thenReturn(medicineTypeName);
+        when(context.getShippingId()).thenReturn(shippingCharge == null ? null : 1L);
+        when(context.getShippingCharge()).thenReturn(shippingCharge);
+        return context;
     }
 
     // Helper method to create a BatchInfo instance
@@ -247,4 +301,323 @@ class BatchInfoServiceTest {
         // Act and Assert
         Assertions.assertThrows(PharmaBusinessException.class, () -> batchInfoService.checkIfMedicineCodeExists(medicineCode));
     }
-}
+
+    @Test
+    void addBatches_RejectsInvalidRowsAndInsertsTheRest() {
+        // Arrange
+        BatchInfo valid = new BatchInfo("BTC-0001", "MED001", 400, 50, "T1");
+        BatchInfo repeated = new BatchInfo("BTC-0001", "MED001", 400, 50, "T1");
+        BatchInfo existing = new BatchInfo("BTC-0002", "MED001", 400, 50, "T1");
+        BatchInfo unknownMedicine = new BatchInfo("BTC-0003", "MED999", 400, 50, "T1");
+        BatchInfo badFormat = new BatchInfo("BTC-12", "MED001", 400, 50, "T1");
+
+        Medicine medicine = new Medicine();
+        medicine.setMedicineCode("MED001");
+        ShippingMaster shippingMaster = new ShippingMaster();
+        shippingMaster.setMedicineTypeCode("T1");
+        shippingMaster.setWeightRange("W1");
+        shippingMaster.setShippingCharge(10);
+
+        when(batchInfoRepository.findExistingBatchCodes(anyCollection())).thenReturn(List.of("BTC-0002"));
+        when(medicineRepository.findAllById(anyCollection())).thenReturn(List.of(medicine));
+        when(shippingMasterRepository.findByMedicineTypeCodeIn(anyCollection())).thenReturn(List.of(shippingMaster));
+        when(medicalTypeMasterRepository.findAllById(anyCollection())).thenReturn(List.of(new MedicalTypeMaster("T1", "Tablets")));
+
+        // Act
+        List<BatchResult> results = batchInfoService.addBatches(List.of(valid, repeated, existing, unknownMedicine, badFormat));
+
+        // Assert
+        assertEquals(BatchResult.ACCEPTED, results.get(0).getStatus());
+        assertEquals(10.0, results.get(0).getShippingCharge(), 0.01);
+        assertEquals("High", results.get(0).getCareLevel());
+        assertEquals(511, results.get(1).getErrorCode());
+        assertEquals(511, results.get(2).getErrorCode());
+        assertEquals(510, results.get(3).getErrorCode());
+        assertEquals(513, results.get(4).getErrorCode());
+        verify(batchInfoRepository).insertAll(List.of(valid));
+        verify(batchStatsService).recordInserted(List.of(valid));
+    }
+
+    // Helper method to stub the master data of medicine MED001 of type T1 for the bulk path
+    private void stubBulkMasterData() {
+        Medicine medicine = new Medicine();
+        medicine.setMedicineCode("MED001");
+        ShippingMaster shippingMaster = new ShippingMaster();
+        shippingMaster.setMedicineTypeCode("T1");
+        shippingMaster.setWeightRange("W1");
+        shippingMaster.setShippingCharge(10);
+        when(medicineRepository.findAllById(anyCollection())).thenReturn(List.of(medicine));
+        when(shippingMasterRepository.findByMedicineTypeCodeIn(anyCollection())).thenReturn(List.of(shippingMaster));
+        when(medicalTypeMasterRepository.findAllById(anyCollection())).thenReturn(List.of(new MedicalTypeMaster("T1", "Tablets")));
+    }
+
+    @Test
+    void addBatches_ConcurrentDuplicate_RejectsItAndInsertsTheRest() {
+        // Arrange: BTC-0002 is added by another request between the duplicate check and the insert
+        BatchInfo first = new BatchInfo("BTC-0001", "MED001", 400, 50, "T1");
+        BatchInfo concurrent = new BatchInfo("BTC-0002", "MED001", 400, 50, "T1");
+        BatchInfo third = new BatchInfo("BTC-0003", "MED001", 400, 50, "T1");
+        stubBulkMasterData();
+        when(batchInfoRepository.findExistingBatchCodes(anyCollection())).thenReturn(List.of(), List.of("BTC-0002"));
+        Mockito.doThrow(new DataIntegrityViolationException("duplicate",
+                        new SQLException("Duplicate entry 'BTC-0002' for key 'PRIMARY'", "23000", 1062)))
+                .doNothing()
+                .when(batchInfoRepository).insertAll(any());
+
+        // Act
+        List<BatchResult> results = batchInfoService.addBatches(List.of(first, concurrent, third));
+
+        // Assert
+        assertEquals(BatchResult.ACCEPTED, results.get(0).getStatus());
+        assertEquals(511, results.get(1).getErrorCode());
+        assertEquals("Batch Code already exists", results.get(1).getErrorMessage());
+        assertEquals(BatchResult.ACCEPTED, results.get(2).getStatus());
+        verify(batchInfoRepository).insertAll(List.of(first, third));
+        verify(batchStatsService).recordInserted(List.of(first, third));
+    }
+
+    @Test
+    void addBatches_InsertFailsOtherwise_RejectsTheAcceptedRows() {
+        // Arrange: the key violation is not explained by a stored or archived batch code
+        BatchInfo first = new BatchInfo("BTC-0001", "MED001", 400, 50, "T1");
+        BatchInfo second = new BatchInfo("BTC-0002", "MED001", 400, 50, "T1");
+        stubBulkMasterData();
+        when(batchInfoRepository.findExistingBatchCodes(anyCollection())).thenReturn(List.of());
+        Mockito.doThrow(new DataIntegrityViolationException("duplicate",
+                        new SQLException("Duplicate entry 'BTC-0002' for key 'PRIMARY'", "23000", 1062)))
+                .when(batchInfoRepository).insertAll(any());
+
+        // Act
+        List<BatchResult> results = batchInfoService.addBatches(List.of(first, second));
+
+        // Assert
+        assertEquals(500, results.get(0).getErrorCode());
+        assertEquals(500, results.get(1).getErrorCode());
+        verify(batchInfoRepository, times(1)).insertAll(any());
+        verify(batchStatsService, never()).recordInserted(any());
+    }
+
+    @Test
+    void importStages_DuplicateCheckedAfterEnrichTakesPrecedence() {
+        // Arrange
+        BatchInfo existing = new BatchInfo("BTC-0002", "MED999", 400, 50, "T1");
+        BatchInfo badFormat = new BatchInfo("BTC-12", "MED001", 400, 50, "T1");
+        when(batchInfoRepository.findExistingBatchCodes(anyCollection())).thenReturn(List.of("BTC-0002", "BTC-12"));
+
+        // Act
+        BatchChunk chunk = batchInfoService.validateBatches(List.of(existing, badFormat), BatchMetrics.Path.IMPORT);
+        batchInfoService.enrichBatches(chunk, BatchMetrics.Path.IMPORT);
+        assertEquals(510, chunk.getResults()[0].getErrorCode());
+        batchInfoService.rejectExistingBatches(chunk, BatchMetrics.Path.IMPORT);
+
+        // Assert
+        assertEquals(511, chunk.getResults()[0].getErrorCode());
+        assertEquals(513, chunk.getResults()[1].getErrorCode());
+    }
+
+    @Test
+    void prepareBatch_EnrichesWithoutTouchingBatchInfo() {
+        // Arrange
+        BatchInfo batchInfo = new BatchInfo("BTC-0001", "MED001", 600, 50, "T1");
+        Medicine medicine = new Medicine();
+        medicine.setMedicineCode("MED001");
+        ShippingMaster shippingMaster = new ShippingMaster();
+        shippingMaster.setShippingCharge(10);
+        when(medicineRepository.findById("MED001")).thenReturn(Optional.of(medicine));
+        when(shippingMasterRepository.findByMedicineTypeCodeAndWeightRange("T1", "W2")).thenReturn(Optional.of(shippingMaster));
+        when(medicalTypeMasterRepository.findById("T1")).thenReturn(Optional.of(new MedicalTypeMaster("T1", "Syrups")));
+
+        // Act
+        batchInfoService.prepareBatch(batchInfo, BatchMetrics.Path.ASYNC);
+
+        // Assert
+        assertEquals(10.5, batchInfo.getShippingCharge(), 0.01);
+        assertEquals("Extremely High", batchInfo.getCareLevel());
+        Mockito.verifyNoInteractions(batchInfoRepository);
+    }
+
+    @Test
+    void checkIfMedicineCodeExists_LoadsEachCodeOnlyOnce() {
+        // Arrange
+        Mockito.when(medicineRepository.findById("MED001")).thenReturn(Optional.of(new Medicine()));
+        Mockito.when(medicineRepository.findById("MED999")).thenReturn(Optional.empty());
+
+        // Act
+        batchInfoService.checkIfMedicineCodeExists("MED001");
+        batchInfoService.checkIfMedicineCodeExists("MED001");
+        assertThrows(PharmaBusinessException.class, () -> batchInfoService.checkIfMedicineCodeExists("MED999"));
+        assertThrows(PharmaBusinessException.class, () -> batchInfoService.checkIfMedicineCodeExists("MED999"));
+
+        // Assert (known and unknown codes are both served from the cache after the first lookup)
+        verify(medicineRepository, times(1)).findById("MED001");
+        verify(medicineRepository, times(1)).findById("MED999");
+    }
+
+    @Test
+    void addBatch_WhenPrimaryKeyIsViolated_ShouldThrowDuplicateException() {
+        // Arrange
+        BatchInfo batchInfo = new BatchInfo("BTC-1234", "MED001", 400, 50, "T1");
+        ShippingMaster shippingMaster = new ShippingMaster();
+        shippingMaster.setShippingCharge(10);
+
+        when(medicineRepository.findById("MED001")).thenReturn(Optional.of(new Medicine()));
+        when(shippingMasterRepository.findByMedicineTypeCodeAndWeightRange("T1", "W1")).thenReturn(Optional.of(shippingMaster));
+        when(medicalTypeMasterRepository.findById("T1")).thenReturn(Optional.of(new MedicalTypeMaster("T1", "Tablets")));
+        BatchValidationContext context = validationContext(0L, "MED001", "T1", "Tablets", 10.0);
+        when(batchInfoRepository.findValidationContext("BTC-1234", "MED001", "T1", "W1")).thenReturn(context);
+        when(batchInfoRepository.saveAndFlush(any(BatchInfo.class))).thenThrow(new DataIntegrityViolationException("duplicate",
+                new SQLException("Duplicate entry 'BTC-1234' for key 'PRIMARY'", "23000", 1062)));
+
+        // Act and Assert
+        PharmaBusinessException exception = assertThrows(PharmaBusinessException.class, () -> batchInfoService.addBatch(batchInfo));
+        assertEquals(511, exception.getErrorCode());
+        assertEquals("Batch Code already exists", exception.getMessage());
+    }
+
+    @Test
+    void addBatch_WithColdCache_UsesOneQueryAndCachesMasterData() {
+        // Arrange
+        BatchValidationContext context = validationContext(0L, "MED001", "T1", "Syrups", 20.0);
+        when(batchInfoRepository.findValidationContext(any(), any(), any(), any())).thenReturn(context);
+
+        // Act
+        BatchInfo first = new BatchInfo("BTC-0001", "MED001", 600, 50, "T1");
+        BatchInfo second = new BatchInfo("BTC-0002", "MED001", 700, 50, "T1");
+        batchInfoService.addBatch(first);
+        batchInfoService.addBatch(second);
+
+        // Assert (the second batch is served from the cache and only inserted)
+        assertEquals(21.0, second.getShippingCharge(), 0.01);
+        assertEquals("Extremely High", second.getCareLevel());
+        verify(batchInfoRepository, times(1)).findValidationContext(any(), any(), any(), any());
+        verify(batchInfoRepository, never()).existsByBatchCode(any());
+        verify(medicineRepository, never()).findById(any());
+        verify(batchInfoRepository, times(2)).saveAndFlush(any(BatchInfo.class));
+    }
+
+    @Test
+    void addBatch_PutsTheBatchInTheReadCache() {
+        // Arrange
+        BatchValidationContext context = validationContext(0L, "MED001", "T1", "Syrups", 20.0);
+        when(batchInfoRepository.findValidationContext(any(), any(), any(), any())).thenReturn(context);
+        BatchReadCache batchReadCache = (BatchReadCache) ReflectionTestUtils.getField(batchInfoService, "batchReadCache");
+
+        // Act
+        batchInfoService.addBatch(new BatchInfo("BTC-0001", "MED001", 600, 50, "T1"));
+
+        // Assert (reading the batch back needs no query)
+        assertTrue(batchReadCache.find("BTC-0001").isPresent());
+        verify(batchInfoRepository, never()).findById(any());
+    }
+
+    @Test
+    void addBatch_WithoutBatchCode_AllocatesOne() {
+        // Arrange
+        BatchCodeAllocator batchCodeAllocator = mock(BatchCodeAllocator.class);
+        when(batchCodeAllocator.allocate()).thenReturn("BTC-000000000042");
+        ReflectionTestUtils.setField(batchInfoService, "batchCodeAllocator", batchCodeAllocator);
+        ReflectionTestUtils.setField(batchInfoService, "batchCodeAllocationEnabled", true);
+        BatchValidationContext context = validationContext(0L, "MED001", "T1", "Syrups", 20.0);
+        when(batchInfoRepository.findValidationContext(any(), any(), any(), any())).thenReturn(context);
+        BatchInfo batchInfo = new BatchInfo(null, "MED001", 600, 50, "T1");
+
+        // Act
+        batchInfoService.addBatch(batchInfo);
+
+        // Assert
+        assertEquals("BTC-000000000042", batchInfo.getBatchCode());
+        verify(batchInfoRepository).saveAndFlush(batchInfo);
+        verify(batchInfoRepository, never()).existsByBatchCode(any());
+    }
+
+    @Test
+    void addBatch_WithClientChosenAllocatedFormatCode_ShouldThrowException() {
+        // Arrange: a client must not take a code the allocator hands out later
+        ReflectionTestUtils.setField(batchInfoService, "batchCodeAllocationEnabled", true);
+        BatchInfo batchInfo = new BatchInfo("BTC-000000000042", "MED001", 600, 50, "T1");
+
+        // Act and Assert
+        PharmaBusinessException exception = assertThrows(PharmaBusinessException.class, () -> batchInfoService.addBatch(batchInfo));
+        assertEquals(513, exception.getErrorCode());
+        verify(batchInfoRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void addBatches_AcceptsTheLongFormatOnlyForAllocatedCodes() {
+        // Arrange
+        BatchCodeAllocator batchCodeAllocator = mock(BatchCodeAllocator.class);
+        when(batchCodeAllocator.allocate()).thenReturn("BTC-000000000043");
+        ReflectionTestUtils.setField(batchInfoService, "batchCodeAllocator", batchCodeAllocator);
+        ReflectionTestUtils.setField(batchInfoService, "batchCodeAllocationEnabled", true);
+        BatchInfo allocated = new BatchInfo(null, "MED001", 400, 50, "T1");
+        BatchInfo chosen = new BatchInfo("BTC-000000000044", "MED001", 400, 50, "T1");
+
+        Medicine medicine = new Medicine();
+        medicine.setMedicineCode("MED001");
+        ShippingMaster shippingMaster = new ShippingMaster();
+        shippingMaster.setMedicineTypeCode("T1");
+        shippingMaster.setWeightRange("W1");
+        shippingMaster.setShippingCharge(10);
+        when(medicineRepository.findAllById(anyCollection())).thenReturn(List.of(medicine));
+        when(shippingMasterRepository.findByMedicineTypeCodeIn(anyCollection())).thenReturn(List.of(shippingMaster));
+        when(medicalTypeMasterRepository.findAllById(anyCollection())).thenReturn(List.of(new MedicalTypeMaster("T1", "Tablets")));
+
+        // Act
+        List<BatchResult> results = batchInfoService.addBatches(List.of(allocated, chosen));
+
+        // Assert
+        assertEquals(BatchResult.ACCEPTED, results.get(0).getStatus());
+        assertEquals("BTC-000000000043", results.get(0).getBatchCode());
+        assertEquals(513, results.get(1).getErrorCode());
+        verify(batchInfoRepository).insertAll(List.of(allocated));
+    }
+
+    @Test
+    void addBatch_WithColdCache_DuplicateTakesPrecedenceOverUnknownMedicine() {
+        // Arrange
+        BatchValidationContext context = validationContext(1L, null, "T1", "Tablets", 10.0);
+        when(batchInfoRepository.findValidationContext("BTC-1234", "MED999", "T1", "W1")).thenReturn(context);
+
+        // Act and Assert
+        PharmaBusinessException exception = assertThrows(PharmaBusinessException.class,
+                () -> batchInfoService.addBatch(new BatchInfo("BTC-1234", "MED999", 400, 50, "T1")));
+        assertEquals(511, exception.getErrorCode());
+    }
+
+    @Test
+    void addBatch_WithWarmCache_DuplicateTakesPrecedenceOverUnknownMedicine() {
+        // Arrange (the first request caches MED999 as unknown)
+        BatchValidationContext context = validationContext(0L, null, "T1", "Tablets", 10.0);
+        when(batchInfoRepository.findValidationContext(any(), any(), any(), any())).thenReturn(context);
+        assertThrows(PharmaBusinessException.class,
+                () -> batchInfoService.addBatch(new BatchInfo("BTC-0001", "MED999", 400, 50, "T1")));
+        when(batchInfoRepository.existsByBatchCode("BTC-1234")).thenReturn(true);
+
+        // Act and Assert
+        PharmaBusinessException exception = assertThrows(PharmaBusinessException.class,
+                () -> batchInfoService.addBatch(new BatchInfo("BTC-1234", "MED999", 400, 50, "T1")));
+        assertEquals(511, exception.getErrorCode());
+        verify(batchInfoRepository, times(1)).findValidationContext(any(), any(), any(), any());
+    }
+
+    @Test
+    void findBatches_ReturnsCursorOnlyWhenThereIsANextPage() {
+        // Arrange
+        BatchFilter filter = new BatchFilter();
+        BatchSummary first = new BatchSummary("BTC-0001", "MED001", 200, 10, "T1", 10, "High", "No");
+        BatchSummary second = new BatchSummary("BTC-0002", "MED001", 200, 10, "T1", 10, "High", "No");
+        BatchSummary third = new BatchSummary("BTC-0003", "MED001", 200, 10, "T1", 10, "High", "No");
+        when(batchInfoRepository.findPage(filter, null, 3)).thenReturn(List.of(first, second, third));
+        when(batchInfoRepository.findPage(filter, "BTC-0002", 3)).thenReturn(List.of(third));
+
+        // Act
+        BatchPage firstPage = batchInfoService.findBatches(filter, null, 2);
+        BatchPage lastPage = batchInfoService.findBatches(filter, firstPage.nextCursor(), 2);
+
+        // Assert
+        assertEquals(List.of(first, second), firstPage.items());
+        assertEquals("BTC-0002", firstPage.nextCursor());
+        assertEquals(List.of(third), lastPage.items());
+        assertNull(lastPage.nextCursor());
+    }
+}
\ No newline at end of file
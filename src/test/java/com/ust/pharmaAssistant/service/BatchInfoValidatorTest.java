@@ -0,0 +1,80 @@
+package com.ust.pharmaAssistant.service;
+
+import com.ust.pharmaAssistant.exception.PharmaBusinessException;
+import com.ust.pharmaAssistant.model.BatchInfo;
+import com.ust.pharmaAssistant.service.BatchInfoValidator.Mode;
+import com.ust.pharmaAssistant.service.BatchInfoValidator.Violation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchInfoValidatorTest {
+
+    @Test
+    void validate_ValidBatch_ReturnsValid() {
+        BatchInfo batchInfo = new BatchInfo("BTC-1234", "MED001", 600, 25.5, "T1");
+
+        assertEquals(BatchInfoValidator.VALID, BatchInfoValidator.validate(batchInfo, Mode.FAIL_FAST));
+        assertEquals(BatchInfoValidator.VALID, BatchInfoValidator.validate(batchInfo, Mode.COLLECT_ALL));
+    }
+
+    @Test
+    void validate_FailFast_StopsAtTheFirstViolation() {
+        // Arrange
+        BatchInfo batchInfo = new BatchInfo("BTC-12A4", null, 50, 25.5, "T1");
+
+        // Act
+        int violations = BatchInfoValidator.validate(batchInfo, Mode.FAIL_FAST);
+
+        // Assert
+        assertEquals(List.of(Violation.MEDICINE_CODE_REQUIRED), BatchInfoValidator.violations(violations));
+        PharmaBusinessException exception = BatchInfoValidator.toException(violations);
+        assertEquals(510, exception.getErrorCode());
+        assertEquals("Medicine code is required", exception.getMessage());
+    }
+
+    @Test
+    void validate_CollectAll_ReportsEveryViolation() {
+        // Arrange
+        BatchInfo batchInfo = new BatchInfo("BTC-12A4", "MED001", 50, 25.5, "T1");
+        batchInfo.setRefrigeration(null);
+
+        // Act
+        int violations = BatchInfoValidator.validate(batchInfo, Mode.COLLECT_ALL);
+
+        // Assert
+        assertEquals(List.of(Violation.BATCH_CODE_FORMAT, Violation.WEIGHT_TOO_LOW, Violation.REFRIGERATION_REQUIRED),
+                BatchInfoValidator.violations(violations));
+        assertEquals(513, BatchInfoValidator.firstViolation(violations).getErrorCode());
+        assertEquals("Batch code should be in the format 'BTC-1234'; Batch Weight should be greater than 100; "
+                + "Refrigeration requirement is mandatory", BatchInfoValidator.errorMessage(violations));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "BTC-123", "BTC-12345", "btc-1234", "BTC_1234", "BTC-12 4", "BTC-١٢٣٤", "XBTC-1234", "BTC-00000000001", "BTC-0000000000012", "BTC-000000000042"})
+    void isValidBatchCode_RejectsMalformedCodes(String batchCode) {
+        assertFalse(BatchInfoValidator.isValidBatchCode(batchCode));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"BTC-0000", "BTC-1234", "BTC-9999"})
+    void isValidBatchCode_AcceptsWellFormedCodes(String batchCode) {
+        assertTrue(BatchInfoValidator.isValidBatchCode(batchCode));
+    }
+
+    @Test
+    void validate_AcceptsTheLongFormatOnlyForAllocatedCodes() {
+        BatchInfo allocated = new BatchInfo("BTC-000000000042", "MED001", 600, 25.5, "T1");
+        BatchInfo chosen = new BatchInfo("BTC-1234", "MED001", 600, 25.5, "T1");
+
+        assertEquals(Violation.BATCH_CODE_FORMAT.bit(), BatchInfoValidator.validate(allocated, Mode.FAIL_FAST));
+        assertEquals(BatchInfoValidator.VALID, BatchInfoValidator.validate(allocated, Mode.FAIL_FAST, true));
+        assertEquals(Violation.BATCH_CODE_FORMAT.bit(), BatchInfoValidator.validate(chosen, Mode.FAIL_FAST, true));
+    }
+}
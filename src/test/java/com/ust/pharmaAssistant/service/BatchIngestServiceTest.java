@@ -0,0 +1,235 @@
+package com.ust.pharmaAssistant.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ust.pharmaAssistant.exception.PharmaBusinessException;
+import com.ust.pharmaAssistant.model.BatchInfo;
+import com.ust.pharmaAssistant.model.BatchResult;
+import com.ust.pharmaAssistant.model.IngestStatus;
+import com.ust.pharmaAssistant.service.BatchIngestService.JournalEntry;
+import com.ust.pharmaAssistant.service.BatchMetrics.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class BatchIngestServiceTest {
+
+    @Mock
+    private BatchInfoService batchInfoService;
+
+    @Mock
+    private BatchMetrics batchMetrics;
+
+    @InjectMocks
+    private BatchIngestService batchIngestService;
+
+    @TempDir
+    java.nio.file.Path journalDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final List<String> storedBatchCodes = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(batchIngestService, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(batchIngestService, "capacity", 100);
+        ReflectionTestUtils.setField(batchIngestService, "groupSize", 3);
+        ReflectionTestUtils.setField(batchIngestService, "maxDelay", Duration.ofMillis(20));
+        ReflectionTestUtils.setField(batchIngestService, "maxAttempts", 2);
+        ReflectionTestUtils.setField(batchIngestService, "retryDelay", Duration.ofMillis(20));
+        ReflectionTestUtils.setField(batchIngestService, "journalDir", journalDir);
+        ReflectionTestUtils.setField(batchIngestService, "journalSync", true);
+        ReflectionTestUtils.setField(batchIngestService, "statusRetention", Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (ReflectionTestUtils.getField(batchIngestService, "writer") != null) {
+            batchIngestService.stop();
+        }
+    }
+
+    // Helper method to create an enriched batch
+    private static BatchInfo batch(String batchCode) {
+        BatchInfo batchInfo = new BatchInfo(batchCode, "MED001", 600, 25.5, "T1");
+        batchInfo.setShippingCharge(21);
+        batchInfo.setCareLevel("Normal");
+        return batchInfo;
+    }
+
+    // Helper method to make group inserts fail when they hold one of the given batch codes, recording the stored ones
+    private void failInsertsOf(Set<String> batchCodes) {
+        doAnswer(invocation -> {
+            BatchChunk chunk = invocation.getArgument(0);
+            boolean failing = chunk.getBatchInfos().stream().anyMatch(batchInfo -> batchCodes.contains(batchInfo.getBatchCode()));
+            for (int i = 0; i < chunk.size(); i++) {
+                if (failing) {
+                    chunk.getResults()[i] = BatchResult.rejected(chunk.getBatchInfos().get(i).getBatchCode(), 500, "General system Error");
+                } else {
+                    storedBatchCodes.add(chunk.getBatchInfos().get(i).getBatchCode());
+                }
+            }
+            return null;
+        }).when(batchInfoService).insertBatches(any(), eq(Path.ASYNC));
+    }
+
+    // Helper method to wait for a batch to leave the queue
+    private IngestStatus awaitDone(String trackingId) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (System.nanoTime() < deadline) {
+            IngestStatus status = batchIngestService.findStatus(trackingId).orElseThrow();
+            if (!IngestStatus.QUEUED.equals(status.state())) {
+                return status;
+            }
+            Thread.sleep(5);
+        }
+        return fail("Batch " + trackingId + " was not written");
+    }
+
+    // Helper method to wait for the journal to be truncated; the status is published just before the entry marking
+    // the batch done
+    private long awaitJournalDrained() throws Exception {
+        java.nio.file.Path journal = journalDir.resolve(BatchIngestService.JOURNAL_FILE);
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (Files.size(journal) > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        return Files.size(journal);
+    }
+
+    // Helper method to write a journal left behind by a crash
+    private void writeJournal(JournalEntry... entries) throws Exception {
+        StringBuilder journal = new StringBuilder();
+        for (JournalEntry entry : entries) {
+            journal.append(objectMapper.writeValueAsString(entry)).append('\n');
+        }
+        Files.writeString(journalDir.resolve(BatchIngestService.JOURNAL_FILE), journal, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void submit_WithFullQueue_ShouldThrowException() throws Exception {
+        // Arrange: the writer waits for a full group, which never comes
+        ReflectionTestUtils.setField(batchIngestService, "capacity", 2);
+        ReflectionTestUtils.setField(batchIngestService, "groupSize", 10);
+        ReflectionTestUtils.setField(batchIngestService, "maxDelay", Duration.ofHours(1));
+        batchIngestService.start();
+        batchIngestService.submit(batch("BTC-0001"));
+        batchIngestService.submit(batch("BTC-0002"));
+
+        // Act and Assert
+        PharmaBusinessException exception = assertThrows(PharmaBusinessException.class,
+                () -> batchIngestService.submit(batch("BTC-0003")));
+        assertEquals(503, exception.getErrorCode());
+    }
+
+    @Test
+    void submit_WritesAGroupInOneTransaction() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(batchIngestService, "maxDelay", Duration.ofHours(1));
+        batchIngestService.start();
+
+        // Act
+        String first = batchIngestService.submit(batch("BTC-0011")).trackingId();
+        batchIngestService.submit(batch("BTC-0012"));
+        String last = batchIngestService.submit(batch("BTC-0013")).trackingId();
+
+        // Assert
+        assertEquals(IngestStatus.STORED, awaitDone(first).state());
+        assertEquals(IngestStatus.STORED, awaitDone(last).state());
+        ArgumentCaptor<BatchChunk> chunks = ArgumentCaptor.forClass(BatchChunk.class);
+        verify(batchInfoService, times(1)).insertBatches(chunks.capture(), eq(Path.ASYNC));
+        assertEquals(List.of("BTC-0011", "BTC-0012", "BTC-0013"),
+                chunks.getValue().getBatchInfos().stream().map(BatchInfo::getBatchCode).toList());
+    }
+
+    @Test
+    void submit_WhenOneRowFailsTheGroup_WritesTheOthersOneByOne() throws Exception {
+        // Arrange: the group only flushes once it is full
+        ReflectionTestUtils.setField(batchIngestService, "maxDelay", Duration.ofHours(1));
+        failInsertsOf(Set.of("BTC-0022"));
+        batchIngestService.start();
+
+        // Act
+        String good = batchIngestService.submit(batch("BTC-0021")).trackingId();
+        String bad = batchIngestService.submit(batch("BTC-0022")).trackingId();
+        String other = batchIngestService.submit(batch("BTC-0023")).trackingId();
+
+        // Assert: the bad row is retried until it runs out of attempts
+        assertEquals(IngestStatus.STORED, awaitDone(good).state());
+        assertEquals(IngestStatus.STORED, awaitDone(other).state());
+        IngestStatus rejected = awaitDone(bad);
+        assertEquals(IngestStatus.REJECTED, rejected.state());
+        assertEquals(500, rejected.errorCode());
+        assertEquals(List.of("BTC-0021", "BTC-0023"), storedBatchCodes);
+        assertEquals(0, awaitJournalDrained());
+    }
+
+    @Test
+    void start_ReplaysBatchesNotWrittenBeforeACrash() throws Exception {
+        // Arrange: BTC-0031 crashed before its insert, BTC-0032 after it, BTC-0033 was done
+        writeJournal(new JournalEntry("S", "id-31", batch("BTC-0031"), null),
+                new JournalEntry("S", "id-32", batch("BTC-0032"), null),
+                new JournalEntry("S", "id-33", batch("BTC-0033"), null),
+                new JournalEntry("D", null, null, List.of("id-33")));
+        doAnswer(invocation -> {
+            BatchChunk chunk = invocation.getArgument(0);
+            for (int i = 0; i < chunk.size(); i++) {
+                if (chunk.getBatchInfos().get(i).getBatchCode().equals("BTC-0032")) {
+                    chunk.getResults()[i] = BatchResult.rejected("BTC-0032", 511, "Batch Code already exists");
+                }
+            }
+            return null;
+        }).when(batchInfoService).rejectExistingBatches(any(), eq(Path.ASYNC));
+
+        // Act
+        batchIngestService.start();
+
+        // Assert
+        assertEquals(IngestStatus.STORED, awaitDone("id-31").state());
+        assertEquals(IngestStatus.STORED, awaitDone("id-32").state());
+        assertEquals(true, batchIngestService.findStatus("id-33").isEmpty());
+        ArgumentCaptor<BatchChunk> chunks = ArgumentCaptor.forClass(BatchChunk.class);
+        verify(batchInfoService).insertBatches(chunks.capture(), eq(Path.ASYNC));
+        assertEquals(List.of("BTC-0031", "BTC-0032"),
+                chunks.getValue().getBatchInfos().stream().map(BatchInfo::getBatchCode).toList());
+    }
+
+    @Test
+    void submit_TruncatesTheJournalOnceEveryBatchIsDone() throws Exception {
+        // Arrange
+        batchIngestService.start();
+        java.nio.file.Path journal = journalDir.resolve(BatchIngestService.JOURNAL_FILE);
+
+        // Act
+        String trackingId = batchIngestService.submit(batch("BTC-0041")).trackingId();
+        long journalledSize = Files.size(journal);
+        awaitDone(trackingId);
+
+        // Assert
+        assertEquals(true, journalledSize > 0);
+        assertEquals(0, awaitJournalDrained());
+    }
+}
@@ -0,0 +1,66 @@
+package com.ust.pharmaAssistant.service;
+
+import com.ust.pharmaAssistant.model.CareLevelRule;
+import com.ust.pharmaAssistant.model.RefrigerationSurcharge;
+import com.ust.pharmaAssistant.model.WeightBand;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BatchRulesTest {
+
+    private final BatchRules defaults = BatchRules.defaults();
+
+    @ParameterizedTest
+    @CsvSource({
+            "100, W1",
+            "500, W1",
+            "500.01, W2",
+            "1000, W2",
+            "1000.5, W3",
+            "99999, W3"
+    })
+    void weightRange_MatchesTheDefaultBands(double weight, String expectedWeightRange) {
+        assertEquals(expectedWeightRange, defaults.weightRange(weight));
+    }
+
+    @Test
+    void careLevelAndSurcharge_MatchTheDefaultRules() {
+        assertEquals("Normal", defaults.careLevel("Capsules"));
+        assertEquals("High", defaults.careLevel("Tablets"));
+        assertEquals("Extremely High", defaults.careLevel("Syrups"));
+        assertEquals("Normal", defaults.careLevel("Ointments"));
+        assertEquals(10.5, defaults.applySurcharge(10, "Yes"), 0.0001);
+        assertEquals(10.0, defaults.applySurcharge(10, "No"), 0.0001);
+    }
+
+    @Test
+    void compile_UsesTheRuleRows() {
+        // Arrange
+        BatchRules rules = BatchRules.compile(
+                List.of(new WeightBand("HEAVY", null), new WeightBand("LIGHT", 250.0)),
+                List.of(new CareLevelRule("Vaccines", "Cold Chain")),
+                List.of(new RefrigerationSurcharge("Yes", 0.2)));
+
+        // Assert
+        assertEquals("LIGHT", rules.weightRange(250));
+        assertEquals("HEAVY", rules.weightRange(251));
+        assertEquals("Cold Chain", rules.careLevel("Vaccines"));
+        assertNull(rules.careLevel("Tablets"));
+        assertEquals(12.0, rules.applySurcharge(10, "Yes"), 0.0001);
+    }
+
+    @Test
+    void compile_WithoutAnUnboundedBand_ShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> BatchRules.compile(
+                List.of(new WeightBand("W1", 500.0)), List.of(), List.of()));
+        assertThrows(IllegalArgumentException.class, () -> BatchRules.compile(
+                List.of(new WeightBand("W1", null), new WeightBand("W2", null)), List.of(), List.of()));
+    }
+}
@@ -0,0 +1,161 @@
+package com.ust.pharmaAssistant.service;
+
+import com.ust.pharmaAssistant.exception.PharmaBusinessException;
+import com.ust.pharmaAssistant.model.BatchInfo;
+import com.ust.pharmaAssistant.model.BatchStats;
+import com.ust.pharmaAssistant.model.BatchTotals;
+import com.ust.pharmaAssistant.repository.BatchStatsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BatchStatsServiceTest {
+
+    @Mock
+    private BatchStatsRepository batchStatsRepository;
+
+    @InjectMocks
+    private BatchStatsService batchStatsService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(batchStatsRepository.findAll()).thenReturn(List.of(
+                new BatchStats("T1", "High", "No", 2, 400, 10, 20),
+                new BatchStats("T1", "High", "Yes", 1, 600, 8, 15.75),
+                new BatchStats("T3", "Extremely High", "Yes", 1, 700, 7, 10.5)));
+        batchStatsService.load();
+    }
+
+    @Test
+    void getTotals_RollsUpToTheRequestedDimensions() {
+        // Act
+        List<BatchTotals> byRefrigeration = batchStatsService.getTotals(List.of("refrigeration"));
+        List<BatchTotals> all = batchStatsService.getTotals(List.of());
+
+        // Assert
+        assertEquals(List.of(
+                new BatchTotals(null, null, "No", 2, 400, 10, 20),
+                new BatchTotals(null, null, "Yes", 2, 1300, 15, 26.25)), byRefrigeration);
+        assertEquals(3, all.size());
+        assertEquals(new BatchTotals("T1", "High", "No", 2, 400, 10, 20), all.get(0));
+    }
+
+    // Helper method to create an enriched batch
+    private static BatchInfo batch(String batchCode, String medicineTypeCode, String careLevel, double weight) {
+        BatchInfo batchInfo = new BatchInfo(batchCode, "MED001", weight, 10, medicineTypeCode);
+        batchInfo.setCareLevel(careLevel);
+        return batchInfo;
+    }
+
+    @Test
+    void recordInserted_UpsertsTheGroupsInKeyOrder() {
+        // Arrange
+        List<BatchInfo> batchInfos = List.of(batch("BTC-0001", "T3", "High", 600), batch("BTC-0002", "T1", "Normal", 400),
+                batch("BTC-0003", "T1", "High", 600), batch("BTC-0004", "T1", "High", 400), batch("BTC-0005", null, null, 400));
+        TransactionSynchronizationManager.initSynchronization();
+
+        // Act
+        try {
+            batchStatsService.recordInserted(batchInfos);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // Assert
+        ArgumentCaptor<BatchStats> upserts = ArgumentCaptor.forClass(BatchStats.class);
+        verify(batchStatsRepository, times(5)).addTotals(upserts.capture());
+        assertEquals(List.of("null/null/No", "T1/High/No", "T1/High/Yes", "T1/Normal/No", "T3/High/Yes"),
+                upserts.getAllValues().stream().map(stats -> stats.getMedicineTypeCode() + "/" + stats.getCareLevel()
+                        + "/" + stats.getRefrigeration()).toList());
+    }
+
+    @Test
+    void getTotals_UnknownDimension_ShouldThrowException() {
+        PharmaBusinessException exception = assertThrows(PharmaBusinessException.class,
+                () -> batchStatsService.getTotals(List.of("weight")));
+        assertEquals(400, exception.getErrorCode());
+    }
+
+    // Helper method to record batches as a committed transaction does
+    private static void commit(Runnable record) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            record.run();
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            synchronizations.forEach(synchronization -> synchronization.beforeCommit(false));
+            synchronizations.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void refresh_PicksUpTheBatchesRecordedByAnotherInstance() {
+        // Arrange: two instances sharing one summary table
+        Map<String, BatchStats> table = new ConcurrentHashMap<>();
+        doAnswer(invocation -> {
+            BatchStats delta = invocation.getArgument(0);
+            table.merge(delta.getMedicineTypeCode() + "/" + delta.getCareLevel() + "/" + delta.getRefrigeration(), delta,
+                    (row, added) -> new BatchStats(row.getMedicineTypeCode(), row.getCareLevel(), row.getRefrigeration(),
+                            row.getBatchCount() + added.getBatchCount(), row.getTotalWeight() + added.getTotalWeight(),
+                            row.getTotalPrice() + added.getTotalPrice(),
+                            row.getTotalShippingCharge() + added.getTotalShippingCharge()));
+            return null;
+        }).when(batchStatsRepository).addTotals(any());
+        when(batchStatsRepository.findAll()).thenAnswer(invocation -> List.copyOf(table.values()));
+        BatchStatsService otherInstance = new BatchStatsService();
+        ReflectionTestUtils.setField(otherInstance, "batchStatsRepository", batchStatsRepository);
+        batchStatsService.load();
+        otherInstance.load();
+
+        // Act
+        commit(() -> batchStatsService.recordInserted(List.of(batch("BTC-0001", "T1", "High", 600),
+                batch("BTC-0002", "T1", "High", 400), batch("BTC-0003", "T3", "Normal", 400))));
+        List<BatchTotals> beforeRefresh = otherInstance.getTotals(List.of());
+        otherInstance.refresh();
+        List<BatchTotals> afterRefresh = otherInstance.getTotals(List.of("medicineTypeCode"));
+        commit(() -> otherInstance.recordDeleted(List.of(batch("BTC-0002", "T1", "High", 400))));
+        batchStatsService.refresh();
+
+        // Assert
+        assertEquals(List.of(), beforeRefresh);
+        assertEquals(List.of(new BatchTotals("T1", null, null, 2, 1000, 20, 0),
+                new BatchTotals("T3", null, null, 1, 400, 10, 0)), afterRefresh);
+        assertEquals(List.of(new BatchTotals("T1", null, null, 1, 600, 10, 0),
+                new BatchTotals("T3", null, null, 1, 400, 10, 0)), batchStatsService.getTotals(List.of("medicineTypeCode")));
+        assertEquals(batchStatsService.getTotals(List.of()), otherInstance.getTotals(List.of()));
+    }
+
+    @Test
+    void refresh_WhenTheTableCannotBeRead_ShouldKeepTheCurrentTotals() {
+        // Arrange
+        List<BatchTotals> loaded = batchStatsService.getTotals(List.of());
+        when(batchStatsRepository.findAll()).thenThrow(new DataAccessResourceFailureException("Connection refused"));
+
+        // Act
+        batchStatsService.refresh();
+
+        // Assert
+        assertEquals(loaded, batchStatsService.getTotals(List.of()));
+    }
+}
@@ -0,0 +1,112 @@
+package com.ust.pharmaAssistant.service;
+
+import com.ust.pharmaAssistant.exception.PharmaBusinessException;
+import com.ust.pharmaAssistant.model.BatchInfo;
+import com.ust.pharmaAssistant.model.IdempotencyRecord;
+import com.ust.pharmaAssistant.model.IdempotentResponse;
+import com.ust.pharmaAssistant.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    private IdempotencyService idempotencyService;
+
+    private final String requestHash = IdempotencyService.fingerprint(new BatchInfo("BTC-0001", "MED001", 400, 50, "T1"));
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(idempotencyRecordRepository.findById(any())).thenReturn(Optional.empty());
+        idempotencyService = new IdempotencyService(idempotencyRecordRepository, 100, Duration.ofHours(1), Duration.ofSeconds(5));
+    }
+
+    @Test
+    void execute_Retry_ReplaysStoredResponseWithoutRunningTheRequest() {
+        // Arrange
+        AtomicInteger runs = new AtomicInteger();
+
+        // Act
+        IdempotentResponse first = idempotencyService.execute("key-1", requestHash,
+                () -> new IdempotentResponse(200, "added " + runs.incrementAndGet(), false));
+        IdempotentResponse retry = idempotencyService.execute("key-1", requestHash,
+                () -> new IdempotentResponse(200, "added " + runs.incrementAndGet(), false));
+
+        // Assert
+        assertEquals(1, runs.get());
+        assertFalse(first.replayed());
+        assertTrue(retry.replayed());
+        assertEquals("added 1", retry.body());
+        verify(idempotencyRecordRepository, times(1)).save(any(IdempotencyRecord.class));
+    }
+
+    @Test
+    void execute_SameKeyWithDifferentRequest_ShouldThrowException() {
+        idempotencyService.execute("key-1", requestHash, () -> new IdempotentResponse(200, "added", false));
+        String otherHash = IdempotencyService.fingerprint(new BatchInfo("BTC-0002", "MED001", 400, 50, "T1"));
+
+        PharmaBusinessException exception = assertThrows(PharmaBusinessException.class,
+                () -> idempotencyService.execute("key-1", otherHash, () -> new IdempotentResponse(200, "added", false)));
+        assertEquals(422, exception.getErrorCode());
+    }
+
+    @Test
+    void execute_ServerError_IsNotStored() {
+        idempotencyService.execute("key-1", requestHash, () -> new IdempotentResponse(500, "General system Error", false));
+        IdempotentResponse retry = idempotencyService.execute("key-1", requestHash, () -> new IdempotentResponse(200, "added", false));
+
+        assertEquals(200, retry.status());
+        assertFalse(retry.replayed());
+    }
+
+    @Test
+    void execute_ConcurrentDuplicate_WaitsForTheRequestInProgress() throws Exception {
+        // Arrange
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        CompletableFuture<IdempotentResponse> original = CompletableFuture.supplyAsync(() ->
+                idempotencyService.execute("key-1", requestHash, () -> {
+                    runs.incrementAndGet();
+                    started.countDown();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return new IdempotentResponse(200, "added", false);
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Act
+        CompletableFuture<IdempotentResponse> duplicate = CompletableFuture.supplyAsync(() ->
+                idempotencyService.execute("key-1", requestHash, () -> new IdempotentResponse(200, "again " + runs.incrementAndGet(), false)));
+        release.countDown();
+
+        // Assert
+        assertEquals("added", original.get(5, TimeUnit.SECONDS).body());
+        assertEquals("added", duplicate.get(5, TimeUnit.SECONDS).body());
+        assertEquals(1, runs.get());
+    }
+}
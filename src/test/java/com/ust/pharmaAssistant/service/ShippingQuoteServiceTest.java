@@ -0,0 +1,106 @@
+package com.ust.pharmaAssistant.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ust.pharmaAssistant.exception.PharmaBusinessException;
+import com.ust.pharmaAssistant.model.MedicalTypeMaster;
+import com.ust.pharmaAssistant.model.ShippingMaster;
+import com.ust.pharmaAssistant.repository.MedicalTypeMasterRepository;
+import com.ust.pharmaAssistant.repository.ShippingMasterRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+class ShippingQuoteServiceTest {
+
+    @Mock
+    private ShippingMasterRepository shippingMasterRepository;
+
+    @Mock
+    private MedicalTypeMasterRepository medicalTypeMasterRepository;
+
+    @InjectMocks
+    private ShippingQuoteService shippingQuoteService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Helper method to create a shipping master row
+    private static ShippingMaster shippingMaster(String medicineTypeCode, String weightRange, double shippingCharge) {
+        ShippingMaster shippingMaster = new ShippingMaster();
+        shippingMaster.setMedicineTypeCode(medicineTypeCode);
+        shippingMaster.setWeightRange(weightRange);
+        shippingMaster.setShippingCharge(shippingCharge);
+        return shippingMaster;
+    }
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        ReflectionTestUtils.setField(shippingQuoteService, "batchRuleService", new BatchRuleService());
+        ReflectionTestUtils.setField(shippingQuoteService, "maxItems", 3);
+        when(shippingMasterRepository.findAll()).thenReturn(List.of(shippingMaster("T1", "W1", 10.0),
+                shippingMaster("T1", "W2", 20.0), shippingMaster("T2", "W1", 30.0), shippingMaster("T4", "W1", 40.0)));
+        when(medicalTypeMasterRepository.findAll()).thenReturn(List.of(new MedicalTypeMaster("T1", "Tablets"),
+                new MedicalTypeMaster("T2", "Syrups"), new MedicalTypeMaster("T3", "Capsules")));
+        shippingQuoteService.load();
+    }
+
+    // Helper method to post a request to the service and parse the response
+    private JsonNode quote(String request) throws Exception {
+        return objectMapper.readTree(shippingQuoteService.quote(request.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void quote_AppliesTheRulesOfAddBatch() throws Exception {
+        // Act
+        JsonNode quotes = quote("[{\"medicineTypeCode\":\"T1\",\"weight\":600,\"batchCode\":\"BTC-1234\"},"
+                + "{\"medicineTypeCode\":\"T2\",\"weight\":400,\"refrigeration\":\"Yes\"},"
+                + "{\"medicineTypeCode\":\"T1\",\"weight\":400}]");
+
+        // Assert (refrigeration defaults to Yes above 500, with a 5% surcharge)
+        assertEquals(3, quotes.size());
+        assertEquals("W2", quotes.get(0).get("weightRange").asText());
+        assertEquals(21.0, quotes.get(0).get("shippingCharge").asDouble(), 1e-9);
+        assertEquals("High", quotes.get(0).get("careLevel").asText());
+        assertEquals(31.5, quotes.get(1).get("shippingCharge").asDouble(), 1e-9);
+        assertEquals("Extremely High", quotes.get(1).get("careLevel").asText());
+        assertEquals(10.0, quotes.get(2).get("shippingCharge").asDouble(), 1e-9);
+    }
+
+    @Test
+    void quote_ReportsTheErrorsOfAddBatch() throws Exception {
+        // Act
+        JsonNode quotes = quote("[{\"medicineTypeCode\":\"T3\",\"weight\":400},"
+                + "{\"medicineTypeCode\":\"T4\",\"weight\":400},"
+                + "{\"medicineTypeCode\":\"T9\",\"weight\":400}]");
+
+        // Assert
+        assertEquals(514, quotes.get(0).get("errorCode").asInt());
+        assertEquals(515, quotes.get(1).get("errorCode").asInt());
+        assertEquals("Medicine type not found", quotes.get(1).get("message").asText());
+        assertEquals(514, quotes.get(2).get("errorCode").asInt());
+    }
+
+    @Test
+    void quote_WithInvalidRequest_ShouldThrowException() {
+        // Act and Assert
+        assertEquals(400, assertThrows(PharmaBusinessException.class,
+                () -> quote("{\"medicineTypeCode\":\"T1\",\"weight\":400}")).getErrorCode());
+        assertEquals(400, assertThrows(PharmaBusinessException.class,
+                () -> quote("[{\"medicineTypeCode\":\"T1\"}]")).getErrorCode());
+        assertEquals(400, assertThrows(PharmaBusinessException.class,
+                () -> quote("[{\"medicineTypeCode\":\"T1\",")).getErrorCode());
+        assertEquals(413, assertThrows(PharmaBusinessException.class,
+                () -> quote("[{\"weight\":1},{\"weight\":1},{\"weight\":1},{\"weight\":1}]")).getErrorCode());
+    }
+}